@@ -1,5 +1,7 @@
 package He1ly03;
 
+import He1ly03.actionbar.ActionBarManager;
+import He1ly03.audit.AuditLog;
 import He1ly03.chunk.ChunkManager;
 import He1ly03.command.ChunkCommand;
 import He1ly03.config.ConfigManager;
@@ -8,9 +10,14 @@ import He1ly03.hologram.HologramManager;
 import He1ly03.integration.IntegrationManager;
 import He1ly03.integration.WorldGuardIntegration;
 import He1ly03.listener.ChunkEnterListener;
+import He1ly03.listener.ClaimLoadListener;
 import He1ly03.listener.ProtectionListener;
 import He1ly03.menu.MenuListener;
 import He1ly03.menu.MenuManager;
+import He1ly03.storage.FileStorage;
+import He1ly03.storage.StorageBackend;
+import He1ly03.task.IoExecutor;
+import He1ly03.task.TimeSlicedScheduler;
 import He1ly03.utils.LogoUtils;
 import He1ly03.utils.UpdateChecker;
 import He1ly03.wand.WandListener;
@@ -28,13 +35,18 @@ public final class LiseryPrivate extends JavaPlugin {
     
     // Managers
     private ConfigManager configManager;
+    private StorageBackend storage;
     private DatabaseManager databaseManager;
+    private AuditLog auditLog;
     private ChunkManager chunkManager;
     private IntegrationManager integrationManager;
     private WorldGuardIntegration worldGuardIntegration;
     private MenuManager menuManager;
+    private TimeSlicedScheduler scheduler;
+    private IoExecutor ioExecutor;
     private WandManager wandManager;
     private HologramManager hologramManager;
+    private ActionBarManager actionBarManager;
     private UpdateChecker updateChecker;
 
     @Override
@@ -52,6 +64,9 @@ public final class LiseryPrivate extends JavaPlugin {
             configManager.loadAll();
             getLogger().info("Configuration loaded!");
             
+            // Initialize executor for database, file and network work
+            ioExecutor = new IoExecutor(this);
+            
             // Initialize WorldGuard integration (required)
             worldGuardIntegration = new WorldGuardIntegration(this);
             if (!worldGuardIntegration.initialize()) {
@@ -61,14 +76,23 @@ public final class LiseryPrivate extends JavaPlugin {
             }
             getLogger().info("WorldGuard integration initialized!");
             
-            // Initialize database
-            databaseManager = new DatabaseManager(this);
-            if (!databaseManager.initialize()) {
-                getLogger().severe("Failed to initialize database! Disabling plugin...");
+            // Initialize storage
+            if (configManager.getStorageType().equals("FILE")) {
+                storage = new FileStorage(this);
+            } else {
+                databaseManager = new DatabaseManager(this);
+                storage = databaseManager;
+            }
+            if (!storage.initialize()) {
+                getLogger().severe("Failed to initialize storage! Disabling plugin...");
                 getServer().getPluginManager().disablePlugin(this);
                 return;
             }
-            getLogger().info("Database initialized!");
+            getLogger().info("Storage initialized! Type: " + storage.getType());
+            
+            // Start audit log writer
+            auditLog = new AuditLog(this);
+            auditLog.start();
             
             // Initialize other integrations
             integrationManager = new IntegrationManager(this);
@@ -83,6 +107,10 @@ public final class LiseryPrivate extends JavaPlugin {
             // Initialize menu manager
             menuManager = new MenuManager(this);
             
+            // Initialize time-sliced scheduler for per-player tasks
+            scheduler = new TimeSlicedScheduler(this);
+            scheduler.start();
+            
             // Initialize wand manager
             wandManager = new WandManager(this);
             wandManager.startOutlineTask();
@@ -91,6 +119,10 @@ public final class LiseryPrivate extends JavaPlugin {
             hologramManager = new HologramManager(this);
             hologramManager.start();
             
+            // Initialize status action bar
+            actionBarManager = new ActionBarManager(this);
+            actionBarManager.start();
+            
             // Register listeners
             registerListeners();
             
@@ -124,9 +156,34 @@ public final class LiseryPrivate extends JavaPlugin {
             hologramManager.stop();
         }
         
-        // Close database
-        if (databaseManager != null) {
-            databaseManager.close();
+        // Stop status action bar
+        if (actionBarManager != null) {
+            actionBarManager.stop();
+        }
+        
+        // Stop scheduler
+        if (scheduler != null) {
+            scheduler.stop();
+        }
+        
+        // Write buffered audit entries while the database is still open
+        if (auditLog != null) {
+            auditLog.close();
+        }
+        
+        // Let running I/O tasks finish while the database is still open
+        if (ioExecutor != null) {
+            ioExecutor.close(configManager.getIoShutdownTimeout());
+        }
+        
+        // Save region changes that are still waiting for the save delay
+        if (worldGuardIntegration != null && worldGuardIntegration.isEnabled()) {
+            worldGuardIntegration.flush();
+        }
+        
+        // Write pending claim changes and close storage
+        if (storage != null) {
+            storage.close();
         }
         
         getLogger().info("LiseryPrivate disabled.");
@@ -139,13 +196,25 @@ public final class LiseryPrivate extends JavaPlugin {
         // Reload configs
         configManager.reloadAll();
         
-        // Reload chunks from database
+        // Reload chunks from storage, pending changes have to be written first
+        if (!storage.flush(configManager.getWriteBehindShutdownTimeout())) {
+            getLogger().warning("Not all pending claim changes were written before reload!");
+        }
         chunkManager.loadChunks();
         
+        // Apply new tick budget
+        scheduler.reload();
+        
+        // Restart wand tracking, wand material may have changed
+        wandManager.startOutlineTask();
+        
         // Restart hologram manager
         hologramManager.stop();
         hologramManager.start();
         
+        // Restart status action bar
+        actionBarManager.start();
+        
         getLogger().info("LiseryPrivate reloaded!");
     }
     
@@ -154,6 +223,10 @@ public final class LiseryPrivate extends JavaPlugin {
         getServer().getPluginManager().registerEvents(new ChunkEnterListener(this), this);
         getServer().getPluginManager().registerEvents(new MenuListener(this), this);
         getServer().getPluginManager().registerEvents(new WandListener(this), this);
+        getServer().getPluginManager().registerEvents(scheduler, this);
+        if (chunkManager.isLazy()) {
+            getServer().getPluginManager().registerEvents(new ClaimLoadListener(this), this);
+        }
     }
     
     private void registerCommands() {
@@ -172,10 +245,24 @@ public final class LiseryPrivate extends JavaPlugin {
         return configManager;
     }
     
+    public StorageBackend getStorage() {
+        return storage;
+    }
+    
+    /**
+     * Database manager, null when claims are stored in files
+     */
     public DatabaseManager getDatabaseManager() {
         return databaseManager;
     }
     
+    /**
+     * Claim history, records nothing when claims are stored in files
+     */
+    public AuditLog getAuditLog() {
+        return auditLog;
+    }
+    
     public ChunkManager getChunkManager() {
         return chunkManager;
     }
@@ -192,6 +279,14 @@ public final class LiseryPrivate extends JavaPlugin {
         return menuManager;
     }
     
+    public TimeSlicedScheduler getScheduler() {
+        return scheduler;
+    }
+    
+    public IoExecutor getIoExecutor() {
+        return ioExecutor;
+    }
+    
     public WandManager getWandManager() {
         return wandManager;
     }
@@ -200,6 +295,10 @@ public final class LiseryPrivate extends JavaPlugin {
         return hologramManager;
     }
     
+    public ActionBarManager getActionBarManager() {
+        return actionBarManager;
+    }
+    
     public UpdateChecker getUpdateChecker() {
         return updateChecker;
     }
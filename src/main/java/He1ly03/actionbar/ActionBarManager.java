@@ -0,0 +1,115 @@
+package He1ly03.actionbar;
+
+import He1ly03.LiseryPrivate;
+import He1ly03.chunk.ChunkData;
+import He1ly03.task.TimeSlicedScheduler;
+import He1ly03.utils.ColorUtils;
+import He1ly03.utils.MessageUtils;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Shows a persistent status action bar while a player is inside a claim.
+ * Players are spread over refresh-ticks buckets by the time-sliced scheduler,
+ * so every tick only handles a slice of the online players. The rendered component is cached
+ * per player and rebuilt only when the claim or its state version changes.
+ */
+public class ActionBarManager {
+    
+    private final LiseryPrivate plugin;
+    
+    // Cached status per player
+    private final Map<UUID, StatusEntry> entries = new HashMap<>();
+    
+    private TimeSlicedScheduler.SlicedTask tickTask;
+    private String format;
+    
+    public ActionBarManager(LiseryPrivate plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Start the action bar ticker
+     */
+    public void start() {
+        stop();
+        
+        if (!plugin.getConfigManager().isStatusActionBarEnabled()) {
+            return;
+        }
+        
+        this.format = plugin.getConfigManager().getStatusActionBarFormat();
+        
+        // Each player is updated once per refresh-ticks
+        tickTask = plugin.getScheduler().register("status-actionbar",
+                plugin.getConfigManager().getStatusActionBarRefreshTicks(), this::update);
+    }
+    
+    /**
+     * Stop the action bar ticker
+     */
+    public void stop() {
+        plugin.getScheduler().unregister(tickTask);
+        tickTask = null;
+        entries.clear();
+    }
+    
+    /**
+     * Remove player's cached status when they leave
+     */
+    public void removePlayer(UUID playerUUID) {
+        entries.remove(playerUUID);
+    }
+    
+    private void update(Player player) {
+        Location location = player.getLocation();
+        ChunkData chunk = plugin.getChunkManager().getChunkAt(location.getWorld().getName(),
+                location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        
+        if (chunk == null) {
+            // Outside of claims the bar simply fades out
+            entries.remove(player.getUniqueId());
+            return;
+        }
+        
+        StatusEntry entry = entries.get(player.getUniqueId());
+        if (entry == null || entry.chunk != chunk || entry.version != chunk.getStateVersion()) {
+            entry = new StatusEntry(chunk, chunk.getStateVersion(), render(player, chunk));
+            entries.put(player.getUniqueId(), entry);
+        }
+        
+        player.sendActionBar(entry.component);
+    }
+    
+    private Component render(Player player, ChunkData chunk) {
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("%player%", player.getName());
+        placeholders.put("%owner%", chunk.getOwnerName());
+        placeholders.put("%chunk%", chunk.getName());
+        placeholders.put("%pvp%", chunk.getSettings().isPvpAllowed()
+                ? plugin.getConfigManager().getPvPFormatTrue()
+                : plugin.getConfigManager().getPvPFormatFalse());
+        
+        return ColorUtils.colorize(MessageUtils.replacePlaceholders(format, placeholders));
+    }
+    
+    /**
+     * Rendered action bar for a claim at a given state version
+     */
+    private static final class StatusEntry {
+        private final ChunkData chunk;
+        private final int version;
+        private final Component component;
+        
+        private StatusEntry(ChunkData chunk, int version, Component component) {
+            this.chunk = chunk;
+            this.version = version;
+            this.component = component;
+        }
+    }
+}
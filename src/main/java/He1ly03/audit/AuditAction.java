@@ -0,0 +1,40 @@
+package He1ly03.audit;
+
+/**
+ * Kinds of claim changes kept in the audit log
+ * The name is stored in the database, the label is shown in the history.
+ */
+public enum AuditAction {
+    CLAIM("заприватил"),
+    UNCLAIM("расприватил"),
+    FORCE_UNCLAIM("принудительно расприватил"),
+    RENAME("переименовал"),
+    TRUST_ADD("добавил в доверенные"),
+    TRUST_REMOVE("убрал из доверенных"),
+    SETTINGS("изменил настройку"),
+    SALE_LIST("выставил на продажу"),
+    SALE_CANCEL("снял с продажи"),
+    SALE_BUY("купил");
+    
+    private final String label;
+    
+    AuditAction(String label) {
+        this.label = label;
+    }
+    
+    public String getLabel() {
+        return label;
+    }
+    
+    /**
+     * Action for a stored name, null for names of a newer version
+     */
+    public static AuditAction fromName(String name) {
+        for (AuditAction action : values()) {
+            if (action.name().equals(name)) {
+                return action;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,16 @@
+package He1ly03.audit;
+
+import java.util.UUID;
+
+/**
+ * One audit log entry
+ * The id is 0 until the entry is written. Actor is the player who made the
+ * change, target the other player involved (trusted player, seller), both
+ * may be null.
+ */
+public record AuditEvent(long id, long time, AuditAction action,
+                         UUID actorUUID, String actorName,
+                         UUID targetUUID, String targetName,
+                         String world, int chunkX, int chunkZ,
+                         String chunkName, String details) {
+}
@@ -0,0 +1,248 @@
+package He1ly03.audit;
+
+import He1ly03.LiseryPrivate;
+import He1ly03.chunk.ChunkData;
+import He1ly03.database.AuditStore;
+import He1ly03.database.DatabaseManager;
+import He1ly03.task.IoExecutor;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * History of claim changes for moderation
+ * Recording only puts the entry into a lock-free ring buffer, so it is cheap
+ * on the main thread. A background writer drains the buffer in batched inserts
+ * and runs the retention job. Needs SQLite or MySQL storage, with file storage
+ * nothing is recorded.
+ */
+public class AuditLog {
+    
+    public static final int PAGE_SIZE = 10;
+    
+    private static final long RETENTION_INTERVAL_MS = 3_600_000L;
+    private static final int RETENTION_CHUNK = 1000;
+    // Chunks per retention run, the rest is removed in the next run
+    private static final int RETENTION_MAX_CHUNKS = 100;
+    private static final long CLOSE_TIMEOUT_MS = 5000L;
+    
+    private final LiseryPrivate plugin;
+    private AuditStore store;
+    private AuditRingBuffer<AuditEvent> buffer;
+    private Thread writer;
+    private volatile boolean running;
+    private int batchSize;
+    private long flushIntervalNanos;
+    private long retentionMs;
+    private boolean rollup;
+    private long lastRetention;
+    
+    private final AtomicBoolean dropWarned = new AtomicBoolean();
+    
+    // Metrics
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long written;
+    private volatile long batches;
+    private volatile long failed;
+    private volatile long purged;
+    
+    public AuditLog(LiseryPrivate plugin) {
+        this.plugin = plugin;
+    }
+    
+    public void start() {
+        var configManager = plugin.getConfigManager();
+        DatabaseManager databaseManager = plugin.getDatabaseManager();
+        if (!configManager.isAuditEnabled()) {
+            return;
+        }
+        if (databaseManager == null) {
+            plugin.getLogger().warning("Audit log needs SQLite or MySQL storage, claim history is not recorded.");
+            return;
+        }
+        
+        this.store = databaseManager.getAuditStore();
+        this.buffer = new AuditRingBuffer<>(configManager.getAuditBufferSize());
+        this.batchSize = configManager.getAuditBatchSize();
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(configManager.getAuditFlushInterval());
+        this.retentionMs = configManager.getAuditRetention();
+        this.rollup = configManager.isAuditRollup();
+        
+        running = true;
+        writer = new Thread(this::run, "LiseryPrivate-Audit");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    
+    /**
+     * Stop the writer and write what is left in the buffer
+     */
+    public void close() {
+        if (writer == null) return;
+        
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            plugin.getLogger().warning("Audit writer did not stop in time, " + buffer.size() + " entries are lost.");
+        }
+        writer = null;
+    }
+    
+    public boolean isEnabled() {
+        return writer != null;
+    }
+    
+    // ==================== Recording ====================
+    
+    public void record(AuditAction action, Player actor, ChunkData chunk, String details) {
+        record(action, actor, chunk, null, null, details);
+    }
+    
+    /**
+     * Record a change made by a player, target is the other player involved
+     */
+    public void record(AuditAction action, Player actor, ChunkData chunk, UUID targetUUID, String targetName, String details) {
+        if (buffer == null) return;
+        
+        AuditEvent event = new AuditEvent(0, System.currentTimeMillis(), action,
+                actor != null ? actor.getUniqueId() : null, actor != null ? actor.getName() : null,
+                targetUUID, targetName,
+                chunk.getWorld(), chunk.getChunkX(), chunk.getChunkZ(), chunk.getName(), details);
+        
+        if (!buffer.offer(event)) {
+            dropped.incrementAndGet();
+            if (dropWarned.compareAndSet(false, true)) {
+                plugin.getLogger().warning("Audit buffer is full, entries are dropped. Raise audit.buffer-size or check the database.");
+            }
+            return;
+        }
+        
+        // Wake the writer early once a full batch is waiting
+        if (buffer.size() >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+    }
+    
+    // ==================== Writer ====================
+    
+    private void run() {
+        while (running) {
+            LockSupport.parkNanos(this, flushIntervalNanos);
+            drain();
+            
+            long now = System.currentTimeMillis();
+            if (running && retentionMs > 0 && now - lastRetention >= RETENTION_INTERVAL_MS) {
+                lastRetention = now;
+                applyRetention(now);
+            }
+        }
+        drain();
+    }
+    
+    private void drain() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (buffer.drain(batch, batchSize) > 0) {
+            try {
+                store.insert(batch);
+                written += batch.size();
+                batches++;
+            } catch (SQLException e) {
+                failed += batch.size();
+                plugin.getLogger().log(Level.SEVERE, "Failed to write " + batch.size() + " audit entries!", e);
+            }
+            batch.clear();
+        }
+        if (buffer.size() == 0) {
+            dropWarned.set(false);
+        }
+    }
+    
+    /**
+     * Remove or roll up old entries in small transactions so claim writes are not held up
+     */
+    private void applyRetention(long now) {
+        long before = now - retentionMs;
+        try {
+            for (int i = 0; i < RETENTION_MAX_CHUNKS && running; i++) {
+                int removed = store.purge(before, rollup, RETENTION_CHUNK);
+                purged += removed;
+                if (removed < RETENTION_CHUNK) break;
+                
+                // New entries should not wait for the whole run
+                drain();
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to remove old audit entries!", e);
+        }
+    }
+    
+    // ==================== History ====================
+    
+    /**
+     * Look up a page of a player's history off the main thread, callbacks run on the main thread
+     */
+    public void findByPlayer(OfflinePlayer player, int page, Consumer<List<AuditEvent>> callback, Consumer<Exception> onError) {
+        lookup(() -> store.findByPlayer(player.getUniqueId(), page * PAGE_SIZE, PAGE_SIZE), callback, onError);
+    }
+    
+    /**
+     * Look up a page of the history of one chunk position
+     */
+    public void findByChunk(String world, int chunkX, int chunkZ, int page,
+                            Consumer<List<AuditEvent>> callback, Consumer<Exception> onError) {
+        lookup(() -> store.findByChunk(world, chunkX, chunkZ, page * PAGE_SIZE, PAGE_SIZE), callback, onError);
+    }
+    
+    private void lookup(IoExecutor.IoCallable<List<AuditEvent>> query,
+                        Consumer<List<AuditEvent>> callback, Consumer<Exception> onError) {
+        plugin.getIoExecutor().submit(IoExecutor.Resource.DATABASE, query, callback, e -> {
+            plugin.getLogger().log(Level.WARNING, "Audit history lookup failed", e);
+            onError.accept(e);
+        });
+    }
+    
+    // ==================== Metrics ====================
+    
+    public int getPendingCount() {
+        return buffer != null ? buffer.size() : 0;
+    }
+    
+    public int getCapacity() {
+        return buffer != null ? buffer.capacity() : 0;
+    }
+    
+    public long getDropped() {
+        return dropped.get();
+    }
+    
+    public long getWritten() {
+        return written;
+    }
+    
+    public long getBatches() {
+        return batches;
+    }
+    
+    public long getFailed() {
+        return failed;
+    }
+    
+    public long getPurged() {
+        return purged;
+    }
+}
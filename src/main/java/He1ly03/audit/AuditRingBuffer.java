@@ -0,0 +1,72 @@
+package He1ly03.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer
+ * Producers claim a slot by moving the tail with a CAS and publish the element
+ * into it, the consumer takes published elements in order and frees the slots.
+ * A full buffer rejects new elements instead of blocking the caller.
+ */
+class AuditRingBuffer<E> {
+    
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    
+    // Only moved by the consumer
+    private volatile long head;
+    
+    AuditRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+    
+    /**
+     * Add an element, false if the buffer is full
+     */
+    boolean offer(E element) {
+        long position;
+        do {
+            position = tail.get();
+            if (position - head >= slots.length()) {
+                return false;
+            }
+        } while (!tail.compareAndSet(position, position + 1));
+        
+        slots.lazySet((int) position & mask, element);
+        return true;
+    }
+    
+    /**
+     * Move up to max elements into the list, consumer thread only
+     * Stops at a slot that is claimed but not yet published.
+     */
+    int drain(List<E> into, int max) {
+        long position = head;
+        int taken = 0;
+        while (taken < max) {
+            int index = (int) position & mask;
+            E element = slots.get(index);
+            if (element == null) break;
+            
+            slots.lazySet(index, null);
+            into.add(element);
+            position++;
+            taken++;
+        }
+        head = position;
+        return taken;
+    }
+    
+    int size() {
+        return (int) Math.max(0L, tail.get() - head);
+    }
+    
+    int capacity() {
+        return slots.length();
+    }
+}
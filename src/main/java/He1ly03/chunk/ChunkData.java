@@ -11,7 +11,8 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class ChunkData {
     
-    private int id;
+    // Assigned by the persistence writer once the claim is inserted
+    private volatile int id;
     private final String world;
     private final int chunkX;
     private final int chunkZ;
@@ -31,6 +32,12 @@ public class ChunkData {
     // Cached trusted players (loaded on demand)
     private Map<UUID, String> trustedPlayers;
     
+    // In-memory state version, bumped on every change visible to players
+    private volatile int stateVersion;
+    
+    // Newest change log sequence applied to this claim from another server
+    private volatile long syncSeq;
+    
     public ChunkData(int id, String world, int chunkX, int chunkZ, String name, 
                      UUID ownerUUID, String ownerName, ChunkSettings settings) {
         this.id = id;
@@ -108,6 +115,24 @@ public class ChunkData {
         return trustedPlayers;
     }
     
+    /**
+     * Get the state version, used to invalidate rendered views of this chunk
+     */
+    public int getStateVersion() {
+        return stateVersion;
+    }
+    
+    /**
+     * Get the newest change log sequence applied to this claim, 0 if none
+     */
+    public long getSyncSeq() {
+        return syncSeq;
+    }
+    
+    public void setSyncSeq(long syncSeq) {
+        this.syncSeq = syncSeq;
+    }
+    
     /**
      * Get the unique chunk key
      */
@@ -158,6 +183,13 @@ public class ChunkData {
                 new ConcurrentHashMap<>(trustedPlayers) : new ConcurrentHashMap<>();
     }
     
+    /**
+     * Mark the chunk state as changed
+     */
+    public void bumpStateVersion() {
+        stateVersion++;
+    }
+    
     // ==================== Trust Methods ====================
     
     /**
@@ -206,6 +238,22 @@ public class ChunkData {
         this.trustedPlayers.clear();
     }
     
+    /**
+     * Take over the stored state of the same claim, changed elsewhere
+     */
+    public void copyStateFrom(ChunkData other) {
+        this.name = other.name;
+        this.ownerUUID = other.ownerUUID;
+        this.ownerName = other.ownerName;
+        this.settings.copyFrom(other.settings);
+        this.forSale = other.forSale;
+        this.salePrice = other.salePrice;
+        this.saleLocation = other.saleLocation;
+        this.worldGuardRegion = other.worldGuardRegion;
+        this.trustedPlayers.keySet().retainAll(other.trustedPlayers.keySet());
+        this.trustedPlayers.putAll(other.trustedPlayers);
+    }
+    
     /**
      * Put chunk for sale
      */
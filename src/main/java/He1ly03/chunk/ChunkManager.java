@@ -1,6 +1,8 @@
 package He1ly03.chunk;
 
 import He1ly03.LiseryPrivate;
+import He1ly03.storage.LoadResult;
+import He1ly03.task.IoExecutor;
 import He1ly03.utils.LocationUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
@@ -10,6 +12,10 @@ import org.bukkit.entity.Player;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 /**
@@ -25,37 +31,487 @@ public class ChunkManager {
     // Cache: player UUID -> set of owned chunk keys
     private final Map<UUID, Set<String>> playerChunks;
     
+    // Claims per owner over all worlds, including ones not loaded
+    private final Map<UUID, Integer> claimCounts;
+    
+    // Claim names per owner over all worlds, for unique names and auto-numbers
+    private final ClaimNames claimNames;
+    
+    // Connected claims of the same owner, built on demand
+    private final ClaimClusters claimClusters;
+    
+    // Lazy loading, fixed on startup
+    private final LoadMode loadMode;
+    private final Set<String> loadedWorlds;
+    private final Map<String, Set<Long>> loadedRegions;
+    
+    // Background loads started from world and chunk events, applied on the main thread
+    private final Map<String, Object> loadingWorlds;
+    private final Map<String, Set<Long>> loadingRegions;
+    
+    // Unloaded worlds whose queued changes may not be written yet -> unload number
+    private final Map<String, Long> unloadedWorlds;
+    private final AtomicLong unloads = new AtomicLong();
+    
+    // An archive import is writing claims, new claims wait so positions cannot be taken twice
+    private volatile boolean importing;
+    
     public ChunkManager(LiseryPrivate plugin) {
         this.plugin = plugin;
         this.chunkCache = new ConcurrentHashMap<>();
         this.playerChunks = new ConcurrentHashMap<>();
+        this.claimCounts = new ConcurrentHashMap<>();
+        this.claimNames = new ClaimNames();
+        this.claimClusters = new ClaimClusters(this);
+        this.loadedWorlds = ConcurrentHashMap.newKeySet();
+        this.loadedRegions = new ConcurrentHashMap<>();
+        this.loadingWorlds = new ConcurrentHashMap<>();
+        this.loadingRegions = new ConcurrentHashMap<>();
+        this.unloadedWorlds = new ConcurrentHashMap<>();
+        
+        LoadMode mode = LoadMode.valueOf(plugin.getConfigManager().getLazyLoading());
+        if (mode != LoadMode.OFF && !plugin.getStorage().supportsPartialLoading()) {
+            plugin.getLogger().warning("Lazy loading is not supported by " + plugin.getStorage().getType()
+                    + " storage, loading all claims.");
+            mode = LoadMode.OFF;
+        }
+        this.loadMode = mode;
     }
     
     /**
-     * Load all chunks from database into cache
+     * Load chunks from storage into cache
+     * With lazy loading only the claims of loaded worlds or regions are read.
      */
     public void loadChunks() {
         chunkCache.clear();
         playerChunks.clear();
+        claimCounts.clear();
+        claimNames.clear();
+        claimClusters.clear();
+        loadedWorlds.clear();
+        loadedRegions.clear();
+        loadingWorlds.clear();
+        loadingRegions.clear();
+        
+        if (loadMode != LoadMode.OFF) {
+            loadLazy();
+            return;
+        }
+        
+        long[] indexNanos = new long[1];
+        
+        // Chunks arrive with their trusted players already attached
+        LoadResult result = plugin.getStorage().loadAll(chunk -> {
+            long start = System.nanoTime();
+            addToCache(chunk);
+            claimCounts.merge(chunk.getOwnerUUID(), 1, Integer::sum);
+            claimNames.add(chunk.getOwnerUUID(), chunk.getName());
+            indexNanos[0] += System.nanoTime() - start;
+        });
+        
+        if (result == null) {
+            plugin.getLogger().warning("Loaded " + chunkCache.size() + " chunks, loading was interrupted by an error.");
+            return;
+        }
+        
+        plugin.getLogger().info(String.format("Loaded %d chunks and %d trusted players from %s storage in %d ms "
+                        + "(open %d ms, read %d ms, index %d ms).",
+                result.chunks(), result.trusted(), plugin.getStorage().getType(),
+                (result.openNanos() + result.readNanos()) / 1_000_000L,
+                result.openNanos() / 1_000_000L,
+                (result.readNanos() - indexNanos[0]) / 1_000_000L,
+                indexNanos[0] / 1_000_000L));
+    }
+    
+    // ==================== Lazy Loading ====================
+    
+    /**
+     * Load claim counts and the claims of worlds and regions that are already loaded
+     */
+    private void loadLazy() {
+        long start = System.nanoTime();
+        
+        Map<UUID, Integer> counts = plugin.getStorage().loadClaimCounts();
+        if (counts == null) {
+            plugin.getLogger().warning("Claim counts could not be loaded, limits only see loaded claims.");
+        } else {
+            claimCounts.putAll(counts);
+        }
+        
+        if (!plugin.getStorage().loadClaimNames(claimNames::add)) {
+            plugin.getLogger().warning("Claim names could not be loaded, name checks only see loaded claims.");
+        }
         
-        List<ChunkData> chunks = plugin.getDatabaseManager().loadAllChunks();
+        for (World world : Bukkit.getWorlds()) {
+            if (loadMode == LoadMode.WORLD) {
+                loadWorld(world.getName());
+            } else {
+                for (Chunk chunk : world.getLoadedChunks()) {
+                    loadRegion(world.getName(), chunk.getX(), chunk.getZ());
+                }
+            }
+        }
+        
+        int regions = loadedRegions.values().stream().mapToInt(Set::size).sum();
+        plugin.getLogger().info(String.format("Lazy loading per %s: loaded %d chunks of %s and counts of %d owners in %d ms.",
+                loadMode.name().toLowerCase(), chunkCache.size(),
+                loadMode == LoadMode.WORLD ? loadedWorlds.size() + " worlds" : regions + " regions",
+                claimCounts.size(), (System.nanoTime() - start) / 1_000_000L));
+    }
+    
+    /**
+     * Whether claims are loaded per world or region
+     */
+    public boolean isLazy() {
+        return loadMode != LoadMode.OFF;
+    }
+    
+    /**
+     * Load the claims of a world the first time it is seen, in per-world mode
+     * After an unload the queued changes are written first, that happens in a
+     * background load and the world stays not loaded until it is applied.
+     */
+    public void loadWorld(String world) {
+        if (loadMode != LoadMode.WORLD || loadedWorlds.contains(world)) return;
+        if (unloadedWorlds.containsKey(world)) {
+            loadWorldAsync(world);
+            return;
+        }
+        if (!loadedWorlds.add(world)) return;
+        
+        LoadResult result = plugin.getStorage().loadWorld(world, this::addLoaded);
+        if (result == null) {
+            // Try again the next time the world is needed
+            loadedWorlds.remove(world);
+            return;
+        }
+        if (result.chunks() > 0) {
+            claimClusters.clear();
+            plugin.getLogger().info(String.format("Loaded %d chunks of world %s in %d ms.", result.chunks(), world,
+                    (result.openNanos() + result.readNanos()) / 1_000_000L));
+        }
+    }
+    
+    /**
+     * Load the claims of the 32x32 region around a chunk the first time it is seen, in per-region mode
+     * After a world unload it is loaded in the background, like loadWorld.
+     */
+    public void loadRegion(String world, int chunkX, int chunkZ) {
+        if (loadMode != LoadMode.REGION) return;
+        if (unloadedWorlds.containsKey(world)) {
+            loadRegionAsync(world, chunkX, chunkZ);
+            return;
+        }
+        
+        int regionX = chunkX >> 5;
+        int regionZ = chunkZ >> 5;
+        Set<Long> regions = loadedRegions.computeIfAbsent(world, k -> ConcurrentHashMap.newKeySet());
+        long key = ClaimCluster.pack(regionX, regionZ);
+        if (!regions.add(key)) return;
+        
+        LoadResult result = plugin.getStorage().loadRegion(world, regionX, regionZ, this::addLoaded);
+        if (result == null) {
+            regions.remove(key);
+            return;
+        }
+        if (result.chunks() > 0) {
+            claimClusters.clear();
+        }
+    }
+    
+    /**
+     * Load the claims of a world in the background, in per-world mode
+     * The world counts as not loaded until its claims are applied on the main
+     * thread. A claim check needing it meanwhile loads it right away.
+     */
+    public void loadWorldAsync(String world) {
+        if (loadMode != LoadMode.WORLD || loadedWorlds.contains(world)) return;
+        
+        Object token = new Object();
+        if (loadingWorlds.putIfAbsent(world, token) != null) return;
+        
+        plugin.getIoExecutor().submit(IoExecutor.Resource.DATABASE,
+                () -> readClaims(world, consumer -> plugin.getStorage().loadWorld(world, consumer)),
+                chunks -> {
+                    // Dropped if the world was unloaded meanwhile or loaded by a claim check
+                    if (!loadingWorlds.remove(world, token) || chunks == null || !loadedWorlds.add(world)) return;
+                    applyLoaded(chunks);
+                },
+                error -> {
+                    loadingWorlds.remove(world, token);
+                    plugin.getLogger().log(Level.WARNING, "Failed to load claims of world " + world, error);
+                });
+    }
+    
+    /**
+     * Load the claims of the 32x32 region around a chunk in the background, in per-region mode
+     * The region counts as not loaded until its claims are applied on the main
+     * thread. A claim check needing it meanwhile loads it right away.
+     */
+    public void loadRegionAsync(String world, int chunkX, int chunkZ) {
+        if (loadMode != LoadMode.REGION) return;
+        
+        int regionX = chunkX >> 5;
+        int regionZ = chunkZ >> 5;
+        long key = ClaimCluster.pack(regionX, regionZ);
+        Set<Long> regions = loadedRegions.get(world);
+        if (regions != null && regions.contains(key)) return;
+        
+        Set<Long> loading = loadingRegions.computeIfAbsent(world, k -> ConcurrentHashMap.newKeySet());
+        if (!loading.add(key)) return;
+        
+        plugin.getIoExecutor().submit(IoExecutor.Resource.DATABASE,
+                () -> readClaims(world, consumer -> plugin.getStorage().loadRegion(world, regionX, regionZ, consumer)),
+                chunks -> {
+                    // Dropped if the world was unloaded meanwhile or the region loaded by a claim check
+                    if (!loading.remove(key) || loadingRegions.get(world) != loading || chunks == null) return;
+                    if (!loadedRegions.computeIfAbsent(world, k -> ConcurrentHashMap.newKeySet()).add(key)) return;
+                    applyLoaded(chunks);
+                },
+                error -> {
+                    loading.remove(key);
+                    plugin.getLogger().log(Level.WARNING, "Failed to load claims of world " + world, error);
+                });
+    }
+    
+    /**
+     * Read claims on an I/O thread, null if reading failed
+     */
+    private List<ChunkData> readClaims(String world, Function<Consumer<ChunkData>, LoadResult> loader) {
+        if (!flushUnloaded(world)) return null;
         
+        List<ChunkData> chunks = new ArrayList<>();
+        return loader.apply(chunks::add) != null ? chunks : null;
+    }
+    
+    private void applyLoaded(List<ChunkData> chunks) {
         for (ChunkData chunk : chunks) {
-            String key = chunk.getChunkKey();
-            chunkCache.put(key, chunk);
+            if (!chunkCache.containsKey(chunk.getChunkKey())) {
+                addToCache(chunk);
+                notifyClaimChanged(chunk);
+            }
+        }
+    }
+    
+    /**
+     * Wait until the changes queued before a world was unloaded are written, on an I/O thread
+     * Only the first load after an unload waits. Returns false if they are
+     * still not written, the stored claims would be outdated.
+     */
+    private boolean flushUnloaded(String world) {
+        Long unload = unloadedWorlds.get(world);
+        if (unload == null) return true;
+        
+        if (!plugin.getStorage().flush(plugin.getConfigManager().getWriteBehindShutdownTimeout())) {
+            plugin.getLogger().warning("Pending claim changes of world " + world + " are not written yet, loading it later.");
+            return false;
+        }
+        unloadedWorlds.remove(world, unload);
+        return true;
+    }
+    
+    /**
+     * Make sure all claims within radius chunks are loaded before a claim is checked against them
+     * Returns false if some are still loading in the background, e.g. after the world was unloaded.
+     */
+    private boolean ensureLoaded(String world, int chunkX, int chunkZ, int radius) {
+        boolean loaded = true;
+        if (loadMode == LoadMode.WORLD) {
+            loadWorld(world);
+            loaded = loadedWorlds.contains(world);
+        } else if (loadMode == LoadMode.REGION) {
+            for (int regionX = (chunkX - radius) >> 5; regionX <= (chunkX + radius) >> 5; regionX++) {
+                for (int regionZ = (chunkZ - radius) >> 5; regionZ <= (chunkZ + radius) >> 5; regionZ++) {
+                    loadRegion(world, regionX << 5, regionZ << 5);
+                    loaded &= isLoaded(world, regionX << 5, regionZ << 5);
+                }
+            }
+        }
+        return loaded;
+    }
+    
+    /**
+     * Drop the claims of an unloaded world from the cache, claim counts stay
+     * Pending changes stay with the write queue. The next load of the world
+     * waits for them on an I/O thread, so it reads the current state.
+     */
+    public void unloadWorld(String world) {
+        if (loadMode == LoadMode.OFF) return;
+        
+        unloadedWorlds.put(world, unloads.incrementAndGet());
+        loadedWorlds.remove(world);
+        loadedRegions.remove(world);
+        loadingWorlds.remove(world);
+        loadingRegions.remove(world);
+        
+        int removed = 0;
+        Iterator<ChunkData> iterator = chunkCache.values().iterator();
+        while (iterator.hasNext()) {
+            ChunkData chunk = iterator.next();
+            if (!chunk.getWorld().equals(world)) continue;
             
-            // Load trusted players
-            Map<UUID, String> trusted = plugin.getDatabaseManager().getTrustedPlayers(chunk.getId());
-            chunk.setTrustedPlayers(trusted);
+            iterator.remove();
+            Set<String> keys = playerChunks.get(chunk.getOwnerUUID());
+            if (keys != null) {
+                keys.remove(chunk.getChunkKey());
+            }
+            removed++;
+        }
+        
+        if (removed > 0) {
+            claimClusters.clear();
+            plugin.getLogger().info("Unloaded " + removed + " chunks of world " + world + ".");
+        }
+    }
+    
+    /**
+     * Add a lazily loaded claim, a claim already in the cache is newer than the stored one
+     */
+    private void addLoaded(ChunkData chunk) {
+        if (!chunkCache.containsKey(chunk.getChunkKey())) {
+            addToCache(chunk);
+        }
+    }
+    
+    private void addToCache(ChunkData chunk) {
+        String key = chunk.getChunkKey();
+        chunkCache.put(key, chunk);
+        playerChunks.computeIfAbsent(chunk.getOwnerUUID(), k -> ConcurrentHashMap.newKeySet())
+                .add(key);
+    }
+    
+    private void removeFromCache(ChunkData chunk) {
+        String key = chunk.getChunkKey();
+        chunkCache.remove(key);
+        
+        Set<String> playerChunkSet = playerChunks.get(chunk.getOwnerUUID());
+        if (playerChunkSet != null) {
+            playerChunkSet.remove(key);
+        }
+    }
+    
+    private void decrementClaimCount(UUID owner) {
+        claimCounts.computeIfPresent(owner, (uuid, count) -> count > 1 ? count - 1 : null);
+    }
+    
+    /**
+     * Whether the claims at a chunk are in the cache, or would be once loaded
+     */
+    private boolean isLoaded(String world, int chunkX, int chunkZ) {
+        return switch (loadMode) {
+            case OFF -> true;
+            case WORLD -> loadedWorlds.contains(world);
+            case REGION -> {
+                Set<Long> regions = loadedRegions.get(world);
+                yield regions != null && regions.contains(ClaimCluster.pack(chunkX >> 5, chunkZ >> 5));
+            }
+        };
+    }
+    
+    // ==================== Changes From Storage ====================
+    
+    /**
+     * Take over the stored state of a claim that was changed by another server
+     */
+    public void applyStoredClaim(ChunkData stored) {
+        if (!isLoaded(stored.getWorld(), stored.getChunkX(), stored.getChunkZ())) return;
+        
+        ChunkData local = chunkCache.get(stored.getChunkKey());
+        if (local == null || local.getId() != stored.getId()) {
+            // New claim, or the local one was deleted and the chunk claimed again
+            if (local != null) {
+                removeFromCache(local);
+                claimNames.remove(local.getOwnerUUID(), local.getName());
+            }
+            addToCache(stored);
+            claimNames.add(stored.getOwnerUUID(), stored.getName());
+            notifyClaimChanged(stored);
+            return;
+        }
+        
+        UUID previousOwner = local.getOwnerUUID();
+        claimNames.remove(previousOwner, local.getName());
+        local.copyStateFrom(stored);
+        claimNames.add(local.getOwnerUUID(), local.getName());
+        if (!previousOwner.equals(local.getOwnerUUID())) {
+            Set<String> previousChunks = playerChunks.get(previousOwner);
+            if (previousChunks != null) {
+                previousChunks.remove(local.getChunkKey());
+            }
+            playerChunks.computeIfAbsent(local.getOwnerUUID(), k -> ConcurrentHashMap.newKeySet())
+                    .add(local.getChunkKey());
+        }
+        markChanged(local);
+    }
+    
+    /**
+     * Take over claims imported from an archive, they are already stored
+     * Claims of unloaded worlds or regions are cached right away, a later
+     * load keeps them. Imported claims come without WorldGuard regions, every
+     * group they belong to is covered again, together with existing claims
+     * of the owner next to them. Claims are refused while an import runs,
+     * so no cached claim can stand on an imported position.
+     */
+    public void applyImported(List<ChunkData> chunks) {
+        List<ChunkData> added = new ArrayList<>(chunks.size());
+        for (ChunkData chunk : chunks) {
+            ChunkData local = chunkCache.get(chunk.getChunkKey());
+            if (local != null) {
+                // Only a claim the import did not see in the database can be here, the stored row goes
+                // so cache and database agree, deleting it also recounts the imported owner
+                plugin.getLogger().warning("Imported claim " + chunk.getName() + " at " + chunk.getChunkKey()
+                        + " overlaps claim " + local.getName() + ", the imported one is removed");
+                plugin.getStorage().delete(chunk);
+                continue;
+            }
             
-            // Add to player cache
-            playerChunks.computeIfAbsent(chunk.getOwnerUUID(), k -> ConcurrentHashMap.newKeySet())
-                    .add(key);
+            addToCache(chunk);
+            claimCounts.merge(chunk.getOwnerUUID(), 1, Integer::sum);
+            claimNames.add(chunk.getOwnerUUID(), chunk.getName());
+            notifyClaimChanged(chunk);
+            added.add(chunk);
         }
         
-        plugin.getLogger().info("Loaded " + chunks.size() + " chunks from database.");
+        Set<String> taken = new HashSet<>();
+        List<ClaimCluster> groups = new ArrayList<>();
+        for (ChunkData chunk : added) {
+            boolean covered = groups.stream().anyMatch(g -> g.getWorld().equals(chunk.getWorld())
+                    && g.contains(chunk.getChunkX(), chunk.getChunkZ()));
+            if (!covered) {
+                groups.add(rebuildRegionGroup(chunk, taken));
+            }
+        }
+    }
+    
+    /**
+     * Refuse new claims while an archive import runs
+     */
+    public void setImporting(boolean importing) {
+        this.importing = importing;
+    }
+    
+    /**
+     * Drop a claim that was deleted by another server
+     */
+    public void removeStoredClaim(ChunkData chunk) {
+        removeFromCache(chunk);
+        claimNames.remove(chunk.getOwnerUUID(), chunk.getName());
+        notifyClaimChanged(chunk);
+    }
+    
+    /**
+     * Set the claim count of an owner as stored, counts change with claims in unloaded worlds too
+     */
+    public void setClaimCount(UUID owner, int count) {
+        if (count > 0) {
+            claimCounts.put(owner, count);
+        } else {
+            claimCounts.remove(owner);
+        }
     }
     
+    // ==================== Claims ====================
+    
     /**
      * Get chunk data at location
      */
@@ -73,6 +529,14 @@ public class ChunkManager {
         return chunkCache.get(key);
     }
     
+    /**
+     * Get chunk data at chunk coordinates, loading claims around it first in lazy mode
+     */
+    ChunkData loadChunkAt(String world, int chunkX, int chunkZ) {
+        ensureLoaded(world, chunkX, chunkZ, 0);
+        return getChunkAt(world, chunkX, chunkZ);
+    }
+    
     /**
      * Get chunk data at Bukkit Chunk
      */
@@ -108,6 +572,17 @@ public class ChunkManager {
             return ClaimResult.WORLD_DISABLED;
         }
         
+        // The import checks positions against the database, a queued claim would not be seen
+        if (importing) {
+            return ClaimResult.TRY_AGAIN;
+        }
+        
+        // Claims nearby have to be known before the checks below
+        int minDistance = plugin.getConfigManager().getMinDistance();
+        if (!ensureLoaded(world, chunkX, chunkZ, Math.max(1, minDistance))) {
+            return ClaimResult.TRY_AGAIN;
+        }
+        
         // Check if already claimed
         if (isClaimed(world, chunkX, chunkZ)) {
             return ClaimResult.ALREADY_CLAIMED;
@@ -128,7 +603,6 @@ public class ChunkManager {
         }
         
         // Check distance from other players' chunks
-        int minDistance = plugin.getConfigManager().getMinDistance();
         if (minDistance > 0 && !checkDistanceFromOthers(player.getUniqueId(), world, chunkX, chunkZ, minDistance)) {
             return ClaimResult.TOO_CLOSE;
         }
@@ -136,7 +610,7 @@ public class ChunkManager {
         // Generate name if not provided
         String name;
         if (customName == null || customName.isEmpty()) {
-            int nextNum = plugin.getDatabaseManager().getNextChunkNumber(player.getUniqueId(), player.getName());
+            int nextNum = getNextChunkNumber(player.getUniqueId(), player.getName());
             name = player.getName() + "_" + nextNum;
         } else {
             // Check name length
@@ -144,7 +618,7 @@ public class ChunkManager {
                 return ClaimResult.NAME_TOO_LONG;
             }
             // Check if name already exists
-            if (plugin.getDatabaseManager().chunkNameExists(player.getUniqueId(), customName)) {
+            if (chunkNameExists(player.getUniqueId(), customName)) {
                 return ClaimResult.NAME_EXISTS;
             }
             name = customName;
@@ -168,25 +642,19 @@ public class ChunkManager {
         }
         chunkData.setWorldGuardRegion(regionName);
         
-        // Save to database
-        int id = plugin.getDatabaseManager().saveChunk(chunkData);
-        if (id == -1) {
-            // Rollback WorldGuard
-            plugin.getWorldGuardIntegration().deleteRegion(world, regionName);
-            plugin.getIntegrationManager().depositBalance(player, price);
-            return ClaimResult.DATABASE_ERROR;
-        }
-        chunkData.setId(id);
+        // Save to database, the id is assigned by the writer
+        plugin.getStorage().insert(chunkData);
         
         // Add to cache
-        String key = chunkData.getChunkKey();
-        chunkCache.put(key, chunkData);
-        playerChunks.computeIfAbsent(player.getUniqueId(), k -> ConcurrentHashMap.newKeySet())
-                .add(key);
+        addToCache(chunkData);
+        claimCounts.merge(player.getUniqueId(), 1, Integer::sum);
+        claimNames.add(player.getUniqueId(), name);
         
         // Handle region merging
         handleRegionMerging(chunkData);
         
+        notifyClaimChanged(chunkData);
+        
         return ClaimResult.SUCCESS;
     }
     
@@ -204,24 +672,11 @@ public class ChunkManager {
         double refund = plugin.getConfigManager().getChunkUnprivateRefund();
         plugin.getIntegrationManager().depositBalance(player, refund);
         
-        // Delete WorldGuard region
-        plugin.getWorldGuardIntegration().deleteRegion(chunkData.getWorld(), chunkData.getWorldGuardRegion());
+        removeClaim(chunkData);
         
-        // Handle region unmerging before deletion
+        // Reshape or delete the WorldGuard region
         handleRegionUnmerging(chunkData);
         
-        // Remove from database
-        plugin.getDatabaseManager().deleteChunk(chunkData.getId());
-        
-        // Remove from cache
-        String key = chunkData.getChunkKey();
-        chunkCache.remove(key);
-        
-        Set<String> playerChunkSet = playerChunks.get(chunkData.getOwnerUUID());
-        if (playerChunkSet != null) {
-            playerChunkSet.remove(key);
-        }
-        
         return UnclaimResult.SUCCESS;
     }
     
@@ -229,23 +684,45 @@ public class ChunkManager {
      * Force unclaim a chunk (admin)
      */
     public void forceUnclaimChunk(ChunkData chunkData) {
-        // Delete WorldGuard region
-        plugin.getWorldGuardIntegration().deleteRegion(chunkData.getWorld(), chunkData.getWorldGuardRegion());
+        removeClaim(chunkData);
         
-        // Handle region unmerging
+        // Reshape or delete the WorldGuard region
         handleRegionUnmerging(chunkData);
-        
+    }
+    
+    /**
+     * Drop a claim from storage and caches, its WorldGuard region is left to the caller
+     */
+    private void removeClaim(ChunkData chunkData) {
         // Remove from database
-        plugin.getDatabaseManager().deleteChunk(chunkData.getId());
+        plugin.getStorage().delete(chunkData);
         
         // Remove from cache
-        String key = chunkData.getChunkKey();
-        chunkCache.remove(key);
+        removeFromCache(chunkData);
+        decrementClaimCount(chunkData.getOwnerUUID());
+        claimNames.remove(chunkData.getOwnerUUID(), chunkData.getName());
         
-        Set<String> playerChunkSet = playerChunks.get(chunkData.getOwnerUUID());
-        if (playerChunkSet != null) {
-            playerChunkSet.remove(key);
+        notifyClaimChanged(chunkData);
+    }
+    
+    /**
+     * Force unclaim every claim of a player (admin), returns the removed claims
+     * In lazy mode the claims that are not loaded yet are read first. All
+     * regions go, so they are deleted without reshaping them chunk by chunk.
+     * WorldGuard saves the affected worlds once afterwards. Returns null if
+     * loading failed.
+     */
+    public List<ChunkData> purgeClaims(UUID ownerUUID) {
+        if (isLazy() && plugin.getStorage().loadOwner(ownerUUID, this::addLoaded) == null) {
+            return null;
+        }
+        
+        List<ChunkData> chunks = getPlayerChunks(ownerUUID);
+        for (ChunkData chunk : chunks) {
+            plugin.getWorldGuardIntegration().deleteRegion(chunk.getWorld(), chunk.getWorldGuardRegion());
+            removeClaim(chunk);
         }
+        return chunks;
     }
     
     /**
@@ -264,11 +741,17 @@ public class ChunkManager {
     }
     
     /**
-     * Get player chunk count
+     * Get player chunk count over all worlds, loaded or not
      */
     public int getPlayerChunkCount(UUID playerUUID) {
-        Set<String> keys = playerChunks.get(playerUUID);
-        return keys != null ? keys.size() : 0;
+        return claimCounts.getOrDefault(playerUUID, 0);
+    }
+    
+    /**
+     * Get all claimed chunks, a read-only live view of the cache
+     */
+    public Collection<ChunkData> getAllChunks() {
+        return Collections.unmodifiableCollection(chunkCache.values());
     }
     
     /**
@@ -304,38 +787,77 @@ public class ChunkManager {
     
     /**
      * Handle region merging when a new chunk is claimed
+     * The group the chunk joined is covered again, other groups stay as they are.
      */
     private void handleRegionMerging(ChunkData newChunk) {
-        List<ChunkData> adjacentChunks = getAdjacentChunks(newChunk);
-        
-        // Filter to only same-owner chunks
-        List<ChunkData> ownedAdjacent = adjacentChunks.stream()
-                .filter(c -> c.isOwner(newChunk.getOwnerUUID()))
-                .collect(Collectors.toList());
+        boolean ownedAdjacent = getAdjacentChunks(newChunk).stream()
+                .anyMatch(c -> c.isOwner(newChunk.getOwnerUUID()));
         
-        if (!ownedAdjacent.isEmpty()) {
-            plugin.getWorldGuardIntegration().mergeRegions(newChunk, ownedAdjacent);
+        if (ownedAdjacent) {
+            rebuildRegionGroup(newChunk, new HashSet<>());
         }
     }
     
     /**
-     * Handle region unmerging when a chunk is unclaimed
+     * Handle region unmerging when a chunk left its owner's group
+     * Called once the chunk is out of the cache. The group may have split in
+     * up to four, each part gets its own region. The chunk's region is
+     * deleted if no part kept it.
      */
     private void handleRegionUnmerging(ChunkData removedChunk) {
-        List<ChunkData> adjacentChunks = getAdjacentChunks(removedChunk);
+        Set<String> taken = new HashSet<>();
+        rebuildAdjacentGroups(removedChunk, removedChunk.getOwnerUUID(), taken);
+        deleteUnusedRegion(removedChunk.getWorld(), removedChunk.getWorldGuardRegion(), taken);
+    }
+    
+    /**
+     * Rebuild each distinct group of an owner's claims next to a chunk
+     */
+    private void rebuildAdjacentGroups(ChunkData chunk, UUID owner, Set<String> taken) {
+        List<ClaimCluster> groups = new ArrayList<>();
         
-        // Filter to only same-owner chunks
-        List<ChunkData> ownedAdjacent = adjacentChunks.stream()
-                .filter(c -> c.isOwner(removedChunk.getOwnerUUID()))
-                .collect(Collectors.toList());
+        for (ChunkData adjacent : getAdjacentChunks(chunk)) {
+            if (!adjacent.isOwner(owner)) continue;
+            if (groups.stream().anyMatch(g -> g.contains(adjacent.getChunkX(), adjacent.getChunkZ()))) continue;
+            
+            groups.add(rebuildRegionGroup(adjacent, taken));
+        }
+    }
+    
+    private void deleteUnusedRegion(String world, String regionName, Set<String> taken) {
+        if (regionName != null && !taken.contains(regionName)) {
+            plugin.getWorldGuardIntegration().deleteRegion(world, regionName);
+        }
+    }
+    
+    /**
+     * Cover the group of connected claims around a chunk with new regions and point its claims to them
+     */
+    private ClaimCluster rebuildRegionGroup(ChunkData origin, Set<String> taken) {
+        ClaimCluster group = claimClusters.collectOwned(origin);
+        
+        List<ChunkData> chunks = new ArrayList<>(group.size());
+        for (long packed : group.getChunks()) {
+            ChunkData chunk = getChunkAt(group.getWorld(), ClaimCluster.unpackX(packed), ClaimCluster.unpackZ(packed));
+            if (chunk != null) {
+                chunks.add(chunk);
+            }
+        }
+        
+        String regionName = plugin.getWorldGuardIntegration().rebuildRegions(group, chunks, taken);
+        if (regionName == null) return group;
         
-        if (!ownedAdjacent.isEmpty()) {
-            plugin.getWorldGuardIntegration().unmergeRegions(removedChunk, ownedAdjacent);
+        for (ChunkData chunk : chunks) {
+            if (!regionName.equals(chunk.getWorldGuardRegion())) {
+                chunk.setWorldGuardRegion(regionName);
+                plugin.getStorage().update(chunk);
+            }
         }
+        return group;
     }
     
     /**
-     * Get adjacent chunks
+     * Get adjacent chunks, loaded first in lazy mode so no neighbour of a group is missed
      */
     private List<ChunkData> getAdjacentChunks(ChunkData chunk) {
         List<ChunkData> adjacent = new ArrayList<>();
@@ -343,7 +865,7 @@ public class ChunkManager {
         int[][] offsets = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
         
         for (int[] offset : offsets) {
-            ChunkData adj = getChunkAt(chunk.getWorld(), 
+            ChunkData adj = loadChunkAt(chunk.getWorld(), 
                     chunk.getChunkX() + offset[0], 
                     chunk.getChunkZ() + offset[1]);
             if (adj != null) {
@@ -358,13 +880,16 @@ public class ChunkManager {
      * Rename a chunk
      */
     public boolean renameChunk(ChunkData chunk, String newName) {
-        // Check if name already exists for this player
-        if (plugin.getDatabaseManager().chunkNameExists(chunk.getOwnerUUID(), newName)) {
+        // Check if name already exists for this player, changing only the case is fine
+        if (!newName.equalsIgnoreCase(chunk.getName()) && chunkNameExists(chunk.getOwnerUUID(), newName)) {
             return false;
         }
         
+        claimNames.remove(chunk.getOwnerUUID(), chunk.getName());
         chunk.setName(newName);
-        plugin.getDatabaseManager().updateChunk(chunk);
+        claimNames.add(chunk.getOwnerUUID(), newName);
+        markChanged(chunk);
+        plugin.getStorage().update(chunk);
         return true;
     }
     
@@ -372,7 +897,30 @@ public class ChunkManager {
      * Update chunk settings
      */
     public void updateChunkSettings(ChunkData chunk) {
-        plugin.getDatabaseManager().updateChunk(chunk);
+        markChanged(chunk);
+        plugin.getStorage().update(chunk);
+    }
+    
+    /**
+     * Mark chunk state as changed so cached views get re-rendered
+     */
+    public void markChanged(ChunkData chunk) {
+        chunk.bumpStateVersion();
+        notifyClaimChanged(chunk);
+    }
+    
+    /**
+     * Let views that depend on claim state (holograms, clusters) update the chunk
+     */
+    private void notifyClaimChanged(ChunkData chunk) {
+        claimClusters.invalidate(chunk.getWorld(), chunk.getChunkX(), chunk.getChunkZ());
+        
+        if (plugin.getHologramManager() != null) {
+            plugin.getHologramManager().onClaimChanged(chunk.getWorld(), chunk.getChunkX(), chunk.getChunkZ());
+        }
+        if (plugin.getWandManager() != null) {
+            plugin.getWandManager().onClaimChanged(chunk.getWorld(), chunk.getChunkX(), chunk.getChunkZ());
+        }
     }
     
     /**
@@ -383,15 +931,14 @@ public class ChunkManager {
             return false;
         }
         
-        if (plugin.getDatabaseManager().addTrustedPlayer(chunk.getId(), playerUUID, playerName)) {
-            chunk.addTrusted(playerUUID, playerName);
-            
-            // Update WorldGuard region
-            plugin.getWorldGuardIntegration().addMember(chunk.getWorld(), chunk.getWorldGuardRegion(), playerUUID);
-            
-            return true;
-        }
-        return false;
+        chunk.addTrusted(playerUUID, playerName);
+        markChanged(chunk);
+        plugin.getStorage().addTrusted(chunk, playerUUID, playerName);
+        
+        // Update WorldGuard region
+        plugin.getWorldGuardIntegration().addMember(chunk.getWorld(), chunk.getWorldGuardRegion(), playerUUID);
+        
+        return true;
     }
     
     /**
@@ -402,15 +949,14 @@ public class ChunkManager {
             return false;
         }
         
-        if (plugin.getDatabaseManager().removeTrustedPlayer(chunk.getId(), playerUUID)) {
-            chunk.removeTrusted(playerUUID);
-            
-            // Update WorldGuard region
-            plugin.getWorldGuardIntegration().removeMember(chunk.getWorld(), chunk.getWorldGuardRegion(), playerUUID);
-            
-            return true;
-        }
-        return false;
+        chunk.removeTrusted(playerUUID);
+        markChanged(chunk);
+        plugin.getStorage().removeTrusted(chunk, playerUUID);
+        
+        // Update WorldGuard region
+        plugin.getWorldGuardIntegration().removeMember(chunk.getWorld(), chunk.getWorldGuardRegion(), playerUUID);
+        
+        return true;
     }
     
     /**
@@ -421,9 +967,10 @@ public class ChunkManager {
         
         // Update owner
         chunk.transferOwnership(newOwner.getUniqueId(), newOwner.getName());
+        markChanged(chunk);
         
         // Update database
-        plugin.getDatabaseManager().updateChunk(chunk);
+        plugin.getStorage().transfer(chunk, oldOwner);
         
         // Update caches
         String key = chunk.getChunkKey();
@@ -432,13 +979,49 @@ public class ChunkManager {
         if (oldOwnerChunks != null) {
             oldOwnerChunks.remove(key);
         }
+        decrementClaimCount(oldOwner);
+        claimNames.remove(oldOwner, chunk.getName());
         
         playerChunks.computeIfAbsent(newOwner.getUniqueId(), k -> ConcurrentHashMap.newKeySet())
                 .add(key);
+        claimCounts.merge(newOwner.getUniqueId(), 1, Integer::sum);
+        claimNames.add(newOwner.getUniqueId(), chunk.getName());
         
-        // Update WorldGuard region
-        plugin.getWorldGuardIntegration().transferOwnership(chunk.getWorld(), 
-                chunk.getWorldGuardRegion(), newOwner.getUniqueId());
+        // The chunk leaves the old owner's group and joins or starts one of the new owner
+        String oldRegion = chunk.getWorldGuardRegion();
+        Set<String> taken = new HashSet<>();
+        rebuildAdjacentGroups(chunk, oldOwner, taken);
+        rebuildRegionGroup(chunk, taken);
+        deleteUnusedRegion(chunk.getWorld(), oldRegion, taken);
+    }
+    
+    /**
+     * Get cluster of connected claims a chunk belongs to
+     */
+    public ClaimCluster getCluster(ChunkData chunk) {
+        return claimClusters.getCluster(chunk);
+    }
+    
+    /**
+     * Revision of claim clusters, changes when all clusters are dropped on a reload or lazy load
+     */
+    public long getClusterRevision() {
+        return claimClusters.getRevision();
+    }
+    
+    /**
+     * Check if a player already has a claim with this name, ignoring case
+     * Answered from the name index, pending inserts are not in the database yet
+     */
+    private boolean chunkNameExists(UUID playerUUID, String name) {
+        return claimNames.contains(playerUUID, name);
+    }
+    
+    /**
+     * Get the next auto-number for a player's claim names
+     */
+    private int getNextChunkNumber(UUID playerUUID, String prefix) {
+        return claimNames.nextNumber(playerUUID, prefix);
     }
     
     /**
@@ -464,6 +1047,15 @@ public class ChunkManager {
     
     // ==================== Result Enums ====================
     
+    /**
+     * When claims are read from storage
+     */
+    public enum LoadMode {
+        OFF,
+        WORLD,
+        REGION
+    }
+    
     public enum ClaimResult {
         SUCCESS,
         ALREADY_CLAIMED,
@@ -474,7 +1066,8 @@ public class ChunkManager {
         NAME_EXISTS,
         NAME_TOO_LONG,
         WORLDGUARD_ERROR,
-        DATABASE_ERROR
+        DATABASE_ERROR,
+        TRY_AGAIN
     }
     
     public enum UnclaimResult {
@@ -5,6 +5,16 @@ package He1ly03.chunk;
  */
 public class ChunkSettings {
     
+    // Bits of the packed settings column
+    private static final int BUILD = 1;
+    private static final int DESTROY = 1 << 1;
+    private static final int USE = 1 << 2;
+    private static final int SWITCH = 1 << 3;
+    private static final int MOBS = 1 << 4;
+    private static final int PVP = 1 << 5;
+    private static final int FIRE = 1 << 6;
+    private static final int EXPLOSION = 1 << 7;
+    
     private boolean buildAllowed;
     private boolean destroyAllowed;
     private boolean useAllowed;
@@ -152,6 +162,38 @@ public class ChunkSettings {
         this.explosionAllowed = other.explosionAllowed;
     }
     
+    /**
+     * Pack all settings into one integer for storage
+     */
+    public int toFlags() {
+        int flags = 0;
+        if (buildAllowed) flags |= BUILD;
+        if (destroyAllowed) flags |= DESTROY;
+        if (useAllowed) flags |= USE;
+        if (switchAllowed) flags |= SWITCH;
+        if (mobsAllowed) flags |= MOBS;
+        if (pvpAllowed) flags |= PVP;
+        if (fireAllowed) flags |= FIRE;
+        if (explosionAllowed) flags |= EXPLOSION;
+        return flags;
+    }
+    
+    /**
+     * Unpack settings written by toFlags
+     */
+    public static ChunkSettings fromFlags(int flags) {
+        return new ChunkSettings(
+                (flags & BUILD) != 0,
+                (flags & DESTROY) != 0,
+                (flags & USE) != 0,
+                (flags & SWITCH) != 0,
+                (flags & MOBS) != 0,
+                (flags & PVP) != 0,
+                (flags & FIRE) != 0,
+                (flags & EXPLOSION) != 0
+        );
+    }
+    
     /**
      * Create a copy of this settings
      */
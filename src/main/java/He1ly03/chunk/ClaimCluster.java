@@ -0,0 +1,210 @@
+package He1ly03.chunk;
+
+import java.util.*;
+
+/**
+ * Connected group of claimed chunks with the same owner and sale state
+ * Chunks are connected through their sides, not corners
+ */
+public class ClaimCluster {
+    
+    private final String world;
+    private final UUID ownerUUID;
+    private final boolean forSale;
+    private final Set<Long> chunks;
+    
+    // External outline, built on first use
+    private int[] outline;
+    
+    public ClaimCluster(String world, UUID ownerUUID, boolean forSale, Set<Long> chunks) {
+        this.world = world;
+        this.ownerUUID = ownerUUID;
+        this.forSale = forSale;
+        this.chunks = chunks;
+    }
+    
+    /**
+     * Pack chunk coordinates into a single key
+     */
+    public static long pack(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+    
+    public static int unpackX(long packed) {
+        return (int) (packed >> 32);
+    }
+    
+    public static int unpackZ(long packed) {
+        return (int) packed;
+    }
+    
+    public boolean contains(int chunkX, int chunkZ) {
+        return chunks.contains(pack(chunkX, chunkZ));
+    }
+    
+    /**
+     * External outline as block-coordinate segments: x1, z1, x2, z2, ...
+     * Edges shared by two chunks of the cluster are left out and
+     * collinear edges are merged into one segment.
+     */
+    public int[] getOutline() {
+        if (outline == null) {
+            outline = buildOutline();
+        }
+        return outline;
+    }
+    
+    private int[] buildOutline() {
+        // Line (z for horizontal, x for vertical) -> chunk positions of unit edges on it
+        Map<Integer, List<Integer>> horizontal = new HashMap<>();
+        Map<Integer, List<Integer>> vertical = new HashMap<>();
+        
+        for (long packed : chunks) {
+            int x = unpackX(packed);
+            int z = unpackZ(packed);
+            
+            if (!contains(x, z - 1)) horizontal.computeIfAbsent(z, k -> new ArrayList<>()).add(x);      // North
+            if (!contains(x, z + 1)) horizontal.computeIfAbsent(z + 1, k -> new ArrayList<>()).add(x);  // South
+            if (!contains(x - 1, z)) vertical.computeIfAbsent(x, k -> new ArrayList<>()).add(z);        // West
+            if (!contains(x + 1, z)) vertical.computeIfAbsent(x + 1, k -> new ArrayList<>()).add(z);    // East
+        }
+        
+        List<Integer> segments = new ArrayList<>();
+        mergeEdges(horizontal, segments, true);
+        mergeEdges(vertical, segments, false);
+        
+        int[] result = new int[segments.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = segments.get(i);
+        }
+        return result;
+    }
+    
+    private void mergeEdges(Map<Integer, List<Integer>> lines, List<Integer> segments, boolean horizontal) {
+        for (Map.Entry<Integer, List<Integer>> entry : lines.entrySet()) {
+            int line = entry.getKey() << 4;
+            List<Integer> positions = entry.getValue();
+            Collections.sort(positions);
+            
+            int start = positions.get(0);
+            int end = start;
+            for (int i = 1; i <= positions.size(); i++) {
+                if (i < positions.size() && positions.get(i) == end + 1) {
+                    end++;
+                    continue;
+                }
+                
+                // Close the run [start, end]
+                int from = start << 4;
+                int to = (end + 1) << 4;
+                if (horizontal) {
+                    Collections.addAll(segments, from, line, to, line);
+                } else {
+                    Collections.addAll(segments, line, from, line, to);
+                }
+                
+                if (i < positions.size()) {
+                    start = positions.get(i);
+                    end = start;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Non-overlapping rectangles covering exactly the chunks: minX, minZ, maxX, maxZ, ...
+     * Runs of chunks in a row are stacked with the same runs of the following
+     * rows. Done along rows and along columns, the result with fewer
+     * rectangles is kept.
+     */
+    public int[] getRectangles() {
+        List<int[]> byRows = stackRuns(true);
+        List<int[]> byColumns = stackRuns(false);
+        List<int[]> best = byColumns.size() < byRows.size() ? byColumns : byRows;
+        
+        int[] result = new int[best.size() * 4];
+        for (int i = 0; i < best.size(); i++) {
+            System.arraycopy(best.get(i), 0, result, i * 4, 4);
+        }
+        return result;
+    }
+    
+    private List<int[]> stackRuns(boolean rows) {
+        // Line (z for rows, x for columns) -> chunk positions on it
+        TreeMap<Integer, List<Integer>> lines = new TreeMap<>();
+        for (long packed : chunks) {
+            int x = unpackX(packed);
+            int z = unpackZ(packed);
+            lines.computeIfAbsent(rows ? z : x, k -> new ArrayList<>()).add(rows ? x : z);
+        }
+        
+        List<int[]> rectangles = new ArrayList<>();
+        
+        // Rectangles reaching the previous line, by their run
+        Map<Long, int[]> open = new HashMap<>();
+        int previousLine = 0;
+        
+        for (Map.Entry<Integer, List<Integer>> entry : lines.entrySet()) {
+            int line = entry.getKey();
+            if (line != previousLine + 1) {
+                open.clear();
+            }
+            previousLine = line;
+            
+            List<Integer> positions = entry.getValue();
+            Collections.sort(positions);
+            
+            Map<Long, int[]> next = new HashMap<>();
+            int start = positions.get(0);
+            int end = start;
+            for (int i = 1; i <= positions.size(); i++) {
+                if (i < positions.size() && positions.get(i) == end + 1) {
+                    end++;
+                    continue;
+                }
+                
+                // Extend the rectangle over the same run of the previous line, or start one
+                long run = pack(start, end);
+                int[] rectangle = open.get(run);
+                if (rectangle == null) {
+                    rectangle = rows ? new int[]{start, line, end, line} : new int[]{line, start, line, end};
+                    rectangles.add(rectangle);
+                } else if (rows) {
+                    rectangle[3] = line;
+                } else {
+                    rectangle[2] = line;
+                }
+                next.put(run, rectangle);
+                
+                if (i < positions.size()) {
+                    start = positions.get(i);
+                    end = start;
+                }
+            }
+            open = next;
+        }
+        return rectangles;
+    }
+    
+    // ==================== Getters ====================
+    
+    public String getWorld() {
+        return world;
+    }
+    
+    public UUID getOwnerUUID() {
+        return ownerUUID;
+    }
+    
+    public boolean isForSale() {
+        return forSale;
+    }
+    
+    public Set<Long> getChunks() {
+        return Collections.unmodifiableSet(chunks);
+    }
+    
+    public int size() {
+        return chunks.size();
+    }
+}
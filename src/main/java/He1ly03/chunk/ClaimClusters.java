@@ -0,0 +1,131 @@
+package He1ly03.chunk;
+
+import He1ly03.utils.LocationUtils;
+
+import java.util.*;
+
+/**
+ * Lazily built index of claim clusters
+ * A cluster is computed on first request and kept until a claim inside or
+ * next to it changes.
+ */
+public class ClaimClusters {
+    
+    // Flood fill stops here, huge clusters are outlined partially
+    private static final int MAX_CLUSTER_SIZE = 4096;
+    
+    private final ChunkManager chunkManager;
+    
+    // Cached clusters: chunk key -> cluster of that chunk
+    private final Map<String, ClaimCluster> clusters = new HashMap<>();
+    
+    // Bumped when all clusters are dropped, views covering a single change are told by the chunk manager
+    private long revision;
+    
+    public ClaimClusters(ChunkManager chunkManager) {
+        this.chunkManager = chunkManager;
+    }
+    
+    /**
+     * Get cluster of a claimed chunk
+     */
+    public ClaimCluster getCluster(ChunkData chunk) {
+        String key = chunk.getChunkKey();
+        ClaimCluster cluster = clusters.get(key);
+        if (cluster != null) {
+            return cluster;
+        }
+        
+        cluster = build(chunk, false);
+        for (long packed : cluster.getChunks()) {
+            clusters.put(LocationUtils.getChunkKey(chunk.getWorld(),
+                    ClaimCluster.unpackX(packed), ClaimCluster.unpackZ(packed)), cluster);
+        }
+        return cluster;
+    }
+    
+    /**
+     * Collect all claims of the owner connected to a chunk, whatever their sale state
+     * Not cached and not limited in size. Claims that are not loaded yet are
+     * loaded on the way, the result is the whole group a WorldGuard region
+     * has to cover.
+     */
+    public ClaimCluster collectOwned(ChunkData chunk) {
+        return build(chunk, true);
+    }
+    
+    /**
+     * Drop clusters touching a changed chunk
+     * Claiming or unclaiming can merge or split the clusters around it
+     */
+    public void invalidate(String world, int chunkX, int chunkZ) {
+        invalidateAt(world, chunkX, chunkZ);
+        invalidateAt(world, chunkX + 1, chunkZ);
+        invalidateAt(world, chunkX - 1, chunkZ);
+        invalidateAt(world, chunkX, chunkZ + 1);
+        invalidateAt(world, chunkX, chunkZ - 1);
+    }
+    
+    /**
+     * Drop all cached clusters
+     */
+    public void clear() {
+        revision++;
+        clusters.clear();
+    }
+    
+    public long getRevision() {
+        return revision;
+    }
+    
+    private void invalidateAt(String world, int chunkX, int chunkZ) {
+        ClaimCluster cluster = clusters.remove(LocationUtils.getChunkKey(world, chunkX, chunkZ));
+        if (cluster == null) return;
+        
+        for (long packed : cluster.getChunks()) {
+            clusters.remove(LocationUtils.getChunkKey(world, ClaimCluster.unpackX(packed), ClaimCluster.unpackZ(packed)));
+        }
+    }
+    
+    private ClaimCluster build(ChunkData origin, boolean ownedOnly) {
+        String world = origin.getWorld();
+        UUID owner = origin.getOwnerUUID();
+        boolean forSale = origin.isForSale();
+        int limit = ownedOnly ? Integer.MAX_VALUE : MAX_CLUSTER_SIZE;
+        
+        Set<Long> members = new HashSet<>();
+        ArrayDeque<Long> queue = new ArrayDeque<>();
+        
+        long start = ClaimCluster.pack(origin.getChunkX(), origin.getChunkZ());
+        members.add(start);
+        queue.add(start);
+        
+        while (!queue.isEmpty() && members.size() < limit) {
+            long packed = queue.poll();
+            int x = ClaimCluster.unpackX(packed);
+            int z = ClaimCluster.unpackZ(packed);
+            
+            visit(world, owner, forSale, ownedOnly, x + 1, z, members, queue);
+            visit(world, owner, forSale, ownedOnly, x - 1, z, members, queue);
+            visit(world, owner, forSale, ownedOnly, x, z + 1, members, queue);
+            visit(world, owner, forSale, ownedOnly, x, z - 1, members, queue);
+        }
+        
+        return new ClaimCluster(world, owner, forSale, members);
+    }
+    
+    private void visit(String world, UUID owner, boolean forSale, boolean ownedOnly, int chunkX, int chunkZ,
+                       Set<Long> members, ArrayDeque<Long> queue) {
+        long packed = ClaimCluster.pack(chunkX, chunkZ);
+        if (members.contains(packed)) return;
+        
+        ChunkData chunk = ownedOnly
+                ? chunkManager.loadChunkAt(world, chunkX, chunkZ)
+                : chunkManager.getChunkAt(world, chunkX, chunkZ);
+        if (chunk == null || !chunk.getOwnerUUID().equals(owner)) return;
+        if (!ownedOnly && chunk.isForSale() != forSale) return;
+        
+        members.add(packed);
+        queue.add(packed);
+    }
+}
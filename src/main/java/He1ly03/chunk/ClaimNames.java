@@ -0,0 +1,70 @@
+package He1ly03.chunk;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Claim names per owner, seeded at load and kept up to date with every change
+ * Names are compared ignoring case. Auto-numbers only grow, a number freed by
+ * an unclaim is not handed out again.
+ */
+class ClaimNames {
+    
+    private final Map<UUID, OwnerNames> owners = new ConcurrentHashMap<>();
+    
+    void clear() {
+        owners.clear();
+    }
+    
+    void add(UUID owner, String name) {
+        owners.computeIfAbsent(owner, k -> new OwnerNames()).add(name);
+    }
+    
+    void remove(UUID owner, String name) {
+        OwnerNames names = owners.get(owner);
+        if (names != null) {
+            names.names.remove(name.toLowerCase(Locale.ROOT));
+        }
+    }
+    
+    boolean contains(UUID owner, String name) {
+        OwnerNames names = owners.get(owner);
+        return names != null && names.names.contains(name.toLowerCase(Locale.ROOT));
+    }
+    
+    /**
+     * Next auto-number for names like prefix_1, prefix_2, skipping names taken by hand
+     */
+    int nextNumber(UUID owner, String prefix) {
+        OwnerNames names = owners.get(owner);
+        if (names == null) return 1;
+        
+        String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+        int number = names.highest.getOrDefault(lowerPrefix, 0) + 1;
+        while (names.names.contains(lowerPrefix + "_" + number)) {
+            number++;
+        }
+        return number;
+    }
+    
+    /**
+     * Names of one owner and the highest number used per name prefix
+     */
+    private static final class OwnerNames {
+        private final Set<String> names = ConcurrentHashMap.newKeySet();
+        private final Map<String, Integer> highest = new ConcurrentHashMap<>();
+        
+        private void add(String name) {
+            String lower = name.toLowerCase(Locale.ROOT);
+            names.add(lower);
+            
+            int separator = lower.lastIndexOf('_');
+            int digits = lower.length() - separator - 1;
+            if (separator <= 0 || digits == 0 || digits > 9) return;
+            for (int i = separator + 1; i < lower.length(); i++) {
+                if (!Character.isDigit(lower.charAt(i))) return;
+            }
+            highest.merge(lower.substring(0, separator), Integer.parseInt(lower.substring(separator + 1)), Math::max);
+        }
+    }
+}
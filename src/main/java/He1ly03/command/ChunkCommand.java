@@ -1,11 +1,25 @@
 package He1ly03.command;
 
 import He1ly03.LiseryPrivate;
+import He1ly03.audit.AuditAction;
+import He1ly03.audit.AuditEvent;
+import He1ly03.audit.AuditLog;
 import He1ly03.chunk.ChunkData;
 import He1ly03.chunk.ChunkManager;
+import He1ly03.database.ClaimArchive;
+import He1ly03.database.ClaimChangeLog;
+import He1ly03.database.ConnectionPool;
+import He1ly03.database.DatabaseBenchmark;
+import He1ly03.database.PersistenceQueue;
+import He1ly03.integration.WorldGuardIntegration;
+import He1ly03.storage.FileStorage;
+import He1ly03.task.IoExecutor;
+import He1ly03.task.TimeSlicedScheduler;
 import He1ly03.utils.MessageUtils;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -14,7 +28,12 @@ import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -22,10 +41,17 @@ import java.util.stream.Collectors;
  */
 public class ChunkCommand implements CommandExecutor, TabCompleter {
     
+    private static final DateTimeFormatter HISTORY_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("dd.MM.yy HH:mm").withZone(ZoneId.systemDefault());
+    
     private final LiseryPrivate plugin;
+    private final DatabaseBenchmark benchmark;
+    private final ClaimArchive archive;
     
     public ChunkCommand(LiseryPrivate plugin) {
         this.plugin = plugin;
+        this.benchmark = new DatabaseBenchmark(plugin, plugin.getDatabaseManager());
+        this.archive = new ClaimArchive(plugin, plugin.getDatabaseManager());
     }
     
     @Override
@@ -79,6 +105,8 @@ public class ChunkCommand implements CommandExecutor, TabCompleter {
         if (player.hasPermission("liseryprivate.admin")) {
             MessageUtils.sendMessage(player, "&c/" + cmd + " admin reload &7- Перезагрузить плагин");
             MessageUtils.sendMessage(player, "&c/" + cmd + " admin forceunprivate &7- Принудительный расприват");
+            MessageUtils.sendMessage(player, "&c/" + cmd + " admin stats &7- Статистика производительности");
+            MessageUtils.sendMessage(player, "&c/" + cmd + " admin benchmark db [приватов] &7- Тест скорости записи SQLite");
         }
     }
     
@@ -151,10 +179,14 @@ public class ChunkCommand implements CommandExecutor, TabCompleter {
             case SUCCESS -> {
                 ChunkData chunk = plugin.getChunkManager().getChunkAt(player.getLocation());
                 placeholders.put("%chunk%", chunk != null ? chunk.getName() : "");
+                if (chunk != null) {
+                    plugin.getAuditLog().record(AuditAction.CLAIM, player, chunk, null);
+                }
                 MessageUtils.sendMessage(player, plugin.getConfigManager().getMessage("private-success"), placeholders);
             }
             case ALREADY_CLAIMED -> MessageUtils.sendMessage(player, plugin.getConfigManager().getMessage("chunk-already-private"));
             case WORLD_DISABLED -> MessageUtils.sendMessage(player, plugin.getConfigManager().getMessage("world-disabled"));
+            case TRY_AGAIN -> MessageUtils.sendMessage(player, plugin.getConfigManager().getMessage("claim-try-again"));
             case LIMIT_REACHED -> {
                 placeholders.put("%limit%", String.valueOf(plugin.getIntegrationManager().getPlayerChunkLimit(player)));
                 MessageUtils.sendMessage(player, plugin.getConfigManager().getMessage("limit-reached"), placeholders);
@@ -200,7 +232,10 @@ public class ChunkCommand implements CommandExecutor, TabCompleter {
         placeholders.put("%refund%", MessageUtils.formatMoney(plugin.getConfigManager().getChunkUnprivateRefund()));
         
         switch (result) {
-            case SUCCESS -> MessageUtils.sendMessage(player, plugin.getConfigManager().getMessage("unprivate-success"), placeholders);
+            case SUCCESS -> {
+                recordUnclaim(player, chunk);
+                MessageUtils.sendMessage(player, plugin.getConfigManager().getMessage("unprivate-success"), placeholders);
+            }
             case NOT_OWNER -> MessageUtils.sendMessage(player, plugin.getConfigManager().getMessage("not-owner"));
             case NOT_CLAIMED -> MessageUtils.sendMessage(player, plugin.getConfigManager().getMessage("chunk-not-private"));
         }
@@ -232,6 +267,7 @@ public class ChunkCommand implements CommandExecutor, TabCompleter {
         }
         
         if (plugin.getChunkManager().renameChunk(chunk, newName)) {
+            plugin.getAuditLog().record(AuditAction.RENAME, player, chunk, oldName + " -> " + newName);
             MessageUtils.sendMessage(player, "&aЧанк переименован в &e" + newName);
         } else {
             MessageUtils.sendMessage(player, "&cЧанк с таким названием уже существует.");
@@ -286,6 +322,8 @@ public class ChunkCommand implements CommandExecutor, TabCompleter {
             }
             
             if (plugin.getChunkManager().addTrustedPlayer(chunk, offlinePlayer.getUniqueId(), offlinePlayer.getName())) {
+                plugin.getAuditLog().record(AuditAction.TRUST_ADD, player, chunk,
+                        offlinePlayer.getUniqueId(), offlinePlayer.getName(), null);
                 Map<String, String> placeholders = new HashMap<>();
                 placeholders.put("%player%", offlinePlayer.getName());
                 MessageUtils.sendMessage(player, plugin.getConfigManager().getMessage("trust-added"), placeholders);
@@ -297,6 +335,7 @@ public class ChunkCommand implements CommandExecutor, TabCompleter {
             }
             
             if (plugin.getChunkManager().addTrustedPlayer(chunk, target.getUniqueId(), target.getName())) {
+                plugin.getAuditLog().record(AuditAction.TRUST_ADD, player, chunk, target.getUniqueId(), target.getName(), null);
                 Map<String, String> placeholders = new HashMap<>();
                 placeholders.put("%player%", target.getName());
                 MessageUtils.sendMessage(player, plugin.getConfigManager().getMessage("trust-added"), placeholders);
@@ -342,7 +381,9 @@ public class ChunkCommand implements CommandExecutor, TabCompleter {
             return;
         }
         
+        String trustedName = chunk.getTrustedPlayers().get(targetUUID);
         if (plugin.getChunkManager().removeTrustedPlayer(chunk, targetUUID)) {
+            plugin.getAuditLog().record(AuditAction.TRUST_REMOVE, player, chunk, targetUUID, trustedName, null);
             Map<String, String> placeholders = new HashMap<>();
             placeholders.put("%player%", targetName);
             MessageUtils.sendMessage(player, plugin.getConfigManager().getMessage("trust-removed"), placeholders);
@@ -398,6 +439,7 @@ public class ChunkCommand implements CommandExecutor, TabCompleter {
         
         chunk.getSettings().setSetting(flagName, value);
         plugin.getChunkManager().updateChunkSettings(chunk);
+        plugin.getAuditLog().record(AuditAction.SETTINGS, player, chunk, flagName + " " + (value ? "on" : "off"));
         
         Map<String, String> placeholders = new HashMap<>();
         placeholders.put("%chunk%", chunk.getName());
@@ -418,7 +460,7 @@ public class ChunkCommand implements CommandExecutor, TabCompleter {
         }
         
         if (args.length < 2) {
-            MessageUtils.sendMessage(player, "&cИспользование: /chunk admin <reload|forceunprivate>");
+            MessageUtils.sendMessage(player, "&cИспользование: /chunk admin <reload|forceunprivate|purge|stats|benchmark|history|export|import>");
             return;
         }
         
@@ -437,13 +479,400 @@ public class ChunkCommand implements CommandExecutor, TabCompleter {
                 }
                 
                 plugin.getChunkManager().forceUnclaimChunk(chunk);
+                plugin.getAuditLog().record(AuditAction.FORCE_UNCLAIM, player, chunk,
+                        chunk.getOwnerUUID(), chunk.getOwnerName(), null);
                 
                 Map<String, String> placeholders = new HashMap<>();
                 placeholders.put("%chunk%", chunk.getName());
                 MessageUtils.sendMessage(player, plugin.getConfigManager().getMessage("force-unprivate"), placeholders);
             }
-            default -> MessageUtils.sendMessage(player, "&cНеизвестная команда. Используйте: reload или forceunprivate");
+            case "purge" -> handlePurge(player, args);
+            case "stats" -> {
+                if (args.length >= 3 && args[2].equalsIgnoreCase("db")) {
+                    sendDatabaseStats(player);
+                } else {
+                    sendStats(player);
+                }
+            }
+            case "benchmark" -> handleBenchmark(player, args);
+            case "history" -> handleHistory(player, args);
+            case "export" -> handleExport(player);
+            case "import" -> handleImport(player, args);
+            default -> MessageUtils.sendMessage(player, "&cНеизвестная команда. Используйте: reload, forceunprivate, purge, stats, benchmark, history, export или import");
+        }
+    }
+    
+    private void handleBenchmark(Player player, String[] args) {
+        if (args.length < 3 || !args[2].equalsIgnoreCase("db")) {
+            MessageUtils.sendMessage(player, "&cИспользование: /chunk admin benchmark db [приватов]");
+            return;
+        }
+        
+        if (plugin.getDatabaseManager() == null || plugin.getDatabaseManager().isMySQL()) {
+            MessageUtils.sendMessage(player, "&cТест доступен только для хранилища SQLite.");
+            return;
+        }
+        
+        int claims = 1000;
+        if (args.length >= 4) {
+            try {
+                claims = Math.max(1, Math.min(Integer.parseInt(args[3]), 20000));
+            } catch (NumberFormatException e) {
+                MessageUtils.sendMessage(player, "&cНеверное число: &e" + args[3]);
+                return;
+            }
+        }
+        
+        UUID playerUUID = player.getUniqueId();
+        boolean started = benchmark.start(claims, results -> {
+            Player target = Bukkit.getPlayer(playerUUID);
+            if (target == null) return;
+            
+            MessageUtils.sendMessage(target, "&6Тест записи SQLite:");
+            for (DatabaseBenchmark.Result result : results) {
+                MessageUtils.sendMessage(target, "&e" + result.name() + "&7: " + result.claims() + " приватов и "
+                        + result.trusted() + " доверенных за &e" + result.getMillis() + " мс"
+                        + " &7| &e" + result.getClaimsPerSecond() + " &7приватов/с"
+                        + " | &e" + result.getRowsPerSecond() + " &7строк/с");
+            }
+        }, error -> {
+            Player target = Bukkit.getPlayer(playerUUID);
+            if (target != null) {
+                MessageUtils.sendMessage(target, "&cТест записи завершился ошибкой: &e" + error.getMessage());
+            }
+        });
+        
+        if (started) {
+            MessageUtils.sendMessage(player, "&7Запущен тест записи на &e" + claims + " &7приватов...");
+        } else {
+            MessageUtils.sendMessage(player, "&cТест уже выполняется.");
+        }
+    }
+    
+    private void handlePurge(Player player, String[] args) {
+        if (args.length < 3) {
+            MessageUtils.sendMessage(player, "&cИспользование: /chunk admin purge <игрок>");
+            return;
+        }
+        
+        OfflinePlayer target = Bukkit.getOfflinePlayerIfCached(args[2]);
+        if (target == null) {
+            Map<String, String> placeholders = new HashMap<>();
+            placeholders.put("%player%", args[2]);
+            MessageUtils.sendMessage(player, plugin.getConfigManager().getMessage("trust-not-found"), placeholders);
+            return;
+        }
+        
+        List<ChunkData> removed = plugin.getChunkManager().purgeClaims(target.getUniqueId());
+        if (removed == null) {
+            MessageUtils.sendMessage(player, "&cНе удалось загрузить приваты игрока, подробности в консоли.");
+            return;
+        }
+        
+        for (ChunkData chunk : removed) {
+            plugin.getAuditLog().record(AuditAction.FORCE_UNCLAIM, player, chunk,
+                    chunk.getOwnerUUID(), chunk.getOwnerName(), "purge");
+        }
+        
+        String name = target.getName() != null ? target.getName() : args[2];
+        MessageUtils.sendMessage(player, "&aУдалено приватов игрока &e" + name + "&a: &e" + removed.size());
+    }
+    
+    private void handleExport(Player player) {
+        if (plugin.getDatabaseManager() == null) {
+            MessageUtils.sendMessage(player, "&cЭкспорт доступен только для хранилища SQLite и MySQL.");
+            return;
+        }
+        
+        UUID playerUUID = player.getUniqueId();
+        boolean started = archive.export(done -> sendIfOnline(playerUUID, "&7Экспортировано приватов: &e" + done), result -> {
+            sendIfOnline(playerUUID, "&aЭкспорт завершён: &e" + result.claims() + " &aприватов и &e" + result.trusted()
+                    + " &aдоверенных за &e" + result.millis() + " мс");
+            sendIfOnline(playerUUID, "&7Файл: &e" + ClaimArchive.FOLDER + "/" + result.file());
+        }, error -> sendIfOnline(playerUUID, "&cЭкспорт завершился ошибкой: &e" + error.getMessage()));
+        
+        if (started) {
+            MessageUtils.sendMessage(player, "&7Запущен экспорт приватов...");
+        } else {
+            MessageUtils.sendMessage(player, "&cЭкспорт или импорт уже выполняется.");
+        }
+    }
+    
+    private void handleImport(Player player, String[] args) {
+        if (plugin.getDatabaseManager() == null) {
+            MessageUtils.sendMessage(player, "&cИмпорт доступен только для хранилища SQLite и MySQL.");
+            return;
+        }
+        
+        if (args.length < 3) {
+            MessageUtils.sendMessage(player, "&cИспользование: /chunk admin import <файл> [dry-run]");
+            return;
+        }
+        
+        File file = archive.resolve(args[2]);
+        if (file == null || !file.isFile()) {
+            MessageUtils.sendMessage(player, "&cФайл &e" + args[2] + " &cне найден в папке &e" + ClaimArchive.FOLDER);
+            return;
+        }
+        
+        boolean dryRun = args.length >= 4 && args[3].equalsIgnoreCase("dry-run");
+        UUID playerUUID = player.getUniqueId();
+        boolean started = archive.importFile(file, dryRun, done -> sendIfOnline(playerUUID, "&7Обработано приватов: &e" + done), result -> {
+            if (result.dryRun()) {
+                sendIfOnline(playerUUID, "&aПроверка завершена: &e" + result.claims() + " &aприватов можно импортировать"
+                        + " &7| Уже заняты: &e" + result.skipped()
+                        + " &7| С ошибками: &e" + result.invalid());
+            } else {
+                sendIfOnline(playerUUID, "&aИмпорт завершён: &e" + result.claims() + " &aприватов и &e" + result.trusted()
+                        + " &aдоверенных за &e" + result.millis() + " мс"
+                        + " &7| Пропущено: &e" + result.skipped()
+                        + " &7| С ошибками: &e" + result.invalid());
+            }
+            if (result.invalid() > 0) {
+                sendIfOnline(playerUUID, "&7Ошибочные строки записаны в консоль.");
+            }
+        }, error -> sendIfOnline(playerUUID, "&cИмпорт завершился ошибкой: &e" + error.getMessage()));
+        
+        if (started) {
+            MessageUtils.sendMessage(player, dryRun ? "&7Запущена проверка файла &e" + file.getName() + "&7..."
+                    : "&7Запущен импорт из файла &e" + file.getName() + "&7...");
+        } else {
+            MessageUtils.sendMessage(player, "&cЭкспорт или импорт уже выполняется.");
+        }
+    }
+    
+    private void sendIfOnline(UUID playerUUID, String message) {
+        Player player = Bukkit.getPlayer(playerUUID);
+        if (player != null) {
+            MessageUtils.sendMessage(player, message);
+        }
+    }
+    
+    private void handleHistory(Player player, String[] args) {
+        AuditLog auditLog = plugin.getAuditLog();
+        if (!auditLog.isEnabled()) {
+            MessageUtils.sendMessage(player, "&cЖурнал изменений выключен или недоступен с файловым хранилищем.");
+            return;
+        }
+        
+        if (args.length < 3) {
+            MessageUtils.sendMessage(player, "&cИспользование: /chunk admin history <игрок|here> [страница]");
+            return;
+        }
+        
+        int page = 1;
+        if (args.length >= 4) {
+            try {
+                page = Math.max(1, Integer.parseInt(args[3]));
+            } catch (NumberFormatException e) {
+                MessageUtils.sendMessage(player, "&cНеверный номер страницы: &e" + args[3]);
+                return;
+            }
         }
+        
+        UUID playerUUID = player.getUniqueId();
+        String next = "/chunk admin history " + args[2] + " " + (page + 1);
+        int shownPage = page;
+        Consumer<Exception> onError = error -> {
+            Player target = Bukkit.getPlayer(playerUUID);
+            if (target != null) {
+                MessageUtils.sendMessage(target, "&cНе удалось загрузить историю: &e" + error.getMessage());
+            }
+        };
+        
+        if (args[2].equalsIgnoreCase("here")) {
+            Chunk chunk = player.getLocation().getChunk();
+            String world = chunk.getWorld().getName();
+            String title = "&6История чанка &e" + world + " " + chunk.getX() + ", " + chunk.getZ();
+            auditLog.findByChunk(world, chunk.getX(), chunk.getZ(), page - 1,
+                    events -> sendHistory(playerUUID, title, shownPage, next, events), onError);
+            return;
+        }
+        
+        // Only cached profiles, a name lookup would block the main thread
+        OfflinePlayer target = Bukkit.getOfflinePlayerIfCached(args[2]);
+        if (target == null) {
+            Map<String, String> placeholders = new HashMap<>();
+            placeholders.put("%player%", args[2]);
+            MessageUtils.sendMessage(player, plugin.getConfigManager().getMessage("trust-not-found"), placeholders);
+            return;
+        }
+        
+        String title = "&6История игрока &e" + (target.getName() != null ? target.getName() : args[2]);
+        auditLog.findByPlayer(target, page - 1, events -> sendHistory(playerUUID, title, shownPage, next, events), onError);
+    }
+    
+    private void sendHistory(UUID playerUUID, String title, int page, String next, List<AuditEvent> events) {
+        Player player = Bukkit.getPlayer(playerUUID);
+        if (player == null) return;
+        
+        MessageUtils.sendMessage(player, title + " &7(страница " + page + ")");
+        if (events.isEmpty()) {
+            MessageUtils.sendMessage(player, "&7Записей нет.");
+            return;
+        }
+        
+        for (AuditEvent event : events) {
+            StringBuilder line = new StringBuilder("&7")
+                    .append(HISTORY_TIME_FORMAT.format(Instant.ofEpochMilli(event.time())))
+                    .append(" &e").append(event.actorName() != null ? event.actorName() : "?")
+                    .append(" &7").append(event.action().getLabel())
+                    .append(" &e").append(event.chunkName() != null ? event.chunkName() : "-")
+                    .append(" &7(").append(event.world()).append(" ")
+                    .append(event.chunkX()).append(", ").append(event.chunkZ()).append(")");
+            if (event.targetName() != null) {
+                line.append(" &7игрок: &e").append(event.targetName());
+            }
+            if (event.details() != null) {
+                line.append(" &7").append(event.details());
+            }
+            MessageUtils.sendMessage(player, line.toString());
+        }
+        
+        if (events.size() == AuditLog.PAGE_SIZE) {
+            MessageUtils.sendMessage(player, "&7Дальше: &e" + next);
+        }
+    }
+    
+    private void recordUnclaim(Player player, ChunkData chunk) {
+        if (chunk.isOwner(player.getUniqueId())) {
+            plugin.getAuditLog().record(AuditAction.UNCLAIM, player, chunk, null);
+        } else {
+            plugin.getAuditLog().record(AuditAction.UNCLAIM, player, chunk, chunk.getOwnerUUID(), chunk.getOwnerName(), null);
+        }
+    }
+    
+    private void sendStats(Player player) {
+        TimeSlicedScheduler scheduler = plugin.getScheduler();
+        
+        MessageUtils.sendMessage(player, "&6Планировщик задач:");
+        MessageUtils.sendMessage(player, "&7Бюджет: &e" + scheduler.getBudgetMicros() + " мкс/тик"
+                + " &7| Тиков: &e" + scheduler.getTicks()
+                + " &7| Превышений: &e" + scheduler.getOverrunTicks()
+                + " &7| Макс. тик: &e" + scheduler.getMaxTickMicros() + " мкс");
+        MessageUtils.sendMessage(player, "&7Перенесено на след. тик: &e" + scheduler.getSpilledTotal()
+                + " &7| В очереди: &e" + scheduler.getSpillSize());
+        
+        for (TimeSlicedScheduler.SlicedTask task : scheduler.getTasks()) {
+            MessageUtils.sendMessage(player, "&e" + task.getName() + " &7(каждые " + task.getPeriod() + " т.)"
+                    + " игроков: &e" + task.getSize()
+                    + " &7| запусков: &e" + task.getRuns()
+                    + " &7| ср.: &e" + task.getAverageMicros() + " мкс"
+                    + " &7| макс.: &e" + task.getMaxMicros() + " мкс"
+                    + " &7| перенесено: &e" + task.getSpilled());
+        }
+        
+        IoExecutor ioExecutor = plugin.getIoExecutor();
+        MessageUtils.sendMessage(player, "&6Фоновые задачи ввода-вывода: &e" + ioExecutor.getPendingCount());
+        for (Map.Entry<IoExecutor.Resource, IoExecutor.Limiter> entry : ioExecutor.getLimiters().entrySet()) {
+            IoExecutor.Limiter limiter = entry.getValue();
+            MessageUtils.sendMessage(player, "&e" + entry.getKey().name().toLowerCase()
+                    + " &7(лимит " + limiter.getPermits() + ")"
+                    + " выполняется: &e" + limiter.getActive()
+                    + " &7| ожидают: &e" + limiter.getQueued()
+                    + " &7| пик: &e" + limiter.getMaxQueued()
+                    + " &7| готово: &e" + limiter.getCompleted()
+                    + " &7| ошибок: &e" + limiter.getFailed());
+        }
+        
+        WorldGuardIntegration worldGuard = plugin.getWorldGuardIntegration();
+        MessageUtils.sendMessage(player, "&6Регионы WorldGuard:");
+        MessageUtils.sendMessage(player, "&7Изменений: &e" + worldGuard.getChanges()
+                + " &7| Сохранений миров: &e" + worldGuard.getSaves()
+                + " &7| Ждут сохранения: &e" + worldGuard.getDirtyWorldCount());
+    }
+    
+    private void sendDatabaseStats(Player player) {
+        if (plugin.getStorage() instanceof FileStorage fileStorage) {
+            sendFileStorageStats(player, fileStorage);
+            return;
+        }
+        
+        ConnectionPool pool = plugin.getDatabaseManager().getPool();
+        if (pool == null) {
+            MessageUtils.sendMessage(player, "&cБаза данных не инициализирована.");
+            return;
+        }
+        
+        ConnectionPool writePool = plugin.getDatabaseManager().getWritePool();
+        if (writePool != pool) {
+            sendPoolStats(player, "&6Пул соединений (чтение):", pool);
+            sendPoolStats(player, "&6Соединение для записи:", writePool);
+        } else {
+            sendPoolStats(player, "&6Пул соединений:", pool);
+        }
+        sendQueueStats(player);
+    }
+    
+    private void sendPoolStats(Player player, String title, ConnectionPool pool) {
+        MessageUtils.sendMessage(player, title);
+        MessageUtils.sendMessage(player, "&7Активных: &e" + pool.getActiveCount() + "/" + pool.getMaximumSize()
+                + " &7| Свободных: &e" + pool.getIdleCount()
+                + " &7| Ожидают: &e" + pool.getWaitingCount());
+        MessageUtils.sendMessage(player, "&7Выдано: &e" + pool.getBorrowCount()
+                + " &7| Ожидание ср.: &e" + pool.getAverageWaitMicros() + " мкс"
+                + " &7| макс.: &e" + pool.getMaxWaitMicros() + " мкс");
+        MessageUtils.sendMessage(player, "&7Удержание ср.: &e" + pool.getAverageUsageMicros() + " мкс"
+                + " &7| макс.: &e" + pool.getMaxUsageMicros() + " мкс");
+        MessageUtils.sendMessage(player, "&7Создано: &e" + pool.getCreatedCount()
+                + " &7| Закрыто: &e" + pool.getRetiredCount()
+                + " &7| Таймаутов: &e" + pool.getTimeoutCount()
+                + " &7| Утечек: &e" + pool.getLeakCount());
+        MessageUtils.sendMessage(player, "&7Кэш запросов: &e" + pool.getStatementCacheHits() + " &7попаданий"
+                + " | &e" + pool.getStatementCacheMisses() + " &7промахов");
+    }
+    
+    private void sendQueueStats(Player player) {
+        PersistenceQueue queue = plugin.getDatabaseManager().getPersistenceQueue();
+        MessageUtils.sendMessage(player, "&6Очередь записи:");
+        MessageUtils.sendMessage(player, "&7В очереди: &e" + queue.getPendingCount()
+                + " &7| Пик: &e" + queue.getMaxPendingSeen()
+                + " &7| Изменений: &e" + queue.getEnqueued()
+                + " &7| Объединено: &e" + queue.getCoalesced());
+        MessageUtils.sendMessage(player, "&7Транзакций: &e" + queue.getBatches()
+                + " &7| Записано приватов: &e" + queue.getWritten()
+                + " &7| Посл. пакет: &e" + queue.getLastBatchSize()
+                + " &7| Ошибок: &e" + queue.getFailed()
+                + " &7| Повторов: &e" + queue.getRetries());
+        MessageUtils.sendMessage(player, "&7Запись ср.: &e" + queue.getAverageFlushMicros() + " мкс"
+                + " &7| макс.: &e" + queue.getMaxFlushMicros() + " мкс");
+        
+        ClaimChangeLog changeLog = plugin.getDatabaseManager().getChangeLog();
+        if (changeLog != null) {
+            MessageUtils.sendMessage(player, "&6Синхронизация серверов:");
+            MessageUtils.sendMessage(player, "&7Проверок: &e" + changeLog.getPolls()
+                    + " &7| Получено изменений: &e" + changeLog.getReceived()
+                    + " &7| Применено: &e" + changeLog.getApplied());
+            MessageUtils.sendMessage(player, "&7Проверка посл.: &e" + changeLog.getLastPollMicros() + " мкс"
+                    + " &7| макс.: &e" + changeLog.getMaxPollMicros() + " мкс");
+        }
+        
+        AuditLog auditLog = plugin.getAuditLog();
+        if (auditLog.isEnabled()) {
+            MessageUtils.sendMessage(player, "&6Журнал изменений:");
+            MessageUtils.sendMessage(player, "&7В буфере: &e" + auditLog.getPendingCount() + "/" + auditLog.getCapacity()
+                    + " &7| Записано: &e" + auditLog.getWritten()
+                    + " &7| Транзакций: &e" + auditLog.getBatches());
+            MessageUtils.sendMessage(player, "&7Потеряно: &e" + auditLog.getDropped()
+                    + " &7| Ошибок: &e" + auditLog.getFailed()
+                    + " &7| Удалено старых: &e" + auditLog.getPurged());
+        }
+    }
+    
+    private void sendFileStorageStats(Player player, FileStorage storage) {
+        MessageUtils.sendMessage(player, "&6Файловое хранилище:");
+        MessageUtils.sendMessage(player, "&7Журнал: &e№" + storage.getJournalGeneration()
+                + " &7| Размер: &e" + storage.getJournalBytes() / 1024L + " КБ"
+                + " &7| Ожидают записи: &e" + storage.getPendingRecords());
+        MessageUtils.sendMessage(player, "&7Записей: &e" + storage.getRecordsWritten()
+                + " &7| Синхронизаций: &e" + storage.getSyncs()
+                + " &7| ср.: &e" + storage.getAverageSyncMicros() + " мкс"
+                + " &7| макс.: &e" + storage.getMaxSyncMicros() + " мкс"
+                + " &7| Ошибок: &e" + storage.getWriteFailures());
+        MessageUtils.sendMessage(player, "&7Сжатий: &e" + storage.getCompactions()
+                + " &7| Последнее: &e" + storage.getLastCompactionMillis() + " мс"
+                + " &7| Снимок: &e" + storage.getLastSnapshotClaims() + " &7приватов, &e"
+                + storage.getLastSnapshotBytes() / 1024L + " КБ");
     }
     
     private void handleSell(Player player, String[] args) {
@@ -495,6 +924,7 @@ public class ChunkCommand implements CommandExecutor, TabCompleter {
         
         chunk.putForSale(price, locString);
         plugin.getChunkManager().updateChunkSettings(chunk);
+        plugin.getAuditLog().record(AuditAction.SALE_LIST, player, chunk, MessageUtils.formatMoney(price));
         
         MessageUtils.sendMessage(player, "&aЧанк &e" + chunk.getName() + " &aвыставлен на продажу за &e" + 
                 MessageUtils.formatMoney(price) + " &aмонет.");
@@ -529,6 +959,7 @@ public class ChunkCommand implements CommandExecutor, TabCompleter {
         
         chunk.removeFromSale();
         plugin.getChunkManager().updateChunkSettings(chunk);
+        plugin.getAuditLog().record(AuditAction.SALE_CANCEL, player, chunk, null);
         
         MessageUtils.sendMessage(player, "&aЧанк &e" + chunk.getName() + " &aснят с продажи.");
     }
@@ -608,7 +1039,8 @@ public class ChunkCommand implements CommandExecutor, TabCompleter {
                 }
                 case "admin" -> {
                     if (player.hasPermission("liseryprivate.admin")) {
-                        completions = Arrays.asList("reload", "forceunprivate").stream()
+                        completions = Arrays.asList("reload", "forceunprivate", "purge", "stats", "benchmark",
+                                "history", "export", "import").stream()
                                 .filter(s -> s.startsWith(prefix))
                                 .collect(Collectors.toList());
                     }
@@ -622,10 +1054,43 @@ public class ChunkCommand implements CommandExecutor, TabCompleter {
                 completions = Arrays.asList("on", "off").stream()
                         .filter(s -> s.startsWith(prefix))
                         .collect(Collectors.toList());
+            } else if (subCommand.equals("admin") && (args[1].equalsIgnoreCase("stats")
+                    || args[1].equalsIgnoreCase("benchmark")) && player.hasPermission("liseryprivate.admin")) {
+                completions = Arrays.asList("db").stream()
+                        .filter(s -> s.startsWith(prefix))
+                        .collect(Collectors.toList());
+            } else if (subCommand.equals("admin") && args[1].equalsIgnoreCase("purge")
+                    && player.hasPermission("liseryprivate.admin")) {
+                completions = Bukkit.getOnlinePlayers().stream()
+                        .map(Player::getName)
+                        .filter(s -> s.toLowerCase().startsWith(prefix))
+                        .collect(Collectors.toList());
+            } else if (subCommand.equals("admin") && args[1].equalsIgnoreCase("history")
+                    && player.hasPermission("liseryprivate.admin")) {
+                List<String> targets = new ArrayList<>();
+                targets.add("here");
+                Bukkit.getOnlinePlayers().forEach(online -> targets.add(online.getName()));
+                completions = targets.stream()
+                        .filter(s -> s.toLowerCase().startsWith(prefix))
+                        .collect(Collectors.toList());
+            } else if (subCommand.equals("admin") && args[1].equalsIgnoreCase("import")
+                    && player.hasPermission("liseryprivate.admin")) {
+                String[] files = archive.getFolder().list((dir, name) -> name.endsWith(ClaimArchive.EXTENSION));
+                if (files != null) {
+                    completions = Arrays.stream(files)
+                            .filter(s -> s.toLowerCase().startsWith(prefix))
+                            .sorted()
+                            .collect(Collectors.toList());
+                }
             } else if (subCommand.equals("rename")) {
                 // Suggest new name
                 completions = Collections.emptyList();
             }
+        } else if (args.length == 4 && args[0].equalsIgnoreCase("admin") && args[1].equalsIgnoreCase("import")
+                && player.hasPermission("liseryprivate.admin")) {
+            completions = Arrays.asList("dry-run").stream()
+                    .filter(s -> s.startsWith(args[3].toLowerCase()))
+                    .collect(Collectors.toList());
         }
         
         return completions;
@@ -147,6 +147,24 @@ public class ConfigManager {
         return config.getString("storage.sqlite.file", "chunkprivate.db");
     }
     
+    public String getSQLiteJournalMode() {
+        String mode = config.getString("storage.sqlite.journal-mode", "WAL").toUpperCase();
+        return List.of("DELETE", "TRUNCATE", "PERSIST", "MEMORY", "WAL", "OFF").contains(mode) ? mode : "WAL";
+    }
+    
+    public String getSQLiteSynchronous() {
+        String mode = config.getString("storage.sqlite.synchronous", "NORMAL").toUpperCase();
+        return List.of("OFF", "NORMAL", "FULL", "EXTRA").contains(mode) ? mode : "NORMAL";
+    }
+    
+    public long getSQLiteMmapSize() {
+        return Math.max(0L, config.getLong("storage.sqlite.mmap-size", 268435456L));
+    }
+    
+    public int getSQLiteBusyTimeout() {
+        return Math.max(0, config.getInt("storage.sqlite.busy-timeout", 5000));
+    }
+    
     public String getMySQLHost() {
         return config.getString("storage.mysql.host", "localhost");
     }
@@ -175,6 +193,136 @@ public class ConfigManager {
         return config.getString("storage.mysql.table-prefix", "cp_");
     }
     
+    public int getPoolMaximumSize() {
+        return Math.max(1, config.getInt("storage.pool.maximum-size", 4));
+    }
+    
+    public long getPoolConnectionTimeout() {
+        return Math.max(250L, config.getLong("storage.pool.connection-timeout", 5000L));
+    }
+    
+    public long getPoolMaxLifetime() {
+        return Math.max(0L, config.getLong("storage.pool.max-lifetime", 1800000L));
+    }
+    
+    public long getPoolLeakDetectionThreshold() {
+        return Math.max(0L, config.getLong("storage.pool.leak-detection-threshold", 10000L));
+    }
+    
+    public int getPoolStatementCacheSize() {
+        return Math.max(0, config.getInt("storage.pool.statement-cache-size", 64));
+    }
+    
+    public long getWriteBehindFlushInterval() {
+        return Math.max(0L, config.getLong("storage.write-behind.flush-interval", 100L));
+    }
+    
+    public int getWriteBehindMaxBatchSize() {
+        return Math.max(1, config.getInt("storage.write-behind.max-batch-size", 500));
+    }
+    
+    public int getWriteBehindMaxPending() {
+        return Math.max(1, config.getInt("storage.write-behind.max-pending", 5000));
+    }
+    
+    public long getWriteBehindShutdownTimeout() {
+        return Math.max(1000L, config.getLong("storage.write-behind.shutdown-timeout", 30000L));
+    }
+    
+    /**
+     * OFF, WORLD or REGION, only read on startup
+     */
+    public String getLazyLoading() {
+        String mode = config.getString("storage.lazy-loading", "OFF").toUpperCase();
+        return List.of("OFF", "WORLD", "REGION").contains(mode) ? mode : "OFF";
+    }
+    
+    public boolean isSnapshotEnabled() {
+        return config.getBoolean("storage.snapshot.enabled", true);
+    }
+    
+    /**
+     * How often the claim snapshot is refreshed, in milliseconds
+     */
+    public long getSnapshotInterval() {
+        return Math.max(1L, config.getLong("storage.snapshot.interval", 10L)) * 60_000L;
+    }
+    
+    public boolean isSyncEnabled() {
+        return config.getBoolean("storage.sync.enabled", false);
+    }
+    
+    /**
+     * How often claim changes of other servers are polled, in milliseconds
+     */
+    public long getSyncPollInterval() {
+        return Math.max(50L, config.getLong("storage.sync.poll-interval", 1000L));
+    }
+    
+    public int getSyncBatchSize() {
+        return Math.max(1, config.getInt("storage.sync.batch-size", 500));
+    }
+    
+    /**
+     * How long change log rows are kept, in milliseconds
+     */
+    public long getSyncRetention() {
+        return Math.max(1L, config.getLong("storage.sync.retention", 24L)) * 3_600_000L;
+    }
+    
+    public String getFileStorageFolder() {
+        return config.getString("storage.file.folder", "storage");
+    }
+    
+    /**
+     * Journal age that triggers compaction, in milliseconds
+     */
+    public long getFileStorageCompactInterval() {
+        return Math.max(1L, config.getLong("storage.file.compact-interval", 30L)) * 60_000L;
+    }
+    
+    /**
+     * Journal size that triggers compaction, in bytes
+     */
+    public long getFileStorageCompactThreshold() {
+        return Math.max(1L, config.getLong("storage.file.compact-threshold", 32L)) * 1024L * 1024L;
+    }
+    
+    // ==================== Audit Settings ====================
+    
+    public boolean isAuditEnabled() {
+        return config.getBoolean("audit.enabled", true);
+    }
+    
+    public int getAuditBufferSize() {
+        return Math.max(64, config.getInt("audit.buffer-size", 8192));
+    }
+    
+    public int getAuditBatchSize() {
+        return Math.max(1, config.getInt("audit.batch-size", 256));
+    }
+    
+    /**
+     * How often buffered audit entries are written, in milliseconds
+     */
+    public long getAuditFlushInterval() {
+        return Math.max(50L, config.getLong("audit.flush-interval", 1000L));
+    }
+    
+    /**
+     * How long audit entries are kept, in milliseconds, 0 keeps them forever
+     */
+    public long getAuditRetention() {
+        return Math.max(0L, config.getLong("audit.retention-days", 90L)) * 86_400_000L;
+    }
+    
+    /**
+     * Whether old audit entries are folded into daily counts instead of just deleted
+     */
+    public boolean isAuditRollup() {
+        return config.getString("audit.retention-mode", "DELETE").equalsIgnoreCase("ROLLUP");
+    }
+    
     // ==================== Economy Settings ====================
     
     public double getChunkPrivatePrice() {
@@ -363,6 +511,20 @@ public class ConfigManager {
         return (float) config.getDouble("effects.teleport.sound.pitch", 1.0);
     }
     
+    // ==================== Status Action Bar ====================
+    
+    public boolean isStatusActionBarEnabled() {
+        return config.getBoolean("status-actionbar.enabled", false);
+    }
+    
+    public String getStatusActionBarFormat() {
+        return config.getString("status-actionbar.format", "&fЧанк &e%chunk% &7| &a%owner% &7| %pvp%");
+    }
+    
+    public int getStatusActionBarRefreshTicks() {
+        return Math.max(1, config.getInt("status-actionbar.refresh-ticks", 40));
+    }
+    
     // ==================== PvP Format ====================
     
     public String getPvPFormatTrue() {
@@ -419,6 +581,74 @@ public class ConfigManager {
         return config.getString("outline-particle.color", "0:245:130");
     }
     
+    public int getOutlineParticlesPerSecond() {
+        return Math.max(1, config.getInt("outline-particle.max-per-second", 800));
+    }
+    
+    // ==================== Wand View ====================
+    
+    public int getWandViewClusterRadius() {
+        return Math.max(1, config.getInt("wand-view.cluster-radius", 4));
+    }
+    
+    public String getWandViewColor(String type) {
+        String def = switch (type) {
+            case "own" -> "0:245:130";
+            case "for-sale" -> "255:215:0";
+            default -> "255:85:85";
+        };
+        return config.getString("wand-view.colors." + type, def);
+    }
+    
+    public int getWandViewBlockRadius() {
+        return Math.max(1, config.getInt("wand-view.block-radius", 3));
+    }
+    
+    public Material getWandViewBlock(String type) {
+        Material def = switch (type) {
+            case "own" -> Material.LIME_WOOL;
+            case "for-sale" -> Material.YELLOW_WOOL;
+            default -> Material.RED_WOOL;
+        };
+        Material material = Material.matchMaterial(config.getString("wand-view.blocks." + type, def.name()));
+        return material != null && material.isBlock() ? material : def;
+    }
+    
+    // ==================== Performance ====================
+    
+    public int getTickBudgetMicros() {
+        return Math.max(100, config.getInt("performance.tick-budget-micros", 2000));
+    }
+    
+    /**
+     * How long WorldGuard region changes have to settle before they are saved, in milliseconds
+     */
+    public long getWorldGuardSaveDelay() {
+        return Math.max(0L, config.getLong("performance.worldguard-save.delay", 2000L));
+    }
+    
+    /**
+     * Longest a WorldGuard region change waits for its save, in milliseconds
+     */
+    public long getWorldGuardSaveMaxDelay() {
+        return Math.max(getWorldGuardSaveDelay(), config.getLong("performance.worldguard-save.max-delay", 30000L));
+    }
+    
+    public int getIoFilePermits() {
+        return Math.max(1, config.getInt("performance.io.file-permits", 2));
+    }
+    
+    public int getIoNetworkPermits() {
+        return Math.max(1, config.getInt("performance.io.network-permits", 2));
+    }
+    
+    /**
+     * How long running I/O tasks may take to finish on shutdown, in milliseconds
+     */
+    public long getIoShutdownTimeout() {
+        return Math.max(0L, config.getLong("performance.io.shutdown-timeout", 5000L));
+    }
+    
     // ==================== Messages ====================
     
     public String getPrefix() {
@@ -452,6 +682,10 @@ public class ConfigManager {
         return holograms.getDouble("hologram-height", 3.0);
     }
     
+    public String getHologramRenderer() {
+        return holograms.getString("renderer", "entity");
+    }
+    
     public String getTextEntityBillboard() {
         return holograms.getString("text-entity-settings.billboard", "center");
     }
@@ -0,0 +1,68 @@
+package He1ly03.database;
+
+import java.sql.SQLException;
+
+/**
+ * Audit log of claim changes and its daily roll-up
+ * Every history query filters on an indexed column and pages by id, the
+ * created_at index serves the retention job.
+ */
+class AuditLogMigration implements SchemaMigration {
+    
+    @Override
+    public int getVersion() {
+        return 6;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "Audit log";
+    }
+    
+    @Override
+    public void migrate(MigrationContext context) throws SQLException {
+        String audit = context.table("audit_log");
+        String rollup = context.table("audit_rollup");
+        boolean mySQL = context.isMySQL();
+        String uuidType = mySQL ? "BINARY(16)" : "BLOB";
+        
+        context.execute("CREATE TABLE IF NOT EXISTS " + audit + " (" +
+                (mySQL ? "id BIGINT PRIMARY KEY AUTO_INCREMENT," : "id INTEGER PRIMARY KEY AUTOINCREMENT,") +
+                "created_at BIGINT NOT NULL," +
+                "action VARCHAR(16) NOT NULL," +
+                "actor_uuid " + uuidType + " DEFAULT NULL," +
+                "actor_name VARCHAR(16) DEFAULT NULL," +
+                "target_uuid " + uuidType + " DEFAULT NULL," +
+                "target_name VARCHAR(16) DEFAULT NULL," +
+                "world VARCHAR(64) DEFAULT NULL," +
+                "chunk_x INTEGER NOT NULL DEFAULT 0," +
+                "chunk_z INTEGER NOT NULL DEFAULT 0," +
+                "chunk_name VARCHAR(64) DEFAULT NULL," +
+                "details VARCHAR(255) DEFAULT NULL" +
+                (mySQL ? ", INDEX idx_audit_actor (actor_uuid, id)" +
+                        ", INDEX idx_audit_target (target_uuid, id)" +
+                        ", INDEX idx_audit_location (world, chunk_x, chunk_z, id)" +
+                        ", INDEX idx_audit_created (created_at)" : "") +
+                ")");
+        
+        if (!mySQL) {
+            context.execute("CREATE INDEX IF NOT EXISTS " + context.table("idx_audit_actor") +
+                    " ON " + audit + " (actor_uuid, id)");
+            context.execute("CREATE INDEX IF NOT EXISTS " + context.table("idx_audit_target") +
+                    " ON " + audit + " (target_uuid, id)");
+            context.execute("CREATE INDEX IF NOT EXISTS " + context.table("idx_audit_location") +
+                    " ON " + audit + " (world, chunk_x, chunk_z, id)");
+            context.execute("CREATE INDEX IF NOT EXISTS " + context.table("idx_audit_created") +
+                    " ON " + audit + " (created_at)");
+        }
+        
+        // Old entries folded into counts per day, action and actor when retention mode is ROLLUP
+        context.execute("CREATE TABLE IF NOT EXISTS " + rollup + " (" +
+                "day INTEGER NOT NULL," +
+                "action VARCHAR(16) NOT NULL," +
+                "actor_uuid " + uuidType + " NOT NULL," +
+                "events INTEGER NOT NULL," +
+                "PRIMARY KEY (day, action, actor_uuid)" +
+                ")");
+    }
+}
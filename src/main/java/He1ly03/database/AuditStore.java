@@ -0,0 +1,240 @@
+package He1ly03.database;
+
+import He1ly03.audit.AuditAction;
+import He1ly03.audit.AuditEvent;
+import He1ly03.utils.UUIDUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Reads and writes the audit log tables
+ * Called from the audit writer thread and from async history lookups, never
+ * from the main thread.
+ */
+public class AuditStore {
+    
+    private static final String COLUMNS = "id, created_at, action, actor_uuid, actor_name, target_uuid, target_name, " +
+            "world, chunk_x, chunk_z, chunk_name, details";
+    private static final long DAY_MS = 86_400_000L;
+    private static final byte[] NO_ACTOR = new byte[16];
+    
+    private final DatabaseManager databaseManager;
+    private final String table;
+    private final String rollupTable;
+    
+    AuditStore(DatabaseManager databaseManager, String tablePrefix) {
+        this.databaseManager = databaseManager;
+        this.table = tablePrefix + "audit_log";
+        this.rollupTable = tablePrefix + "audit_rollup";
+    }
+    
+    // ==================== Writing ====================
+    
+    /**
+     * Insert the entries in one transaction
+     */
+    public void insert(List<AuditEvent> events) throws SQLException {
+        String sql = "INSERT INTO " + table + " (created_at, action, actor_uuid, actor_name, target_uuid, target_name, " +
+                "world, chunk_x, chunk_z, chunk_name, details) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        
+        try (Connection conn = databaseManager.getWriteConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (AuditEvent event : events) {
+                    stmt.setLong(1, event.time());
+                    stmt.setString(2, event.action().name());
+                    stmt.setBytes(3, event.actorUUID() != null ? UUIDUtils.toBytes(event.actorUUID()) : null);
+                    stmt.setString(4, event.actorName());
+                    stmt.setBytes(5, event.targetUUID() != null ? UUIDUtils.toBytes(event.targetUUID()) : null);
+                    stmt.setString(6, event.targetName());
+                    stmt.setString(7, event.world());
+                    stmt.setInt(8, event.chunkX());
+                    stmt.setInt(9, event.chunkZ());
+                    stmt.setString(10, event.chunkName());
+                    stmt.setString(11, event.details());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+    
+    /**
+     * Remove up to limit entries older than the given time, oldest first
+     * With rollup the entries are first added to the daily counts. Returns the
+     * number of removed entries, less than limit once nothing old is left.
+     */
+    public int purge(long before, boolean rollup, int limit) throws SQLException {
+        String select = "SELECT id, created_at, action, actor_uuid FROM " + table +
+                " WHERE created_at < ? ORDER BY created_at LIMIT ?";
+        
+        try (Connection conn = databaseManager.getWriteConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                List<Long> ids = new ArrayList<>();
+                Map<RollupKey, Integer> counts = new HashMap<>();
+                try (PreparedStatement stmt = conn.prepareStatement(select)) {
+                    stmt.setLong(1, before);
+                    stmt.setInt(2, limit);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            ids.add(rs.getLong(1));
+                            if (rollup) {
+                                byte[] actor = rs.getBytes(4);
+                                RollupKey key = new RollupKey((int) Math.floorDiv(rs.getLong(2), DAY_MS),
+                                        rs.getString(3), actor != null ? UUIDUtils.fromBytes(actor) : null);
+                                counts.merge(key, 1, Integer::sum);
+                            }
+                        }
+                    }
+                }
+                if (ids.isEmpty()) {
+                    conn.commit();
+                    return 0;
+                }
+                
+                if (!counts.isEmpty()) {
+                    addRollup(conn, counts);
+                }
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + table + " WHERE id = ?")) {
+                    for (long id : ids) {
+                        stmt.setLong(1, id);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+                conn.commit();
+                return ids.size();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+    
+    private void addRollup(Connection conn, Map<RollupKey, Integer> counts) throws SQLException {
+        String update = "UPDATE " + rollupTable + " SET events = events + ? WHERE day = ? AND action = ? AND actor_uuid = ?";
+        String insert = "INSERT INTO " + rollupTable + " (day, action, actor_uuid, events) VALUES (?, ?, ?, ?)";
+        
+        try (PreparedStatement updateStmt = conn.prepareStatement(update);
+             PreparedStatement insertStmt = conn.prepareStatement(insert)) {
+            for (Map.Entry<RollupKey, Integer> entry : counts.entrySet()) {
+                RollupKey key = entry.getKey();
+                byte[] actor = key.actor() != null ? UUIDUtils.toBytes(key.actor()) : NO_ACTOR;
+                
+                updateStmt.setInt(1, entry.getValue());
+                updateStmt.setInt(2, key.day());
+                updateStmt.setString(3, key.action());
+                updateStmt.setBytes(4, actor);
+                if (updateStmt.executeUpdate() > 0) continue;
+                
+                insertStmt.setInt(1, key.day());
+                insertStmt.setString(2, key.action());
+                insertStmt.setBytes(3, actor);
+                insertStmt.setInt(4, entry.getValue());
+                insertStmt.executeUpdate();
+            }
+        }
+    }
+    
+    // ==================== History ====================
+    
+    /**
+     * Entries where the player made the change or was involved in it, newest first
+     * Both sides are read through their index with at most offset + limit rows each.
+     */
+    public List<AuditEvent> findByPlayer(UUID player, int offset, int limit) throws SQLException {
+        byte[] uuid = UUIDUtils.toBytes(player);
+        int rows = offset + limit;
+        
+        try (Connection conn = databaseManager.getConnection()) {
+            List<AuditEvent> asActor = query(conn, "actor_uuid = ?", stmt -> stmt.setBytes(1, uuid), 2, rows);
+            List<AuditEvent> asTarget = query(conn, "target_uuid = ?", stmt -> stmt.setBytes(1, uuid), 2, rows);
+            
+            // Merge the two id-ordered lists, an entry can be on both sides
+            List<AuditEvent> merged = new ArrayList<>(Math.min(rows, asActor.size() + asTarget.size()));
+            int a = 0;
+            int t = 0;
+            while (merged.size() < rows && (a < asActor.size() || t < asTarget.size())) {
+                AuditEvent next;
+                if (t >= asTarget.size() || (a < asActor.size() && asActor.get(a).id() >= asTarget.get(t).id())) {
+                    next = asActor.get(a++);
+                } else {
+                    next = asTarget.get(t++);
+                }
+                if (merged.isEmpty() || merged.get(merged.size() - 1).id() != next.id()) {
+                    merged.add(next);
+                }
+            }
+            return offset >= merged.size() ? List.of() : merged.subList(offset, merged.size());
+        }
+    }
+    
+    /**
+     * Entries of one chunk position, newest first
+     */
+    public List<AuditEvent> findByChunk(String world, int chunkX, int chunkZ, int offset, int limit) throws SQLException {
+        try (Connection conn = databaseManager.getConnection()) {
+            List<AuditEvent> events = query(conn, "world = ? AND chunk_x = ? AND chunk_z = ?", stmt -> {
+                stmt.setString(1, world);
+                stmt.setInt(2, chunkX);
+                stmt.setInt(3, chunkZ);
+            }, 4, offset + limit);
+            return offset >= events.size() ? List.of() : events.subList(offset, events.size());
+        }
+    }
+    
+    private List<AuditEvent> query(Connection conn, String where, Binder binder, int limitIndex, int limit) throws SQLException {
+        String sql = "SELECT " + COLUMNS + " FROM " + table + " WHERE " + where + " ORDER BY id DESC LIMIT ?";
+        List<AuditEvent> events = new ArrayList<>();
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            binder.bind(stmt);
+            stmt.setInt(limitIndex, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    AuditAction action = AuditAction.fromName(rs.getString("action"));
+                    if (action == null) continue;
+                    
+                    byte[] actor = rs.getBytes("actor_uuid");
+                    byte[] target = rs.getBytes("target_uuid");
+                    events.add(new AuditEvent(
+                            rs.getLong("id"),
+                            rs.getLong("created_at"),
+                            action,
+                            actor != null ? UUIDUtils.fromBytes(actor) : null,
+                            rs.getString("actor_name"),
+                            target != null ? UUIDUtils.fromBytes(target) : null,
+                            rs.getString("target_name"),
+                            rs.getString("world"),
+                            rs.getInt("chunk_x"),
+                            rs.getInt("chunk_z"),
+                            rs.getString("chunk_name"),
+                            rs.getString("details")
+                    ));
+                }
+            }
+        }
+        return events;
+    }
+    
+    @FunctionalInterface
+    private interface Binder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+    
+    private record RollupKey(int day, String action, UUID actor) {
+    }
+}
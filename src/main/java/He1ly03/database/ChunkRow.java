@@ -0,0 +1,57 @@
+package He1ly03.database;
+
+import He1ly03.chunk.ChunkData;
+import He1ly03.chunk.ChunkSettings;
+
+import java.util.UUID;
+
+/**
+ * Immutable copy of the persisted columns of a claim
+ * Taken on the main thread so the writer never reads live ChunkData.
+ */
+public record ChunkRow(
+        String world,
+        int chunkX,
+        int chunkZ,
+        String name,
+        UUID ownerUUID,
+        String ownerName,
+        int flags,
+        boolean forSale,
+        double salePrice,
+        String saleLocation,
+        String worldGuardRegion
+) {
+    
+    /**
+     * Snapshot the current state of a claim
+     */
+    public static ChunkRow of(ChunkData chunk) {
+        return new ChunkRow(
+                chunk.getWorld(),
+                chunk.getChunkX(),
+                chunk.getChunkZ(),
+                chunk.getName(),
+                chunk.getOwnerUUID(),
+                chunk.getOwnerName(),
+                chunk.getSettings().toFlags(),
+                chunk.isForSale(),
+                chunk.getSalePrice(),
+                chunk.getSaleLocation(),
+                chunk.getWorldGuardRegion()
+        );
+    }
+    
+    /**
+     * Build a claim from the row, trusted players are not part of it
+     */
+    public ChunkData toChunkData(int id) {
+        ChunkData chunk = new ChunkData(id, world, chunkX, chunkZ, name, ownerUUID, ownerName,
+                ChunkSettings.fromFlags(flags));
+        chunk.setForSale(forSale);
+        chunk.setSalePrice(salePrice);
+        chunk.setSaleLocation(saleLocation);
+        chunk.setWorldGuardRegion(worldGuardRegion);
+        return chunk;
+    }
+}
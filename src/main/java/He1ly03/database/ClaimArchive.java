@@ -0,0 +1,592 @@
+package He1ly03.database;
+
+import He1ly03.LiseryPrivate;
+import He1ly03.chunk.ChunkData;
+import He1ly03.chunk.ChunkManager;
+import He1ly03.storage.LoadResult;
+import He1ly03.task.IoExecutor;
+import He1ly03.utils.UUIDUtils;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export and import of all claims as gzipped JSON lines
+ * The first line is a header, every other line one claim with its trusted
+ * players. Export reads through one forward-only cursor and import inserts in
+ * batched transactions, so memory use does not grow with the number of claims.
+ */
+public class ClaimArchive {
+    
+    public static final String FOLDER = "exports";
+    public static final String EXTENSION = ".jsonl.gz";
+    
+    private static final String FORMAT = "liseryprivate-claims";
+    private static final int VERSION = 1;
+    private static final int BATCH_SIZE = 500;
+    private static final long PROGRESS_INTERVAL_MS = 2000L;
+    private static final int MAX_LOGGED_ERRORS = 10;
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+    
+    private final LiseryPrivate plugin;
+    private final DatabaseManager databaseManager;
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    public ClaimArchive(LiseryPrivate plugin, DatabaseManager databaseManager) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+    }
+    
+    /**
+     * Export folder inside the plugin folder
+     */
+    public File getFolder() {
+        return new File(plugin.getDataFolder(), FOLDER);
+    }
+    
+    /**
+     * Archive file by name, null if the name points outside the export folder
+     */
+    public File resolve(String name) {
+        File folder = getFolder();
+        File file = new File(folder, name.endsWith(EXTENSION) ? name : name + EXTENSION);
+        try {
+            return file.getCanonicalFile().getParentFile().equals(folder.getCanonicalFile()) ? file : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    // ==================== Export ====================
+    
+    /**
+     * Write all claims to a new file off the main thread, callbacks are called on the main thread
+     * Returns false if an export or import is already running.
+     */
+    public boolean export(Consumer<Integer> progress, Consumer<Result> callback, Consumer<Exception> onError) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        
+        String name = "claims-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + EXTENSION;
+        File file = new File(getFolder(), name);
+        
+        plugin.getIoExecutor().submit(IoExecutor.Resource.DATABASE, () -> {
+            try {
+                return writeArchive(file, progress);
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.WARNING, "Claim export failed", e);
+                if (file.exists() && !file.delete()) {
+                    plugin.getLogger().warning("Could not delete incomplete export " + file.getName());
+                }
+                throw e;
+            } finally {
+                running.set(false);
+            }
+        }, callback, onError);
+        return true;
+    }
+    
+    private Result writeArchive(File file, Consumer<Integer> progress) throws IOException, SQLException {
+        long start = System.nanoTime();
+        
+        // Queued claim changes belong in the export
+        if (!databaseManager.flush(plugin.getConfigManager().getWriteBehindShutdownTimeout())) {
+            plugin.getLogger().warning("Not all pending claim changes were written before the export!");
+        }
+        
+        getFolder().mkdirs();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(file), 65536), StandardCharsets.UTF_8))) {
+            JsonObject header = new JsonObject();
+            header.addProperty("format", FORMAT);
+            header.addProperty("version", VERSION);
+            header.addProperty("exported", System.currentTimeMillis());
+            header.addProperty("storage", databaseManager.getType());
+            writer.write(GSON.toJson(header));
+            writer.write('\n');
+            
+            Progress tracker = new Progress(progress);
+            LoadResult result;
+            try {
+                result = databaseManager.streamAll(chunk -> {
+                    try {
+                        writer.write(GSON.toJson(toJson(chunk)));
+                        writer.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    tracker.step();
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (result == null) {
+                throw new SQLException("Failed to read claims");
+            }
+            
+            return new Result(file.getName(), result.chunks(), result.trusted(), 0, 0, false,
+                    (System.nanoTime() - start) / 1_000_000L);
+        }
+    }
+    
+    private JsonObject toJson(ChunkData chunk) {
+        JsonObject json = new JsonObject();
+        json.addProperty("world", chunk.getWorld());
+        json.addProperty("x", chunk.getChunkX());
+        json.addProperty("z", chunk.getChunkZ());
+        json.addProperty("name", chunk.getName());
+        json.addProperty("owner", chunk.getOwnerUUID().toString());
+        json.addProperty("ownerName", chunk.getOwnerName());
+        json.addProperty("flags", chunk.getSettings().toFlags());
+        json.addProperty("forSale", chunk.isForSale());
+        json.addProperty("salePrice", chunk.getSalePrice());
+        json.addProperty("saleLocation", chunk.getSaleLocation());
+        json.addProperty("region", chunk.getWorldGuardRegion());
+        
+        JsonArray trusted = new JsonArray();
+        for (Map.Entry<UUID, String> entry : chunk.getTrustedPlayers().entrySet()) {
+            JsonObject player = new JsonObject();
+            player.addProperty("uuid", entry.getKey().toString());
+            player.addProperty("name", entry.getValue());
+            trusted.add(player);
+        }
+        json.add("trusted", trusted);
+        return json;
+    }
+    
+    // ==================== Import ====================
+    
+    /**
+     * Read a file and add its claims off the main thread, callbacks are called on the main thread
+     * Claims whose chunk is already claimed or whose owner already has a claim
+     * with that name are skipped. A dry run only validates and counts.
+     * Returns false if an export or import is already running.
+     */
+    public boolean importFile(File file, boolean dryRun, Consumer<Integer> progress,
+                              Consumer<Result> callback, Consumer<Exception> onError) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        
+        // Claims wait until the imported ones are cached, both callbacks run after those main thread tasks
+        ChunkManager chunkManager = plugin.getChunkManager();
+        if (!dryRun) {
+            chunkManager.setImporting(true);
+        }
+        plugin.getIoExecutor().submit(IoExecutor.Resource.DATABASE, () -> {
+            try {
+                return readArchive(file, dryRun, progress);
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.WARNING, "Claim import failed", e);
+                throw e;
+            } finally {
+                running.set(false);
+            }
+        }, result -> {
+            chunkManager.setImporting(false);
+            callback.accept(result);
+        }, error -> {
+            chunkManager.setImporting(false);
+            onError.accept(error);
+        });
+        return true;
+    }
+    
+    private Result readArchive(File file, boolean dryRun, Consumer<Integer> progress) throws IOException, SQLException {
+        long start = System.nanoTime();
+        int maxNameLength = plugin.getConfigManager().getMaxNameLength();
+        Progress tracker = new Progress(progress);
+        Counts counts = new Counts();
+        
+        // Claims still in the write queue are not in the database yet, they would look free
+        if (!dryRun && !plugin.getStorage().flush(plugin.getConfigManager().getWriteBehindShutdownTimeout())) {
+            throw new IOException("Pending claim changes could not be written");
+        }
+        
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(file), 65536), StandardCharsets.UTF_8));
+             SeenClaims seen = dryRun ? new SeenClaims(new File(getFolder(), file.getName() + ".check.db")) : null) {
+            checkHeader(reader.readLine());
+            
+            List<ImportedClaim> batch = new ArrayList<>(BATCH_SIZE);
+            int lineNumber = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+                
+                try {
+                    batch.add(parseClaim(line, maxNameLength));
+                } catch (RuntimeException e) {
+                    counts.invalid++;
+                    if (counts.invalid <= MAX_LOGGED_ERRORS) {
+                        plugin.getLogger().warning(file.getName() + " line " + lineNumber + ": " + e.getMessage());
+                    }
+                }
+                
+                if (batch.size() >= BATCH_SIZE) {
+                    writeBatch(batch, seen, counts);
+                    tracker.step(batch.size());
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch, seen, counts);
+                tracker.step(batch.size());
+            }
+        }
+        
+        return new Result(file.getName(), counts.claims, counts.trusted, counts.skipped, counts.invalid, dryRun,
+                (System.nanoTime() - start) / 1_000_000L);
+    }
+    
+    private void checkHeader(String line) throws IOException {
+        try {
+            JsonObject header = line != null ? JsonParser.parseString(line).getAsJsonObject() : null;
+            if (header == null || !header.has("format") || !FORMAT.equals(header.get("format").getAsString())) {
+                throw new IOException("Not a claim export");
+            }
+            if (header.get("version").getAsInt() > VERSION) {
+                throw new IOException("Export was made by a newer plugin version");
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Not a claim export", e);
+        }
+    }
+    
+    /**
+     * Parse and validate one claim line, throws with a readable message on bad input
+     */
+    private ImportedClaim parseClaim(String line, int maxNameLength) {
+        JsonObject json = JsonParser.parseString(line).getAsJsonObject();
+        
+        String world = requireString(json, "world");
+        String name = requireString(json, "name");
+        if (world.length() > 64) {
+            throw new IllegalArgumentException("world name is too long");
+        }
+        if (name.length() > maxNameLength) {
+            throw new IllegalArgumentException("claim name " + name + " is too long");
+        }
+        
+        ChunkRow row = new ChunkRow(
+                world,
+                requireInt(json, "x"),
+                requireInt(json, "z"),
+                name,
+                UUID.fromString(requireString(json, "owner")),
+                optionalString(json, "ownerName"),
+                json.has("flags") ? json.get("flags").getAsInt() : 0,
+                json.has("forSale") && json.get("forSale").getAsBoolean(),
+                json.has("salePrice") ? json.get("salePrice").getAsDouble() : 0,
+                optionalString(json, "saleLocation"),
+                null // Regions of the source server do not exist here, they are created once applied
+        );
+        
+        Map<UUID, String> trusted = new LinkedHashMap<>();
+        if (json.has("trusted")) {
+            for (JsonElement element : json.getAsJsonArray("trusted")) {
+                JsonObject player = element.getAsJsonObject();
+                trusted.put(UUID.fromString(requireString(player, "uuid")), optionalString(player, "name"));
+            }
+        }
+        return new ImportedClaim(row, trusted);
+    }
+    
+    private String requireString(JsonObject json, String key) {
+        String value = optionalString(json, key);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("missing " + key);
+        }
+        return value;
+    }
+    
+    private int requireInt(JsonObject json, String key) {
+        JsonElement element = json.get(key);
+        if (element == null || element.isJsonNull()) {
+            throw new IllegalArgumentException("missing " + key);
+        }
+        return element.getAsInt();
+    }
+    
+    private String optionalString(JsonObject json, String key) {
+        JsonElement element = json.get(key);
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+    
+    /**
+     * Insert one batch in a transaction, or just check it on a read connection for a dry run
+     * Claims inserted earlier in the same transaction count as taken, a dry run
+     * checks earlier claims of the file against the scratch database instead.
+     */
+    private void writeBatch(List<ImportedClaim> batch, SeenClaims seen, Counts counts) throws SQLException {
+        boolean dryRun = seen != null;
+        String prefix = databaseManager.getTablePrefix();
+        String positionTaken = "SELECT 1 FROM " + prefix + "chunks WHERE world = ? AND chunk_x = ? AND chunk_z = ?";
+        String nameTaken = "SELECT name FROM " + prefix + "chunks WHERE owner_uuid = ?";
+        
+        try (Connection conn = dryRun ? databaseManager.getConnection() : databaseManager.getWriteConnection()) {
+            if (!dryRun) {
+                conn.setAutoCommit(false);
+            }
+            try (PreparedStatement positionStmt = conn.prepareStatement(positionTaken);
+                 PreparedStatement nameStmt = conn.prepareStatement(nameTaken)) {
+                List<ImportedClaim> accepted = new ArrayList<>(batch.size());
+                for (ImportedClaim claim : batch) {
+                    if (isTaken(positionStmt, nameStmt, claim.row) || dryRun && seen.add(claim.row)) {
+                        counts.skipped++;
+                        continue;
+                    }
+                    accepted.add(claim);
+                    counts.claims++;
+                    counts.trusted += claim.trusted.size();
+                    
+                    // Later claims of the same batch are checked against this one
+                    if (!dryRun) {
+                        claim.id = databaseManager.insertChunk(conn, claim.row);
+                    }
+                }
+                
+                if (!dryRun && !accepted.isEmpty()) {
+                    insertTrusted(conn, accepted);
+                    commit(conn, accepted);
+                    apply(accepted);
+                } else if (dryRun) {
+                    seen.commit();
+                }
+            } catch (SQLException e) {
+                if (!dryRun) {
+                    conn.rollback();
+                }
+                throw e;
+            } finally {
+                if (!dryRun) {
+                    conn.setAutoCommit(true);
+                }
+            }
+        }
+    }
+    
+    private boolean isTaken(PreparedStatement positionStmt, PreparedStatement nameStmt, ChunkRow row) throws SQLException {
+        positionStmt.setString(1, row.world());
+        positionStmt.setInt(2, row.chunkX());
+        positionStmt.setInt(3, row.chunkZ());
+        try (ResultSet rs = positionStmt.executeQuery()) {
+            if (rs.next()) return true;
+        }
+        
+        // Names are unique per owner ignoring case, read through the owner index
+        nameStmt.setBytes(1, UUIDUtils.toBytes(row.ownerUUID()));
+        try (ResultSet rs = nameStmt.executeQuery()) {
+            while (rs.next()) {
+                if (row.name().equalsIgnoreCase(rs.getString(1))) return true;
+            }
+        }
+        return false;
+    }
+    
+    private void insertTrusted(Connection conn, List<ImportedClaim> claims) throws SQLException {
+        try (PreparedStatement stmt = databaseManager.prepareAddTrusted(conn)) {
+            for (ImportedClaim claim : claims) {
+                for (Map.Entry<UUID, String> entry : claim.trusted.entrySet()) {
+                    stmt.setInt(1, claim.id);
+                    stmt.setBytes(2, UUIDUtils.toBytes(entry.getKey()));
+                    stmt.setString(3, entry.getValue());
+                    stmt.addBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+    
+    /**
+     * Recount owners, tell other servers and commit, like the persistence writer does
+     */
+    private void commit(Connection conn, List<ImportedClaim> claims) throws SQLException {
+        Set<UUID> owners = new HashSet<>();
+        for (ImportedClaim claim : claims) {
+            owners.add(claim.row.ownerUUID());
+        }
+        databaseManager.refreshClaimCounts(conn, owners);
+        
+        ClaimChangeLog changeLog = databaseManager.getChangeLog();
+        if (changeLog != null) {
+            long now = System.currentTimeMillis();
+            try (PreparedStatement stmt = changeLog.prepareInsert(conn)) {
+                for (ImportedClaim claim : claims) {
+                    changeLog.addClaim(stmt, ClaimChangeLog.UPSERT, claim.id, claim.row.toChunkData(claim.id), now);
+                }
+                for (UUID owner : owners) {
+                    changeLog.addOwner(stmt, owner, now);
+                }
+                stmt.executeBatch();
+            }
+        }
+        
+        databaseManager.bumpWriteSeq(conn);
+        conn.commit();
+    }
+    
+    /**
+     * Hand committed claims to the cache on the main thread, batch by batch
+     * Tasks run in order, so all batches are applied before the result arrives.
+     */
+    private void apply(List<ImportedClaim> claims) {
+        List<ChunkData> chunks = new ArrayList<>(claims.size());
+        for (ImportedClaim claim : claims) {
+            ChunkData chunk = claim.row.toChunkData(claim.id);
+            claim.trusted.forEach(chunk::addTrusted);
+            chunks.add(chunk);
+        }
+        plugin.getIoExecutor().mainThread().execute(() -> plugin.getChunkManager().applyImported(chunks));
+    }
+    
+    /**
+     * Parsed claim line, id is set once it is inserted
+     */
+    private static final class ImportedClaim {
+        private final ChunkRow row;
+        private final Map<UUID, String> trusted;
+        private int id = -1;
+        
+        private ImportedClaim(ChunkRow row, Map<UUID, String> trusted) {
+            this.row = row;
+            this.trusted = trusted;
+        }
+    }
+    
+    private static final class Counts {
+        private int claims;
+        private int trusted;
+        private int skipped;
+        private int invalid;
+    }
+    
+    /**
+     * Positions and owner names accepted by a dry run, kept in a scratch SQLite file
+     * so memory stays the same however many claims the file holds. The file is
+     * deleted when closed.
+     */
+    private static final class SeenClaims implements AutoCloseable {
+        private final File file;
+        private final Connection conn;
+        private final PreparedStatement findPosition;
+        private final PreparedStatement findName;
+        private final PreparedStatement addPosition;
+        private final PreparedStatement addName;
+        
+        private SeenClaims(File file) throws SQLException {
+            this.file = file;
+            file.delete();
+            this.conn = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA journal_mode = OFF");
+                stmt.execute("PRAGMA synchronous = OFF");
+                stmt.execute("CREATE TABLE positions (world TEXT NOT NULL, chunk_x INTEGER NOT NULL, " +
+                        "chunk_z INTEGER NOT NULL, PRIMARY KEY (world, chunk_x, chunk_z)) WITHOUT ROWID");
+                stmt.execute("CREATE TABLE names (owner_uuid BLOB NOT NULL, name TEXT NOT NULL, " +
+                        "PRIMARY KEY (owner_uuid, name)) WITHOUT ROWID");
+            }
+            conn.setAutoCommit(false);
+            this.findPosition = conn.prepareStatement("SELECT 1 FROM positions WHERE world = ? AND chunk_x = ? AND chunk_z = ?");
+            this.findName = conn.prepareStatement("SELECT 1 FROM names WHERE owner_uuid = ? AND name = ?");
+            this.addPosition = conn.prepareStatement("INSERT INTO positions (world, chunk_x, chunk_z) VALUES (?, ?, ?)");
+            this.addName = conn.prepareStatement("INSERT INTO names (owner_uuid, name) VALUES (?, ?)");
+        }
+        
+        /**
+         * Whether an earlier claim of the file has the position or owner and name, remembers the claim if not
+         */
+        private boolean add(ChunkRow row) throws SQLException {
+            byte[] owner = UUIDUtils.toBytes(row.ownerUUID());
+            String name = row.name().toLowerCase(Locale.ROOT);
+            
+            findPosition.setString(1, row.world());
+            findPosition.setInt(2, row.chunkX());
+            findPosition.setInt(3, row.chunkZ());
+            try (ResultSet rs = findPosition.executeQuery()) {
+                if (rs.next()) return true;
+            }
+            findName.setBytes(1, owner);
+            findName.setString(2, name);
+            try (ResultSet rs = findName.executeQuery()) {
+                if (rs.next()) return true;
+            }
+            
+            addPosition.setString(1, row.world());
+            addPosition.setInt(2, row.chunkX());
+            addPosition.setInt(3, row.chunkZ());
+            addPosition.executeUpdate();
+            addName.setBytes(1, owner);
+            addName.setString(2, name);
+            addName.executeUpdate();
+            return false;
+        }
+        
+        private void commit() throws SQLException {
+            conn.commit();
+        }
+        
+        @Override
+        public void close() throws SQLException {
+            try {
+                conn.close();
+            } finally {
+                file.delete();
+            }
+        }
+    }
+    
+    /**
+     * Reports the number of processed claims to the main thread every few seconds
+     */
+    private final class Progress {
+        private final Consumer<Integer> consumer;
+        private int done;
+        private long lastReport = System.currentTimeMillis();
+        
+        private Progress(Consumer<Integer> consumer) {
+            this.consumer = consumer;
+        }
+        
+        private void step() {
+            step(1);
+        }
+        
+        private void step(int count) {
+            done += count;
+            long now = System.currentTimeMillis();
+            if (now - lastReport >= PROGRESS_INTERVAL_MS) {
+                lastReport = now;
+                int reported = done;
+                plugin.getIoExecutor().mainThread().execute(() -> consumer.accept(reported));
+            }
+        }
+    }
+    
+    /**
+     * Outcome of an export or import
+     */
+    public record Result(String file, int claims, int trusted, int skipped, int invalid, boolean dryRun, long millis) {
+    }
+}
@@ -0,0 +1,359 @@
+package He1ly03.database;
+
+import He1ly03.LiseryPrivate;
+import He1ly03.chunk.ChunkData;
+import He1ly03.chunk.ChunkManager;
+import He1ly03.utils.UUIDUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * Keeps the claim cache in step with other servers using the same database
+ * The persistence writer adds a row per written claim and per recounted owner
+ * in the same transaction. A poller reads the rows after the last sequence
+ * number it has seen, skips the ones this server wrote, re-reads the claims
+ * the others name and applies each on the main thread unless the claim has
+ * already taken a change at least as new.
+ */
+public class ClaimChangeLog {
+    
+    static final int UPSERT = 1;
+    static final int DELETE = 2;
+    static final int OWNER = 3;
+    
+    // A skipped sequence number may belong to a transaction that is still open, it is looked for again this long
+    private static final long GAP_TIMEOUT_MS = 60_000L;
+    private static final int MAX_GAPS = 1000;
+    private static final long PRUNE_INTERVAL_MS = 600_000L;
+    
+    private final LiseryPrivate plugin;
+    private final DatabaseManager databaseManager;
+    private final DatabaseSnapshot snapshot;
+    private final String table;
+    private final byte[] origin = UUIDUtils.toBytes(UUID.randomUUID());
+    
+    private final AtomicBoolean polling = new AtomicBoolean();
+    private BukkitTask task;
+    private int batchSize;
+    private long retentionMs;
+    
+    // Poll position, only touched by the running poll
+    private long lastSeq;
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+    private long lastPrune;
+    private int seenEpoch = -1;
+    
+    // Start position after the cache was (re)loaded, epoch is written last
+    private volatile long startSeq;
+    private volatile int epoch;
+    
+    // Metrics
+    private volatile long polls;
+    private volatile long received;
+    private volatile long applied;
+    private volatile long lastPollMicros;
+    private volatile long maxPollMicros;
+    
+    ClaimChangeLog(LiseryPrivate plugin, DatabaseManager databaseManager, DatabaseSnapshot snapshot, String tablePrefix) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+        this.snapshot = snapshot;
+        this.table = tablePrefix + "claim_changes";
+    }
+    
+    void start() {
+        var configManager = plugin.getConfigManager();
+        this.batchSize = configManager.getSyncBatchSize();
+        this.retentionMs = configManager.getSyncRetention();
+        
+        reset();
+        long period = Math.max(1L, configManager.getSyncPollInterval() / 50L);
+        task = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::poll, period, period);
+    }
+    
+    void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+    
+    /**
+     * Continue after the newest change, called right before all claims are loaded
+     */
+    void reset() {
+        try (Connection conn = databaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT MAX(seq) FROM " + table);
+             ResultSet rs = stmt.executeQuery()) {
+            startSeq = rs.next() ? rs.getLong(1) : 0;
+            epoch++;
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to read the claim change log position!", e);
+        }
+    }
+    
+    // ==================== Writing ====================
+    
+    /**
+     * Insert statement for change rows, bind with addClaim and addOwner
+     */
+    PreparedStatement prepareInsert(Connection conn) throws SQLException {
+        return conn.prepareStatement("INSERT INTO " + table +
+                " (origin, op, chunk_id, world, chunk_x, chunk_z, owner_uuid, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+    }
+    
+    void addClaim(PreparedStatement stmt, int op, int chunkId, ChunkData chunk, long now) throws SQLException {
+        stmt.setBytes(1, origin);
+        stmt.setInt(2, op);
+        stmt.setInt(3, chunkId);
+        stmt.setString(4, chunk.getWorld());
+        stmt.setInt(5, chunk.getChunkX());
+        stmt.setInt(6, chunk.getChunkZ());
+        stmt.setBytes(7, null);
+        stmt.setLong(8, now);
+        stmt.addBatch();
+    }
+    
+    void addOwner(PreparedStatement stmt, UUID owner, long now) throws SQLException {
+        stmt.setBytes(1, origin);
+        stmt.setInt(2, OWNER);
+        stmt.setInt(3, 0);
+        stmt.setString(4, null);
+        stmt.setInt(5, 0);
+        stmt.setInt(6, 0);
+        stmt.setBytes(7, UUIDUtils.toBytes(owner));
+        stmt.setLong(8, now);
+        stmt.addBatch();
+    }
+    
+    // ==================== Polling ====================
+    
+    private void poll() {
+        if (!polling.compareAndSet(false, true)) return;
+        
+        boolean handedOver = false;
+        long previousSeq = lastSeq;
+        Map<Long, Long> previousGaps = new LinkedHashMap<>(gaps);
+        try {
+            int pollEpoch = epoch;
+            if (pollEpoch != seenEpoch) {
+                lastSeq = startSeq;
+                gaps.clear();
+                seenEpoch = pollEpoch;
+                previousSeq = lastSeq;
+                previousGaps.clear();
+            }
+            
+            long start = System.nanoTime();
+            
+            // Taken before the changes are read, the cache is at least this current afterwards
+            PersistenceQueue queue = databaseManager.getPersistenceQueue();
+            long commits = queue != null ? queue.getCommits() : 0;
+            long writeSeq = databaseManager.readWriteSeq();
+            
+            List<Change> changes = fetch();
+            polls++;
+            prune();
+            if (changes.isEmpty()) return;
+            boolean caughtUp = changes.size() < batchSize;
+            
+            // Our own rows only keep the gaps right, the cache already has those writes
+            changes.removeIf(Change::own);
+            
+            // Only the latest change of a claim matters, its current row is read anyway
+            Map<Integer, Change> claims = new LinkedHashMap<>();
+            Set<UUID> owners = new HashSet<>();
+            for (Change change : changes) {
+                if (change.op() == OWNER) {
+                    owners.add(change.owner());
+                } else {
+                    claims.remove(change.chunkId());
+                    claims.put(change.chunkId(), change);
+                }
+            }
+            
+            Map<Integer, ChunkData> stored = new HashMap<>();
+            if (!claims.isEmpty() && databaseManager.loadClaims(claims.keySet(),
+                    chunk -> stored.put(chunk.getId(), chunk)) == null) {
+                throw new SQLException("Changed claims could not be read");
+            }
+            Map<UUID, Integer> counts = databaseManager.loadClaimCounts(owners);
+            if (counts == null) {
+                throw new SQLException("Changed claim counts could not be read");
+            }
+            
+            received += changes.size();
+            long micros = (System.nanoTime() - start) / 1000L;
+            lastPollMicros = micros;
+            if (micros > maxPollMicros) {
+                maxPollMicros = micros;
+            }
+            
+            if (!plugin.isEnabled()) return;
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                try {
+                    if (pollEpoch == epoch) {
+                        apply(claims.values(), stored, owners, counts, caughtUp, writeSeq, commits);
+                    }
+                } finally {
+                    polling.set(false);
+                }
+            });
+            handedOver = true;
+        } catch (SQLException e) {
+            // Read the same changes again next time
+            lastSeq = previousSeq;
+            gaps.clear();
+            gaps.putAll(previousGaps);
+            plugin.getLogger().log(Level.WARNING, "Failed to poll claim changes!", e);
+        } finally {
+            if (!handedOver) {
+                polling.set(false);
+            }
+        }
+    }
+    
+    /**
+     * Read changes after lastSeq and changes that filled earlier gaps, in sequence order
+     * Sequence numbers are taken at insert time but become visible at commit, so a
+     * gap is remembered for a while in case a slower transaction fills it.
+     */
+    private List<Change> fetch() throws SQLException {
+        long now = System.currentTimeMillis();
+        gaps.values().removeIf(firstSeen -> now - firstSeen > GAP_TIMEOUT_MS);
+        
+        StringBuilder sql = new StringBuilder("SELECT seq, origin, op, chunk_id, world, chunk_x, chunk_z, owner_uuid FROM ")
+                .append(table).append(" WHERE seq > ?");
+        if (!gaps.isEmpty()) {
+            sql.append(" OR seq IN (").append(String.join(", ", Collections.nCopies(gaps.size(), "?"))).append(")");
+        }
+        sql.append(" ORDER BY seq LIMIT ").append(batchSize);
+        
+        List<Change> changes = new ArrayList<>();
+        try (Connection conn = databaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            stmt.setLong(index++, lastSeq);
+            for (long seq : gaps.keySet()) {
+                stmt.setLong(index++, seq);
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long seq = rs.getLong("seq");
+                    if (seq > lastSeq) {
+                        for (long missing = lastSeq + 1; missing < seq && gaps.size() < MAX_GAPS; missing++) {
+                            gaps.put(missing, now);
+                        }
+                        lastSeq = seq;
+                    } else {
+                        gaps.remove(seq);
+                    }
+                    
+                    changes.add(new Change(seq, Arrays.equals(rs.getBytes("origin"), origin), rs.getInt("op"),
+                            rs.getInt("chunk_id"), rs.getString("world"), rs.getInt("chunk_x"), rs.getInt("chunk_z"), UUIDUtils.fromBytes(rs.getBytes("owner_uuid"))));
+                }
+            }
+        }
+        return changes;
+    }
+    
+    /**
+     * Drop changes older than the retention, any server may do it
+     */
+    private void prune() {
+        long now = System.currentTimeMillis();
+        if (now - lastPrune < PRUNE_INTERVAL_MS) return;
+        lastPrune = now;
+        
+        try (Connection conn = databaseManager.getWriteConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + table + " WHERE created_at < ?")) {
+            stmt.setLong(1, now - retentionMs);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to prune the claim change log!", e);
+        }
+    }
+    
+    /**
+     * Apply read changes on the main thread
+     * Claims with local changes still waiting to be written are skipped, the
+     * local write comes later and its own change row brings the others in line.
+     */
+    private void apply(Collection<Change> claims, Map<Integer, ChunkData> stored, Set<UUID> owners,
+                       Map<UUID, Integer> counts, boolean caughtUp, long writeSeq, long commits) {
+        ChunkManager chunkManager = plugin.getChunkManager();
+        PersistenceQueue queue = databaseManager.getPersistenceQueue();
+        if (chunkManager == null || queue == null) return;
+        
+        for (Change change : claims) {
+            ChunkData local = chunkManager.getChunkAt(change.world(), change.chunkX(), change.chunkZ());
+            if (local != null && queue.isPending(local)) continue;
+            boolean same = local != null && local.getId() == change.chunkId();
+            if (same && local.getSyncSeq() >= change.seq()) continue;
+            
+            ChunkData current = stored.get(change.chunkId());
+            if (current == null) {
+                if (same) {
+                    chunkManager.removeStoredClaim(local);
+                    applied++;
+                }
+            } else {
+                // Either object ends up cached, the stored one for a new claim
+                current.setSyncSeq(change.seq());
+                if (same) {
+                    local.setSyncSeq(change.seq());
+                }
+                chunkManager.applyStoredClaim(current);
+                applied++;
+            }
+        }
+        
+        // Counts are only exact while nothing of ours is waiting to be written
+        if (queue.isIdle()) {
+            for (UUID owner : owners) {
+                chunkManager.setClaimCount(owner, counts.getOrDefault(owner, 0));
+            }
+        }
+        
+        // Nothing of ours was committed meanwhile, the cache now matches write_seq at poll start or later
+        if (caughtUp && writeSeq >= 0 && queue.isIdle() && queue.getCommits() == commits) {
+            snapshot.rebase(writeSeq, commits);
+        }
+    }
+    
+    // ==================== Metrics ====================
+    
+    public long getPolls() {
+        return polls;
+    }
+    
+    public long getReceived() {
+        return received;
+    }
+    
+    public long getApplied() {
+        return applied;
+    }
+    
+    public long getLastPollMicros() {
+        return lastPollMicros;
+    }
+    
+    public long getMaxPollMicros() {
+        return maxPollMicros;
+    }
+    
+    /**
+     * One row of the change log
+     */
+    private record Change(long seq, boolean own, int op, int chunkId, String world, int chunkX, int chunkZ, UUID owner) {}
+}
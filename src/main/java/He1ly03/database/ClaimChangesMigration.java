@@ -0,0 +1,47 @@
+package He1ly03.database;
+
+import java.sql.SQLException;
+
+/**
+ * Change log of claim writes for servers sharing one database
+ * Every committed claim change adds a row, other servers poll the rows
+ * after the last sequence number they have seen.
+ */
+class ClaimChangesMigration implements SchemaMigration {
+    
+    @Override
+    public int getVersion() {
+        return 5;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "Claim change log";
+    }
+    
+    @Override
+    public void migrate(MigrationContext context) throws SQLException {
+        String changes = context.table("claim_changes");
+        boolean mySQL = context.isMySQL();
+        String uuidType = mySQL ? "BINARY(16)" : "BLOB";
+        
+        // created_at is set by the writer in epoch millis, database clocks and time zones differ
+        context.execute("CREATE TABLE IF NOT EXISTS " + changes + " (" +
+                (mySQL ? "seq BIGINT PRIMARY KEY AUTO_INCREMENT," : "seq INTEGER PRIMARY KEY AUTOINCREMENT,") +
+                "origin " + uuidType + " NOT NULL," +
+                "op INTEGER NOT NULL," +
+                "chunk_id INTEGER NOT NULL DEFAULT 0," +
+                "world VARCHAR(64) DEFAULT NULL," +
+                "chunk_x INTEGER NOT NULL DEFAULT 0," +
+                "chunk_z INTEGER NOT NULL DEFAULT 0," +
+                "owner_uuid " + uuidType + " DEFAULT NULL," +
+                "created_at BIGINT NOT NULL" +
+                (mySQL ? ", INDEX idx_claim_changes_created (created_at)" : "") +
+                ")");
+        
+        if (!mySQL) {
+            context.execute("CREATE INDEX IF NOT EXISTS " + context.table("idx_claim_changes_created") +
+                    " ON " + changes + " (created_at)");
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package He1ly03.database;
+
+import He1ly03.chunk.ChunkSettings;
+import He1ly03.utils.UUIDUtils;
+
+import java.sql.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Binary UUIDs, packed settings flags, lookup indexes and a cascading foreign key
+ * Both tables are copied in id order into new tables which then replace the old ones.
+ * Rows with unreadable UUIDs and trust rows of missing claims are dropped.
+ */
+class CompactSchemaMigration implements SchemaMigration {
+    
+    private static final int BATCH_SIZE = 1000;
+    
+    @Override
+    public int getVersion() {
+        return 2;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "Binary UUIDs, packed flags, indexes";
+    }
+    
+    @Override
+    public void migrate(MigrationContext context) throws SQLException {
+        String chunks = context.table("chunks");
+        String trusted = context.table("trusted_players");
+        
+        // Leftovers of an interrupted run, MySQL commits DDL immediately
+        context.execute("DROP TABLE IF EXISTS " + trusted + "_v1");
+        context.execute("DROP TABLE IF EXISTS " + chunks + "_v1");
+        
+        if (!context.hasColumn(chunks, "flags")) {
+            convert(context, chunks, trusted);
+        }
+        
+        if (context.isMySQL()) {
+            if (!context.hasForeignKey(trusted, chunks)) {
+                context.execute("ALTER TABLE " + trusted + " ADD CONSTRAINT " + trusted + "_chunk_fk " +
+                        "FOREIGN KEY (chunk_id) REFERENCES " + chunks + "(id) ON DELETE CASCADE");
+            }
+        } else {
+            context.execute("CREATE INDEX IF NOT EXISTS " + context.table("idx_chunks_owner") +
+                    " ON " + chunks + " (owner_uuid)");
+            context.execute("CREATE INDEX IF NOT EXISTS " + context.table("idx_chunks_for_sale") +
+                    " ON " + chunks + " (for_sale)");
+            context.execute("CREATE INDEX IF NOT EXISTS " + context.table("idx_trusted_player") +
+                    " ON " + trusted + " (player_uuid)");
+        }
+    }
+    
+    private void convert(MigrationContext context, String chunks, String trusted) throws SQLException {
+        String chunksNew = chunks + "_new";
+        String trustedNew = trusted + "_new";
+        boolean mySQL = context.isMySQL();
+        String autoIncrement = mySQL ? "AUTO_INCREMENT" : "AUTOINCREMENT";
+        String uuidType = mySQL ? "BINARY(16)" : "BLOB";
+        
+        context.execute("DROP TABLE IF EXISTS " + trustedNew);
+        context.execute("DROP TABLE IF EXISTS " + chunksNew);
+        
+        context.execute("CREATE TABLE " + chunksNew + " (" +
+                "id INTEGER PRIMARY KEY " + autoIncrement + "," +
+                "world VARCHAR(64) NOT NULL," +
+                "chunk_x INTEGER NOT NULL," +
+                "chunk_z INTEGER NOT NULL," +
+                "name VARCHAR(64) NOT NULL," +
+                "owner_uuid " + uuidType + " NOT NULL," +
+                "owner_name VARCHAR(16) NOT NULL," +
+                "flags INTEGER NOT NULL DEFAULT 0," +
+                "for_sale BOOLEAN DEFAULT 0," +
+                "sale_price DOUBLE DEFAULT 0," +
+                "sale_location VARCHAR(255) DEFAULT NULL," +
+                "worldguard_region VARCHAR(128) DEFAULT NULL," +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                "UNIQUE(world, chunk_x, chunk_z)" +
+                (mySQL ? ", INDEX idx_chunks_owner (owner_uuid), INDEX idx_chunks_for_sale (for_sale)" : "") +
+                ")");
+        
+        // SQLite cannot add a foreign key later, so it is declared up front
+        context.execute("CREATE TABLE " + trustedNew + " (" +
+                "id INTEGER PRIMARY KEY " + autoIncrement + "," +
+                "chunk_id INTEGER NOT NULL," +
+                "player_uuid " + uuidType + " NOT NULL," +
+                "player_name VARCHAR(16) NOT NULL," +
+                "added_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                "UNIQUE(chunk_id, player_uuid)" +
+                (mySQL ? ", INDEX idx_trusted_player (player_uuid)"
+                        : ", FOREIGN KEY (chunk_id) REFERENCES " + chunks + "(id) ON DELETE CASCADE") +
+                ")");
+        
+        Set<Integer> skippedChunks = copyChunks(context, chunks, chunksNew);
+        copyTrusted(context, chunks, trusted, trustedNew, skippedChunks);
+        
+        if (mySQL) {
+            context.execute("RENAME TABLE " + chunks + " TO " + chunks + "_v1, " +
+                    chunksNew + " TO " + chunks + ", " +
+                    trusted + " TO " + trusted + "_v1, " +
+                    trustedNew + " TO " + trusted);
+            context.execute("DROP TABLE " + trusted + "_v1");
+            context.execute("DROP TABLE " + chunks + "_v1");
+        } else {
+            context.execute("DROP TABLE " + trusted);
+            context.execute("DROP TABLE " + chunks);
+            context.execute("ALTER TABLE " + chunksNew + " RENAME TO " + chunks);
+            context.execute("ALTER TABLE " + trustedNew + " RENAME TO " + trusted);
+        }
+    }
+    
+    /**
+     * Copy claims in id order, returns ids of claims that could not be converted
+     */
+    private Set<Integer> copyChunks(MigrationContext context, String chunks, String chunksNew) throws SQLException {
+        Connection conn = context.getConnection();
+        Set<Integer> skipped = new HashSet<>();
+        Progress progress = new Progress(context, "claims", context.count(chunks));
+        
+        String select = "SELECT * FROM " + chunks + " WHERE id > ? ORDER BY id LIMIT " + BATCH_SIZE;
+        String insert = "INSERT INTO " + chunksNew + " (id, world, chunk_x, chunk_z, name, owner_uuid, owner_name, " +
+                "flags, for_sale, sale_price, sale_location, worldguard_region, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        
+        try (PreparedStatement read = conn.prepareStatement(select);
+             PreparedStatement write = conn.prepareStatement(insert)) {
+            int lastId = 0;
+            int rows;
+            do {
+                rows = 0;
+                read.setInt(1, lastId);
+                try (ResultSet rs = read.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                        lastId = rs.getInt("id");
+                        
+                        UUID owner = parseUUID(rs.getString("owner_uuid"));
+                        if (owner == null) {
+                            skipped.add(lastId);
+                            continue;
+                        }
+                        
+                        ChunkSettings settings = new ChunkSettings(
+                                rs.getBoolean("build_allowed"),
+                                rs.getBoolean("destroy_allowed"),
+                                rs.getBoolean("use_allowed"),
+                                rs.getBoolean("switch_allowed"),
+                                rs.getBoolean("mobs_allowed"),
+                                rs.getBoolean("pvp_allowed"),
+                                rs.getBoolean("fire_allowed"),
+                                rs.getBoolean("explosion_allowed")
+                        );
+                        
+                        write.setInt(1, lastId);
+                        write.setString(2, rs.getString("world"));
+                        write.setInt(3, rs.getInt("chunk_x"));
+                        write.setInt(4, rs.getInt("chunk_z"));
+                        write.setString(5, rs.getString("name"));
+                        write.setBytes(6, UUIDUtils.toBytes(owner));
+                        write.setString(7, rs.getString("owner_name"));
+                        write.setInt(8, settings.toFlags());
+                        write.setBoolean(9, rs.getBoolean("for_sale"));
+                        write.setDouble(10, rs.getDouble("sale_price"));
+                        write.setString(11, rs.getString("sale_location"));
+                        write.setString(12, rs.getString("worldguard_region"));
+                        // Copied as stored, SQLite keeps timestamps as text
+                        write.setObject(13, rs.getObject("created_at"));
+                        write.addBatch();
+                    }
+                }
+                write.executeBatch();
+                progress.add(rows);
+            } while (rows == BATCH_SIZE);
+        }
+        
+        if (!skipped.isEmpty()) {
+            context.warning("Dropped " + skipped.size() + " claims with an invalid owner UUID: " + skipped);
+        }
+        return skipped;
+    }
+    
+    private void copyTrusted(MigrationContext context, String chunks, String trusted, String trustedNew,
+                             Set<Integer> skippedChunks) throws SQLException {
+        Connection conn = context.getConnection();
+        int total = context.count(trusted);
+        Progress progress = new Progress(context, "trusted players", total);
+        int copied = 0;
+        
+        String select = "SELECT t.* FROM " + trusted + " t WHERE t.id > ? " +
+                "AND EXISTS (SELECT 1 FROM " + chunks + " c WHERE c.id = t.chunk_id) " +
+                "ORDER BY t.id LIMIT " + BATCH_SIZE;
+        String insert = "INSERT INTO " + trustedNew + " (id, chunk_id, player_uuid, player_name, added_at) " +
+                "VALUES (?, ?, ?, ?, ?)";
+        
+        try (PreparedStatement read = conn.prepareStatement(select);
+             PreparedStatement write = conn.prepareStatement(insert)) {
+            int lastId = 0;
+            int rows;
+            do {
+                rows = 0;
+                read.setInt(1, lastId);
+                try (ResultSet rs = read.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                        lastId = rs.getInt("id");
+                        
+                        int chunkId = rs.getInt("chunk_id");
+                        UUID player = parseUUID(rs.getString("player_uuid"));
+                        if (player == null || skippedChunks.contains(chunkId)) continue;
+                        
+                        write.setInt(1, lastId);
+                        write.setInt(2, chunkId);
+                        write.setBytes(3, UUIDUtils.toBytes(player));
+                        write.setString(4, rs.getString("player_name"));
+                        write.setObject(5, rs.getObject("added_at"));
+                        write.addBatch();
+                        copied++;
+                    }
+                }
+                write.executeBatch();
+                progress.add(rows);
+            } while (rows == BATCH_SIZE);
+        }
+        
+        if (copied < total) {
+            context.warning("Dropped " + (total - copied) + " trusted players of missing claims or with an invalid UUID");
+        }
+    }
+    
+    private UUID parseUUID(String value) {
+        if (value == null) return null;
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Logs copy progress in steps of ten percent
+     */
+    private static final class Progress {
+        private final MigrationContext context;
+        private final String what;
+        private final int total;
+        private int done;
+        private int lastStep;
+        
+        private Progress(MigrationContext context, String what, int total) {
+            this.context = context;
+            this.what = what;
+            this.total = total;
+        }
+        
+        private void add(int rows) {
+            done += rows;
+            if (total == 0) return;
+            
+            int step = (int) (done * 10L / total);
+            if (step > lastStep) {
+                lastStep = step;
+                context.info("Converting " + what + ": " + done + "/" + total + " (" + Math.min(100, step * 10) + "%)");
+            }
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package He1ly03.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Small embedded JDBC connection pool
+ * Connections handed out are proxies, close() returns the physical
+ * connection to the pool instead of closing it. Idle connections are
+ * validated before reuse and replaced once they reach their max lifetime.
+ * Connections held longer than the leak threshold are reported with the
+ * stack trace of the borrower. Each connection keeps a small LRU cache of
+ * prepared statements, so repeated queries skip re-parsing.
+ */
+public class ConnectionPool {
+    
+    // Idle connections younger than this are handed out without validation
+    private static final long VALIDATION_INTERVAL_MS = 30_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    
+    private final Logger logger;
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+    private final Initializer initializer;
+    
+    private final int maximumSize;
+    private final long connectionTimeoutMs;
+    private final long maxLifetimeMs;
+    private final long leakThresholdMs;
+    private final int statementCacheSize;
+    
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+    
+    // Metrics
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong totalUsageNanos = new AtomicLong();
+    private final AtomicLong maxUsageNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong retired = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+    
+    public ConnectionPool(Logger logger, String jdbcUrl, String username, String password,
+                          int maximumSize, long connectionTimeoutMs, long maxLifetimeMs,
+                          long leakThresholdMs, int statementCacheSize, Initializer initializer) {
+        this.logger = logger;
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+        this.initializer = initializer;
+        this.maximumSize = Math.max(1, maximumSize);
+        this.connectionTimeoutMs = connectionTimeoutMs;
+        this.maxLifetimeMs = maxLifetimeMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.statementCacheSize = Math.max(0, statementCacheSize);
+        this.permits = new Semaphore(this.maximumSize, true);
+        
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "LiseryPrivate-Pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, Math.min(leakThresholdMs > 0 ? leakThresholdMs : 30_000, 30_000));
+        housekeeper.scheduleAtFixedRate(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Borrow a connection, close() on it gives it back to the pool
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(connectionTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + connectionTimeoutMs
+                        + "ms waiting for a database connection (" + borrowed.size() + " in use)");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        
+        PooledConnection pooled;
+        try {
+            pooled = takeIdle();
+            if (pooled == null) {
+                pooled = create();
+            }
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        
+        long waited = System.nanoTime() - start;
+        borrows.incrementAndGet();
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        
+        pooled.borrowedAt = System.nanoTime();
+        pooled.borrowedBy = leakThresholdMs > 0 ? new Exception("Connection borrowed here") : null;
+        pooled.leakReported = false;
+        borrowed.add(pooled);
+        return pooled.proxy();
+    }
+    
+    /**
+     * Close all connections, borrowed ones are closed when returned
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        
+        PooledConnection pooled;
+        while ((pooled = idle.poll()) != null) {
+            retire(pooled);
+        }
+    }
+    
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            long now = System.currentTimeMillis();
+            if (isExpired(pooled, now)) {
+                retire(pooled);
+                continue;
+            }
+            if (now - pooled.lastUsed > VALIDATION_INTERVAL_MS && !isValid(pooled)) {
+                retire(pooled);
+                continue;
+            }
+            return pooled;
+        }
+        return null;
+    }
+    
+    private PooledConnection create() throws SQLException {
+        Connection physical = username != null
+                ? DriverManager.getConnection(jdbcUrl, username, password)
+                : DriverManager.getConnection(jdbcUrl);
+        try {
+            if (initializer != null) {
+                initializer.initialize(physical);
+            }
+        } catch (SQLException e) {
+            physical.close();
+            throw e;
+        }
+        created.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+    
+    /**
+     * Give a connection back, called from the proxy's close()
+     */
+    private void release(PooledConnection pooled) {
+        if (!borrowed.remove(pooled)) return;
+        
+        long used = System.nanoTime() - pooled.borrowedAt;
+        totalUsageNanos.addAndGet(used);
+        maxUsageNanos.accumulateAndGet(used, Math::max);
+        pooled.borrowedBy = null;
+        pooled.lastUsed = System.currentTimeMillis();
+        
+        try {
+            if (closed || isExpired(pooled, pooled.lastUsed) || pooled.physical.isClosed()) {
+                retire(pooled);
+            } else {
+                // Leave no transaction open for the next borrower
+                if (!pooled.physical.getAutoCommit()) {
+                    pooled.physical.rollback();
+                    pooled.physical.setAutoCommit(true);
+                }
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            retire(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+    
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return maxLifetimeMs > 0 && now - pooled.createdAt > maxLifetimeMs;
+    }
+    
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+    
+    private void retire(PooledConnection pooled) {
+        retired.incrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Error closing pooled connection", e);
+        }
+    }
+    
+    /**
+     * Report leaked connections and drop expired idle ones
+     */
+    private void housekeep() {
+        long now = System.nanoTime();
+        if (leakThresholdMs > 0) {
+            for (PooledConnection pooled : borrowed) {
+                if (!pooled.leakReported && now - pooled.borrowedAt > TimeUnit.MILLISECONDS.toNanos(leakThresholdMs)) {
+                    pooled.leakReported = true;
+                    leaks.incrementAndGet();
+                    logger.log(Level.WARNING, "Possible database connection leak, held for more than "
+                            + leakThresholdMs + "ms", pooled.borrowedBy);
+                }
+            }
+        }
+        
+        long nowMs = System.currentTimeMillis();
+        for (PooledConnection pooled : idle) {
+            if (isExpired(pooled, nowMs) && idle.remove(pooled)) {
+                retire(pooled);
+            }
+        }
+    }
+    
+    // ==================== Metrics ====================
+    
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+    
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+    
+    public int getIdleCount() {
+        return idle.size();
+    }
+    
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+    
+    public long getBorrowCount() {
+        return borrows.get();
+    }
+    
+    public long getAverageWaitMicros() {
+        long count = borrows.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / count / 1000L;
+    }
+    
+    public long getMaxWaitMicros() {
+        return maxWaitNanos.get() / 1000L;
+    }
+    
+    public long getAverageUsageMicros() {
+        long count = borrows.get() - borrowed.size();
+        return count <= 0 ? 0 : totalUsageNanos.get() / count / 1000L;
+    }
+    
+    public long getMaxUsageMicros() {
+        return maxUsageNanos.get() / 1000L;
+    }
+    
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+    
+    public long getCreatedCount() {
+        return created.get();
+    }
+    
+    public long getRetiredCount() {
+        return retired.get();
+    }
+    
+    public long getLeakCount() {
+        return leaks.get();
+    }
+    
+    public long getStatementCacheHits() {
+        return statementHits.get();
+    }
+    
+    public long getStatementCacheMisses() {
+        return statementMisses.get();
+    }
+    
+    /**
+     * Runs once on every new physical connection
+     */
+    @FunctionalInterface
+    public interface Initializer {
+        void initialize(Connection connection) throws SQLException;
+    }
+    
+    /**
+     * Physical connection with its pool bookkeeping
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile long lastUsed = createdAt;
+        private volatile long borrowedAt;
+        private volatile Exception borrowedBy;
+        private volatile boolean leakReported;
+        
+        // Only touched by the current borrower
+        private final Map<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= statementCacheSize) return false;
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+        
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+        
+        /**
+         * Hand out a cached statement, or a plain one while the cached one is in use
+         */
+        private PreparedStatement prepareCached(Connection owner, Method method, Object[] args) throws Throwable {
+            String key = args.length == 1 ? (String) args[0] : args[0] + "#" + args[1];
+            
+            CachedStatement cached = statements.get(key);
+            if (cached != null && cached.inUse) {
+                return (PreparedStatement) invokePhysical(method, args);
+            }
+            
+            if (cached == null || cached.statement.isClosed()) {
+                statementMisses.incrementAndGet();
+                cached = new CachedStatement((PreparedStatement) invokePhysical(method, args));
+                statements.put(key, cached);
+            } else {
+                statementHits.incrementAndGet();
+            }
+            return cached.checkout(owner);
+        }
+        
+        private Object invokePhysical(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+        
+        /**
+         * Proxy for a single borrow, unusable once closed
+         */
+        private Connection proxy() {
+            InvocationHandler handler = new InvocationHandler() {
+                private boolean proxyClosed;
+                
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                        case "close" -> {
+                            if (!proxyClosed) {
+                                proxyClosed = true;
+                                release(PooledConnection.this);
+                            }
+                            return null;
+                        }
+                        case "isClosed" -> {
+                            return proxyClosed || physical.isClosed();
+                        }
+                        case "unwrap" -> {
+                            if (((Class<?>) args[0]).isInstance(proxy)) {
+                                return proxy;
+                            }
+                        }
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        case "prepareStatement" -> {
+                            // Only plain and generated-keys variants are cached
+                            if (!proxyClosed && statementCacheSize > 0 && (args.length == 1
+                                    || (args.length == 2 && args[1] instanceof Integer))) {
+                                return prepareCached((Connection) proxy, method, args);
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                    
+                    if (proxyClosed) {
+                        throw new SQLException("Connection is closed");
+                    }
+                    return invokePhysical(method, args);
+                }
+            };
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, handler);
+        }
+    }
+    
+    /**
+     * Prepared statement kept open between borrows
+     * close() on the handed out proxy only clears parameters.
+     */
+    private static final class CachedStatement {
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private boolean evicted;
+        
+        private CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+        
+        private PreparedStatement checkout(Connection owner) {
+            inUse = true;
+            InvocationHandler handler = new InvocationHandler() {
+                private boolean proxyClosed;
+                
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                        case "close" -> {
+                            if (!proxyClosed) {
+                                proxyClosed = true;
+                                checkin();
+                            }
+                            return null;
+                        }
+                        case "isClosed" -> {
+                            return proxyClosed || statement.isClosed();
+                        }
+                        case "getConnection" -> {
+                            return owner;
+                        }
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        default -> {
+                        }
+                    }
+                    
+                    if (proxyClosed) {
+                        throw new SQLException("Statement is closed");
+                    }
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            };
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, handler);
+        }
+        
+        private void checkin() {
+            inUse = false;
+            try {
+                if (evicted) {
+                    statement.close();
+                } else {
+                    statement.clearParameters();
+                    statement.clearBatch();
+                }
+            } catch (SQLException e) {
+                closeQuietly();
+            }
+        }
+        
+        /**
+         * Dropped from the cache, closed now or when its borrower is done
+         */
+        private void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+        
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package He1ly03.database;
+
+import He1ly03.LiseryPrivate;
+import He1ly03.task.IoExecutor;
+import He1ly03.utils.UUIDUtils;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Measures claim and trust write throughput on throwaway SQLite files
+ * Compares the old setup (default pragmas, one autocommit statement per
+ * write) with the current one (WAL, statement cache, batched transactions).
+ * A batched run with default pragmas sits in between, so the effect of
+ * batching and of the connection tuning are shown apart.
+ */
+public class DatabaseBenchmark {
+    
+    private static final int TRUST_PER_CLAIM = 2;
+    private static final int BATCH_SIZE = 500;
+    
+    private final LiseryPrivate plugin;
+    private final DatabaseManager databaseManager;
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    public DatabaseBenchmark(LiseryPrivate plugin, DatabaseManager databaseManager) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+    }
+    
+    /**
+     * Run all setups off the main thread, callbacks are called on the main thread
+     * Returns false if a benchmark is already running.
+     */
+    public boolean start(int claims, Consumer<List<Result>> callback, Consumer<Exception> onError) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        
+        plugin.getIoExecutor().submit(IoExecutor.Resource.FILE, () -> {
+            try {
+                List<Result> results = new ArrayList<>();
+                results.add(run("default", false, false, claims));
+                results.add(run("batched", false, true, claims));
+                results.add(run("tuned", true, true, claims));
+                return results;
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.WARNING, "Database benchmark failed", e);
+                throw e;
+            } finally {
+                running.set(false);
+            }
+        }, callback, onError);
+        return true;
+    }
+    
+    private Result run(String name, boolean tuned, boolean batched, int claims) throws SQLException {
+        File folder = new File(plugin.getDataFolder(), "benchmark");
+        folder.mkdirs();
+        File file = new File(folder, name + ".db");
+        deleteFiles(file);
+        
+        ConnectionPool.Initializer initializer = tuned
+                ? conn -> databaseManager.applySQLitePragmas(conn, false)
+                : conn -> {
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("PRAGMA foreign_keys = ON");
+                    }
+                };
+        int statementCache = tuned ? plugin.getConfigManager().getPoolStatementCacheSize() : 0;
+        
+        ConnectionPool pool = new ConnectionPool(plugin.getLogger(), "jdbc:sqlite:" + file.getAbsolutePath(),
+                null, null, 1, 5000, 0, 0, statementCache, initializer);
+        try {
+            try (Connection conn = pool.getConnection()) {
+                databaseManager.migrateSchema(conn, false);
+            }
+            
+            // Test data is built up front so only the writes are timed
+            List<ChunkRow> rows = new ArrayList<>(claims);
+            UUID[] trusted = new UUID[claims * TRUST_PER_CLAIM];
+            for (int i = 0; i < claims; i++) {
+                rows.add(new ChunkRow("benchmark", i, 0, "bench_" + i, UUID.randomUUID(), "bench",
+                        0, false, 0, null, "bench_" + i));
+            }
+            for (int i = 0; i < trusted.length; i++) {
+                trusted[i] = UUID.randomUUID();
+            }
+            
+            long start = System.nanoTime();
+            if (batched) {
+                writeBatched(pool, rows, trusted);
+            } else {
+                writeSingle(pool, rows, trusted);
+            }
+            return new Result(name, claims, trusted.length, System.nanoTime() - start);
+        } finally {
+            pool.close();
+            deleteFiles(file);
+        }
+    }
+    
+    /**
+     * One autocommit statement per write, like the synchronous code path used to do
+     */
+    private void writeSingle(ConnectionPool pool, List<ChunkRow> rows, UUID[] trusted) throws SQLException {
+        for (int i = 0; i < rows.size(); i++) {
+            try (Connection conn = pool.getConnection()) {
+                int id = databaseManager.insertChunk(conn, rows.get(i));
+                for (int t = 0; t < TRUST_PER_CLAIM; t++) {
+                    try (PreparedStatement stmt = databaseManager.prepareAddTrusted(conn)) {
+                        stmt.setInt(1, id);
+                        stmt.setBytes(2, UUIDUtils.toBytes(trusted[i * TRUST_PER_CLAIM + t]));
+                        stmt.setString(3, "bench");
+                        stmt.executeUpdate();
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Batched transactions, like the persistence writer does
+     */
+    private void writeBatched(ConnectionPool pool, List<ChunkRow> rows, UUID[] trusted) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+                int to = Math.min(rows.size(), from + BATCH_SIZE);
+                try (PreparedStatement stmt = databaseManager.prepareAddTrusted(conn)) {
+                    for (int i = from; i < to; i++) {
+                        int id = databaseManager.insertChunk(conn, rows.get(i));
+                        for (int t = 0; t < TRUST_PER_CLAIM; t++) {
+                            stmt.setInt(1, id);
+                            stmt.setBytes(2, UUIDUtils.toBytes(trusted[i * TRUST_PER_CLAIM + t]));
+                            stmt.setString(3, "bench");
+                            stmt.addBatch();
+                        }
+                    }
+                    stmt.executeBatch();
+                }
+                conn.commit();
+            }
+            conn.setAutoCommit(true);
+        }
+    }
+    
+    private void deleteFiles(File file) {
+        for (String suffix : new String[]{"", "-wal", "-shm", "-journal"}) {
+            File part = new File(file.getPath() + suffix);
+            if (part.exists() && !part.delete()) {
+                plugin.getLogger().warning("Could not delete benchmark file " + part.getName());
+            }
+        }
+    }
+    
+    /**
+     * Throughput of one setup
+     */
+    public record Result(String name, int claims, int trusted, long nanos) {
+        
+        public long getMillis() {
+            return nanos / 1_000_000L;
+        }
+        
+        public long getClaimsPerSecond() {
+            return nanos == 0 ? 0 : claims * 1_000_000_000L / nanos;
+        }
+        
+        public long getRowsPerSecond() {
+            return nanos == 0 ? 0 : (claims + trusted) * 1_000_000_000L / nanos;
+        }
+    }
+}
@@ -3,23 +3,36 @@ package He1ly03.database;
 import He1ly03.LiseryPrivate;
 import He1ly03.chunk.ChunkData;
 import He1ly03.chunk.ChunkSettings;
+import He1ly03.storage.LoadResult;
+import He1ly03.storage.StorageBackend;
+import He1ly03.utils.UUIDUtils;
 
 import java.io.File;
 import java.sql.*;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
 /**
  * Database manager for SQLite and MySQL support
  * Uses built-in SQLite from Paper/Spigot
  */
-public class DatabaseManager {
+public class DatabaseManager implements StorageBackend {
+    
+    // Rows per round trip for bulk reads
+    private static final int BULK_FETCH_SIZE = 2000;
     
     private final LiseryPrivate plugin;
-    private Connection connection;
+    private ConnectionPool pool;
+    private ConnectionPool writePool;
     private String tablePrefix;
     private boolean isMySQL;
     private String jdbcUrl;
+    private PersistenceQueue persistenceQueue;
+    private DatabaseSnapshot snapshot;
+    private ClaimChangeLog changeLog;
+    private AuditStore auditStore;
     
     public DatabaseManager(LiseryPrivate plugin) {
         this.plugin = plugin;
@@ -28,6 +41,7 @@ public class DatabaseManager {
     /**
      * Initialize the database connection
      */
+    @Override
     public boolean initialize() {
         String storageType = plugin.getConfigManager().getStorageType();
         this.isMySQL = storageType.equalsIgnoreCase("MYSQL");
@@ -40,7 +54,22 @@ public class DatabaseManager {
                 initializeSQLite();
             }
             
-            createTables();
+            migrateSchema();
+            auditStore = new AuditStore(this, tablePrefix);
+            
+            // Start asynchronous claim writer
+            persistenceQueue = new PersistenceQueue(plugin, this);
+            persistenceQueue.start();
+            
+            // Binary copy of the claims for a fast start
+            snapshot = new DatabaseSnapshot(plugin, this, jdbcUrl, tablePrefix);
+            snapshot.start();
+            
+            // Pick up claim changes of other servers
+            if (plugin.getConfigManager().isSyncEnabled()) {
+                changeLog = new ClaimChangeLog(plugin, this, snapshot, tablePrefix);
+                changeLog.start();
+            }
             plugin.getLogger().info("Database initialized successfully! Type: " + storageType);
             return true;
         } catch (Exception e) {
@@ -58,393 +87,424 @@ public class DatabaseManager {
         
         File dbFile = new File(dataFolder, plugin.getConfigManager().getSQLiteFile());
         this.jdbcUrl = "jdbc:sqlite:" + dbFile.getAbsolutePath();
-        this.connection = DriverManager.getConnection(jdbcUrl);
         
-        // Enable foreign keys
-        try (Statement stmt = connection.createStatement()) {
+        // SQLite allows one writer at a time, a single write connection avoids busy retries.
+        // It is opened first so the journal mode is switched before any reader connects.
+        this.writePool = createPool(null, null, 1, conn -> applySQLitePragmas(conn, false));
+        try (Connection conn = getWriteConnection()) {
+            conn.isValid(1);
+        }
+        
+        this.pool = createPool(null, null, plugin.getConfigManager().getPoolMaximumSize(),
+                conn -> applySQLitePragmas(conn, true));
+        try (Connection conn = getConnection()) {
+            conn.isValid(1);
+        }
+    }
+    
+    /**
+     * Per-connection SQLite settings
+     * Readers are marked query_only so a stray write fails instead of taking the write lock.
+     */
+    void applySQLitePragmas(Connection conn, boolean readOnly) throws SQLException {
+        var configManager = plugin.getConfigManager();
+        
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + configManager.getSQLiteBusyTimeout());
             stmt.execute("PRAGMA foreign_keys = ON");
+            if (!readOnly) {
+                stmt.execute("PRAGMA journal_mode = " + configManager.getSQLiteJournalMode());
+            }
+            stmt.execute("PRAGMA synchronous = " + configManager.getSQLiteSynchronous());
+            stmt.execute("PRAGMA mmap_size = " + configManager.getSQLiteMmapSize());
+            if (readOnly) {
+                stmt.execute("PRAGMA query_only = ON");
+            }
         }
     }
     
     private void initializeMySQL() throws SQLException {
         var configManager = plugin.getConfigManager();
         
-        this.jdbcUrl = String.format("jdbc:mysql://%s:%d/%s?useSSL=%b&autoReconnect=true",
+        // Cursor fetch lets large reads stream with a fetch size instead of buffering everything
+        this.jdbcUrl = String.format("jdbc:mysql://%s:%d/%s?useSSL=%b&useCursorFetch=true",
                 configManager.getMySQLHost(),
                 configManager.getMySQLPort(),
                 configManager.getMySQLDatabase(),
                 configManager.getMySQLUseSSL()
         );
         
-        this.connection = DriverManager.getConnection(
+        this.pool = createPool(configManager.getMySQLUsername(), configManager.getMySQLPassword(),
+                configManager.getPoolMaximumSize(), null);
+        this.writePool = pool;
+        
+        try (Connection conn = getConnection()) {
+            conn.isValid(1);
+        }
+    }
+    
+    private ConnectionPool createPool(String username, String password, int size, ConnectionPool.Initializer initializer) {
+        var configManager = plugin.getConfigManager();
+        return new ConnectionPool(
+                plugin.getLogger(),
                 jdbcUrl,
-                configManager.getMySQLUsername(),
-                configManager.getMySQLPassword()
+                username,
+                password,
+                size,
+                configManager.getPoolConnectionTimeout(),
+                configManager.getPoolMaxLifetime(),
+                configManager.getPoolLeakDetectionThreshold(),
+                configManager.getPoolStatementCacheSize(),
+                initializer
         );
     }
     
-    private Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            if (isMySQL) {
-                connection = DriverManager.getConnection(
-                        jdbcUrl,
-                        plugin.getConfigManager().getMySQLUsername(),
-                        plugin.getConfigManager().getMySQLPassword()
-                );
-            } else {
-                connection = DriverManager.getConnection(jdbcUrl);
-            }
-        }
-        return connection;
+    /**
+     * Connection pool for reads, for metrics
+     */
+    public ConnectionPool getPool() {
+        return pool;
     }
     
-    private void createTables() throws SQLException {
-        try (Connection conn = getConnection()) {
-            // Chunks table
-            String autoIncrement = isMySQL ? "AUTO_INCREMENT" : "AUTOINCREMENT";
-            
-            String chunksTable = "CREATE TABLE IF NOT EXISTS " + tablePrefix + "chunks (" +
-                    "id INTEGER PRIMARY KEY " + autoIncrement + "," +
-                    "world VARCHAR(64) NOT NULL," +
-                    "chunk_x INTEGER NOT NULL," +
-                    "chunk_z INTEGER NOT NULL," +
-                    "name VARCHAR(64) NOT NULL," +
-                    "owner_uuid VARCHAR(36) NOT NULL," +
-                    "owner_name VARCHAR(16) NOT NULL," +
-                    "build_allowed BOOLEAN DEFAULT 0," +
-                    "destroy_allowed BOOLEAN DEFAULT 0," +
-                    "use_allowed BOOLEAN DEFAULT 0," +
-                    "switch_allowed BOOLEAN DEFAULT 0," +
-                    "mobs_allowed BOOLEAN DEFAULT 0," +
-                    "pvp_allowed BOOLEAN DEFAULT 0," +
-                    "fire_allowed BOOLEAN DEFAULT 0," +
-                    "explosion_allowed BOOLEAN DEFAULT 0," +
-                    "for_sale BOOLEAN DEFAULT 0," +
-                    "sale_price DOUBLE DEFAULT 0," +
-                    "sale_location VARCHAR(255) DEFAULT NULL," +
-                    "worldguard_region VARCHAR(128) DEFAULT NULL," +
-                    "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-                    "UNIQUE(world, chunk_x, chunk_z)" +
-                    ")";
-            
-            try (Statement stmt = conn.createStatement()) {
-                stmt.execute(chunksTable);
-            }
-            
-            // Trusted players table
-            String trustTable = "CREATE TABLE IF NOT EXISTS " + tablePrefix + "trusted_players (" +
-                    "id INTEGER PRIMARY KEY " + autoIncrement + "," +
-                    "chunk_id INTEGER NOT NULL," +
-                    "player_uuid VARCHAR(36) NOT NULL," +
-                    "player_name VARCHAR(16) NOT NULL," +
-                    "added_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-                    "UNIQUE(chunk_id, player_uuid)" +
-                    ")";
-            
-            try (Statement stmt = conn.createStatement()) {
-                stmt.execute(trustTable);
-            }
+    /**
+     * Connection pool for writes, the read pool itself on MySQL
+     */
+    public ConnectionPool getWritePool() {
+        return writePool;
+    }
+    
+    public boolean isMySQL() {
+        return isMySQL;
+    }
+    
+    String getTablePrefix() {
+        return tablePrefix;
+    }
+    
+    private void migrateSchema() throws SQLException {
+        try (Connection conn = getWriteConnection()) {
+            migrateSchema(conn, true);
         }
     }
     
+    /**
+     * Create or upgrade the tables on the given connection
+     */
+    void migrateSchema(Connection conn, boolean verbose) throws SQLException {
+        new SchemaMigrator(tablePrefix, isMySQL, plugin.getLogger()).migrate(conn, verbose);
+    }
+    
+    @Override
     public void close() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
+        if (changeLog != null) {
+            changeLog.stop();
+        }
+        
+        // Write pending claim changes first
+        if (persistenceQueue != null) {
+            persistenceQueue.close();
+            if (snapshot != null) {
+                snapshot.stop();
             }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.WARNING, "Error closing database connection", e);
+            persistenceQueue = null;
+        }
+        if (pool != null) {
+            pool.close();
+        }
+        if (writePool != null && writePool != pool) {
+            writePool.close();
         }
     }
     
-    // ==================== Chunk Operations ====================
+    // ==================== Storage Backend ====================
     
     /**
-     * Save a chunk to the database
+     * Claim changes go through the write-behind queue, the cache is the source of truth
      */
-    public int saveChunk(ChunkData chunk) {
-        String sql = "INSERT INTO " + tablePrefix + "chunks " +
-                "(world, chunk_x, chunk_z, name, owner_uuid, owner_name, " +
-                "build_allowed, destroy_allowed, use_allowed, switch_allowed, mobs_allowed, " +
-                "pvp_allowed, fire_allowed, explosion_allowed, for_sale, sale_price, sale_location, worldguard_region) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            stmt.setString(1, chunk.getWorld());
-            stmt.setInt(2, chunk.getChunkX());
-            stmt.setInt(3, chunk.getChunkZ());
-            stmt.setString(4, chunk.getName());
-            stmt.setString(5, chunk.getOwnerUUID().toString());
-            stmt.setString(6, chunk.getOwnerName());
-            
-            ChunkSettings settings = chunk.getSettings();
-            stmt.setBoolean(7, settings.isBuildAllowed());
-            stmt.setBoolean(8, settings.isDestroyAllowed());
-            stmt.setBoolean(9, settings.isUseAllowed());
-            stmt.setBoolean(10, settings.isSwitchAllowed());
-            stmt.setBoolean(11, settings.isMobsAllowed());
-            stmt.setBoolean(12, settings.isPvpAllowed());
-            stmt.setBoolean(13, settings.isFireAllowed());
-            stmt.setBoolean(14, settings.isExplosionAllowed());
-            stmt.setBoolean(15, chunk.isForSale());
-            stmt.setDouble(16, chunk.getSalePrice());
-            stmt.setString(17, chunk.getSaleLocation());
-            stmt.setString(18, chunk.getWorldGuardRegion());
-            
-            stmt.executeUpdate();
-            
-            try (ResultSet rs = stmt.getGeneratedKeys()) {
-                if (rs.next()) {
-                    return rs.getInt(1);
-                }
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to save chunk!", e);
-        }
-        return -1;
+    @Override
+    public void insert(ChunkData chunk) {
+        persistenceQueue.insert(chunk);
+    }
+    
+    @Override
+    public void update(ChunkData chunk) {
+        persistenceQueue.update(chunk);
+    }
+    
+    @Override
+    public void transfer(ChunkData chunk, UUID previousOwner) {
+        persistenceQueue.transfer(chunk, previousOwner);
+    }
+    
+    @Override
+    public void delete(ChunkData chunk) {
+        persistenceQueue.delete(chunk);
+    }
+    
+    @Override
+    public void addTrusted(ChunkData chunk, UUID playerUUID, String playerName) {
+        persistenceQueue.addTrusted(chunk, playerUUID, playerName);
+    }
+    
+    @Override
+    public void removeTrusted(ChunkData chunk, UUID playerUUID) {
+        persistenceQueue.removeTrusted(chunk, playerUUID);
+    }
+    
+    @Override
+    public boolean flush(long timeoutMs) {
+        return persistenceQueue.flush(timeoutMs);
+    }
+    
+    @Override
+    public String getType() {
+        return isMySQL ? "MYSQL" : "SQLITE";
     }
     
     /**
-     * Update a chunk in the database
+     * Write-behind queue, for metrics
      */
-    public void updateChunk(ChunkData chunk) {
-        String sql = "UPDATE " + tablePrefix + "chunks SET name = ?, " +
-                "build_allowed = ?, destroy_allowed = ?, use_allowed = ?, " +
-                "switch_allowed = ?, mobs_allowed = ?, pvp_allowed = ?, fire_allowed = ?, explosion_allowed = ?, " +
-                "for_sale = ?, sale_price = ?, sale_location = ?, worldguard_region = ? " +
-                "WHERE id = ?";
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, chunk.getName());
-            
-            ChunkSettings settings = chunk.getSettings();
-            stmt.setBoolean(2, settings.isBuildAllowed());
-            stmt.setBoolean(3, settings.isDestroyAllowed());
-            stmt.setBoolean(4, settings.isUseAllowed());
-            stmt.setBoolean(5, settings.isSwitchAllowed());
-            stmt.setBoolean(6, settings.isMobsAllowed());
-            stmt.setBoolean(7, settings.isPvpAllowed());
-            stmt.setBoolean(8, settings.isFireAllowed());
-            stmt.setBoolean(9, settings.isExplosionAllowed());
-            stmt.setBoolean(10, chunk.isForSale());
-            stmt.setDouble(11, chunk.getSalePrice());
-            stmt.setString(12, chunk.getSaleLocation());
-            stmt.setString(13, chunk.getWorldGuardRegion());
-            stmt.setInt(14, chunk.getId());
-            
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to update chunk!", e);
-        }
+    public PersistenceQueue getPersistenceQueue() {
+        return persistenceQueue;
     }
     
     /**
-     * Delete a chunk from the database
+     * Change log shared with other servers, null if sync is off
      */
-    public void deleteChunk(int chunkId) {
-        // Delete trusted players first
-        String deleteTrust = "DELETE FROM " + tablePrefix + "trusted_players WHERE chunk_id = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(deleteTrust)) {
-            stmt.setInt(1, chunkId);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to delete trusted players!", e);
+    public ClaimChangeLog getChangeLog() {
+        return changeLog;
+    }
+    
+    /**
+     * Audit log tables
+     */
+    public AuditStore getAuditStore() {
+        return auditStore;
+    }
+    
+    // ==================== Chunk Operations ====================
+    
+    /**
+     * Stream every claim straight from the tables, for exports
+     * Returns null if reading failed.
+     */
+    LoadResult streamAll(Consumer<ChunkData> consumer) {
+        return streamClaims("", stmt -> {}, consumer);
+    }
+    
+    /**
+     * Stream all chunks with their trusted players, from the snapshot if it is current
+     * Returns null if loading failed.
+     */
+    @Override
+    public LoadResult loadAll(Consumer<ChunkData> consumer) {
+        // Changes committed from here on are applied on top of what is loaded
+        if (changeLog != null) {
+            changeLog.reset();
         }
         
-        String sql = "DELETE FROM " + tablePrefix + "chunks WHERE id = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, chunkId);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to delete chunk!", e);
+        // Read before the claims, a commit in between makes the snapshot look stale, never current
+        long writeSeq = readWriteSeq();
+        if (writeSeq >= 0) {
+            LoadResult cached = snapshot.load(writeSeq, consumer);
+            if (cached != null) {
+                return cached;
+            }
         }
+        
+        long start = System.nanoTime();
+        LoadResult result = streamClaims("", stmt -> {}, consumer);
+        if (result != null && writeSeq >= 0) {
+            snapshot.markLoaded(writeSeq, (System.nanoTime() - start) / 1_000_000L);
+        }
+        return result;
+    }
+    
+    @Override
+    public boolean supportsPartialLoading() {
+        return true;
+    }
+    
+    @Override
+    public LoadResult loadWorld(String world, Consumer<ChunkData> consumer) {
+        return streamClaims("WHERE c.world = ? ", stmt -> stmt.setString(1, world), consumer);
+    }
+    
+    @Override
+    public LoadResult loadOwner(UUID owner, Consumer<ChunkData> consumer) {
+        return streamClaims("WHERE c.owner_uuid = ? ", stmt -> stmt.setBytes(1, UUIDUtils.toBytes(owner)), consumer);
     }
     
     /**
-     * Get a chunk by location
+     * Range scan on the unique (world, chunk_x, chunk_z) index
      */
-    public ChunkData getChunk(String world, int chunkX, int chunkZ) {
-        String sql = "SELECT * FROM " + tablePrefix + "chunks WHERE world = ? AND chunk_x = ? AND chunk_z = ?";
+    @Override
+    public LoadResult loadRegion(String world, int regionX, int regionZ, Consumer<ChunkData> consumer) {
+        int minX = regionX << 5;
+        int minZ = regionZ << 5;
+        return streamClaims("WHERE c.world = ? AND c.chunk_x BETWEEN ? AND ? AND c.chunk_z BETWEEN ? AND ? ", stmt -> {
+            stmt.setString(1, world);
+            stmt.setInt(2, minX);
+            stmt.setInt(3, minX + 31);
+            stmt.setInt(4, minZ);
+            stmt.setInt(5, minZ + 31);
+        }, consumer);
+    }
+    
+    @Override
+    public Map<UUID, Integer> loadClaimCounts() {
+        Map<UUID, Integer> counts = new HashMap<>();
+        String sql = "SELECT owner_uuid, claims FROM " + tablePrefix + "owner_claims";
         
         try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, world);
-            stmt.setInt(2, chunkX);
-            stmt.setInt(3, chunkZ);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return parseChunkData(rs);
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                UUID owner = UUIDUtils.fromBytes(rs.getBytes("owner_uuid"));
+                if (owner != null) {
+                    counts.put(owner, rs.getInt("claims"));
                 }
             }
+            return counts;
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to get chunk!", e);
+            plugin.getLogger().log(Level.SEVERE, "Failed to load claim counts!", e);
         }
         return null;
     }
     
     /**
-     * Get all chunks owned by a player
+     * Names only, two narrow columns instead of whole claims with their trusted players
      */
-    public List<ChunkData> getPlayerChunks(UUID playerUUID) {
-        List<ChunkData> chunks = new ArrayList<>();
-        String sql = "SELECT * FROM " + tablePrefix + "chunks WHERE owner_uuid = ?";
+    @Override
+    public boolean loadClaimNames(BiConsumer<UUID, String> consumer) {
+        String sql = "SELECT owner_uuid, name FROM " + tablePrefix + "chunks";
         
         try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, playerUUID.toString());
-            
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(BULK_FETCH_SIZE);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    chunks.add(parseChunkData(rs));
+                    UUID owner = UUIDUtils.fromBytes(rs.getBytes("owner_uuid"));
+                    if (owner != null) {
+                        consumer.accept(owner, rs.getString("name"));
+                    }
                 }
             }
+            return true;
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to get player chunks!", e);
+            plugin.getLogger().log(Level.SEVERE, "Failed to load claim names!", e);
         }
-        return chunks;
+        return false;
     }
     
     /**
-     * Get the count of chunks owned by a player
+     * Stream the claims with the given ids, ids without a row are skipped
      */
-    public int getPlayerChunkCount(UUID playerUUID) {
-        String sql = "SELECT COUNT(*) FROM " + tablePrefix + "chunks WHERE owner_uuid = ?";
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, playerUUID.toString());
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1);
-                }
+    LoadResult loadClaims(Collection<Integer> ids, Consumer<ChunkData> consumer) {
+        List<Integer> list = new ArrayList<>(ids);
+        String placeholders = String.join(", ", Collections.nCopies(list.size(), "?"));
+        return streamClaims("WHERE c.id IN (" + placeholders + ") ", stmt -> {
+            for (int i = 0; i < list.size(); i++) {
+                stmt.setInt(i + 1, list.get(i));
             }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to get player chunk count!", e);
-        }
-        return 0;
+        }, consumer);
     }
     
     /**
-     * Check if a chunk name exists for a player
+     * Stored claim counts of the given owners, owners without claims are left out
+     * Returns null if loading failed.
      */
-    public boolean chunkNameExists(UUID playerUUID, String name) {
-        String sql = "SELECT COUNT(*) FROM " + tablePrefix + "chunks WHERE owner_uuid = ? AND name = ?";
+    Map<UUID, Integer> loadClaimCounts(Collection<UUID> owners) {
+        Map<UUID, Integer> counts = new HashMap<>();
+        if (owners.isEmpty()) return counts;
+        
+        List<UUID> list = new ArrayList<>(owners);
+        String sql = "SELECT owner_uuid, claims FROM " + tablePrefix + "owner_claims WHERE owner_uuid IN (" +
+                String.join(", ", Collections.nCopies(list.size(), "?")) + ")";
         
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, playerUUID.toString());
-            stmt.setString(2, name);
-            
+            for (int i = 0; i < list.size(); i++) {
+                stmt.setBytes(i + 1, UUIDUtils.toBytes(list.get(i)));
+            }
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1) > 0;
+                while (rs.next()) {
+                    counts.put(UUIDUtils.fromBytes(rs.getBytes("owner_uuid")), rs.getInt("claims"));
                 }
             }
+            return counts;
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to check chunk name!", e);
+            plugin.getLogger().log(Level.SEVERE, "Failed to load claim counts!", e);
         }
-        return false;
+        return null;
     }
     
     /**
-     * Get the next available chunk number for a player
+     * Stream matching chunks with their trusted players through one forward-only cursor
+     * Rows come ordered by chunk id, so a chunk is complete once the next one starts.
      */
-    public int getNextChunkNumber(UUID playerUUID, String prefix) {
-        String sql = "SELECT name FROM " + tablePrefix + "chunks WHERE owner_uuid = ? AND name LIKE ?";
+    private LoadResult streamClaims(String where, ParameterBinder binder, Consumer<ChunkData> consumer) {
+        String sql = "SELECT c.*, t.player_uuid AS trusted_uuid, t.player_name AS trusted_name " +
+                "FROM " + tablePrefix + "chunks c " +
+                "LEFT JOIN " + tablePrefix + "trusted_players t ON t.chunk_id = c.id " +
+                where +
+                "ORDER BY c.id, t.id";
         
-        Set<Integer> usedNumbers = new HashSet<>();
+        long start = System.nanoTime();
         
         try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
             
-            stmt.setString(1, playerUUID.toString());
-            stmt.setString(2, prefix + "_%");
+            stmt.setFetchSize(BULK_FETCH_SIZE);
+            binder.bind(stmt);
             
             try (ResultSet rs = stmt.executeQuery()) {
+                long queryNanos = System.nanoTime() - start;
+                
+                int chunks = 0;
+                int trusted = 0;
+                ChunkData current = null;
+                
                 while (rs.next()) {
-                    String name = rs.getString("name");
-                    if (name.startsWith(prefix + "_")) {
-                        try {
-                            int num = Integer.parseInt(name.substring(prefix.length() + 1));
-                            usedNumbers.add(num);
-                        } catch (NumberFormatException ignored) {}
+                    int id = rs.getInt("id");
+                    if (current == null || current.getId() != id) {
+                        if (current != null) {
+                            consumer.accept(current);
+                        }
+                        current = parseChunkData(rs);
+                        chunks++;
+                    }
+                    
+                    UUID trustedUUID = UUIDUtils.fromBytes(rs.getBytes("trusted_uuid"));
+                    if (trustedUUID != null) {
+                        current.addTrusted(trustedUUID, rs.getString("trusted_name"));
+                        trusted++;
                     }
                 }
+                
+                if (current != null) {
+                    consumer.accept(current);
+                }
+                
+                long totalNanos = System.nanoTime() - start;
+                return new LoadResult(chunks, trusted, queryNanos, totalNanos - queryNanos);
             }
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to get next chunk number!", e);
-        }
-        
-        int number = 1;
-        while (usedNumbers.contains(number)) {
-            number++;
-        }
-        return number;
-    }
-    
-    /**
-     * Get all chunks for sale
-     */
-    public List<ChunkData> getChunksForSale() {
-        List<ChunkData> chunks = new ArrayList<>();
-        String sql = "SELECT * FROM " + tablePrefix + "chunks WHERE for_sale = 1";
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            
-            while (rs.next()) {
-                chunks.add(parseChunkData(rs));
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to get chunks for sale!", e);
+            plugin.getLogger().log(Level.SEVERE, "Failed to load chunks!", e);
         }
-        return chunks;
+        return null;
     }
     
     /**
-     * Load all chunks from database
+     * Sets the parameters of a claim query
      */
-    public List<ChunkData> loadAllChunks() {
-        List<ChunkData> chunks = new ArrayList<>();
-        String sql = "SELECT * FROM " + tablePrefix + "chunks";
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            
-            while (rs.next()) {
-                chunks.add(parseChunkData(rs));
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to load all chunks!", e);
-        }
-        return chunks;
+    @FunctionalInterface
+    private interface ParameterBinder {
+        void bind(PreparedStatement stmt) throws SQLException;
     }
     
     private ChunkData parseChunkData(ResultSet rs) throws SQLException {
-        ChunkSettings settings = new ChunkSettings(
-                rs.getBoolean("build_allowed"),
-                rs.getBoolean("destroy_allowed"),
-                rs.getBoolean("use_allowed"),
-                rs.getBoolean("switch_allowed"),
-                rs.getBoolean("mobs_allowed"),
-                rs.getBoolean("pvp_allowed"),
-                rs.getBoolean("fire_allowed"),
-                rs.getBoolean("explosion_allowed")
-        );
+        ChunkSettings settings = ChunkSettings.fromFlags(rs.getInt("flags"));
         
         ChunkData chunk = new ChunkData(
                 rs.getInt("id"),
@@ -452,7 +512,7 @@ public class DatabaseManager {
                 rs.getInt("chunk_x"),
                 rs.getInt("chunk_z"),
                 rs.getString("name"),
-                UUID.fromString(rs.getString("owner_uuid")),
+                UUIDUtils.fromBytes(rs.getBytes("owner_uuid")),
                 rs.getString("owner_name"),
                 settings
         );
@@ -465,96 +525,190 @@ public class DatabaseManager {
         return chunk;
     }
     
-    // ==================== Trust Operations ====================
+    // ==================== Write Sequence ====================
     
     /**
-     * Add a trusted player to a chunk
+     * Raise write_seq as part of the transaction on the given connection
+     * Every write to the claim tables has to do this, the claim snapshot relies on it.
      */
-    public boolean addTrustedPlayer(int chunkId, UUID playerUUID, String playerName) {
-        String sql = "INSERT INTO " + tablePrefix + "trusted_players (chunk_id, player_uuid, player_name) VALUES (?, ?, ?)";
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, chunkId);
-            stmt.setString(2, playerUUID.toString());
-            stmt.setString(3, playerName);
-            
+    void bumpWriteSeq(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE " + tablePrefix +
+                "storage_meta SET value = value + 1 WHERE name = 'write_seq'")) {
             stmt.executeUpdate();
-            return true;
-        } catch (SQLException e) {
-            if (!e.getMessage().contains("UNIQUE")) {
-                plugin.getLogger().log(Level.SEVERE, "Failed to add trusted player!", e);
+        }
+    }
+    
+    /**
+     * Recount the claims of the given owners as part of the transaction on the given connection
+     * Owners without claims left lose their row.
+     */
+    void refreshClaimCounts(Connection conn, Set<UUID> owners) throws SQLException {
+        if (owners.isEmpty()) return;
+        
+        String table = tablePrefix + "owner_claims";
+        try (PreparedStatement delete = conn.prepareStatement("DELETE FROM " + table + " WHERE owner_uuid = ?");
+             PreparedStatement insert = conn.prepareStatement("INSERT INTO " + table + " (owner_uuid, claims) " +
+                     "SELECT owner_uuid, COUNT(*) FROM " + tablePrefix + "chunks WHERE owner_uuid = ? GROUP BY owner_uuid")) {
+            for (UUID owner : owners) {
+                byte[] bytes = UUIDUtils.toBytes(owner);
+                delete.setBytes(1, bytes);
+                delete.addBatch();
+                insert.setBytes(1, bytes);
+                insert.addBatch();
             }
+            delete.executeBatch();
+            insert.executeBatch();
         }
-        return false;
     }
     
     /**
-     * Remove a trusted player from a chunk
+     * Current write_seq, -1 if it could not be read
      */
-    public boolean removeTrustedPlayer(int chunkId, UUID playerUUID) {
-        String sql = "DELETE FROM " + tablePrefix + "trusted_players WHERE chunk_id = ? AND player_uuid = ?";
+    long readWriteSeq() {
+        String sql = "SELECT value FROM " + tablePrefix + "storage_meta WHERE name = 'write_seq'";
         
         try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, chunkId);
-            stmt.setString(2, playerUUID.toString());
-            
-            return stmt.executeUpdate() > 0;
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to remove trusted player!", e);
+            plugin.getLogger().log(Level.WARNING, "Failed to read write_seq!", e);
         }
-        return false;
+        return -1;
+    }
+    
+    // ==================== Batched Writes ====================
+    
+    /**
+     * Borrow a pooled connection for reads, closing it returns it to the pool
+     */
+    Connection getConnection() throws SQLException {
+        if (pool == null) {
+            throw new SQLException("Database is not initialized");
+        }
+        return pool.getConnection();
     }
     
     /**
-     * Get all trusted players for a chunk
+     * Borrow the connection used for writes
+     * On SQLite this is the single writer connection, held by the persistence writer while it flushes.
      */
-    public Map<UUID, String> getTrustedPlayers(int chunkId) {
-        Map<UUID, String> trusted = new LinkedHashMap<>();
-        String sql = "SELECT player_uuid, player_name FROM " + tablePrefix + "trusted_players WHERE chunk_id = ?";
+    Connection getWriteConnection() throws SQLException {
+        if (writePool == null) {
+            throw new SQLException("Database is not initialized");
+        }
+        return writePool.getConnection();
+    }
+    
+    /**
+     * Insert a claim row on the given connection, returns the generated id or -1
+     */
+    int insertChunk(Connection conn, ChunkRow row) throws SQLException {
+        String sql = "INSERT INTO " + tablePrefix + "chunks " +
+                "(world, chunk_x, chunk_z, name, owner_uuid, owner_name, " +
+                "flags, for_sale, sale_price, sale_location, worldguard_region) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, row.world());
+            stmt.setInt(2, row.chunkX());
+            stmt.setInt(3, row.chunkZ());
+            bindColumns(stmt, 4, row);
             
-            stmt.setInt(1, chunkId);
+            stmt.executeUpdate();
             
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    trusted.put(
-                            UUID.fromString(rs.getString("player_uuid")),
-                            rs.getString("player_name")
-                    );
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
                 }
             }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to get trusted players!", e);
         }
-        return trusted;
+        return -1;
     }
     
     /**
-     * Check if a player is trusted in a chunk
+     * Id of the claim stored at the row's position if it has the row's owner and name, or -1
+     * Tells whether an insert whose commit failed went through after all.
      */
-    public boolean isTrusted(int chunkId, UUID playerUUID) {
-        String sql = "SELECT COUNT(*) FROM " + tablePrefix + "trusted_players WHERE chunk_id = ? AND player_uuid = ?";
+    int findChunkId(Connection conn, ChunkRow row) throws SQLException {
+        String sql = "SELECT id, owner_uuid, name FROM " + tablePrefix + "chunks " +
+                "WHERE world = ? AND chunk_x = ? AND chunk_z = ?";
         
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, chunkId);
-            stmt.setString(2, playerUUID.toString());
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, row.world());
+            stmt.setInt(2, row.chunkX());
+            stmt.setInt(3, row.chunkZ());
             
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1) > 0;
+                if (rs.next() && row.ownerUUID().equals(UUIDUtils.fromBytes(rs.getBytes(2)))
+                        && row.name().equals(rs.getString(3))) {
+                    return rs.getInt(1);
                 }
             }
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to check trusted player!", e);
         }
-        return false;
+        return -1;
+    }
+    
+    /**
+     * Update statement for all mutable claim columns, bind with bindUpdateChunk
+     */
+    PreparedStatement prepareUpdateChunk(Connection conn) throws SQLException {
+        return conn.prepareStatement("UPDATE " + tablePrefix + "chunks SET name = ?, " +
+                "owner_uuid = ?, owner_name = ?, " +
+                "flags = ?, for_sale = ?, sale_price = ?, sale_location = ?, worldguard_region = ? " +
+                "WHERE id = ?");
+    }
+    
+    void bindUpdateChunk(PreparedStatement stmt, ChunkRow row, int id) throws SQLException {
+        int index = bindColumns(stmt, 1, row);
+        stmt.setInt(index, id);
+    }
+    
+    /**
+     * Delete statements for a claim, parameter is the claim id
+     * Trusted players have to be deleted before the claim itself
+     */
+    PreparedStatement prepareDeleteTrusted(Connection conn) throws SQLException {
+        return conn.prepareStatement("DELETE FROM " + tablePrefix + "trusted_players WHERE chunk_id = ?");
+    }
+    
+    PreparedStatement prepareDeleteChunk(Connection conn) throws SQLException {
+        return conn.prepareStatement("DELETE FROM " + tablePrefix + "chunks WHERE id = ?");
+    }
+    
+    /**
+     * Insert statement for a trusted player that ignores duplicates
+     * Parameters: chunk id, player UUID bytes, player name
+     */
+    PreparedStatement prepareAddTrusted(Connection conn) throws SQLException {
+        String insert = isMySQL ? "INSERT IGNORE INTO " : "INSERT OR IGNORE INTO ";
+        return conn.prepareStatement(insert + tablePrefix +
+                "trusted_players (chunk_id, player_uuid, player_name) VALUES (?, ?, ?)");
+    }
+    
+    /**
+     * Parameters: chunk id, player UUID bytes
+     */
+    PreparedStatement prepareRemoveTrusted(Connection conn) throws SQLException {
+        return conn.prepareStatement("DELETE FROM " + tablePrefix +
+                "trusted_players WHERE chunk_id = ? AND player_uuid = ?");
+    }
+    
+    /**
+     * Bind name, owner, settings, sale info and region starting at index
+     * Returns the next free parameter index
+     */
+    private int bindColumns(PreparedStatement stmt, int index, ChunkRow row) throws SQLException {
+        stmt.setString(index++, row.name());
+        stmt.setBytes(index++, UUIDUtils.toBytes(row.ownerUUID()));
+        stmt.setString(index++, row.ownerName());
+        stmt.setInt(index++, row.flags());
+        stmt.setBoolean(index++, row.forSale());
+        stmt.setDouble(index++, row.salePrice());
+        stmt.setString(index++, row.saleLocation());
+        stmt.setString(index++, row.worldGuardRegion());
+        return index;
     }
 }
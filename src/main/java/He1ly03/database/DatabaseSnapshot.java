@@ -0,0 +1,207 @@
+package He1ly03.database;
+
+import He1ly03.LiseryPrivate;
+import He1ly03.chunk.ChunkData;
+import He1ly03.storage.LoadResult;
+import He1ly03.storage.SnapshotFile;
+import He1ly03.task.IoExecutor;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Binary snapshot of all claims in front of the database
+ * Written on shutdown and periodically while no change is pending. It is
+ * used at startup instead of the bulk query as long as write_seq in the
+ * database still equals the value it was taken at.
+ */
+class DatabaseSnapshot {
+    
+    private static final String FILE_NAME = "claims-cache.snapshot";
+    
+    private final LiseryPrivate plugin;
+    private final DatabaseManager databaseManager;
+    private final File file;
+    private final long source;
+    private final boolean enabled;
+    
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private BukkitTask task;
+    
+    // Main thread: write_seq the cache matched when it was loaded, and commits made since
+    private boolean loaded;
+    private long baseSeq;
+    private long baseCommits;
+    private long databaseLoadMillis;
+    private long captures;
+    
+    // Guarded by writeLock, an older capture never replaces a newer one
+    private long writtenCapture;
+    
+    DatabaseSnapshot(LiseryPrivate plugin, DatabaseManager databaseManager, String jdbcUrl, String tablePrefix) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+        this.file = new File(plugin.getDataFolder(), FILE_NAME);
+        this.source = UUID.nameUUIDFromBytes((jdbcUrl + "|" + tablePrefix).getBytes(StandardCharsets.UTF_8))
+                .getMostSignificantBits();
+        // With lazy loading the cache never holds all claims, there is nothing to capture
+        this.enabled = plugin.getConfigManager().isSnapshotEnabled()
+                && plugin.getConfigManager().getLazyLoading().equals("OFF");
+    }
+    
+    void start() {
+        if (!enabled) return;
+        
+        long period = Math.max(1L, plugin.getConfigManager().getSnapshotInterval() / 50L);
+        task = Bukkit.getScheduler().runTaskTimer(plugin, () -> capture(true), period, period);
+    }
+    
+    /**
+     * Write a final snapshot, the write-behind queue must be closed already
+     */
+    void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        capture(false);
+    }
+    
+    /**
+     * Load claims from the snapshot if it still matches the database
+     * Returns null when the caller has to query the database instead.
+     */
+    LoadResult load(long writeSeq, Consumer<ChunkData> consumer) {
+        if (!enabled || !file.exists()) return null;
+        
+        SnapshotFile.Header peek = SnapshotFile.readHeader(file);
+        if (peek == null || peek.meta().source() != source) {
+            plugin.getLogger().info("Claim snapshot belongs to another database, loading from the database.");
+            return null;
+        }
+        if (peek.meta().highWaterMark() != writeSeq) {
+            plugin.getLogger().info("Claim snapshot is stale (write_seq " + peek.meta().highWaterMark()
+                    + ", database " + writeSeq + "), loading from the database.");
+            return null;
+        }
+        
+        long start = System.nanoTime();
+        List<ChunkData> chunks = new ArrayList<>(peek.claims());
+        int[] trusted = new int[1];
+        SnapshotFile.Header header;
+        try {
+            // Trusted players follow their claim, so they always belong to the last one
+            header = SnapshotFile.read(file, new SnapshotFile.Handler() {
+                @Override
+                public void upsert(int id, ChunkRow row) {
+                    chunks.add(row.toChunkData(id));
+                }
+                
+                @Override
+                public void addTrusted(int id, UUID playerUUID, String playerName) {
+                    chunks.get(chunks.size() - 1).addTrusted(playerUUID, playerName);
+                    trusted[0]++;
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().log(Level.WARNING, "Claim snapshot could not be read, loading from the database", e);
+            return null;
+        }
+        if (header == null) return null;
+        
+        long openNanos = System.nanoTime() - start;
+        chunks.forEach(consumer);
+        long readNanos = System.nanoTime() - start - openNanos;
+        
+        long previousMillis = header.meta().databaseLoadMillis();
+        markLoaded(writeSeq, previousMillis);
+        
+        long millis = (openNanos + readNanos) / 1_000_000L;
+        if (previousMillis > 0) {
+            plugin.getLogger().info(String.format("Loaded %d claims from the snapshot in %d ms, "
+                    + "the last full database load took %d ms (%d ms saved).",
+                    chunks.size(), millis, previousMillis, previousMillis - millis));
+        } else {
+            plugin.getLogger().info("Loaded " + chunks.size() + " claims from the snapshot in " + millis + " ms.");
+        }
+        return new LoadResult(chunks.size(), trusted[0], openNanos, readNanos);
+    }
+    
+    /**
+     * Remember the write_seq the cache matches after a load
+     */
+    void markLoaded(long writeSeq, long databaseLoadMillis) {
+        PersistenceQueue queue = databaseManager.getPersistenceQueue();
+        this.baseSeq = writeSeq;
+        this.baseCommits = queue != null ? queue.getCommits() : 0;
+        this.databaseLoadMillis = databaseLoadMillis;
+        this.loaded = true;
+    }
+    
+    /**
+     * Move the base after changes of other servers were applied to the cache
+     * The cache matches the database at writeSeq plus our commits after commits.
+     */
+    void rebase(long writeSeq, long commits) {
+        if (!loaded) return;
+        this.baseSeq = writeSeq;
+        this.baseCommits = commits;
+    }
+    
+    /**
+     * Capture all claims on the main thread and write them if the database did not move on meanwhile
+     */
+    private void capture(boolean async) {
+        if (!enabled || !loaded || plugin.getChunkManager() == null) return;
+        
+        PersistenceQueue queue = databaseManager.getPersistenceQueue();
+        if (queue == null || !queue.isIdle()) return;
+        if (async && !writing.compareAndSet(false, true)) return;
+        
+        // Our own commits are the only changes the cache knows about
+        long expectedSeq = baseSeq + queue.getCommits() - baseCommits;
+        List<SnapshotFile.Entry> entries = SnapshotFile.capture(plugin.getChunkManager().getAllChunks());
+        long captureId = ++captures;
+        SnapshotFile.Meta meta = new SnapshotFile.Meta(0, expectedSeq, source, 0, databaseLoadMillis);
+        
+        if (async) {
+            // Reset in the future, a rejected task never runs its own cleanup
+            plugin.getIoExecutor().run(IoExecutor.Resource.FILE, () -> write(meta, entries, captureId))
+                    .whenComplete((result, error) -> writing.set(false));
+        } else {
+            write(meta, entries, captureId);
+        }
+    }
+    
+    private void write(SnapshotFile.Meta meta, List<SnapshotFile.Entry> entries, long captureId) {
+        // Another server or a commit after the capture changed the database
+        long writeSeq = databaseManager.readWriteSeq();
+        if (writeSeq != meta.highWaterMark()) {
+            plugin.getLogger().fine("Skipped claim snapshot, write_seq moved from " + meta.highWaterMark()
+                    + " to " + writeSeq);
+            return;
+        }
+        
+        writeLock.lock();
+        try {
+            if (captureId <= writtenCapture) return;
+            SnapshotFile.write(file, meta, entries);
+            writtenCapture = captureId;
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to write the claim snapshot", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
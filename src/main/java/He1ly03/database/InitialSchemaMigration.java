@@ -0,0 +1,59 @@
+package He1ly03.database;
+
+import java.sql.SQLException;
+
+/**
+ * Original tables with text UUIDs and one column per setting
+ * Databases created before schema versioning already have them and are
+ * recorded as version 1 without changes.
+ */
+class InitialSchemaMigration implements SchemaMigration {
+    
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "Initial schema";
+    }
+    
+    @Override
+    public void migrate(MigrationContext context) throws SQLException {
+        String autoIncrement = context.isMySQL() ? "AUTO_INCREMENT" : "AUTOINCREMENT";
+        
+        context.execute("CREATE TABLE IF NOT EXISTS " + context.table("chunks") + " (" +
+                "id INTEGER PRIMARY KEY " + autoIncrement + "," +
+                "world VARCHAR(64) NOT NULL," +
+                "chunk_x INTEGER NOT NULL," +
+                "chunk_z INTEGER NOT NULL," +
+                "name VARCHAR(64) NOT NULL," +
+                "owner_uuid VARCHAR(36) NOT NULL," +
+                "owner_name VARCHAR(16) NOT NULL," +
+                "build_allowed BOOLEAN DEFAULT 0," +
+                "destroy_allowed BOOLEAN DEFAULT 0," +
+                "use_allowed BOOLEAN DEFAULT 0," +
+                "switch_allowed BOOLEAN DEFAULT 0," +
+                "mobs_allowed BOOLEAN DEFAULT 0," +
+                "pvp_allowed BOOLEAN DEFAULT 0," +
+                "fire_allowed BOOLEAN DEFAULT 0," +
+                "explosion_allowed BOOLEAN DEFAULT 0," +
+                "for_sale BOOLEAN DEFAULT 0," +
+                "sale_price DOUBLE DEFAULT 0," +
+                "sale_location VARCHAR(255) DEFAULT NULL," +
+                "worldguard_region VARCHAR(128) DEFAULT NULL," +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                "UNIQUE(world, chunk_x, chunk_z)" +
+                ")");
+        
+        context.execute("CREATE TABLE IF NOT EXISTS " + context.table("trusted_players") + " (" +
+                "id INTEGER PRIMARY KEY " + autoIncrement + "," +
+                "chunk_id INTEGER NOT NULL," +
+                "player_uuid VARCHAR(36) NOT NULL," +
+                "player_name VARCHAR(16) NOT NULL," +
+                "added_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                "UNIQUE(chunk_id, player_uuid)" +
+                ")");
+    }
+}
@@ -0,0 +1,89 @@
+package He1ly03.database;
+
+import java.sql.*;
+import java.util.logging.Logger;
+
+/**
+ * Connection and dialect details handed to schema migrations
+ */
+class MigrationContext {
+    
+    private final Connection connection;
+    private final String tablePrefix;
+    private final boolean mySQL;
+    private final Logger logger;
+    private final boolean verbose;
+    
+    MigrationContext(Connection connection, String tablePrefix, boolean mySQL, Logger logger, boolean verbose) {
+        this.connection = connection;
+        this.tablePrefix = tablePrefix;
+        this.mySQL = mySQL;
+        this.logger = logger;
+        this.verbose = verbose;
+    }
+    
+    Connection getConnection() {
+        return connection;
+    }
+    
+    boolean isMySQL() {
+        return mySQL;
+    }
+    
+    /**
+     * Table name with the configured prefix
+     */
+    String table(String name) {
+        return tablePrefix + name;
+    }
+    
+    void execute(String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+    
+    int count(String table) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+    
+    boolean hasColumn(String table, String column) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        try (ResultSet rs = meta.getColumns(connection.getCatalog(), null, table, null)) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Check if a table has a foreign key to another table
+     */
+    boolean hasForeignKey(String table, String referencedTable) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        try (ResultSet rs = meta.getImportedKeys(connection.getCatalog(), null, table)) {
+            while (rs.next()) {
+                if (referencedTable.equalsIgnoreCase(rs.getString("PKTABLE_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    void info(String message) {
+        if (verbose) {
+            logger.info(message);
+        }
+    }
+    
+    void warning(String message) {
+        logger.warning(message);
+    }
+}
@@ -0,0 +1,39 @@
+package He1ly03.database;
+
+import java.sql.SQLException;
+
+/**
+ * Number of claims per owner
+ * Kept up to date by the persistence writer so limit checks work while
+ * claims are loaded lazily and most of them are not in memory.
+ */
+class OwnerClaimsMigration implements SchemaMigration {
+    
+    @Override
+    public int getVersion() {
+        return 4;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "Claim counts per owner";
+    }
+    
+    @Override
+    public void migrate(MigrationContext context) throws SQLException {
+        String owners = context.table("owner_claims");
+        String chunks = context.table("chunks");
+        String uuidType = context.isMySQL() ? "BINARY(16)" : "BLOB";
+        
+        context.execute("CREATE TABLE IF NOT EXISTS " + owners + " (" +
+                "owner_uuid " + uuidType + " PRIMARY KEY," +
+                "claims INTEGER NOT NULL" +
+                ")");
+        
+        // Rebuilt from scratch so a rerun after an interruption gives the same result
+        context.execute("DELETE FROM " + owners);
+        context.execute("INSERT INTO " + owners + " (owner_uuid, claims) " +
+                "SELECT owner_uuid, COUNT(*) FROM " + chunks + " GROUP BY owner_uuid");
+        context.info("Counted claims of " + context.count(owners) + " owners");
+    }
+}
@@ -0,0 +1,723 @@
+package He1ly03.database;
+
+import He1ly03.LiseryPrivate;
+import He1ly03.chunk.ChunkData;
+import He1ly03.utils.UUIDUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Write-behind queue for claim changes
+ * Changes are recorded on the main thread as snapshots and coalesced per
+ * claim, a single writer thread flushes them in batched transactions.
+ * The in-memory ChunkManager cache stays the source of truth for reads.
+ */
+public class PersistenceQueue {
+    
+    // Delay between attempts while the database is unreachable
+    private static final long RETRY_DELAY_MS = 1000;
+    
+    private final LiseryPrivate plugin;
+    private final DatabaseManager databaseManager;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition wakeup = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+    
+    // Pending changes per claim, keyed by identity since ChunkData equality is by location
+    private Map<ChunkData, ClaimOps> pending = new IdentityHashMap<>();
+    private List<ClaimOps> pendingOrder = new ArrayList<>();
+    
+    // Claims of the batch the writer is working on
+    private final Set<ChunkData> inFlight = Collections.newSetFromMap(new IdentityHashMap<>());
+    
+    private long enqueuedSeq;
+    private long writtenSeq;
+    private boolean flushRequested;
+    private boolean writing;
+    private boolean stopping;
+    private Thread writer;
+    
+    // Batch the writer stopped on without writing it, written first on shutdown
+    private List<ClaimOps> unfinished = new ArrayList<>();
+    
+    private long flushIntervalNanos;
+    private int maxBatchSize;
+    private int maxPending;
+    private long shutdownTimeoutMs;
+    private boolean overloadWarned;
+    
+    // Committed transactions, each raised write_seq by one
+    private volatile long commits;
+    
+    // Metrics
+    private volatile long enqueued;
+    private volatile long coalesced;
+    private volatile long batches;
+    private volatile long written;
+    private volatile long failed;
+    private volatile long retries;
+    private volatile int maxPendingSeen;
+    private volatile int lastBatchSize;
+    private volatile long totalFlushNanos;
+    private volatile long maxFlushNanos;
+    
+    public PersistenceQueue(LiseryPrivate plugin, DatabaseManager databaseManager) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+    }
+    
+    /**
+     * Start the writer thread
+     */
+    public void start() {
+        var configManager = plugin.getConfigManager();
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(configManager.getWriteBehindFlushInterval());
+        this.maxBatchSize = configManager.getWriteBehindMaxBatchSize();
+        this.maxPending = configManager.getWriteBehindMaxPending();
+        this.shutdownTimeoutMs = configManager.getWriteBehindShutdownTimeout();
+        
+        writer = new Thread(this::run, "LiseryPrivate-Writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    
+    // ==================== Operations ====================
+    
+    /**
+     * Insert a new claim, its id is set once the row is written
+     */
+    public void insert(ChunkData chunk) {
+        ChunkRow row = ChunkRow.of(chunk);
+        enqueue(chunk, ops -> {
+            ops.insert = true;
+            ops.row = row;
+            ops.owners.add(row.ownerUUID());
+        });
+    }
+    
+    /**
+     * Write the current state of a claim
+     */
+    public void update(ChunkData chunk) {
+        ChunkRow row = ChunkRow.of(chunk);
+        enqueue(chunk, ops -> ops.row = row);
+    }
+    
+    /**
+     * Write the current state of a claim that changed owner, both owners get their count refreshed
+     */
+    public void transfer(ChunkData chunk, UUID previousOwner) {
+        ChunkRow row = ChunkRow.of(chunk);
+        enqueue(chunk, ops -> {
+            ops.row = row;
+            ops.owners.add(previousOwner);
+            ops.owners.add(row.ownerUUID());
+        });
+    }
+    
+    /**
+     * Delete a claim with its trusted players
+     */
+    public void delete(ChunkData chunk) {
+        lock.lock();
+        try {
+            ClaimOps ops = pending.get(chunk);
+            if (ops != null && ops.insert) {
+                // Never written, nothing to delete
+                pending.remove(chunk);
+                pendingOrder.remove(ops);
+                enqueuedSeq++;
+                enqueued++;
+                coalesced++;
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        UUID owner = chunk.getOwnerUUID();
+        enqueue(chunk, ops -> {
+            ops.delete = true;
+            ops.owners.add(owner);
+            ops.row = null;
+            ops.trustAdds.clear();
+            ops.trustRemoves.clear();
+        });
+    }
+    
+    public void addTrusted(ChunkData chunk, UUID playerUUID, String playerName) {
+        enqueue(chunk, ops -> ops.trustAdds.put(playerUUID, playerName));
+    }
+    
+    public void removeTrusted(ChunkData chunk, UUID playerUUID) {
+        enqueue(chunk, ops -> {
+            // Removes run before adds, a pending add only has to be dropped
+            ops.trustAdds.remove(playerUUID);
+            ops.trustRemoves.add(playerUUID);
+        });
+    }
+    
+    private void enqueue(ChunkData chunk, Consumer<ClaimOps> change) {
+        lock.lock();
+        try {
+            ClaimOps ops = pending.get(chunk);
+            if (ops == null) {
+                ops = new ClaimOps(chunk);
+                pending.put(chunk, ops);
+                pendingOrder.add(ops);
+            } else {
+                coalesced++;
+            }
+            change.accept(ops);
+            
+            enqueuedSeq++;
+            enqueued++;
+            
+            int size = pending.size();
+            if (size > maxPendingSeen) {
+                maxPendingSeen = size;
+            }
+            
+            // Writer falls behind, stop waiting for more changes to coalesce
+            if (size >= maxPending) {
+                flushRequested = true;
+                wakeup.signal();
+                if (!overloadWarned) {
+                    overloadWarned = true;
+                    plugin.getLogger().warning("Persistence queue has " + size
+                            + " pending claims, database writes are falling behind");
+                }
+            } else if (size == 1) {
+                wakeup.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // ==================== Flushing ====================
+    
+    /**
+     * Block until everything enqueued so far is written
+     * Used before reloading claims from the database
+     */
+    public boolean flush(long timeoutMs) {
+        lock.lock();
+        try {
+            long target = enqueuedSeq;
+            flushRequested = true;
+            wakeup.signal();
+            
+            long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while (writtenSeq < target && (writing || !pending.isEmpty())) {
+                if (remaining <= 0 || writer == null || !writer.isAlive()) {
+                    return false;
+                }
+                remaining = drained.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Write all pending changes and stop the writer
+     * Whatever the writer could not finish is written on the calling thread,
+     * its unfinished batch first. Nothing is written while the writer still
+     * runs, later changes of a claim must not commit before earlier ones.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            stopping = true;
+            wakeup.signal();
+        } finally {
+            lock.unlock();
+        }
+        
+        if (writer != null) {
+            try {
+                writer.join(shutdownTimeoutMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (writer.isAlive()) {
+                plugin.getLogger().warning("Persistence writer did not finish in time, flushing on shutdown thread");
+                writer.interrupt();
+                try {
+                    writer.join(shutdownTimeoutMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        
+        List<ClaimOps> first;
+        List<ClaimOps> rest;
+        lock.lock();
+        try {
+            first = unfinished;
+            unfinished = new ArrayList<>();
+            rest = pendingOrder;
+            pendingOrder = new ArrayList<>();
+            pending = new IdentityHashMap<>();
+        } finally {
+            lock.unlock();
+        }
+        
+        if (writer != null && writer.isAlive()) {
+            plugin.getLogger().severe("Persistence writer is stuck, lost " + (first.size() + rest.size())
+                    + " pending claim changes on shutdown!");
+            return;
+        }
+        
+        // Written apart, an insert has to be committed before later changes can use its id
+        if (!first.isEmpty() && !write(first)) {
+            plugin.getLogger().severe("Lost " + (first.size() + rest.size()) + " pending claim changes on shutdown!");
+            return;
+        }
+        if (!rest.isEmpty() && !write(rest)) {
+            plugin.getLogger().severe("Lost " + rest.size() + " pending claim changes on shutdown!");
+        }
+    }
+    
+    private void run() {
+        List<ClaimOps> batch = null;
+        long batchSeq = 0;
+        
+        while (true) {
+            if (batch == null) {
+                lock.lock();
+                try {
+                    while (pending.isEmpty() && !stopping) {
+                        wakeup.await();
+                    }
+                    if (pending.isEmpty()) {
+                        return;
+                    }
+                    
+                    // Give follow-up changes a moment to coalesce
+                    if (!stopping && !flushRequested) {
+                        wakeup.awaitNanos(flushIntervalNanos);
+                    }
+                    
+                    batch = takeBatch();
+                    batchSeq = pending.isEmpty() ? enqueuedSeq : writtenSeq;
+                    writing = true;
+                    for (ClaimOps ops : batch) {
+                        inFlight.add(ops.chunk);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } finally {
+                    lock.unlock();
+                }
+            }
+            
+            if (Thread.currentThread().isInterrupted()) {
+                handBack(batch);
+                return;
+            }
+            if (write(batch)) {
+                batch = null;
+                lock.lock();
+                try {
+                    if (batchSeq > writtenSeq) {
+                        writtenSeq = batchSeq;
+                    }
+                    writing = false;
+                    inFlight.clear();
+                    drained.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            } else {
+                // Database unreachable, keep what is left of the batch and retry it before anything newer
+                retries++;
+                if (stopping) {
+                    handBack(batch);
+                    return;
+                }
+                try {
+                    Thread.sleep(RETRY_DELAY_MS);
+                } catch (InterruptedException e) {
+                    handBack(batch);
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Leave a batch the writer gave up on to close, which writes it before anything newer
+     */
+    private void handBack(List<ClaimOps> batch) {
+        lock.lock();
+        try {
+            unfinished = batch;
+            writing = false;
+            inFlight.clear();
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Take up to maxBatchSize claims in enqueue order, must hold the lock
+     */
+    private List<ClaimOps> takeBatch() {
+        flushRequested = false;
+        overloadWarned = false;
+        
+        if (pendingOrder.size() <= maxBatchSize) {
+            List<ClaimOps> batch = pendingOrder;
+            pendingOrder = new ArrayList<>();
+            pending = new IdentityHashMap<>();
+            return batch;
+        }
+        
+        List<ClaimOps> batch = new ArrayList<>(pendingOrder.subList(0, maxBatchSize));
+        pendingOrder = new ArrayList<>(pendingOrder.subList(maxBatchSize, pendingOrder.size()));
+        for (ClaimOps ops : batch) {
+            pending.remove(ops.chunk);
+        }
+        // More is waiting, don't sit out another interval
+        flushRequested = true;
+        return batch;
+    }
+    
+    /**
+     * Write a batch in one transaction
+     * Falls back to one transaction per claim so a bad row doesn't drop the rest.
+     * Claims leave the batch once committed or given up on. Returns false if
+     * the connection failed, the batch then holds only the claims still to
+     * write.
+     */
+    private boolean write(List<ClaimOps> batch) {
+        long start = System.nanoTime();
+        int size = batch.size();
+        
+        try (Connection conn = databaseManager.getWriteConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                boolean batched;
+                try {
+                    writeOps(conn, batch);
+                    batched = true;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    plugin.getLogger().log(Level.WARNING, "Batched claim write failed, retrying claims one by one", e);
+                    batched = false;
+                }
+                
+                if (batched) {
+                    commit(conn, batch);
+                    batch.clear();
+                } else {
+                    for (Iterator<ClaimOps> iterator = batch.iterator(); iterator.hasNext(); ) {
+                        ClaimOps ops = iterator.next();
+                        List<ClaimOps> single = List.of(ops);
+                        try {
+                            writeOps(conn, single);
+                        } catch (SQLException ex) {
+                            // A rollback that fails means the connection is gone, the claim stays for the retry
+                            conn.rollback();
+                            failed++;
+                            plugin.getLogger().log(Level.SEVERE, "Failed to save claim " + ops.chunk.getName() + "!", ex);
+                            iterator.remove();
+                            continue;
+                        }
+                        commit(conn, single);
+                        iterator.remove();
+                    }
+                }
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to write claim changes!", e);
+            return false;
+        }
+        
+        long elapsed = System.nanoTime() - start;
+        batches++;
+        written += size;
+        lastBatchSize = size;
+        totalFlushNanos += elapsed;
+        if (elapsed > maxFlushNanos) {
+            maxFlushNanos = elapsed;
+        }
+        return true;
+    }
+    
+    private void writeOps(Connection conn, List<ClaimOps> batch) throws SQLException {
+        for (ClaimOps ops : batch) {
+            ops.newId = -1;
+        }
+        
+        // Deletes first so a claim re-taken in the same batch doesn't hit the unique key
+        try (PreparedStatement trust = databaseManager.prepareDeleteTrusted(conn);
+             PreparedStatement chunks = databaseManager.prepareDeleteChunk(conn)) {
+            int count = 0;
+            for (ClaimOps ops : batch) {
+                if (!ops.delete || ops.chunk.getId() < 0) continue;
+                trust.setInt(1, ops.chunk.getId());
+                trust.addBatch();
+                chunks.setInt(1, ops.chunk.getId());
+                chunks.addBatch();
+                count++;
+            }
+            if (count > 0) {
+                trust.executeBatch();
+                chunks.executeBatch();
+            }
+        }
+        
+        // Inserts one by one for their generated keys
+        for (ClaimOps ops : batch) {
+            if (!ops.insert) continue;
+            if (ops.uncertain) {
+                // Inserted by a commit that reported a failure, the other changes are safe to repeat
+                ops.newId = databaseManager.findChunkId(conn, ops.row);
+                if (ops.newId >= 0) continue;
+            }
+            ops.newId = databaseManager.insertChunk(conn, ops.row);
+            if (ops.newId < 0) {
+                throw new SQLException("No id generated for claim " + ops.row.name());
+            }
+        }
+        
+        try (PreparedStatement stmt = databaseManager.prepareUpdateChunk(conn)) {
+            int count = 0;
+            for (ClaimOps ops : batch) {
+                if (ops.insert || ops.delete || ops.row == null) continue;
+                int id = idOf(ops);
+                if (id < 0) continue;
+                databaseManager.bindUpdateChunk(stmt, ops.row, id);
+                stmt.addBatch();
+                count++;
+            }
+            if (count > 0) {
+                stmt.executeBatch();
+            }
+        }
+        
+        try (PreparedStatement stmt = databaseManager.prepareRemoveTrusted(conn)) {
+            int count = 0;
+            for (ClaimOps ops : batch) {
+                int id = idOf(ops);
+                if (id < 0) continue;
+                for (UUID playerUUID : ops.trustRemoves) {
+                    stmt.setInt(1, id);
+                    stmt.setBytes(2, UUIDUtils.toBytes(playerUUID));
+                    stmt.addBatch();
+                    count++;
+                }
+            }
+            if (count > 0) {
+                stmt.executeBatch();
+            }
+        }
+        
+        try (PreparedStatement stmt = databaseManager.prepareAddTrusted(conn)) {
+            int count = 0;
+            for (ClaimOps ops : batch) {
+                int id = idOf(ops);
+                if (id < 0) continue;
+                for (Map.Entry<UUID, String> entry : ops.trustAdds.entrySet()) {
+                    stmt.setInt(1, id);
+                    stmt.setBytes(2, UUIDUtils.toBytes(entry.getKey()));
+                    stmt.setString(3, entry.getValue());
+                    stmt.addBatch();
+                    count++;
+                }
+            }
+            if (count > 0) {
+                stmt.executeBatch();
+            }
+        }
+        
+        Set<UUID> owners = new HashSet<>();
+        for (ClaimOps ops : batch) {
+            owners.addAll(ops.owners);
+        }
+        databaseManager.refreshClaimCounts(conn, owners);
+        
+        // Tell other servers which claims and counts to re-read
+        ClaimChangeLog changeLog = databaseManager.getChangeLog();
+        if (changeLog != null) {
+            try (PreparedStatement stmt = changeLog.prepareInsert(conn)) {
+                long now = System.currentTimeMillis();
+                for (ClaimOps ops : batch) {
+                    int id = idOf(ops);
+                    if (id < 0) continue;
+                    changeLog.addClaim(stmt, ops.delete ? ClaimChangeLog.DELETE : ClaimChangeLog.UPSERT, id, ops.chunk, now);
+                }
+                for (UUID owner : owners) {
+                    changeLog.addOwner(stmt, owner, now);
+                }
+                stmt.executeBatch();
+            }
+        }
+        
+        databaseManager.bumpWriteSeq(conn);
+    }
+    
+    /**
+     * Commit and publish generated ids
+     * A failed commit may still have gone through on the server, the claims
+     * are marked so their inserts are checked before they run again.
+     */
+    private void commit(Connection conn, List<ClaimOps> batch) throws SQLException {
+        try {
+            conn.commit();
+        } catch (SQLException e) {
+            for (ClaimOps ops : batch) {
+                ops.uncertain = true;
+            }
+            throw e;
+        }
+        commits++;
+        applyIds(batch);
+        for (ClaimOps ops : batch) {
+            ops.uncertain = false;
+        }
+    }
+    
+    private int idOf(ClaimOps ops) {
+        return ops.newId >= 0 ? ops.newId : ops.chunk.getId();
+    }
+    
+    /**
+     * Publish generated ids once the transaction is committed
+     */
+    private void applyIds(List<ClaimOps> batch) {
+        for (ClaimOps ops : batch) {
+            if (ops.newId >= 0) {
+                ops.chunk.setId(ops.newId);
+            }
+        }
+    }
+    
+    /**
+     * Check if every change made so far is committed
+     */
+    public boolean isIdle() {
+        lock.lock();
+        try {
+            return pending.isEmpty() && !writing;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Check if a claim has changes that are not committed yet
+     */
+    public boolean isPending(ChunkData chunk) {
+        lock.lock();
+        try {
+            return pending.containsKey(chunk) || inFlight.contains(chunk);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Number of committed transactions, each one raised write_seq by one
+     */
+    public long getCommits() {
+        return commits;
+    }
+    
+    // ==================== Metrics ====================
+    
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int getMaxPendingSeen() {
+        return maxPendingSeen;
+    }
+    
+    public long getEnqueued() {
+        return enqueued;
+    }
+    
+    public long getCoalesced() {
+        return coalesced;
+    }
+    
+    public long getBatches() {
+        return batches;
+    }
+    
+    public long getWritten() {
+        return written;
+    }
+    
+    public long getFailed() {
+        return failed;
+    }
+    
+    public long getRetries() {
+        return retries;
+    }
+    
+    public int getLastBatchSize() {
+        return lastBatchSize;
+    }
+    
+    public long getAverageFlushMicros() {
+        long count = batches;
+        return count == 0 ? 0 : totalFlushNanos / count / 1000L;
+    }
+    
+    public long getMaxFlushMicros() {
+        return maxFlushNanos / 1000L;
+    }
+    
+    /**
+     * Coalesced pending changes of one claim
+     */
+    private static final class ClaimOps {
+        private final ChunkData chunk;
+        private boolean insert;
+        private boolean delete;
+        private ChunkRow row;
+        private final Map<UUID, String> trustAdds = new LinkedHashMap<>();
+        private final Set<UUID> trustRemoves = new LinkedHashSet<>();
+        
+        // Owners whose claim count changes with this claim
+        private final Set<UUID> owners = new HashSet<>();
+        
+        // Id generated in the current transaction, only used by the writer
+        private int newId = -1;
+        
+        // Last commit failed but may have gone through, only used by the writer
+        private boolean uncertain;
+        
+        private ClaimOps(ChunkData chunk) {
+            this.chunk = chunk;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package He1ly03.database;
+
+import java.sql.SQLException;
+
+/**
+ * One ordered step of the database schema
+ * Steps have to be safe to run again on a database they already converted,
+ * MySQL commits every DDL statement so a crash can leave a step half done.
+ */
+interface SchemaMigration {
+    
+    /**
+     * Schema version this step produces
+     */
+    int getVersion();
+    
+    String getDescription();
+    
+    void migrate(MigrationContext context) throws SQLException;
+}
@@ -0,0 +1,107 @@
+package He1ly03.database;
+
+import java.sql.*;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Brings the database schema to the latest version
+ * Applied versions are recorded in the schema_version table, every pending
+ * step runs in its own transaction together with its version row.
+ */
+class SchemaMigrator {
+    
+    private static final List<SchemaMigration> MIGRATIONS = List.of(
+            new InitialSchemaMigration(),
+            new CompactSchemaMigration(),
+            new StorageMetaMigration(),
+            new OwnerClaimsMigration(),
+            new ClaimChangesMigration(),
+            new AuditLogMigration()
+    );
+    
+    private final String tablePrefix;
+    private final boolean mySQL;
+    private final Logger logger;
+    
+    SchemaMigrator(String tablePrefix, boolean mySQL, Logger logger) {
+        this.tablePrefix = tablePrefix;
+        this.mySQL = mySQL;
+        this.logger = logger;
+    }
+    
+    /**
+     * Apply all pending migrations, progress is only logged when verbose
+     */
+    void migrate(Connection conn, boolean verbose) throws SQLException {
+        MigrationContext context = new MigrationContext(conn, tablePrefix, mySQL, logger, verbose);
+        String versionTable = tablePrefix + "schema_version";
+        
+        context.execute("CREATE TABLE IF NOT EXISTS " + versionTable + " (" +
+                "version INTEGER PRIMARY KEY," +
+                "description VARCHAR(128) NOT NULL," +
+                "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                ")");
+        
+        int current = getCurrentVersion(conn, versionTable);
+        
+        List<SchemaMigration> pending = MIGRATIONS.stream()
+                .filter(m -> m.getVersion() > current)
+                .sorted(Comparator.comparingInt(SchemaMigration::getVersion))
+                .toList();
+        
+        for (SchemaMigration migration : pending) {
+            context.info("Applying schema migration v" + migration.getVersion() + ": " + migration.getDescription());
+            long start = System.nanoTime();
+            
+            // SQLite can only rebuild referenced tables with foreign keys off, and not inside a transaction
+            if (!mySQL) {
+                context.execute("PRAGMA foreign_keys = OFF");
+            }
+            conn.setAutoCommit(false);
+            try {
+                migration.migrate(context);
+                
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO " + versionTable + " (version, description) VALUES (?, ?)")) {
+                    stmt.setInt(1, migration.getVersion());
+                    stmt.setString(2, migration.getDescription());
+                    stmt.executeUpdate();
+                }
+                
+                if (!mySQL) {
+                    checkForeignKeys(conn);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw new SQLException("Schema migration v" + migration.getVersion() + " failed", e);
+            } finally {
+                conn.setAutoCommit(true);
+                if (!mySQL) {
+                    context.execute("PRAGMA foreign_keys = ON");
+                }
+            }
+            
+            context.info("Schema migration v" + migration.getVersion() + " done in "
+                    + (System.nanoTime() - start) / 1_000_000L + " ms");
+        }
+    }
+    
+    private int getCurrentVersion(Connection conn, String versionTable) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM " + versionTable)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+    
+    private void checkForeignKeys(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA foreign_key_check")) {
+            if (rs.next()) {
+                throw new SQLException("Foreign key violation in table " + rs.getString(1) + " after migration");
+            }
+        }
+    }
+}
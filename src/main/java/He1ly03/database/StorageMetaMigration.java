@@ -0,0 +1,34 @@
+package He1ly03.database;
+
+import java.sql.SQLException;
+
+/**
+ * Key-value table for storage bookkeeping
+ * write_seq is raised by every transaction that changes claims, a claim
+ * snapshot taken at the same value still matches the database.
+ */
+class StorageMetaMigration implements SchemaMigration {
+    
+    @Override
+    public int getVersion() {
+        return 3;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "Storage meta with write sequence";
+    }
+    
+    @Override
+    public void migrate(MigrationContext context) throws SQLException {
+        String meta = context.table("storage_meta");
+        
+        context.execute("CREATE TABLE IF NOT EXISTS " + meta + " (" +
+                "name VARCHAR(64) PRIMARY KEY," +
+                "value BIGINT NOT NULL" +
+                ")");
+        
+        String insert = context.isMySQL() ? "INSERT IGNORE INTO " : "INSERT OR IGNORE INTO ";
+        context.execute(insert + meta + " (name, value) VALUES ('write_seq', 0)");
+    }
+}
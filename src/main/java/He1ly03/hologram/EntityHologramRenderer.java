@@ -0,0 +1,215 @@
+package He1ly03.hologram;
+
+import He1ly03.LiseryPrivate;
+import He1ly03.utils.ColorUtils;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Display;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.TextDisplay;
+
+import java.util.*;
+
+/**
+ * Renders holograms as real TextDisplay entities shared by all viewers
+ * The entity is hidden by default and shown per player
+ *
+ * Entities nobody sees are kept in a small per-world pool and reused for the
+ * next hologram instead of being removed and spawned again.
+ */
+public class EntityHologramRenderer implements HologramRenderer {
+    
+    private static final int MAX_POOLED_PER_WORLD = 16;
+    
+    private final LiseryPrivate plugin;
+    
+    // Display properties, read from config once per renderer
+    private final Display.Billboard billboard;
+    private final org.bukkit.Color backgroundColor;
+    private final org.bukkit.util.Transformation transformation;
+    
+    // Active holograms: chunk key -> hologram entity
+    private final Map<String, TextDisplay> holograms = new HashMap<>();
+    
+    // Viewers of each hologram: chunk key -> player UUIDs
+    private final Map<String, Set<UUID>> viewers = new HashMap<>();
+    
+    // Hidden entities ready for reuse: world UUID -> entities
+    private final Map<UUID, Deque<TextDisplay>> pool = new HashMap<>();
+    
+    public EntityHologramRenderer(LiseryPrivate plugin) {
+        this.plugin = plugin;
+        
+        // Set billboard
+        String billboardStr = plugin.getConfigManager().getTextEntityBillboard();
+        this.billboard = switch (billboardStr.toLowerCase()) {
+            case "fixed" -> Display.Billboard.FIXED;
+            case "vertical" -> Display.Billboard.VERTICAL;
+            case "horizontal" -> Display.Billboard.HORIZONTAL;
+            default -> Display.Billboard.CENTER;
+        };
+        
+        // Set background color
+        String bgColor = plugin.getConfigManager().getTextEntityBackgroundColor();
+        this.backgroundColor = org.bukkit.Color.fromARGB(ColorUtils.parseARGB(bgColor));
+        
+        // Set scale
+        float scale = (float) plugin.getConfigManager().getTextEntityScale();
+        this.transformation = new org.bukkit.util.Transformation(
+                new org.joml.Vector3f(0, 0, 0),
+                new org.joml.AxisAngle4f(0, 0, 0, 1),
+                new org.joml.Vector3f(scale, scale, scale),
+                new org.joml.AxisAngle4f(0, 0, 0, 1)
+        );
+    }
+    
+    @Override
+    public void show(Player viewer, String key, Location location, Component text) {
+        TextDisplay hologram = holograms.get(key);
+        if (hologram == null || !hologram.isValid()) {
+            hologram = obtain(location, text);
+            holograms.put(key, hologram);
+        }
+        
+        if (viewers.computeIfAbsent(key, k -> new HashSet<>()).add(viewer.getUniqueId())) {
+            viewer.showEntity(plugin, hologram);
+        }
+    }
+    
+    @Override
+    public void move(Player viewer, String key, double y) {
+        TextDisplay hologram = holograms.get(key);
+        if (hologram == null || !hologram.isValid()) return;
+        
+        Location currentLoc = hologram.getLocation();
+        
+        // Only teleport if Y changed significantly
+        if (Math.abs(currentLoc.getY() - y) > 0.1) {
+            currentLoc.setY(y);
+            hologram.teleport(currentLoc);
+        }
+    }
+    
+    @Override
+    public void hide(Player viewer, String key) {
+        TextDisplay hologram = holograms.get(key);
+        if (hologram != null && hologram.isValid()) {
+            viewer.hideEntity(plugin, hologram);
+        }
+        release(viewer.getUniqueId(), key);
+    }
+    
+    @Override
+    public void remove(String key) {
+        Set<UUID> keyViewers = viewers.remove(key);
+        TextDisplay hologram = holograms.remove(key);
+        if (hologram == null || !hologram.isValid()) return;
+        
+        if (keyViewers != null) {
+            for (UUID viewerUUID : keyViewers) {
+                Player viewer = Bukkit.getPlayer(viewerUUID);
+                if (viewer != null) {
+                    viewer.hideEntity(plugin, hologram);
+                }
+            }
+        }
+        recycle(hologram);
+    }
+    
+    @Override
+    public void removeViewer(UUID viewerUUID) {
+        for (String key : new ArrayList<>(viewers.keySet())) {
+            release(viewerUUID, key);
+        }
+    }
+    
+    @Override
+    public void clear() {
+        for (TextDisplay display : holograms.values()) {
+            if (display.isValid()) {
+                display.remove();
+            }
+        }
+        for (Deque<TextDisplay> pooled : pool.values()) {
+            for (TextDisplay display : pooled) {
+                if (display.isValid()) {
+                    display.remove();
+                }
+            }
+        }
+        holograms.clear();
+        viewers.clear();
+        pool.clear();
+    }
+    
+    @Override
+    public boolean isPerViewer() {
+        return false;
+    }
+    
+    /**
+     * Forget a viewer of a hologram and remove the hologram once nobody sees it
+     */
+    private void release(UUID viewerUUID, String key) {
+        Set<UUID> keyViewers = viewers.get(key);
+        if (keyViewers == null) return;
+        
+        keyViewers.remove(viewerUUID);
+        if (keyViewers.isEmpty()) {
+            remove(key);
+        }
+    }
+    
+    /**
+     * Take a hidden entity from the world pool or spawn a new one
+     */
+    private TextDisplay obtain(Location location, Component text) {
+        Deque<TextDisplay> pooled = pool.get(location.getWorld().getUID());
+        if (pooled != null) {
+            TextDisplay display;
+            while ((display = pooled.poll()) != null) {
+                // Pooled entities vanish when their chunk unloads
+                if (display.isValid()) {
+                    display.teleport(location);
+                    display.text(text);
+                    return display;
+                }
+            }
+        }
+        return spawn(location, text);
+    }
+    
+    /**
+     * Return an entity nobody sees to the world pool
+     */
+    private void recycle(TextDisplay display) {
+        Deque<TextDisplay> pooled = pool.computeIfAbsent(display.getWorld().getUID(), k -> new ArrayDeque<>());
+        if (pooled.size() < MAX_POOLED_PER_WORLD) {
+            pooled.push(display);
+        } else {
+            display.remove();
+        }
+    }
+    
+    private TextDisplay spawn(Location location, Component text) {
+        TextDisplay display = (TextDisplay) location.getWorld().spawnEntity(location, EntityType.TEXT_DISPLAY);
+        
+        display.text(text);
+        display.setBillboard(billboard);
+        display.setBackgroundColor(backgroundColor);
+        display.setTransformation(transformation);
+        
+        // Make it invisible by default
+        display.setVisibleByDefault(false);
+        
+        // Set view range
+        display.setViewRange(0.5f);
+        
+        // Prevent despawning
+        display.setPersistent(false);
+        
+        return display;
+    }
+}
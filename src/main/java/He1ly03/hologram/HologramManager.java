@@ -2,36 +2,60 @@ package He1ly03.hologram;
 
 import He1ly03.LiseryPrivate;
 import He1ly03.chunk.ChunkData;
+import He1ly03.task.TimeSlicedScheduler;
 import He1ly03.utils.ColorUtils;
+import He1ly03.utils.LocationUtils;
 import He1ly03.utils.MessageUtils;
+import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
-import org.bukkit.Chunk;
 import org.bukkit.Location;
-import org.bukkit.entity.Display;
-import org.bukkit.entity.EntityType;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
-import org.bukkit.entity.TextDisplay;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 
 import java.util.*;
 
 /**
  * Manages holograms for chunks
  * Holograms follow player's Y position + hologram-height
+ *
+ * Visible holograms are recomputed only when a player changes chunk, starts or
+ * stops holding the wand, or a claim in their 3x3 area changes. The periodic
+ * task only moves holograms for players who moved vertically.
+ *
+ * Drawing is delegated to a HologramRenderer: shared world entities or
+ * per-viewer client-side entities sent through PacketEvents.
  */
 public class HologramManager {
     
     private final LiseryPrivate plugin;
     
-    // Active holograms: chunk key -> hologram entity
-    private final Map<String, TextDisplay> chunkHolograms = new HashMap<>();
+    // Backend that actually draws holograms
+    private HologramRenderer renderer;
     
     // Players viewing holograms
     private final Map<UUID, Set<String>> playerViewingChunks = new HashMap<>();
     
-    // Update task
-    private BukkitTask updateTask;
+    // Last known position of each tracked player
+    private final Map<UUID, ViewerState> viewerStates = new HashMap<>();
+    
+    // Players standing in each chunk: chunk key -> player UUIDs
+    private final Map<String, Set<UUID>> chunkOccupants = new HashMap<>();
+    
+    // Rendered text of claimed chunks: chunk key -> text at a claim state version
+    private final Map<String, RenderedText> claimTexts = new HashMap<>();
+    
+    // Rendered text of free chunks, same for every free chunk
+    private Component freeChunkText;
+    
+    // Hologram types whose lines contain per-viewer placeholders and can't be cached
+    private final Set<String> personalTypes = new HashSet<>();
+    
+    // Reused between refreshes to avoid allocating per event
+    private final Set<String> visibleScratch = new HashSet<>();
+    private final List<String> hideScratch = new ArrayList<>();
+    
+    // Y-follow task
+    private TimeSlicedScheduler.SlicedTask updateTask;
     
     public HologramManager(LiseryPrivate plugin) {
         this.plugin = plugin;
@@ -41,139 +65,221 @@ public class HologramManager {
      * Start the hologram update task
      */
     public void start() {
-        if (updateTask != null) {
-            updateTask.cancel();
-        }
+        plugin.getScheduler().unregister(updateTask);
         
-        // Update every 5 ticks (0.25 seconds) for smooth following
-        updateTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                updateAllHolograms();
+        renderer = createRenderer();
+        
+        // Lines may have changed on reload
+        claimTexts.clear();
+        freeChunkText = null;
+        personalTypes.clear();
+        for (String type : List.of("free-chunk", "claimed-chunk", "for-sale-chunk")) {
+            for (String line : plugin.getConfigManager().getHologramLines(type)) {
+                if (line.contains("%player%")) {
+                    personalTypes.add(type);
+                    break;
+                }
             }
-        }.runTaskTimer(plugin, 20L, 5L);
+        }
+        
+        // Y-follow every 5 ticks (0.25 seconds) per player for smooth following
+        updateTask = plugin.getScheduler().register("hologram-follow", 5, this::followPlayerY);
+        
+        // Build initial view for players already online (e.g. after reload)
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            refreshPlayer(player);
+        }
     }
     
     /**
      * Stop the hologram manager
      */
     public void stop() {
-        if (updateTask != null) {
-            updateTask.cancel();
-            updateTask = null;
-        }
+        plugin.getScheduler().unregister(updateTask);
+        updateTask = null;
         
         // Remove all holograms
-        for (TextDisplay display : chunkHolograms.values()) {
-            if (display.isValid()) {
-                display.remove();
-            }
+        if (renderer != null) {
+            renderer.clear();
         }
-        chunkHolograms.clear();
         playerViewingChunks.clear();
+        claimTexts.clear();
+        freeChunkText = null;
+        viewerStates.clear();
+        chunkOccupants.clear();
+    }
+    
+    /**
+     * Recompute visible holograms for a player at their current location
+     */
+    public void refreshPlayer(Player player) {
+        refreshPlayer(player, player.getLocation());
     }
     
     /**
-     * Update holograms for all online players
+     * Recompute visible holograms for a player standing at the given location
      */
-    private void updateAllHolograms() {
-        Set<String> activeChunks = new HashSet<>();
+    public void refreshPlayer(Player player, Location location) {
+        if (updateTask == null || !player.isOnline()) return;
         
-        // Track the highest player Y in each chunk for hologram positioning
-        Map<String, Double> chunkPlayerY = new HashMap<>();
+        World world = location.getWorld();
+        if (world == null) return;
         
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            Chunk playerChunk = player.getLocation().getChunk();
-            String chunkKey = getChunkKey(playerChunk);
-            
-            // Track player Y position for their chunk
-            double playerY = player.getLocation().getY();
-            chunkPlayerY.merge(chunkKey, playerY, Math::max);
-            
-            // Check if player should see holograms
-            boolean holdingWand = plugin.getWandManager().isHoldingWand(player);
-            
-            // Get chunks around player (3x3 area)
-            for (int dx = -1; dx <= 1; dx++) {
-                for (int dz = -1; dz <= 1; dz++) {
-                    Chunk chunk = player.getWorld().getChunkAt(
-                            playerChunk.getX() + dx,
-                            playerChunk.getZ() + dz
-                    );
-                    
-                    String nearbyChunkKey = getChunkKey(chunk);
-                    ChunkData chunkData = plugin.getChunkManager().getChunkAt(chunk);
-                    
-                    String hologramType = getHologramType(chunkData);
-                    
-                    // Check if hologram should be shown
-                    if (!plugin.getConfigManager().isHologramEnabled(hologramType)) {
-                        continue;
-                    }
-                    
-                    boolean requiresWand = plugin.getConfigManager().isHologramRegionEditorOnly(hologramType);
-                    if (requiresWand && !holdingWand) {
-                        hideHologramFromPlayer(player, nearbyChunkKey);
-                        continue;
-                    }
-                    
-                    activeChunks.add(nearbyChunkKey);
-                    
-                    // Create or get hologram
-                    TextDisplay hologram = chunkHolograms.get(nearbyChunkKey);
-                    if (hologram == null || !hologram.isValid()) {
-                        hologram = createHologram(chunk, chunkData, player);
-                        if (hologram != null) {
-                            chunkHolograms.put(nearbyChunkKey, hologram);
-                        }
-                    }
-                    
-                    // Show to player
-                    if (hologram != null && hologram.isValid()) {
-                        showHologramToPlayer(player, nearbyChunkKey, hologram);
-                    }
+        String worldName = world.getName();
+        int centerX = location.getBlockX() >> 4;
+        int centerZ = location.getBlockZ() >> 4;
+        
+        updateViewerState(player, worldName, centerX, centerZ, location.getY());
+        
+        // Check if player should see holograms
+        boolean holdingWand = plugin.getWandManager().isPlayerHoldingWand(player.getUniqueId());
+        
+        Set<String> visible = visibleScratch;
+        visible.clear();
+        
+        // Get chunks around player (3x3 area)
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                int chunkX = centerX + dx;
+                int chunkZ = centerZ + dz;
+                
+                // Never load chunks just to show a hologram
+                if (!world.isChunkLoaded(chunkX, chunkZ)) {
+                    continue;
+                }
+                
+                ChunkData chunkData = plugin.getChunkManager().getChunkAt(worldName, chunkX, chunkZ);
+                String hologramType = getHologramType(chunkData);
+                
+                // Check if hologram should be shown
+                if (!plugin.getConfigManager().isHologramEnabled(hologramType)) {
+                    continue;
+                }
+                
+                boolean requiresWand = plugin.getConfigManager().isHologramRegionEditorOnly(hologramType);
+                if (requiresWand && !holdingWand) {
+                    continue;
+                }
+                
+                String chunkKey = LocationUtils.getChunkKey(worldName, chunkX, chunkZ);
+                
+                if (showHologramToPlayer(player, chunkKey, world, chunkX, chunkZ, chunkData)) {
+                    visible.add(chunkKey);
                 }
             }
         }
         
-        // Update hologram positions based on player Y in each chunk
+        // Hide holograms that left the player's view
+        Set<String> viewing = playerViewingChunks.get(player.getUniqueId());
+        if (viewing != null) {
+            hideScratch.clear();
+            for (String chunkKey : viewing) {
+                if (!visible.contains(chunkKey)) {
+                    hideScratch.add(chunkKey);
+                }
+            }
+            for (String chunkKey : hideScratch) {
+                hideHologramFromPlayer(player, chunkKey);
+            }
+            hideScratch.clear();
+        }
+        visible.clear();
+    }
+    
+    /**
+     * Called when a claim changes state (claimed, unclaimed, renamed, for sale, etc.)
+     * Re-renders the hologram of that chunk for players who can see it
+     */
+    public void onClaimChanged(String worldName, int chunkX, int chunkZ) {
+        if (updateTask == null) return;
+        
+        // Drop the outdated hologram, it is recreated with new text on refresh
+        String chunkKey = LocationUtils.getChunkKey(worldName, chunkX, chunkZ);
+        for (Set<String> viewing : playerViewingChunks.values()) {
+            viewing.remove(chunkKey);
+        }
+        renderer.remove(chunkKey);
+        claimTexts.remove(chunkKey);
+        
+        // Refresh players whose 3x3 area includes the chunk
+        for (ViewerState state : new ArrayList<>(viewerStates.values())) {
+            if (state.world.equals(worldName)
+                    && Math.abs(state.chunkX - chunkX) <= 1
+                    && Math.abs(state.chunkZ - chunkZ) <= 1) {
+                refreshPlayer(state.player);
+            }
+        }
+    }
+    
+    /**
+     * Move holograms to follow a player who moved vertically
+     */
+    private void followPlayerY(Player player) {
+        ViewerState state = viewerStates.get(player.getUniqueId());
+        if (state == null) return;
+        
+        double playerY = player.getLocation().getY();
+        if (Math.abs(playerY - state.lastY) <= 0.1) {
+            return;
+        }
+        state.lastY = playerY;
+        
         double hologramHeight = plugin.getConfigManager().getHologramHeight();
         
-        for (Map.Entry<String, TextDisplay> entry : chunkHolograms.entrySet()) {
-            String chunkKey = entry.getKey();
-            TextDisplay hologram = entry.getValue();
-            
-            if (hologram == null || !hologram.isValid()) continue;
-            
-            // Get the highest player Y in this chunk, or use current hologram Y
-            Double playerY = chunkPlayerY.get(chunkKey);
-            
-            if (playerY != null) {
-                // Player is in this chunk - position hologram above their head
-                Location currentLoc = hologram.getLocation();
-                double newY = playerY + hologramHeight;
-                
-                // Only teleport if Y changed significantly
-                if (Math.abs(currentLoc.getY() - newY) > 0.1) {
-                    hologram.teleport(new Location(
-                            currentLoc.getWorld(),
-                            currentLoc.getX(),
-                            newY,
-                            currentLoc.getZ()
-                    ));
+        // Every viewer has own copies, move all of them to the viewer's height
+        if (renderer.isPerViewer()) {
+            Set<String> viewing = playerViewingChunks.get(player.getUniqueId());
+            if (viewing != null) {
+                for (String chunkKey : viewing) {
+                    renderer.move(player, chunkKey, playerY + hologramHeight);
                 }
             }
+            return;
         }
         
-        // Remove holograms that are no longer needed
-        Iterator<Map.Entry<String, TextDisplay>> iterator = chunkHolograms.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<String, TextDisplay> entry = iterator.next();
-            if (!activeChunks.contains(entry.getKey())) {
-                if (entry.getValue().isValid()) {
-                    entry.getValue().remove();
+        String chunkKey = LocationUtils.getChunkKey(state.world, state.chunkX, state.chunkZ);
+        
+        // Position hologram above the highest player in this chunk
+        double highestY = playerY;
+        Set<UUID> occupants = chunkOccupants.get(chunkKey);
+        if (occupants != null) {
+            for (UUID occupant : occupants) {
+                ViewerState other = viewerStates.get(occupant);
+                if (other != null) {
+                    highestY = Math.max(highestY, other.lastY);
                 }
-                iterator.remove();
+            }
+        }
+        
+        renderer.move(player, chunkKey, highestY + hologramHeight);
+    }
+    
+    private void updateViewerState(Player player, String worldName, int chunkX, int chunkZ, double y) {
+        ViewerState state = viewerStates.get(player.getUniqueId());
+        if (state == null) {
+            state = new ViewerState(player);
+            viewerStates.put(player.getUniqueId(), state);
+        } else if (state.world.equals(worldName) && state.chunkX == chunkX && state.chunkZ == chunkZ) {
+            return;
+        } else {
+            removeOccupant(player.getUniqueId(), state);
+        }
+        
+        state.world = worldName;
+        state.chunkX = chunkX;
+        state.chunkZ = chunkZ;
+        state.lastY = y;
+        chunkOccupants.computeIfAbsent(LocationUtils.getChunkKey(worldName, chunkX, chunkZ), k -> new HashSet<>())
+                .add(player.getUniqueId());
+    }
+    
+    private void removeOccupant(UUID playerUUID, ViewerState state) {
+        String chunkKey = LocationUtils.getChunkKey(state.world, state.chunkX, state.chunkZ);
+        Set<UUID> occupants = chunkOccupants.get(chunkKey);
+        if (occupants != null) {
+            occupants.remove(playerUUID);
+            if (occupants.isEmpty()) {
+                chunkOccupants.remove(chunkKey);
             }
         }
     }
@@ -188,32 +294,70 @@ public class HologramManager {
         }
     }
     
-    private String getChunkKey(Chunk chunk) {
-        return chunk.getWorld().getName() + ":" + chunk.getX() + ":" + chunk.getZ();
-    }
-    
     /**
-     * Create hologram at chunk center
+     * Show the hologram of a chunk to a player
      * Y position based on viewer's position + hologram-height
      */
-    private TextDisplay createHologram(Chunk chunk, ChunkData chunkData, Player viewer) {
-        String hologramType = getHologramType(chunkData);
+    private boolean showHologramToPlayer(Player player, String chunkKey, World world,
+                                         int chunkX, int chunkZ, ChunkData chunkData) {
+        Set<String> viewing = playerViewingChunks.computeIfAbsent(player.getUniqueId(), k -> new HashSet<>());
+        if (viewing.contains(chunkKey)) {
+            return true;
+        }
         
-        List<String> lines = plugin.getConfigManager().getHologramLines(hologramType);
-        if (lines.isEmpty()) return null;
+        Component text = getHologramText(player, chunkKey, chunkData);
+        if (text == null) return false;
         
         // Calculate chunk center X and Z
-        int centerX = (chunk.getX() << 4) + 8;
-        int centerZ = (chunk.getZ() << 4) + 8;
+        int centerX = (chunkX << 4) + 8;
+        int centerZ = (chunkZ << 4) + 8;
         
         // Y position = player Y + hologram-height
         double hologramHeight = plugin.getConfigManager().getHologramHeight();
-        double y = viewer.getLocation().getY() + hologramHeight;
+        double y = player.getLocation().getY() + hologramHeight;
+        
+        Location hologramLoc = new Location(world, centerX + 0.5, y, centerZ + 0.5);
         
-        Location hologramLoc = new Location(chunk.getWorld(), centerX + 0.5, y, centerZ + 0.5);
+        renderer.show(player, chunkKey, hologramLoc, text);
+        viewing.add(chunkKey);
+        return true;
+    }
+    
+    /**
+     * Get hologram text of a chunk, rendered once per claim state version
+     * Returns null if the hologram has no lines
+     */
+    private Component getHologramText(Player player, String chunkKey, ChunkData chunkData) {
+        String hologramType = getHologramType(chunkData);
+        
+        if (personalTypes.contains(hologramType)) {
+            return renderText(player, hologramType, chunkData);
+        }
+        
+        if (chunkData == null) {
+            if (freeChunkText == null) {
+                freeChunkText = renderText(player, hologramType, null);
+            }
+            return freeChunkText;
+        }
+        
+        RenderedText cached = claimTexts.get(chunkKey);
+        if (cached != null && cached.chunk == chunkData && cached.version == chunkData.getStateVersion()
+                && cached.type.equals(hologramType)) {
+            return cached.text;
+        }
+        
+        Component text = renderText(player, hologramType, chunkData);
+        claimTexts.put(chunkKey, new RenderedText(chunkData, chunkData.getStateVersion(), hologramType, text));
+        return text;
+    }
+    
+    private Component renderText(Player player, String hologramType, ChunkData chunkData) {
+        List<String> lines = plugin.getConfigManager().getHologramLines(hologramType);
+        if (lines.isEmpty()) return null;
         
         // Create placeholders
-        Map<String, String> placeholders = createPlaceholders(viewer, chunkData);
+        Map<String, String> placeholders = createPlaceholders(player, chunkData);
         
         // Combine all lines
         StringBuilder combined = new StringBuilder();
@@ -225,72 +369,54 @@ public class HologramManager {
             }
         }
         
-        TextDisplay display = (TextDisplay) hologramLoc.getWorld().spawnEntity(hologramLoc, EntityType.TEXT_DISPLAY);
-        
-        // Set text
-        display.text(ColorUtils.colorize(combined.toString()));
-        
-        // Set billboard
-        String billboardStr = plugin.getConfigManager().getTextEntityBillboard();
-        Display.Billboard billboard = switch (billboardStr.toLowerCase()) {
-            case "fixed" -> Display.Billboard.FIXED;
-            case "vertical" -> Display.Billboard.VERTICAL;
-            case "horizontal" -> Display.Billboard.HORIZONTAL;
-            default -> Display.Billboard.CENTER;
-        };
-        display.setBillboard(billboard);
-        
-        // Set background color
-        String bgColor = plugin.getConfigManager().getTextEntityBackgroundColor();
-        int argb = ColorUtils.parseARGB(bgColor);
-        display.setBackgroundColor(org.bukkit.Color.fromARGB(argb));
-        
-        // Set scale
-        float scale = (float) plugin.getConfigManager().getTextEntityScale();
-        display.setTransformation(new org.bukkit.util.Transformation(
-                new org.joml.Vector3f(0, 0, 0),
-                new org.joml.AxisAngle4f(0, 0, 0, 1),
-                new org.joml.Vector3f(scale, scale, scale),
-                new org.joml.AxisAngle4f(0, 0, 0, 1)
-        ));
-        
-        // Make it invisible by default
-        display.setVisibleByDefault(false);
-        
-        // Set view range
-        display.setViewRange(0.5f);
-        
-        // Prevent despawning
-        display.setPersistent(false);
-        
-        return display;
-    }
-    
-    private void showHologramToPlayer(Player player, String chunkKey, TextDisplay hologram) {
-        Set<String> viewing = playerViewingChunks.computeIfAbsent(player.getUniqueId(), k -> new HashSet<>());
-        
-        if (!viewing.contains(chunkKey)) {
-            player.showEntity(plugin, hologram);
-            viewing.add(chunkKey);
-        }
+        return ColorUtils.colorize(combined.toString());
     }
     
     private void hideHologramFromPlayer(Player player, String chunkKey) {
         Set<String> viewing = playerViewingChunks.get(player.getUniqueId());
-        if (viewing != null && viewing.contains(chunkKey)) {
-            TextDisplay hologram = chunkHolograms.get(chunkKey);
-            if (hologram != null && hologram.isValid()) {
-                player.hideEntity(plugin, hologram);
-            }
-            viewing.remove(chunkKey);
+        if (viewing != null && viewing.remove(chunkKey)) {
+            renderer.hide(player, chunkKey);
         }
     }
     
+    /**
+     * Show holograms again after the client dropped all entities on respawn or world change
+     * Per-viewer entities are gone on the client while still listed as shown here.
+     */
+    public void resetPlayer(Player player) {
+        if (updateTask == null) return;
+        
+        playerViewingChunks.remove(player.getUniqueId());
+        renderer.removeViewer(player.getUniqueId());
+        plugin.getServer().getScheduler().runTask(plugin, () -> refreshPlayer(player));
+    }
+    
     /**
      * Remove player's viewing data when they leave
      */
     public void removePlayer(UUID playerUUID) {
         playerViewingChunks.remove(playerUUID);
+        if (renderer != null) {
+            renderer.removeViewer(playerUUID);
+        }
+        
+        ViewerState state = viewerStates.remove(playerUUID);
+        if (state != null) {
+            removeOccupant(playerUUID, state);
+        }
+    }
+    
+    /**
+     * Pick the renderer configured in holograms.yml
+     */
+    private HologramRenderer createRenderer() {
+        if (plugin.getConfigManager().getHologramRenderer().equalsIgnoreCase("packet")) {
+            if (PacketHologramRenderer.isAvailable()) {
+                return new PacketHologramRenderer(plugin);
+            }
+            plugin.getLogger().warning("PacketEvents not found, falling back to entity holograms");
+        }
+        return new EntityHologramRenderer(plugin);
     }
     
     /**
@@ -307,7 +433,7 @@ public class HologramManager {
             placeholders.put("%chunk%", chunk.getName());
             
             boolean pvp = chunk.getSettings().isPvpAllowed();
-            placeholders.put("%pvp%", pvp ? plugin.getConfigManager().getPvPFormatTrue() : 
+            placeholders.put("%pvp%", pvp ? plugin.getConfigManager().getPvPFormatTrue() :
                     plugin.getConfigManager().getPvPFormatFalse());
             
             if (chunk.isForSale()) {
@@ -321,4 +447,36 @@ public class HologramManager {
         
         return placeholders;
     }
+    
+    /**
+     * Hologram text rendered for a claim at a given state version
+     */
+    private static final class RenderedText {
+        private final ChunkData chunk;
+        private final int version;
+        private final String type;
+        private final Component text;
+        
+        private RenderedText(ChunkData chunk, int version, String type, Component text) {
+            this.chunk = chunk;
+            this.version = version;
+            this.type = type;
+            this.text = text;
+        }
+    }
+    
+    /**
+     * Last known chunk and height of a tracked player
+     */
+    private static final class ViewerState {
+        private final Player player;
+        private String world;
+        private int chunkX;
+        private int chunkZ;
+        private double lastY;
+        
+        private ViewerState(Player player) {
+            this.player = player;
+        }
+    }
 }
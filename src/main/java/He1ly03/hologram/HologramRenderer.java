@@ -0,0 +1,49 @@
+package He1ly03.hologram;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.UUID;
+
+/**
+ * Backend that puts chunk holograms in front of players
+ * HologramManager decides what each player sees, the renderer decides how
+ */
+public interface HologramRenderer {
+    
+    /**
+     * Show a hologram to a viewer, creating it if needed
+     */
+    void show(Player viewer, String key, Location location, Component text);
+    
+    /**
+     * Move the hologram seen by a viewer to a new height
+     */
+    void move(Player viewer, String key, double y);
+    
+    /**
+     * Hide a hologram from a viewer
+     */
+    void hide(Player viewer, String key);
+    
+    /**
+     * Remove a hologram for every viewer
+     */
+    void remove(String key);
+    
+    /**
+     * Forget a viewer who left the server or whose client dropped all entities
+     */
+    void removeViewer(UUID viewerUUID);
+    
+    /**
+     * Remove all holograms
+     */
+    void clear();
+    
+    /**
+     * Whether every viewer gets an own copy with own position and text
+     */
+    boolean isPerViewer();
+}
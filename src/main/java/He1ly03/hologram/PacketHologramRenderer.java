@@ -0,0 +1,180 @@
+package He1ly03.hologram;
+
+import He1ly03.LiseryPrivate;
+import He1ly03.utils.ColorUtils;
+import com.github.retrooper.packetevents.PacketEvents;
+import com.github.retrooper.packetevents.protocol.entity.data.EntityData;
+import com.github.retrooper.packetevents.protocol.entity.data.EntityDataTypes;
+import com.github.retrooper.packetevents.protocol.entity.type.EntityTypes;
+import com.github.retrooper.packetevents.util.Vector3d;
+import com.github.retrooper.packetevents.util.Vector3f;
+import com.github.retrooper.packetevents.wrapper.PacketWrapper;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerDestroyEntities;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerEntityMetadata;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerEntityTeleport;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerSpawnEntity;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+
+/**
+ * Renders holograms as client-side TextDisplay entities sent through PacketEvents
+ * Nothing exists on the server: no ticking, no entity tracking and nothing left
+ * behind after a crash. Every viewer gets an own copy with own position and text.
+ */
+public class PacketHologramRenderer implements HologramRenderer {
+    
+    // TextDisplay metadata indices (1.20.2+)
+    private static final int INDEX_SCALE = 12;
+    private static final int INDEX_BILLBOARD = 15;
+    private static final int INDEX_VIEW_RANGE = 17;
+    private static final int INDEX_TEXT = 23;
+    private static final int INDEX_BACKGROUND = 25;
+    
+    // Display properties, read from config once per renderer
+    private final Vector3f scale;
+    private final byte billboard;
+    private final int backgroundColor;
+    
+    // Spawned fake entities: viewer UUID -> chunk key -> hologram
+    private final Map<UUID, Map<String, FakeHologram>> viewerHolograms = new HashMap<>();
+    
+    public PacketHologramRenderer(LiseryPrivate plugin) {
+        float scale = (float) plugin.getConfigManager().getTextEntityScale();
+        this.scale = new Vector3f(scale, scale, scale);
+        
+        this.billboard = switch (plugin.getConfigManager().getTextEntityBillboard().toLowerCase()) {
+            case "fixed" -> 0;
+            case "vertical" -> 1;
+            case "horizontal" -> 2;
+            default -> 3;
+        };
+        
+        this.backgroundColor = ColorUtils.parseARGB(plugin.getConfigManager().getTextEntityBackgroundColor());
+    }
+    
+    /**
+     * Check if PacketEvents is available on the server
+     */
+    public static boolean isAvailable() {
+        return Bukkit.getPluginManager().isPluginEnabled("packetevents");
+    }
+    
+    @Override
+    public void show(Player viewer, String key, Location location, Component text) {
+        Map<String, FakeHologram> holograms = viewerHolograms.computeIfAbsent(viewer.getUniqueId(), k -> new HashMap<>());
+        
+        FakeHologram hologram = holograms.get(key);
+        if (hologram != null) {
+            if (!hologram.text.equals(text)) {
+                hologram.text = text;
+                send(viewer, new WrapperPlayServerEntityMetadata(hologram.entityId,
+                        List.of(new EntityData(INDEX_TEXT, EntityDataTypes.ADV_COMPONENT, text))));
+            }
+            return;
+        }
+        
+        hologram = new FakeHologram(Bukkit.getUnsafe().nextEntityId(), location.getX(), location.getY(),
+                location.getZ(), text);
+        holograms.put(key, hologram);
+        
+        send(viewer, new WrapperPlayServerSpawnEntity(hologram.entityId, Optional.of(UUID.randomUUID()),
+                EntityTypes.TEXT_DISPLAY, new Vector3d(hologram.x, hologram.y, hologram.z),
+                0f, 0f, 0f, 0, Optional.empty()));
+        send(viewer, new WrapperPlayServerEntityMetadata(hologram.entityId, createMetadata(text)));
+    }
+    
+    @Override
+    public void move(Player viewer, String key, double y) {
+        Map<String, FakeHologram> holograms = viewerHolograms.get(viewer.getUniqueId());
+        if (holograms == null) return;
+        
+        FakeHologram hologram = holograms.get(key);
+        if (hologram == null || Math.abs(hologram.y - y) <= 0.1) return;
+        
+        hologram.y = y;
+        send(viewer, new WrapperPlayServerEntityTeleport(hologram.entityId,
+                new Vector3d(hologram.x, hologram.y, hologram.z), 0f, 0f, false));
+    }
+    
+    @Override
+    public void hide(Player viewer, String key) {
+        Map<String, FakeHologram> holograms = viewerHolograms.get(viewer.getUniqueId());
+        if (holograms == null) return;
+        
+        FakeHologram hologram = holograms.remove(key);
+        if (hologram != null) {
+            send(viewer, new WrapperPlayServerDestroyEntities(hologram.entityId));
+        }
+    }
+    
+    @Override
+    public void remove(String key) {
+        for (Map.Entry<UUID, Map<String, FakeHologram>> entry : viewerHolograms.entrySet()) {
+            FakeHologram hologram = entry.getValue().remove(key);
+            Player viewer = Bukkit.getPlayer(entry.getKey());
+            if (hologram != null && viewer != null) {
+                send(viewer, new WrapperPlayServerDestroyEntities(hologram.entityId));
+            }
+        }
+    }
+    
+    @Override
+    public void removeViewer(UUID viewerUUID) {
+        // The client drops its fake entities on disconnect, respawn and world change
+        viewerHolograms.remove(viewerUUID);
+    }
+    
+    @Override
+    public void clear() {
+        for (Map.Entry<UUID, Map<String, FakeHologram>> entry : viewerHolograms.entrySet()) {
+            Player viewer = Bukkit.getPlayer(entry.getKey());
+            if (viewer == null || entry.getValue().isEmpty()) continue;
+            
+            int[] entityIds = entry.getValue().values().stream().mapToInt(h -> h.entityId).toArray();
+            send(viewer, new WrapperPlayServerDestroyEntities(entityIds));
+        }
+        viewerHolograms.clear();
+    }
+    
+    @Override
+    public boolean isPerViewer() {
+        return true;
+    }
+    
+    private List<EntityData> createMetadata(Component text) {
+        List<EntityData> metadata = new ArrayList<>();
+        metadata.add(new EntityData(INDEX_SCALE, EntityDataTypes.VECTOR3F, scale));
+        metadata.add(new EntityData(INDEX_BILLBOARD, EntityDataTypes.BYTE, billboard));
+        metadata.add(new EntityData(INDEX_VIEW_RANGE, EntityDataTypes.FLOAT, 0.5f));
+        metadata.add(new EntityData(INDEX_TEXT, EntityDataTypes.ADV_COMPONENT, text));
+        metadata.add(new EntityData(INDEX_BACKGROUND, EntityDataTypes.INT, backgroundColor));
+        return metadata;
+    }
+    
+    private void send(Player viewer, PacketWrapper<?> packet) {
+        PacketEvents.getAPI().getPlayerManager().sendPacket(viewer, packet);
+    }
+    
+    /**
+     * Client-side hologram of a single viewer
+     */
+    private static final class FakeHologram {
+        private final int entityId;
+        private final double x;
+        private double y;
+        private final double z;
+        private Component text;
+        
+        private FakeHologram(int entityId, double x, double y, double z, Component text) {
+            this.entityId = entityId;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.text = text;
+        }
+    }
+}
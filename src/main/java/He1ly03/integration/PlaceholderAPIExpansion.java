@@ -157,7 +157,7 @@ public class PlaceholderAPIExpansion extends PlaceholderExpansion {
         
         List<ChunkData> playerChunks = plugin.getChunkManager().getPlayerChunks(chunk.getOwnerUUID());
         for (int i = 0; i < playerChunks.size(); i++) {
-            if (playerChunks.get(i).getId() == chunk.getId()) {
+            if (playerChunks.get(i) == chunk) {
                 return String.valueOf(i + 1); // 1-based index
             }
         }
@@ -2,12 +2,15 @@ package He1ly03.integration;
 
 import He1ly03.LiseryPrivate;
 import He1ly03.chunk.ChunkData;
+import He1ly03.chunk.ClaimCluster;
+import He1ly03.task.IoExecutor;
 import com.sk89q.worldedit.bukkit.BukkitAdapter;
 import com.sk89q.worldedit.math.BlockVector3;
 import com.sk89q.worldguard.WorldGuard;
 import com.sk89q.worldguard.bukkit.WorldGuardPlugin;
 import com.sk89q.worldguard.domains.DefaultDomain;
 import com.sk89q.worldguard.protection.managers.RegionManager;
+import com.sk89q.worldguard.protection.managers.RemovalStrategy;
 import com.sk89q.worldguard.protection.managers.storage.StorageException;
 import com.sk89q.worldguard.protection.regions.ProtectedCuboidRegion;
 import com.sk89q.worldguard.protection.regions.ProtectedRegion;
@@ -15,20 +18,42 @@ import com.sk89q.worldguard.protection.regions.RegionContainer;
 import org.bukkit.Bukkit;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 
 /**
  * Integration with WorldGuard for region protection
+ * Region changes only mark their world dirty. Dirty worlds are saved with
+ * saveChanges once no change came in for the save delay, so a burst of
+ * changes costs one write of the region file per world.
  */
 public class WorldGuardIntegration {
     
+    private static final long SAVE_CHECK_TICKS = 10L;
+    
     private final LiseryPrivate plugin;
     private WorldGuard worldGuard;
     private RegionContainer regionContainer;
     private boolean enabled = false;
     
+    // Next region number per world and name prefix, seeded from the world's regions on first use
+    private final Map<String, Map<String, Integer>> nextRegionNumbers = new HashMap<>();
+    
+    // Deferred saves
+    private final Set<String> dirtyWorlds = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean saving = new AtomicBoolean();
+    private BukkitTask saveTask;
+    private volatile long lastChange;
+    private volatile long firstChange;
+    
+    // Metrics
+    private volatile long changes;
+    private volatile long saves;
+    
     public WorldGuardIntegration(LiseryPrivate plugin) {
         this.plugin = plugin;
     }
@@ -46,6 +71,7 @@ public class WorldGuardIntegration {
             this.worldGuard = WorldGuard.getInstance();
             this.regionContainer = worldGuard.getPlatform().getRegionContainer();
             this.enabled = true;
+            saveTask = Bukkit.getScheduler().runTaskTimer(plugin, this::checkDirty, SAVE_CHECK_TICKS, SAVE_CHECK_TICKS);
             plugin.getLogger().info("WorldGuard integration enabled!");
             return true;
         } catch (Exception e) {
@@ -73,7 +99,7 @@ public class WorldGuardIntegration {
         if (regionManager == null) return null;
         
         // Generate unique region name
-        String regionName = generateRegionName(owner.getName(), regionManager);
+        String regionName = generateRegionName(chunkData.getWorld(), owner.getName(), regionManager);
         
         // Calculate region bounds (full chunk from bedrock to sky)
         int minX = chunkData.getChunkX() << 4;
@@ -98,32 +124,54 @@ public class WorldGuardIntegration {
         // Set priority
         region.setPriority(10);
         
-        try {
-            regionManager.addRegion(region);
-            regionManager.save();
-            return regionName;
-        } catch (StorageException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to save WorldGuard region!", e);
-            return null;
-        }
+        regionManager.addRegion(region);
+        markDirty(chunkData.getWorld());
+        return regionName;
     }
     
     /**
      * Generate a unique region name
+     * Numbers per name only grow, a number freed by a deleted region is not
+     * handed out again. The hasRegion check only loops if another plugin or
+     * an admin took the name since the world was seeded.
      */
-    private String generateRegionName(String playerName, RegionManager regionManager) {
-        String baseName = playerName.toLowerCase();
-        int counter = 1;
+    private String generateRegionName(String worldName, String playerName, RegionManager regionManager) {
+        String baseName = playerName.toLowerCase(Locale.ROOT);
+        Map<String, Integer> numbers = nextRegionNumbers.computeIfAbsent(worldName,
+                k -> seedRegionNumbers(regionManager));
         
+        int counter = numbers.getOrDefault(baseName, 1);
         while (regionManager.hasRegion(baseName + "_" + counter)) {
             counter++;
         }
         
+        numbers.put(baseName, counter + 1);
         return baseName + "_" + counter;
     }
     
     /**
-     * Delete a region
+     * Next free number per name prefix over the existing regions of a world, one pass
+     */
+    private Map<String, Integer> seedRegionNumbers(RegionManager regionManager) {
+        Map<String, Integer> numbers = new HashMap<>();
+        for (String id : regionManager.getRegions().keySet()) {
+            int separator = id.lastIndexOf('_');
+            int digits = id.length() - separator - 1;
+            if (separator <= 0 || digits == 0 || digits > 9) continue;
+            
+            boolean numeric = true;
+            for (int i = separator + 1; i < id.length() && numeric; i++) {
+                numeric = Character.isDigit(id.charAt(i));
+            }
+            if (numeric) {
+                numbers.merge(id.substring(0, separator), Integer.parseInt(id.substring(separator + 1)) + 1, Math::max);
+            }
+        }
+        return numbers;
+    }
+    
+    /**
+     * Delete a region and its child regions
      */
     public void deleteRegion(String worldName, String regionName) {
         if (!enabled || regionName == null) return;
@@ -131,13 +179,8 @@ public class WorldGuardIntegration {
         RegionManager regionManager = getRegionManager(worldName);
         if (regionManager == null) return;
         
-        regionManager.removeRegion(regionName);
-        
-        try {
-            regionManager.save();
-        } catch (StorageException e) {
-            plugin.getLogger().log(Level.WARNING, "Failed to save WorldGuard after region deletion", e);
-        }
+        regionManager.removeRegion(regionName, RemovalStrategy.REMOVE_CHILDREN);
+        markDirty(worldName);
     }
     
     /**
@@ -156,7 +199,7 @@ public class WorldGuardIntegration {
         members.addPlayer(playerUUID);
         region.setMembers(members);
         
-        saveRegionManager(regionManager);
+        markDirty(worldName);
     }
     
     /**
@@ -175,151 +218,105 @@ public class WorldGuardIntegration {
         members.removePlayer(playerUUID);
         region.setMembers(members);
         
-        saveRegionManager(regionManager);
-    }
-    
-    /**
-     * Transfer region ownership
-     */
-    public void transferOwnership(String worldName, String regionName, UUID newOwnerUUID) {
-        if (!enabled || regionName == null) return;
-        
-        RegionManager regionManager = getRegionManager(worldName);
-        if (regionManager == null) return;
-        
-        ProtectedRegion region = regionManager.getRegion(regionName);
-        if (region == null) return;
-        
-        DefaultDomain owners = new DefaultDomain();
-        owners.addPlayer(newOwnerUUID);
-        region.setOwners(owners);
-        region.setMembers(new DefaultDomain()); // Clear members
-        
-        saveRegionManager(regionManager);
+        markDirty(worldName);
     }
     
     /**
-     * Merge adjacent regions when chunks are connected
+     * Replace the regions of a group of connected claims with cuboids covering exactly its chunks
+     * The first cuboid is the group's region, the others are its children
+     * (name-2, name-3, ...) and take owners, members and flags from it. The
+     * group keeps the region name most of its chunks use, unless another
+     * group rebuilt in the same change took it. Members and flags are kept
+     * from an old region of the same owner. Returns the region name of the
+     * group, or null if there is no region manager.
      */
-    public void mergeRegions(ChunkData newChunk, List<ChunkData> adjacentChunks) {
-        if (!enabled || adjacentChunks.isEmpty()) return;
+    public String rebuildRegions(ClaimCluster group, List<ChunkData> chunks, Set<String> taken) {
+        if (!enabled || chunks.isEmpty()) return null;
         
-        RegionManager regionManager = getRegionManager(newChunk.getWorld());
-        if (regionManager == null) return;
+        RegionManager regionManager = getRegionManager(group.getWorld());
+        if (regionManager == null) return null;
         
-        // Get the new region
-        ProtectedRegion newRegion = regionManager.getRegion(newChunk.getWorldGuardRegion());
-        if (newRegion == null) return;
-        
-        // Find the main region to expand (use the first adjacent region as base)
-        ChunkData mainChunk = adjacentChunks.get(0);
-        ProtectedRegion mainRegion = regionManager.getRegion(mainChunk.getWorldGuardRegion());
-        if (mainRegion == null) return;
-        
-        // Calculate merged bounds
-        int minX = Math.min(mainRegion.getMinimumPoint().x(), newRegion.getMinimumPoint().x());
-        int minY = Math.min(mainRegion.getMinimumPoint().y(), newRegion.getMinimumPoint().y());
-        int minZ = Math.min(mainRegion.getMinimumPoint().z(), newRegion.getMinimumPoint().z());
-        int maxX = Math.max(mainRegion.getMaximumPoint().x(), newRegion.getMaximumPoint().x());
-        int maxY = Math.max(mainRegion.getMaximumPoint().y(), newRegion.getMaximumPoint().y());
-        int maxZ = Math.max(mainRegion.getMaximumPoint().z(), newRegion.getMaximumPoint().z());
-        
-        // Include all adjacent chunks
-        for (ChunkData adj : adjacentChunks) {
-            ProtectedRegion adjRegion = regionManager.getRegion(adj.getWorldGuardRegion());
-            if (adjRegion != null) {
-                minX = Math.min(minX, adjRegion.getMinimumPoint().x());
-                minY = Math.min(minY, adjRegion.getMinimumPoint().y());
-                minZ = Math.min(minZ, adjRegion.getMinimumPoint().z());
-                maxX = Math.max(maxX, adjRegion.getMaximumPoint().x());
-                maxY = Math.max(maxY, adjRegion.getMaximumPoint().y());
-                maxZ = Math.max(maxZ, adjRegion.getMaximumPoint().z());
+        UUID owner = group.getOwnerUUID();
+        Map<String, Integer> oldNames = new LinkedHashMap<>();
+        for (ChunkData chunk : chunks) {
+            if (chunk.getWorldGuardRegion() != null) {
+                oldNames.merge(chunk.getWorldGuardRegion(), 1, Integer::sum);
             }
         }
         
-        // Create merged region with new bounds
-        String mergedName = newChunk.getWorldGuardRegion();
-        ProtectedCuboidRegion mergedRegion = new ProtectedCuboidRegion(
-                mergedName,
-                BlockVector3.at(minX, minY, minZ),
-                BlockVector3.at(maxX, maxY, maxZ)
-        );
-        
-        // Copy owners and members from main region
-        mergedRegion.setOwners(mainRegion.getOwners());
-        mergedRegion.setMembers(mainRegion.getMembers());
-        mergedRegion.setPriority(mainRegion.getPriority());
-        
-        // Remove old regions and add merged
-        regionManager.removeRegion(newChunk.getWorldGuardRegion());
-        for (ChunkData adj : adjacentChunks) {
-            if (adj.getWorldGuardRegion() != null) {
-                regionManager.removeRegion(adj.getWorldGuardRegion());
-                // Update the chunk to use the merged region name
-                adj.setWorldGuardRegion(mergedName);
-                plugin.getDatabaseManager().updateChunk(adj);
+        // Old region of the owner used by most chunks, any old region of the owner as template
+        String regionName = null;
+        int uses = 0;
+        ProtectedRegion template = null;
+        for (Map.Entry<String, Integer> entry : oldNames.entrySet()) {
+            ProtectedRegion region = regionManager.getRegion(entry.getKey());
+            if (region == null || !region.getOwners().contains(owner)) continue;
+            
+            if (template == null) {
+                template = region;
+            }
+            if (!taken.contains(entry.getKey()) && entry.getValue() > uses) {
+                regionName = entry.getKey();
+                uses = entry.getValue();
+                template = region;
             }
         }
+        if (regionName == null) {
+            // Imported claims may come without an owner name
+            String ownerName = chunks.get(0).getOwnerName();
+            regionName = generateRegionName(group.getWorld(), ownerName != null ? ownerName : owner.toString(),
+                    regionManager);
+        }
         
-        regionManager.addRegion(mergedRegion);
-        saveRegionManager(regionManager);
-    }
-    
-    /**
-     * Unmerge regions when a chunk is removed
-     */
-    public void unmergeRegions(ChunkData removedChunk, List<ChunkData> remainingChunks) {
-        if (!enabled || remainingChunks.isEmpty()) return;
-        
-        RegionManager regionManager = getRegionManager(removedChunk.getWorld());
-        if (regionManager == null) return;
+        for (String oldName : oldNames.keySet()) {
+            if (!taken.contains(oldName)) {
+                regionManager.removeRegion(oldName, RemovalStrategy.REMOVE_CHILDREN);
+            }
+        }
         
-        World world = Bukkit.getWorld(removedChunk.getWorld());
+        World world = Bukkit.getWorld(group.getWorld());
         int minY = world != null ? world.getMinHeight() : -64;
         int maxY = world != null ? world.getMaxHeight() : 320;
         
-        // Recreate individual regions for remaining chunks
-        for (ChunkData chunk : remainingChunks) {
-            // Calculate individual chunk bounds
-            int chunkMinX = chunk.getChunkX() << 4;
-            int chunkMinZ = chunk.getChunkZ() << 4;
-            int chunkMaxX = chunkMinX + 15;
-            int chunkMaxZ = chunkMinZ + 15;
-            
-            // Generate new region name
-            String newRegionName = generateRegionName(chunk.getOwnerName(), regionManager);
+        int[] rectangles = group.getRectangles();
+        ProtectedRegion parent = null;
+        for (int i = 0; i < rectangles.length; i += 4) {
+            String id = i == 0 ? regionName : regionName + "-" + (i / 4 + 1);
+            ProtectedCuboidRegion region = new ProtectedCuboidRegion(id,
+                    BlockVector3.at(rectangles[i] << 4, minY, rectangles[i + 1] << 4),
+                    BlockVector3.at((rectangles[i + 2] << 4) + 15, maxY, (rectangles[i + 3] << 4) + 15));
+            region.setPriority(template != null ? template.getPriority() : 10);
             
-            ProtectedCuboidRegion newRegion = new ProtectedCuboidRegion(
-                    newRegionName,
-                    BlockVector3.at(chunkMinX, minY, chunkMinZ),
-                    BlockVector3.at(chunkMaxX, maxY, chunkMaxZ)
-            );
-            
-            // Set owner
-            DefaultDomain owners = new DefaultDomain();
-            owners.addPlayer(chunk.getOwnerUUID());
-            newRegion.setOwners(owners);
-            
-            // Add trusted players as members
-            for (UUID trusted : chunk.getTrustedPlayers().keySet()) {
-                newRegion.getMembers().addPlayer(trusted);
+            if (parent == null) {
+                DefaultDomain owners = new DefaultDomain();
+                owners.addPlayer(owner);
+                region.setOwners(owners);
+                
+                if (template != null) {
+                    region.setMembers(new DefaultDomain(template.getMembers()));
+                    region.setFlags(new HashMap<>(template.getFlags()));
+                } else {
+                    for (ChunkData chunk : chunks) {
+                        for (UUID trusted : chunk.getTrustedPlayers().keySet()) {
+                            region.getMembers().addPlayer(trusted);
+                        }
+                    }
+                }
+                parent = region;
+            } else {
+                try {
+                    region.setParent(parent);
+                } catch (ProtectedRegion.CircularInheritanceException e) {
+                    // A fresh region has no children, cannot happen
+                    plugin.getLogger().log(Level.WARNING, "Failed to link WorldGuard region " + id, e);
+                }
             }
-            
-            newRegion.setPriority(10);
-            
-            regionManager.addRegion(newRegion);
-            
-            // Update chunk data
-            chunk.setWorldGuardRegion(newRegionName);
-            plugin.getDatabaseManager().updateChunk(chunk);
-        }
-        
-        // Remove old merged region if it exists
-        if (removedChunk.getWorldGuardRegion() != null) {
-            regionManager.removeRegion(removedChunk.getWorldGuardRegion());
+            regionManager.addRegion(region);
         }
         
-        saveRegionManager(regionManager);
+        taken.add(regionName);
+        markDirty(group.getWorld());
+        return regionName;
     }
     
     /**
@@ -344,16 +341,93 @@ public class WorldGuardIntegration {
         return regionManager.getRegion(regionName);
     }
     
-    private void saveRegionManager(RegionManager regionManager) {
-        try {
-            regionManager.save();
-        } catch (StorageException e) {
-            plugin.getLogger().log(Level.WARNING, "Failed to save WorldGuard regions", e);
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    // ==================== Saving ====================
+    
+    private void markDirty(String worldName) {
+        long now = System.currentTimeMillis();
+        if (dirtyWorlds.add(worldName) && dirtyWorlds.size() == 1) {
+            firstChange = now;
         }
+        lastChange = now;
+        changes++;
     }
     
-    public boolean isEnabled() {
-        return enabled;
+    /**
+     * Save dirty worlds once changes settled, or once they waited for the maximum delay
+     */
+    private void checkDirty() {
+        if (dirtyWorlds.isEmpty() || saving.get()) return;
+        
+        var configManager = plugin.getConfigManager();
+        long now = System.currentTimeMillis();
+        if (now - lastChange < configManager.getWorldGuardSaveDelay()
+                && now - firstChange < configManager.getWorldGuardSaveMaxDelay()) {
+            return;
+        }
+        
+        List<RegionManager> managers = takeDirty();
+        if (managers.isEmpty()) return;
+        
+        // WorldGuard saves its own changes from a background thread too, saveChanges is safe off the main thread
+        saving.set(true);
+        plugin.getIoExecutor().run(IoExecutor.Resource.FILE, () -> {
+            try {
+                save(managers);
+            } finally {
+                saving.set(false);
+            }
+        });
+    }
+    
+    /**
+     * Save all dirty worlds now, on the calling thread
+     */
+    public void flush() {
+        save(takeDirty());
+        if (saveTask != null) {
+            saveTask.cancel();
+            saveTask = null;
+        }
+    }
+    
+    private List<RegionManager> takeDirty() {
+        List<RegionManager> managers = new ArrayList<>();
+        for (Iterator<String> it = dirtyWorlds.iterator(); it.hasNext(); ) {
+            String worldName = it.next();
+            it.remove();
+            RegionManager regionManager = getRegionManager(worldName);
+            if (regionManager != null) {
+                managers.add(regionManager);
+            }
+        }
+        return managers;
+    }
+    
+    private void save(List<RegionManager> managers) {
+        for (RegionManager regionManager : managers) {
+            try {
+                regionManager.saveChanges();
+                saves++;
+            } catch (StorageException e) {
+                plugin.getLogger().log(Level.WARNING, "Failed to save WorldGuard regions of " + regionManager.getName(), e);
+            }
+        }
+    }
+    
+    public int getDirtyWorldCount() {
+        return dirtyWorlds.size();
+    }
+    
+    public long getChanges() {
+        return changes;
+    }
+    
+    public long getSaves() {
+        return saves;
     }
 }
 
@@ -9,7 +9,9 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
 import org.bukkit.event.player.PlayerTeleportEvent;
 
 import java.util.HashMap;
@@ -34,6 +36,7 @@ public class ChunkEnterListener implements Listener {
         }
         
         handleChunkChange(event.getPlayer(), event.getFrom().getChunk(), event.getTo().getChunk());
+        plugin.getHologramManager().refreshPlayer(event.getPlayer(), event.getTo());
     }
     
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -45,6 +48,20 @@ public class ChunkEnterListener implements Listener {
         }
         
         handleChunkChange(event.getPlayer(), event.getFrom().getChunk(), event.getTo().getChunk());
+        
+        // Refresh holograms once the player has actually arrived
+        Player player = event.getPlayer();
+        plugin.getServer().getScheduler().runTask(plugin, () -> plugin.getHologramManager().refreshPlayer(player));
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        plugin.getHologramManager().resetPlayer(event.getPlayer());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        plugin.getHologramManager().resetPlayer(event.getPlayer());
     }
     
     private void handleChunkChange(Player player, Chunk fromChunk, Chunk toChunk) {
@@ -0,0 +1,40 @@
+package He1ly03.listener;
+
+import He1ly03.LiseryPrivate;
+import org.bukkit.Chunk;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+/**
+ * Loads and unloads claims with worlds and regions when lazy loading is on
+ * Claims are read in the background and show up a moment after their chunk
+ * loads, a claim check needing them earlier loads them right away.
+ */
+public class ClaimLoadListener implements Listener {
+    
+    private final LiseryPrivate plugin;
+    
+    public ClaimLoadListener(LiseryPrivate plugin) {
+        this.plugin = plugin;
+    }
+    
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onWorldLoad(WorldLoadEvent event) {
+        plugin.getChunkManager().loadWorldAsync(event.getWorld().getName());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        plugin.getChunkManager().unloadWorld(event.getWorld().getName());
+    }
+    
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        Chunk chunk = event.getChunk();
+        plugin.getChunkManager().loadRegionAsync(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
+    }
+}
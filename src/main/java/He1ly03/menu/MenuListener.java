@@ -1,6 +1,7 @@
 package He1ly03.menu;
 
 import He1ly03.LiseryPrivate;
+import He1ly03.audit.AuditAction;
 import He1ly03.chunk.ChunkData;
 import He1ly03.chunk.ChunkManager;
 import He1ly03.utils.MessageUtils;
@@ -14,6 +15,7 @@ import org.bukkit.event.inventory.InventoryCloseEvent;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Listener for menu interactions
@@ -240,6 +242,7 @@ public class MenuListener implements Listener {
                 if (chunk != null && chunk.isOwner(player.getUniqueId())) {
                     chunk.removeFromSale();
                     plugin.getChunkManager().updateChunkSettings(chunk);
+                    plugin.getAuditLog().record(AuditAction.SALE_CANCEL, player, chunk, null);
                     MessageUtils.sendMessage(player, plugin.getConfigManager().getMessage("chunk-removed-from-sale"));
                 }
             }
@@ -265,6 +268,7 @@ public class MenuListener implements Listener {
         
         chunk.getSettings().setSetting(flagName, value);
         plugin.getChunkManager().updateChunkSettings(chunk);
+        plugin.getAuditLog().record(AuditAction.SETTINGS, player, chunk, flagName + " " + (value ? "on" : "off"));
         
         // Reopen settings menu to show updated state
         player.closeInventory();
@@ -287,11 +291,15 @@ public class MenuListener implements Listener {
                 ChunkData chunk = plugin.getChunkManager().getChunkAt(player.getLocation());
                 placeholders.put("%chunk%", chunk != null ? chunk.getName() : "");
                 placeholders.put("%price%", MessageUtils.formatMoney(plugin.getConfigManager().getChunkPrivatePrice()));
+                if (chunk != null) {
+                    plugin.getAuditLog().record(AuditAction.CLAIM, player, chunk, null);
+                }
                 yield MessageUtils.replacePlaceholders(
                         plugin.getConfigManager().getMessage("private-success"), placeholders);
             }
             case ALREADY_CLAIMED -> plugin.getConfigManager().getMessage("chunk-already-private");
             case WORLD_DISABLED -> plugin.getConfigManager().getMessage("world-disabled");
+            case TRY_AGAIN -> plugin.getConfigManager().getMessage("claim-try-again");
             case LIMIT_REACHED -> {
                 Map<String, String> placeholders = new HashMap<>();
                 placeholders.put("%limit%", String.valueOf(plugin.getIntegrationManager().getPlayerChunkLimit(player)));
@@ -313,6 +321,7 @@ public class MenuListener implements Listener {
     private void handleUnclaimResult(Player player, ChunkManager.UnclaimResult result, ChunkData chunk) {
         String message = switch (result) {
             case SUCCESS -> {
+                plugin.getAuditLog().record(AuditAction.UNCLAIM, player, chunk, null);
                 Map<String, String> placeholders = new HashMap<>();
                 placeholders.put("%chunk%", chunk.getName());
                 placeholders.put("%refund%", MessageUtils.formatMoney(plugin.getConfigManager().getChunkUnprivateRefund()));
@@ -359,8 +368,11 @@ public class MenuListener implements Listener {
         }
         
         // Transfer ownership
+        UUID sellerUUID = chunk.getOwnerUUID();
+        String sellerName = chunk.getOwnerName();
         chunk.removeFromSale();
         plugin.getChunkManager().transferChunk(chunk, player);
+        plugin.getAuditLog().record(AuditAction.SALE_BUY, player, chunk, sellerUUID, sellerName, MessageUtils.formatMoney(price));
         
         Map<String, String> placeholders = new HashMap<>();
         placeholders.put("%chunk%", chunk.getName());
@@ -0,0 +1,76 @@
+package He1ly03.storage;
+
+import He1ly03.database.ChunkRow;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Binary encoding of claim rows shared by the journal and the snapshot
+ * Strings are a short length followed by UTF-8 bytes, -1 stands for null.
+ */
+final class ClaimCodec {
+    
+    private ClaimCodec() {}
+    
+    static void writeRow(DataOutputStream out, ChunkRow row) throws IOException {
+        writeString(out, row.world());
+        out.writeInt(row.chunkX());
+        out.writeInt(row.chunkZ());
+        writeString(out, row.name());
+        writeUUID(out, row.ownerUUID());
+        writeString(out, row.ownerName());
+        out.writeInt(row.flags());
+        out.writeBoolean(row.forSale());
+        out.writeDouble(row.salePrice());
+        writeString(out, row.saleLocation());
+        writeString(out, row.worldGuardRegion());
+    }
+    
+    static ChunkRow readRow(ByteBuffer in) {
+        return new ChunkRow(
+                readString(in),
+                in.getInt(),
+                in.getInt(),
+                readString(in),
+                readUUID(in),
+                readString(in),
+                in.getInt(),
+                in.get() != 0,
+                in.getDouble(),
+                readString(in),
+                readString(in)
+        );
+    }
+    
+    static void writeUUID(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+    
+    static UUID readUUID(ByteBuffer in) {
+        return new UUID(in.getLong(), in.getLong());
+    }
+    
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+    
+    static String readString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) return null;
+        
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
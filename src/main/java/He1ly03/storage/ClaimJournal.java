@@ -0,0 +1,550 @@
+package He1ly03.storage;
+
+import He1ly03.database.ChunkRow;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary log of claim changes
+ * Records are framed as length, CRC32 and body, and buffered in memory on
+ * the main thread. A writer thread appends them once per tick and syncs the
+ * file, so many changes share one fsync. Each compaction starts a new
+ * generation file, older files are deleted once a snapshot covers them.
+ */
+class ClaimJournal {
+    
+    private static final int MAGIC = 0x4C504A31; // "LPJ1"
+    private static final long SYNC_INTERVAL_MS = 50L;
+    private static final long RETRY_DELAY_MS = 1000L;
+    
+    private static final byte UPSERT = 1;
+    private static final byte DELETE = 2;
+    private static final byte TRUST_ADD = 3;
+    private static final byte TRUST_REMOVE = 4;
+    
+    private final Logger logger;
+    private final File folder;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition wakeup = lock.newCondition();
+    private final Condition synced = lock.newCondition();
+    
+    // Buffered records per generation, the last segment takes new records
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private int generation;
+    private long appendedSeq;
+    private long syncedSeq;
+    private boolean flushRequested;
+    private boolean running;
+    private Thread thread;
+    
+    // Writer thread only
+    private FileChannel channel;
+    private int channelGeneration = -1;
+    
+    // Metrics
+    private volatile long generationBytes;
+    private volatile long records;
+    private volatile long syncs;
+    private volatile long totalSyncNanos;
+    private volatile long maxSyncNanos;
+    private volatile long failures;
+    
+    ClaimJournal(Logger logger, File folder, int generation) {
+        this.logger = logger;
+        this.folder = folder;
+        this.generation = generation;
+    }
+    
+    void start() {
+        lock.lock();
+        try {
+            running = true;
+        } finally {
+            lock.unlock();
+        }
+        thread = new Thread(this::run, "LiseryPrivate-Journal");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    // ==================== Records ====================
+    
+    void upsert(int id, ChunkRow row) {
+        append(UPSERT, out -> {
+            out.writeInt(id);
+            ClaimCodec.writeRow(out, row);
+        });
+    }
+    
+    void delete(int id) {
+        append(DELETE, out -> out.writeInt(id));
+    }
+    
+    void addTrusted(int id, UUID playerUUID, String playerName) {
+        append(TRUST_ADD, out -> {
+            out.writeInt(id);
+            ClaimCodec.writeUUID(out, playerUUID);
+            ClaimCodec.writeString(out, playerName);
+        });
+    }
+    
+    void removeTrusted(int id, UUID playerUUID) {
+        append(TRUST_REMOVE, out -> {
+            out.writeInt(id);
+            ClaimCodec.writeUUID(out, playerUUID);
+        });
+    }
+    
+    private void append(byte type, Body body) {
+        byte[] frame;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(type);
+            body.write(out);
+            frame = bytes.toByteArray();
+        } catch (IOException e) {
+            // Writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+        
+        CRC32 crc = new CRC32();
+        crc.update(frame, 8, frame.length - 8);
+        ByteBuffer.wrap(frame).putInt(frame.length - 8).putInt((int) crc.getValue());
+        
+        lock.lock();
+        try {
+            Segment last = segments.peekLast();
+            if (last == null || last.generation != generation) {
+                last = new Segment(generation);
+                segments.addLast(last);
+            }
+            last.bytes.write(frame, 0, frame.length);
+            appendedSeq++;
+            generationBytes += frame.length;
+            records++;
+            wakeup.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Send following records to a new generation file, returns its number
+     */
+    int rotate() {
+        lock.lock();
+        try {
+            generation++;
+            generationBytes = 0;
+            // Empty segment so the writer switches files even without new records
+            segments.addLast(new Segment(generation));
+            appendedSeq++;
+            wakeup.signal();
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Wait until everything appended so far is synced to disk
+     */
+    boolean flush(long timeoutMs) {
+        lock.lock();
+        try {
+            long target = appendedSeq;
+            if (syncedSeq >= target) return true;
+            
+            flushRequested = true;
+            wakeup.signal();
+            
+            long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while (syncedSeq < target) {
+                if (remaining <= 0) return false;
+                remaining = synced.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Stop the writer, records still buffered are written on the calling thread
+     */
+    void close() {
+        lock.lock();
+        try {
+            running = false;
+            wakeup.signal();
+        } finally {
+            lock.unlock();
+        }
+        
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        if (!writePending()) {
+            logger.severe("Could not write the claim journal on shutdown, recent changes are lost!");
+        }
+        closeChannel();
+    }
+    
+    /**
+     * Delete generation files a snapshot already covers
+     */
+    void deleteBefore(int generation) {
+        for (int old : listGenerations(folder)) {
+            if (old >= generation) continue;
+            
+            File file = fileOf(folder, old);
+            if (!file.delete()) {
+                logger.warning("Could not delete old journal " + file.getName());
+            }
+        }
+    }
+    
+    // ==================== Writer ====================
+    
+    private void run() {
+        while (true) {
+            lock.lock();
+            try {
+                while (running && segments.isEmpty()) {
+                    wakeup.await();
+                }
+                if (segments.isEmpty()) return;
+                
+                // Collect one tick worth of records into a single sync
+                long remaining = TimeUnit.MILLISECONDS.toNanos(SYNC_INTERVAL_MS);
+                while (running && !flushRequested && remaining > 0) {
+                    remaining = wakeup.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            
+            if (!writePending()) {
+                // close() makes the last attempt itself
+                if (!isRunning()) return;
+                try {
+                    Thread.sleep(RETRY_DELAY_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+    
+    private boolean isRunning() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Write and sync all buffered segments, failed segments stay queued
+     */
+    private boolean writePending() {
+        List<Segment> batch;
+        long target;
+        lock.lock();
+        try {
+            batch = new ArrayList<>(segments);
+            segments.clear();
+            target = appendedSeq;
+            flushRequested = false;
+        } finally {
+            lock.unlock();
+        }
+        if (batch.isEmpty()) return true;
+        
+        long start = System.nanoTime();
+        int written = 0;
+        try {
+            for (Segment segment : batch) {
+                FileChannel out = channelFor(segment.generation);
+                long position = out.position();
+                try {
+                    ByteBuffer buffer = ByteBuffer.wrap(segment.bytes.toByteArray());
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                } catch (IOException e) {
+                    // Drop the partial frame so a retry does not duplicate it
+                    out.truncate(position);
+                    throw e;
+                }
+                written++;
+            }
+            if (channel != null) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            failures++;
+            logger.log(Level.SEVERE, "Failed to write the claim journal, retrying", e);
+            closeChannel();
+            
+            lock.lock();
+            try {
+                // Put unwritten segments back in front, in order
+                for (int i = batch.size() - 1; i >= written; i--) {
+                    segments.addFirst(batch.get(i));
+                }
+            } finally {
+                lock.unlock();
+            }
+            return false;
+        }
+        
+        long nanos = System.nanoTime() - start;
+        syncs++;
+        totalSyncNanos += nanos;
+        if (nanos > maxSyncNanos) {
+            maxSyncNanos = nanos;
+        }
+        
+        lock.lock();
+        try {
+            syncedSeq = target;
+            synced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+    
+    private FileChannel channelFor(int generation) throws IOException {
+        if (channel != null && channelGeneration == generation) {
+            return channel;
+        }
+        
+        if (channel != null) {
+            channel.force(false);
+            closeChannel();
+        }
+        
+        File file = fileOf(folder, generation);
+        boolean created = !file.exists() || file.length() == 0;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        channelGeneration = generation;
+        
+        if (created) {
+            ByteBuffer header = ByteBuffer.allocate(8).putInt(MAGIC).putInt(generation).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        }
+        return channel;
+    }
+    
+    private void closeChannel() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to close the claim journal", e);
+        }
+        channel = null;
+        channelGeneration = -1;
+    }
+    
+    // ==================== Replay ====================
+    
+    /**
+     * Apply all records of generation files from the given one onwards
+     * A torn or corrupt record ends its file, later files are still read.
+     * Returns the number of records applied.
+     */
+    static int replay(Logger logger, File folder, int fromGeneration, Handler handler) throws IOException {
+        int applied = 0;
+        
+        for (int generation : listGenerations(folder)) {
+            if (generation < fromGeneration) continue;
+            
+            File file = fileOf(folder, generation);
+            ByteBuffer buffer;
+            try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                if (in.size() > Integer.MAX_VALUE) {
+                    throw new IOException("Journal " + file.getName() + " is too large");
+                }
+                buffer = ByteBuffer.allocate((int) in.size());
+                while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+                    // Read the whole file
+                }
+                buffer.flip();
+            }
+            
+            if (buffer.remaining() < 8) continue;
+            if (buffer.getInt() != MAGIC || buffer.getInt() != generation) {
+                logger.warning("Skipping journal " + file.getName() + " with an unknown header");
+                continue;
+            }
+            
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= 8) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                
+                if (length <= 0 || length > buffer.remaining()) {
+                    logger.warning("Journal " + file.getName() + " ends with a torn record at byte " + start
+                            + ", the last changes before the crash are lost");
+                    break;
+                }
+                
+                crc.reset();
+                crc.update(buffer.slice(buffer.position(), length));
+                if ((int) crc.getValue() != checksum) {
+                    logger.warning("Journal " + file.getName() + " has a corrupt record at byte " + start
+                            + ", ignoring the rest of the file");
+                    break;
+                }
+                
+                ByteBuffer body = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+                apply(body, handler);
+                applied++;
+            }
+        }
+        return applied;
+    }
+    
+    private static void apply(ByteBuffer body, Handler handler) {
+        byte type = body.get();
+        int id = body.getInt();
+        switch (type) {
+            case UPSERT -> handler.upsert(id, ClaimCodec.readRow(body));
+            case DELETE -> handler.delete(id);
+            case TRUST_ADD -> handler.addTrusted(id, ClaimCodec.readUUID(body), ClaimCodec.readString(body));
+            case TRUST_REMOVE -> handler.removeTrusted(id, ClaimCodec.readUUID(body));
+            default -> throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+    
+    /**
+     * Generation numbers of the journal files in a folder, ascending
+     */
+    static List<Integer> listGenerations(File folder) {
+        List<Integer> generations = new ArrayList<>();
+        File[] files = folder.listFiles((dir, name) -> name.startsWith("journal-") && name.endsWith(".log"));
+        if (files == null) return generations;
+        
+        for (File file : files) {
+            String name = file.getName();
+            try {
+                generations.add(Integer.parseInt(name.substring(8, name.length() - 4)));
+            } catch (NumberFormatException ignored) {
+                // Not one of ours
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+    
+    private static File fileOf(File folder, int generation) {
+        return new File(folder, "journal-" + generation + ".log");
+    }
+    
+    // ==================== Metrics ====================
+    
+    int getGeneration() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Bytes appended to the current generation, used to trigger compaction
+     */
+    long getGenerationBytes() {
+        return generationBytes;
+    }
+    
+    long getPendingRecords() {
+        lock.lock();
+        try {
+            return appendedSeq - syncedSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    long getRecords() {
+        return records;
+    }
+    
+    long getSyncs() {
+        return syncs;
+    }
+    
+    long getAverageSyncMicros() {
+        long count = syncs;
+        return count == 0 ? 0 : totalSyncNanos / count / 1000L;
+    }
+    
+    long getMaxSyncMicros() {
+        return maxSyncNanos / 1000L;
+    }
+    
+    long getFailures() {
+        return failures;
+    }
+    
+    /**
+     * Receives replayed changes
+     */
+    interface Handler extends SnapshotFile.Handler {
+        void delete(int id);
+        
+        void removeTrusted(int id, UUID playerUUID);
+    }
+    
+    @FunctionalInterface
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+    
+    private static final class Segment {
+        private final int generation;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        
+        private Segment(int generation) {
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package He1ly03.storage;
+
+import He1ly03.LiseryPrivate;
+import He1ly03.chunk.ChunkData;
+import He1ly03.database.ChunkRow;
+import He1ly03.task.IoExecutor;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Storage without a database for single servers
+ * Changes go to an append-only journal, which is periodically folded into a
+ * snapshot of all claims. Startup maps the snapshot and replays the journal
+ * written after it. Claim ids are assigned right away on the main thread.
+ */
+public class FileStorage implements StorageBackend {
+    
+    private static final String SNAPSHOT_NAME = "claims.snapshot";
+    private static final long CHECK_PERIOD_TICKS = 20L * 60L;
+    
+    private final LiseryPrivate plugin;
+    private final File folder;
+    private final File snapshotFile;
+    
+    private ClaimJournal journal;
+    private BukkitTask compactionTask;
+    
+    // Main thread
+    private int nextId = 1;
+    private boolean loaded;
+    private long lastCompactionStart;
+    
+    // Snapshot writes run one at a time, an older snapshot never replaces a newer one
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private int snapshotGeneration;
+    
+    // Metrics
+    private volatile long compactions;
+    private volatile long lastCompactionMillis;
+    private volatile int lastSnapshotClaims;
+    private volatile long lastSnapshotBytes;
+    
+    public FileStorage(LiseryPrivate plugin) {
+        this.plugin = plugin;
+        this.folder = new File(plugin.getDataFolder(), plugin.getConfigManager().getFileStorageFolder());
+        this.snapshotFile = new File(folder, SNAPSHOT_NAME);
+    }
+    
+    @Override
+    public boolean initialize() {
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            plugin.getLogger().severe("Could not create storage folder " + folder.getPath());
+            return false;
+        }
+        
+        // Every start writes a new generation, a torn tail of the last run is never appended to
+        int generation = 0;
+        SnapshotFile.Header header = SnapshotFile.readHeader(snapshotFile);
+        if (header != null) {
+            generation = header.meta().generation();
+        }
+        List<Integer> generations = ClaimJournal.listGenerations(folder);
+        if (!generations.isEmpty()) {
+            generation = Math.max(generation, generations.get(generations.size() - 1));
+        }
+        
+        journal = new ClaimJournal(plugin.getLogger(), folder, generation + 1);
+        journal.start();
+        
+        lastCompactionStart = System.currentTimeMillis();
+        compactionTask = Bukkit.getScheduler().runTaskTimer(plugin, this::checkCompaction,
+                CHECK_PERIOD_TICKS, CHECK_PERIOD_TICKS);
+        return true;
+    }
+    
+    @Override
+    public LoadResult loadAll(Consumer<ChunkData> consumer) {
+        Map<Integer, ClaimState> claims = new LinkedHashMap<>();
+        Replayer replayer = new Replayer(claims);
+        long start = System.nanoTime();
+        
+        try {
+            SnapshotFile.Header header = SnapshotFile.read(snapshotFile, replayer);
+            long openNanos = System.nanoTime() - start;
+            
+            int fromGeneration = header != null ? header.meta().generation() : 0;
+            int records = ClaimJournal.replay(plugin.getLogger(), folder, fromGeneration, replayer);
+            
+            int trusted = 0;
+            for (Map.Entry<Integer, ClaimState> entry : claims.entrySet()) {
+                ClaimState state = entry.getValue();
+                ChunkData chunk = state.row.toChunkData(entry.getKey());
+                state.trusted.forEach(chunk::addTrusted);
+                trusted += state.trusted.size();
+                consumer.accept(chunk);
+            }
+            
+            nextId = Math.max(nextId, replayer.maxId + 1);
+            if (header != null) {
+                nextId = Math.max(nextId, header.meta().nextId());
+                snapshotLock.lock();
+                try {
+                    snapshotGeneration = Math.max(snapshotGeneration, header.meta().generation());
+                } finally {
+                    snapshotLock.unlock();
+                }
+            }
+            loaded = true;
+            
+            if (records > 0) {
+                plugin.getLogger().info("Replayed " + records + " journal records on top of the claim snapshot.");
+            }
+            return new LoadResult(claims.size(), trusted, openNanos, System.nanoTime() - start - openNanos);
+        } catch (IOException | RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to load claims from file storage!", e);
+        }
+        return null;
+    }
+    
+    // ==================== Changes ====================
+    
+    @Override
+    public void insert(ChunkData chunk) {
+        if (chunk.getId() <= 0) {
+            chunk.setId(nextId++);
+        }
+        journal.upsert(chunk.getId(), ChunkRow.of(chunk));
+        for (Map.Entry<UUID, String> entry : chunk.getTrustedPlayers().entrySet()) {
+            journal.addTrusted(chunk.getId(), entry.getKey(), entry.getValue());
+        }
+    }
+    
+    @Override
+    public void update(ChunkData chunk) {
+        journal.upsert(chunk.getId(), ChunkRow.of(chunk));
+    }
+    
+    @Override
+    public void delete(ChunkData chunk) {
+        journal.delete(chunk.getId());
+    }
+    
+    @Override
+    public void addTrusted(ChunkData chunk, UUID playerUUID, String playerName) {
+        journal.addTrusted(chunk.getId(), playerUUID, playerName);
+    }
+    
+    @Override
+    public void removeTrusted(ChunkData chunk, UUID playerUUID) {
+        journal.removeTrusted(chunk.getId(), playerUUID);
+    }
+    
+    @Override
+    public boolean flush(long timeoutMs) {
+        return journal.flush(timeoutMs);
+    }
+    
+    @Override
+    public void close() {
+        if (compactionTask != null) {
+            compactionTask.cancel();
+            compactionTask = null;
+        }
+        if (journal == null) return;
+        
+        journal.close();
+        
+        // Fold the journal into a fresh snapshot so the next start reads a single file
+        if (loaded && plugin.getChunkManager() != null) {
+            List<SnapshotFile.Entry> entries = SnapshotFile.capture(plugin.getChunkManager().getAllChunks());
+            writeSnapshot(entries, journal.rotate(), nextId);
+        }
+    }
+    
+    @Override
+    public String getType() {
+        return "FILE";
+    }
+    
+    // ==================== Compaction ====================
+    
+    private void checkCompaction() {
+        if (!loaded || compacting.get()) return;
+        
+        long journalBytes = journal.getGenerationBytes();
+        if (journalBytes == 0) return;
+        
+        var configManager = plugin.getConfigManager();
+        if (journalBytes >= configManager.getFileStorageCompactThreshold()
+                || System.currentTimeMillis() - lastCompactionStart >= configManager.getFileStorageCompactInterval()) {
+            compact();
+        }
+    }
+    
+    /**
+     * Capture all claims, switch the journal to a new generation and write the snapshot async
+     * Returns false if a compaction is already running.
+     */
+    public boolean compact() {
+        if (!loaded || !compacting.compareAndSet(false, true)) {
+            return false;
+        }
+        
+        // Capture and rotation happen together on the main thread, so the
+        // snapshot holds exactly the changes of the older generations
+        List<SnapshotFile.Entry> entries = SnapshotFile.capture(plugin.getChunkManager().getAllChunks());
+        int generation = journal.rotate();
+        int snapshotNextId = nextId;
+        lastCompactionStart = System.currentTimeMillis();
+        
+        // Reset in the future, a rejected task never runs its own cleanup
+        plugin.getIoExecutor().run(IoExecutor.Resource.FILE, () -> writeSnapshot(entries, generation, snapshotNextId))
+                .whenComplete((result, error) -> compacting.set(false));
+        return true;
+    }
+    
+    private void writeSnapshot(List<SnapshotFile.Entry> entries, int generation, int snapshotNextId) {
+        snapshotLock.lock();
+        try {
+            if (generation <= snapshotGeneration) return;
+            
+            long start = System.nanoTime();
+            SnapshotFile.write(snapshotFile, new SnapshotFile.Meta(generation, 0, 0, snapshotNextId, 0), entries);
+            snapshotGeneration = generation;
+            journal.deleteBefore(generation);
+            
+            compactions++;
+            lastCompactionMillis = (System.nanoTime() - start) / 1_000_000L;
+            lastSnapshotClaims = entries.size();
+            lastSnapshotBytes = snapshotFile.length();
+            plugin.getLogger().info("Compacted the claim journal into a snapshot of " + entries.size()
+                    + " claims in " + lastCompactionMillis + " ms.");
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to write the claim snapshot!", e);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+    
+    // ==================== Metrics ====================
+    
+    public int getJournalGeneration() {
+        return journal.getGeneration();
+    }
+    
+    public long getJournalBytes() {
+        return journal.getGenerationBytes();
+    }
+    
+    public long getPendingRecords() {
+        return journal.getPendingRecords();
+    }
+    
+    public long getRecordsWritten() {
+        return journal.getRecords();
+    }
+    
+    public long getSyncs() {
+        return journal.getSyncs();
+    }
+    
+    public long getAverageSyncMicros() {
+        return journal.getAverageSyncMicros();
+    }
+    
+    public long getMaxSyncMicros() {
+        return journal.getMaxSyncMicros();
+    }
+    
+    public long getWriteFailures() {
+        return journal.getFailures();
+    }
+    
+    public long getCompactions() {
+        return compactions;
+    }
+    
+    public long getLastCompactionMillis() {
+        return lastCompactionMillis;
+    }
+    
+    public int getLastSnapshotClaims() {
+        return lastSnapshotClaims;
+    }
+    
+    public long getLastSnapshotBytes() {
+        return lastSnapshotBytes;
+    }
+    
+    /**
+     * Claim being rebuilt from the snapshot and journal
+     */
+    private static final class ClaimState {
+        private ChunkRow row;
+        private final Map<UUID, String> trusted = new LinkedHashMap<>();
+        
+        private ClaimState(ChunkRow row) {
+            this.row = row;
+        }
+    }
+    
+    /**
+     * Applies snapshot and journal records to the claims being loaded
+     */
+    private static final class Replayer implements ClaimJournal.Handler {
+        private final Map<Integer, ClaimState> claims;
+        private int maxId;
+        
+        private Replayer(Map<Integer, ClaimState> claims) {
+            this.claims = claims;
+        }
+        
+        @Override
+        public void upsert(int id, ChunkRow row) {
+            ClaimState state = claims.get(id);
+            if (state == null) {
+                claims.put(id, new ClaimState(row));
+            } else {
+                state.row = row;
+            }
+            maxId = Math.max(maxId, id);
+        }
+        
+        @Override
+        public void delete(int id) {
+            claims.remove(id);
+        }
+        
+        @Override
+        public void addTrusted(int id, UUID playerUUID, String playerName) {
+            ClaimState state = claims.get(id);
+            if (state != null) {
+                state.trusted.put(playerUUID, playerName);
+            }
+        }
+        
+        @Override
+        public void removeTrusted(int id, UUID playerUUID) {
+            ClaimState state = claims.get(id);
+            if (state != null) {
+                state.trusted.remove(playerUUID);
+            }
+        }
+    }
+}
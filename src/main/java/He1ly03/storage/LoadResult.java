@@ -0,0 +1,8 @@
+package He1ly03.storage;
+
+/**
+ * Row counts and timings of a full load
+ * Open time covers the query or the snapshot, read time includes the consumer.
+ */
+public record LoadResult(int chunks, int trusted, long openNanos, long readNanos) {
+}
@@ -0,0 +1,352 @@
+package He1ly03.storage;
+
+import He1ly03.chunk.ChunkData;
+import He1ly03.database.ChunkRow;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary copy of all claims
+ * Layout: header, world dictionary, player dictionary, fixed-width claim
+ * records, trust arrays, string table and a CRC32 of everything before it.
+ * Worlds, players and strings are stored once and referenced by index or
+ * offset, so loading shares one UUID and name instance per player.
+ * Written to a temporary file and moved into place, a crash leaves the
+ * previous snapshot intact.
+ */
+public final class SnapshotFile {
+    
+    private static final int MAGIC = 0x4C50534E; // "LPSN"
+    private static final short VERSION = 2;
+    private static final int HEADER_SIZE = 68;
+    private static final int PLAYER_SIZE = 20;
+    
+    // Claim record layout
+    private static final int CLAIM_SIZE = 56;
+    private static final int ID = 0;
+    private static final int WORLD = 4;
+    private static final int CHUNK_X = 8;
+    private static final int CHUNK_Z = 12;
+    private static final int OWNER = 16;
+    private static final int FLAGS = 20;
+    private static final int FOR_SALE = 24;
+    private static final int NAME = 28;
+    private static final int SALE_LOCATION = 32;
+    private static final int REGION = 36;
+    private static final int TRUST_START = 40;
+    private static final int TRUST_COUNT = 44;
+    private static final int SALE_PRICE = 48;
+    
+    private SnapshotFile() {}
+    
+    /**
+     * Copy all claims, must be called on the main thread
+     */
+    public static List<Entry> capture(Collection<ChunkData> chunks) {
+        List<Entry> entries = new ArrayList<>(chunks.size());
+        for (ChunkData chunk : chunks) {
+            Map<UUID, String> trusted = chunk.getTrustedPlayers();
+            entries.add(new Entry(chunk.getId(), ChunkRow.of(chunk),
+                    trusted.isEmpty() ? Map.of() : new LinkedHashMap<>(trusted)));
+        }
+        return entries;
+    }
+    
+    // ==================== Writing ====================
+    
+    public static void write(File file, Meta meta, List<Entry> entries) throws IOException {
+        Dictionary dictionary = new Dictionary();
+        
+        int trustTotal = 0;
+        for (Entry entry : entries) {
+            trustTotal += entry.trusted().size();
+        }
+        
+        ByteBuffer claims = ByteBuffer.allocate(entries.size() * CLAIM_SIZE);
+        int[] trust = new int[trustTotal];
+        int trustIndex = 0;
+        
+        for (Entry entry : entries) {
+            ChunkRow row = entry.row();
+            claims.putInt(entry.id())
+                    .putInt(dictionary.world(row.world()))
+                    .putInt(row.chunkX())
+                    .putInt(row.chunkZ())
+                    .putInt(dictionary.player(row.ownerUUID(), row.ownerName()))
+                    .putInt(row.flags())
+                    .putInt(row.forSale() ? 1 : 0)
+                    .putInt(dictionary.string(row.name()))
+                    .putInt(dictionary.string(row.saleLocation()))
+                    .putInt(dictionary.string(row.worldGuardRegion()))
+                    .putInt(trustIndex)
+                    .putInt(entry.trusted().size())
+                    .putDouble(row.salePrice());
+            
+            for (Map.Entry<UUID, String> trusted : entry.trusted().entrySet()) {
+                trust[trustIndex++] = dictionary.player(trusted.getKey(), trusted.getValue());
+            }
+        }
+        
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp)) {
+            BufferedOutputStream buffered = new BufferedOutputStream(fileOut, 1 << 16);
+            CheckedOutputStream checked = new CheckedOutputStream(buffered, new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(0);
+            out.writeInt(meta.generation());
+            out.writeInt(meta.nextId());
+            out.writeLong(meta.highWaterMark());
+            out.writeLong(meta.source());
+            out.writeLong(meta.databaseLoadMillis());
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(dictionary.worlds.size());
+            out.writeInt(dictionary.players.size());
+            out.writeInt(entries.size());
+            out.writeInt(trustTotal);
+            out.writeInt(dictionary.strings.size());
+            
+            for (int offset : dictionary.worlds) {
+                out.writeInt(offset);
+            }
+            for (int i = 0; i < dictionary.players.size(); i++) {
+                PlayerKey player = dictionary.players.get(i);
+                out.writeLong(player.uuid().getMostSignificantBits());
+                out.writeLong(player.uuid().getLeastSignificantBits());
+                out.writeInt(dictionary.playerNames.get(i));
+            }
+            out.write(claims.array());
+            for (int player : trust) {
+                out.writeInt(player);
+            }
+            dictionary.strings.writeTo(out);
+            out.flush();
+            
+            // The checksum itself is not checksummed
+            new DataOutputStream(buffered).writeInt((int) checked.getChecksum().getValue());
+            buffered.flush();
+            fileOut.getChannel().force(true);
+        }
+        
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    // ==================== Reading ====================
+    
+    /**
+     * Map the snapshot and pass every claim to the handler
+     * Nothing is passed before the checksum is verified. Returns null if
+     * there is no snapshot, throws if it is corrupt.
+     */
+    public static Header read(File file, Handler handler) throws IOException {
+        if (!file.exists()) return null;
+        
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + 4 || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + file.getName() + " has an invalid size of " + size + " bytes");
+            }
+            
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, (int) size - 4));
+            if ((int) crc.getValue() != buffer.getInt((int) size - 4)) {
+                throw new IOException("Snapshot " + file.getName() + " failed the checksum");
+            }
+            
+            Header header = readHeader(buffer, file);
+            int worldCount = buffer.getInt();
+            int playerCount = buffer.getInt();
+            buffer.getInt(); // claim count, already in the header
+            int trustCount = buffer.getInt();
+            int stringsLength = buffer.getInt();
+            
+            int worldsAt = HEADER_SIZE;
+            int playersAt = worldsAt + worldCount * 4;
+            int claimsAt = playersAt + playerCount * PLAYER_SIZE;
+            int trustAt = claimsAt + header.claims() * CLAIM_SIZE;
+            int stringsAt = trustAt + trustCount * 4;
+            if ((long) stringsAt + stringsLength + 4 != size) {
+                throw new IOException("Snapshot " + file.getName() + " has inconsistent section sizes");
+            }
+            
+            // Dictionaries are decoded once and shared by all claims
+            String[] worlds = new String[worldCount];
+            for (int i = 0; i < worldCount; i++) {
+                worlds[i] = readString(buffer, stringsAt, buffer.getInt(worldsAt + i * 4));
+            }
+            
+            UUID[] uuids = new UUID[playerCount];
+            String[] names = new String[playerCount];
+            for (int i = 0; i < playerCount; i++) {
+                int at = playersAt + i * PLAYER_SIZE;
+                uuids[i] = new UUID(buffer.getLong(at), buffer.getLong(at + 8));
+                names[i] = readString(buffer, stringsAt, buffer.getInt(at + 16));
+            }
+            
+            for (int i = 0; i < header.claims(); i++) {
+                int at = claimsAt + i * CLAIM_SIZE;
+                int id = buffer.getInt(at + ID);
+                int owner = buffer.getInt(at + OWNER);
+                
+                handler.upsert(id, new ChunkRow(
+                        worlds[buffer.getInt(at + WORLD)],
+                        buffer.getInt(at + CHUNK_X),
+                        buffer.getInt(at + CHUNK_Z),
+                        readString(buffer, stringsAt, buffer.getInt(at + NAME)),
+                        uuids[owner],
+                        names[owner],
+                        buffer.getInt(at + FLAGS),
+                        buffer.getInt(at + FOR_SALE) != 0,
+                        buffer.getDouble(at + SALE_PRICE),
+                        readString(buffer, stringsAt, buffer.getInt(at + SALE_LOCATION)),
+                        readString(buffer, stringsAt, buffer.getInt(at + REGION))
+                ));
+                
+                int trustStart = buffer.getInt(at + TRUST_START);
+                int trustEnd = trustStart + buffer.getInt(at + TRUST_COUNT);
+                for (int t = trustStart; t < trustEnd; t++) {
+                    int player = buffer.getInt(trustAt + t * 4);
+                    handler.addTrusted(id, uuids[player], names[player]);
+                }
+            }
+            return header;
+        }
+    }
+    
+    /**
+     * Read only the header, null if there is no readable snapshot
+     */
+    public static Header readHeader(File file) {
+        if (!file.exists()) return null;
+        
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Read the whole header
+            }
+            buffer.flip();
+            return buffer.remaining() == HEADER_SIZE ? readHeader(buffer, file) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Read the fixed header fields, leaves the buffer at the section counts
+     */
+    private static Header readHeader(ByteBuffer buffer, File file) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException(file.getName() + " is not a claim snapshot");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        buffer.getShort();
+        
+        int generation = buffer.getInt();
+        int nextId = buffer.getInt();
+        long highWaterMark = buffer.getLong();
+        long source = buffer.getLong();
+        long databaseLoadMillis = buffer.getLong();
+        long createdAt = buffer.getLong();
+        int claims = buffer.getInt(HEADER_SIZE - 12);
+        
+        return new Header(new Meta(generation, highWaterMark, source, nextId, databaseLoadMillis), claims, createdAt);
+    }
+    
+    private static String readString(ByteBuffer buffer, int stringsAt, int offset) {
+        if (offset < 0) return null;
+        
+        int at = stringsAt + offset;
+        byte[] bytes = new byte[buffer.getShort(at) & 0xFFFF];
+        buffer.get(at + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Receives the claims of a snapshot in file order
+     */
+    public interface Handler {
+        void upsert(int id, ChunkRow row);
+        
+        void addTrusted(int id, UUID playerUUID, String playerName);
+    }
+    
+    /**
+     * Values the owner of a snapshot validates it with
+     * FILE storage uses the journal generation, database storage the write
+     * sequence of the database and a hash of its address.
+     */
+    public record Meta(int generation, long highWaterMark, long source, int nextId, long databaseLoadMillis) {
+    }
+    
+    public record Header(Meta meta, int claims, long createdAt) {
+    }
+    
+    /**
+     * One claim captured on the main thread
+     */
+    public record Entry(int id, ChunkRow row, Map<UUID, String> trusted) {
+    }
+    
+    private record PlayerKey(UUID uuid, String name) {
+    }
+    
+    /**
+     * Deduplicates worlds, players and strings while writing
+     */
+    private static final class Dictionary {
+        private final List<Integer> worlds = new ArrayList<>();
+        private final Map<String, Integer> worldIndex = new HashMap<>();
+        private final List<PlayerKey> players = new ArrayList<>();
+        private final List<Integer> playerNames = new ArrayList<>();
+        private final Map<PlayerKey, Integer> playerIndex = new HashMap<>();
+        private final Map<String, Integer> stringOffsets = new HashMap<>();
+        private final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        
+        private int world(String name) {
+            return worldIndex.computeIfAbsent(name, key -> {
+                worlds.add(string(key));
+                return worlds.size() - 1;
+            });
+        }
+        
+        private int player(UUID uuid, String name) {
+            return playerIndex.computeIfAbsent(new PlayerKey(uuid, name), key -> {
+                players.add(key);
+                playerNames.add(string(key.name()));
+                return players.size() - 1;
+            });
+        }
+        
+        private int string(String value) {
+            if (value == null) return -1;
+            
+            Integer offset = stringOffsets.get(value);
+            if (offset != null) return offset;
+            
+            offset = strings.size();
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            strings.write((bytes.length >>> 8) & 0xFF);
+            strings.write(bytes.length & 0xFF);
+            strings.write(bytes, 0, bytes.length);
+            stringOffsets.put(value, offset);
+            return offset;
+        }
+    }
+}
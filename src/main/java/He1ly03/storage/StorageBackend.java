@@ -0,0 +1,110 @@
+package He1ly03.storage;
+
+import He1ly03.chunk.ChunkData;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Where claims are persisted
+ * All claims are loaded into the chunk manager cache once, after that the
+ * backend only receives changes. Changes are made on the main thread and
+ * must not block on IO.
+ */
+public interface StorageBackend {
+    
+    /**
+     * Open the storage, returns false if the plugin cannot run without it
+     */
+    boolean initialize();
+    
+    /**
+     * Stream all claims with their trusted players attached
+     * Returns null if loading failed.
+     */
+    LoadResult loadAll(Consumer<ChunkData> consumer);
+    
+    /**
+     * Whether claims can be loaded per world and region instead of all at once
+     */
+    default boolean supportsPartialLoading() {
+        return false;
+    }
+    
+    /**
+     * Stream the claims of one world, only called if partial loading is supported
+     * Returns null if loading failed.
+     */
+    default LoadResult loadWorld(String world, Consumer<ChunkData> consumer) {
+        return null;
+    }
+    
+    /**
+     * Stream the claims of one 32x32 chunk region, only called if partial loading is supported
+     * Returns null if loading failed.
+     */
+    default LoadResult loadRegion(String world, int regionX, int regionZ, Consumer<ChunkData> consumer) {
+        return null;
+    }
+    
+    /**
+     * Stream all claims of one owner, only called if partial loading is supported
+     * Returns null if loading failed.
+     */
+    default LoadResult loadOwner(UUID owner, Consumer<ChunkData> consumer) {
+        return null;
+    }
+    
+    /**
+     * Number of claims per owner over all worlds, only called if partial loading is supported
+     * Returns null if loading failed.
+     */
+    default Map<UUID, Integer> loadClaimCounts() {
+        return null;
+    }
+    
+    /**
+     * Stream owner and name of every claim, only called if partial loading is supported
+     * Returns false if loading failed.
+     */
+    default boolean loadClaimNames(BiConsumer<UUID, String> consumer) {
+        return false;
+    }
+    
+    /**
+     * Persist a new claim, its id is set once the backend assigned one
+     */
+    void insert(ChunkData chunk);
+    
+    void update(ChunkData chunk);
+    
+    /**
+     * Write a claim that changed owner
+     */
+    default void transfer(ChunkData chunk, UUID previousOwner) {
+        update(chunk);
+    }
+    
+    void delete(ChunkData chunk);
+    
+    void addTrusted(ChunkData chunk, UUID playerUUID, String playerName);
+    
+    void removeTrusted(ChunkData chunk, UUID playerUUID);
+    
+    /**
+     * Wait until all changes made so far are durable, returns false on timeout
+     */
+    boolean flush(long timeoutMs);
+    
+    /**
+     * Write pending changes and release files and connections
+     */
+    void close();
+    
+    /**
+     * Storage type as written in the config
+     */
+    String getType();
+}
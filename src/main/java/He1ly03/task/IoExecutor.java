@@ -0,0 +1,222 @@
+package He1ly03.task;
+
+import He1ly03.LiseryPrivate;
+import org.bukkit.Bukkit;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Runs blocking database, file and network work off the main thread
+ * Every task gets its own virtual thread. A semaphore per resource limits how
+ * many of them touch it at once, the rest wait cheaply on their virtual
+ * thread. Database work is limited to the pool size, so tasks never pile up
+ * inside the connection pool.
+ */
+public class IoExecutor {
+    
+    /**
+     * What a task mainly waits on, each has its own concurrency limit
+     */
+    public enum Resource {
+        DATABASE,
+        FILE,
+        NETWORK
+    }
+    
+    private final LiseryPrivate plugin;
+    private final ExecutorService executor;
+    private final Map<Resource, Limiter> limiters = new EnumMap<>(Resource.class);
+    private final Executor mainThread;
+    
+    public IoExecutor(LiseryPrivate plugin) {
+        this.plugin = plugin;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("LiseryPrivate-IO-", 0).factory());
+        
+        var configManager = plugin.getConfigManager();
+        limiters.put(Resource.DATABASE, new Limiter(configManager.getPoolMaximumSize()));
+        limiters.put(Resource.FILE, new Limiter(configManager.getIoFilePermits()));
+        limiters.put(Resource.NETWORK, new Limiter(configManager.getIoNetworkPermits()));
+        
+        // Results arriving after the plugin was disabled are dropped, the scheduler would refuse them
+        this.mainThread = task -> {
+            if (plugin.isEnabled()) {
+                Bukkit.getScheduler().runTask(plugin, task);
+            }
+        };
+    }
+    
+    // ==================== Submitting ====================
+    
+    /**
+     * Run a task that returns a value, the future completes on the I/O thread
+     */
+    public <T> CompletableFuture<T> supply(Resource resource, IoCallable<T> task) {
+        Limiter limiter = limiters.get(resource);
+        CompletableFuture<T> future = new CompletableFuture<>();
+        limiter.enqueue();
+        
+        try {
+            executor.execute(() -> {
+                boolean acquired = false;
+                try {
+                    limiter.semaphore.acquire();
+                    acquired = true;
+                    limiter.start();
+                    future.complete(task.call());
+                    limiter.completed.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.completeExceptionally(e);
+                } catch (Throwable e) {
+                    limiter.failed.incrementAndGet();
+                    future.completeExceptionally(e);
+                } finally {
+                    limiter.finish(acquired);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            limiter.finish(false);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+    
+    public CompletableFuture<Void> run(Resource resource, IoRunnable task) {
+        return supply(resource, () -> {
+            task.run();
+            return null;
+        });
+    }
+    
+    /**
+     * Run a task and pass its result or error to a callback on the main thread
+     */
+    public <T> void submit(Resource resource, IoCallable<T> task, Consumer<T> callback, Consumer<Exception> onError) {
+        supply(resource, task).whenCompleteAsync((result, error) -> {
+            if (error == null) {
+                callback.accept(result);
+            } else {
+                onError.accept(error instanceof Exception e ? e : new ExecutionException(error));
+            }
+        }, mainThread);
+    }
+    
+    /**
+     * Executor that hops to the main thread, for thenAcceptAsync and friends
+     */
+    public Executor mainThread() {
+        return mainThread;
+    }
+    
+    /**
+     * Stop taking tasks and wait for the submitted ones
+     */
+    public void close(long timeoutMs) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                plugin.getLogger().warning("I/O tasks did not finish in time, " + getPendingCount()
+                        + " are interrupted.");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+    
+    // ==================== Metrics ====================
+    
+    /**
+     * Tasks waiting for a permit or running, over all resources
+     */
+    public int getPendingCount() {
+        int pending = 0;
+        for (Limiter limiter : limiters.values()) {
+            pending += limiter.queued.get() + limiter.active.get();
+        }
+        return pending;
+    }
+    
+    public Map<Resource, Limiter> getLimiters() {
+        return Collections.unmodifiableMap(limiters);
+    }
+    
+    /**
+     * Concurrency limit and counters of one resource
+     */
+    public static final class Limiter {
+        private final int permits;
+        private final Semaphore semaphore;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private volatile int maxQueued;
+        
+        private Limiter(int permits) {
+            this.permits = permits;
+            this.semaphore = new Semaphore(permits, true);
+        }
+        
+        private void enqueue() {
+            int size = queued.incrementAndGet();
+            if (size > maxQueued) {
+                maxQueued = size;
+            }
+        }
+        
+        private void start() {
+            queued.decrementAndGet();
+            active.incrementAndGet();
+        }
+        
+        private void finish(boolean started) {
+            if (started) {
+                active.decrementAndGet();
+                semaphore.release();
+            } else {
+                queued.decrementAndGet();
+            }
+        }
+        
+        public int getPermits() {
+            return permits;
+        }
+        
+        public int getQueued() {
+            return queued.get();
+        }
+        
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+        
+        public int getActive() {
+            return active.get();
+        }
+        
+        public long getCompleted() {
+            return completed.get();
+        }
+        
+        public long getFailed() {
+            return failed.get();
+        }
+    }
+    
+    @FunctionalInterface
+    public interface IoCallable<T> {
+        T call() throws Exception;
+    }
+    
+    @FunctionalInterface
+    public interface IoRunnable {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,304 @@
+package He1ly03.task;
+
+import He1ly03.LiseryPrivate;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Runs per-player periodic work spread evenly over ticks.
+ * Every task with a period of N ticks splits online players into N buckets
+ * by UUID and handles one bucket per tick. All tasks share a per-tick time
+ * budget; work that doesn't fit is spilled over to the next tick.
+ *
+ * Tasks either cover all online players or only players added explicitly.
+ */
+public class TimeSlicedScheduler implements Listener {
+    
+    private final LiseryPrivate plugin;
+    
+    // Registered tasks
+    private final List<SlicedTask> tasks = new ArrayList<>();
+    
+    // Work that didn't fit into the budget, handled first on the next tick
+    private final LinkedHashSet<PendingWork> spill = new LinkedHashSet<>();
+    
+    private BukkitTask tickTask;
+    private long budgetNanos;
+    private long tick;
+    
+    // Stats
+    private long overrunTicks;
+    private long spilledTotal;
+    private long maxTickNanos;
+    
+    public TimeSlicedScheduler(LiseryPrivate plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Start the scheduler tick
+     */
+    public void start() {
+        if (tickTask != null) {
+            tickTask.cancel();
+        }
+        
+        this.budgetNanos = plugin.getConfigManager().getTickBudgetMicros() * 1000L;
+        
+        tickTask = new BukkitRunnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }.runTaskTimer(plugin, 1L, 1L);
+    }
+    
+    /**
+     * Stop the scheduler and drop all tasks
+     */
+    public void stop() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+        tasks.clear();
+        spill.clear();
+    }
+    
+    /**
+     * Re-read the tick budget after a config reload
+     */
+    public void reload() {
+        this.budgetNanos = plugin.getConfigManager().getTickBudgetMicros() * 1000L;
+    }
+    
+    /**
+     * Register a task that runs the action for every online player once per period
+     */
+    public SlicedTask register(String name, int period, Consumer<Player> action) {
+        SlicedTask task = new SlicedTask(name, Math.max(1, period), action, true);
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            task.add(player);
+        }
+        tasks.add(task);
+        return task;
+    }
+    
+    /**
+     * Register a task that runs only for players added to it with SlicedTask#add
+     */
+    public SlicedTask registerTracked(String name, int period, Consumer<Player> action) {
+        SlicedTask task = new SlicedTask(name, Math.max(1, period), action, false);
+        tasks.add(task);
+        return task;
+    }
+    
+    /**
+     * Unregister a task, its pending work is dropped
+     */
+    public void unregister(SlicedTask task) {
+        if (task == null) return;
+        
+        tasks.remove(task);
+        spill.removeIf(work -> work.task == task);
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        for (SlicedTask task : tasks) {
+            if (task.allPlayers) {
+                task.add(event.getPlayer());
+            }
+        }
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        UUID playerUUID = event.getPlayer().getUniqueId();
+        for (SlicedTask task : tasks) {
+            task.remove(playerUUID);
+        }
+        spill.removeIf(work -> work.player.getUniqueId().equals(playerUUID));
+    }
+    
+    private void tick() {
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+        boolean overrun = false;
+        
+        // Leftovers from previous ticks go first
+        Iterator<PendingWork> it = spill.iterator();
+        while (it.hasNext()) {
+            if (System.nanoTime() > deadline) {
+                overrun = true;
+                break;
+            }
+            PendingWork work = it.next();
+            it.remove();
+            run(work.task, work.player);
+        }
+        
+        for (SlicedTask task : tasks) {
+            Map<UUID, Player> bucket = task.buckets[(int) (tick % task.period)];
+            for (Player player : bucket.values()) {
+                if (overrun || System.nanoTime() > deadline) {
+                    overrun = true;
+                    if (spill.add(new PendingWork(task, player))) {
+                        task.spilled++;
+                        spilledTotal++;
+                    }
+                    continue;
+                }
+                run(task, player);
+            }
+        }
+        
+        tick++;
+        
+        long elapsed = System.nanoTime() - start;
+        maxTickNanos = Math.max(maxTickNanos, elapsed);
+        if (overrun) {
+            overrunTicks++;
+        }
+    }
+    
+    private void run(SlicedTask task, Player player) {
+        long start = System.nanoTime();
+        try {
+            task.action.accept(player);
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Error in scheduled task " + task.name, e);
+        }
+        long elapsed = System.nanoTime() - start;
+        
+        task.runs++;
+        task.totalNanos += elapsed;
+        task.maxNanos = Math.max(task.maxNanos, elapsed);
+    }
+    
+    // ==================== Stats ====================
+    
+    public long getTicks() {
+        return tick;
+    }
+    
+    public long getBudgetMicros() {
+        return budgetNanos / 1000L;
+    }
+    
+    public long getOverrunTicks() {
+        return overrunTicks;
+    }
+    
+    public long getSpilledTotal() {
+        return spilledTotal;
+    }
+    
+    public int getSpillSize() {
+        return spill.size();
+    }
+    
+    public long getMaxTickMicros() {
+        return maxTickNanos / 1000L;
+    }
+    
+    public List<SlicedTask> getTasks() {
+        return Collections.unmodifiableList(tasks);
+    }
+    
+    /**
+     * Per-player task spread over its period
+     */
+    public static final class SlicedTask {
+        private final String name;
+        private final int period;
+        private final Consumer<Player> action;
+        private final boolean allPlayers;
+        private final Map<UUID, Player>[] buckets;
+        private int size;
+        
+        private long runs;
+        private long totalNanos;
+        private long maxNanos;
+        private long spilled;
+        
+        @SuppressWarnings("unchecked")
+        private SlicedTask(String name, int period, Consumer<Player> action, boolean allPlayers) {
+            this.name = name;
+            this.period = period;
+            this.action = action;
+            this.allPlayers = allPlayers;
+            this.buckets = new Map[period];
+            for (int i = 0; i < period; i++) {
+                buckets[i] = new LinkedHashMap<>();
+            }
+        }
+        
+        /**
+         * Add a player to the task
+         */
+        public void add(Player player) {
+            if (buckets[bucketOf(player.getUniqueId())].put(player.getUniqueId(), player) == null) {
+                size++;
+            }
+        }
+        
+        /**
+         * Remove a player from the task
+         */
+        public void remove(UUID playerUUID) {
+            if (buckets[bucketOf(playerUUID)].remove(playerUUID) != null) {
+                size--;
+            }
+        }
+        
+        private int bucketOf(UUID playerUUID) {
+            return Math.floorMod(playerUUID.hashCode(), period);
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public int getPeriod() {
+            return period;
+        }
+        
+        public int getSize() {
+            return size;
+        }
+        
+        public long getRuns() {
+            return runs;
+        }
+        
+        public long getAverageMicros() {
+            return runs == 0 ? 0 : totalNanos / runs / 1000L;
+        }
+        
+        public long getMaxMicros() {
+            return maxNanos / 1000L;
+        }
+        
+        public long getSpilled() {
+            return spilled;
+        }
+    }
+    
+    /**
+     * A task run for one player postponed to a later tick
+     */
+    private record PendingWork(SlicedTask task, Player player) {
+    }
+}
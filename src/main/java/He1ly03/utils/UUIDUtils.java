@@ -0,0 +1,33 @@
+package He1ly03.utils;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Utility class for storing UUIDs as 16 raw bytes
+ */
+public final class UUIDUtils {
+    
+    private UUIDUtils() {}
+    
+    /**
+     * Big-endian bytes of a UUID, most significant half first
+     */
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+    
+    /**
+     * Read a UUID written by toBytes, null for null or malformed input
+     */
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != 16) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -1,6 +1,7 @@
 package He1ly03.utils;
 
 import He1ly03.LiseryPrivate;
+import He1ly03.task.IoExecutor;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import net.kyori.adventure.text.Component;
@@ -14,7 +15,6 @@ import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * Utility class for checking plugin updates from GitHub Releases
@@ -50,7 +50,8 @@ public class UpdateChecker {
             return;
         }
         
-        CompletableFuture.supplyAsync(() -> {
+        IoExecutor ioExecutor = plugin.getIoExecutor();
+        ioExecutor.supply(IoExecutor.Resource.NETWORK, () -> {
             try {
                 // Parse GitHub repository (format: owner/repo or full URL)
                 String repoPath = parseRepository(repository);
@@ -110,15 +111,15 @@ public class UpdateChecker {
                 }
                 return false;
             }
-        }).thenAccept(updateFound -> {
+        }).thenAcceptAsync(updateFound -> {
             if (updateFound) {
-                Bukkit.getScheduler().runTask(plugin, this::notifyUpdate);
+                notifyUpdate();
             } else {
                 if (plugin.getConfigManager().getConfig().getBoolean("update-checker.debug", false)) {
                     plugin.getLogger().info("Update check completed. You are using the latest version: " + currentVersion);
                 }
             }
-        });
+        }, ioExecutor.mainThread());
     }
     
     /**
@@ -0,0 +1,236 @@
+package He1ly03.wand;
+
+import He1ly03.LiseryPrivate;
+import He1ly03.chunk.ChunkData;
+import He1ly03.chunk.ClaimCluster;
+import io.papermc.paper.math.Position;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+
+/**
+ * Shows claim borders as client-side fake blocks on the surface
+ * Changes are sent in one packet per chunk section and reverted to the
+ * real blocks once the player leaves the area or stops looking. A view is
+ * only rebuilt when the player changes chunk or a claim inside it changes.
+ */
+public class BlockBorderRenderer {
+    
+    private static final int OWN = 0;
+    private static final int OTHER = 1;
+    private static final int FOR_SALE = 2;
+    
+    private final LiseryPrivate plugin;
+    
+    private final BlockData[] borderBlocks = new BlockData[3];
+    private int radius;
+    
+    // Fake blocks currently shown to each player
+    private final Map<UUID, BorderView> views = new HashMap<>();
+    
+    public BlockBorderRenderer(LiseryPrivate plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Read border blocks and radius from config
+     */
+    public void load() {
+        this.radius = plugin.getConfigManager().getWandViewBlockRadius();
+        
+        borderBlocks[OWN] = plugin.getConfigManager().getWandViewBlock("own").createBlockData();
+        borderBlocks[OTHER] = plugin.getConfigManager().getWandViewBlock("other").createBlockData();
+        borderBlocks[FOR_SALE] = plugin.getConfigManager().getWandViewBlock("for-sale").createBlockData();
+    }
+    
+    /**
+     * Update fake borders around the player
+     * Nothing is sent while the player stays in the same chunk and no claim in view changed
+     */
+    public void show(Player player, Location location) {
+        World world = location.getWorld();
+        int centerX = location.getBlockX() >> 4;
+        int centerZ = location.getBlockZ() >> 4;
+        long revision = plugin.getChunkManager().getClusterRevision();
+        
+        BorderView view = views.get(player.getUniqueId());
+        if (view != null && !view.dirty && view.world.equals(world.getName()) && view.chunkX == centerX
+                && view.chunkZ == centerZ && view.revision == revision) {
+            return;
+        }
+        
+        BorderView next = new BorderView(world.getName(), centerX, centerZ, revision);
+        collectBorders(player, world, centerX, centerZ, next);
+        
+        Map<Position, BlockData> changes = new HashMap<>();
+        if (view != null && view.world.equals(next.world)) {
+            // Revert blocks that are no longer part of the border to what is there now
+            for (Position position : view.fake.keySet()) {
+                if (!next.fake.containsKey(position)) {
+                    changes.put(position, currentBlock(world, position));
+                }
+            }
+        }
+        
+        for (Map.Entry<Position, BlockData> entry : next.fake.entrySet()) {
+            if (view == null || !entry.getValue().equals(view.fake.get(entry.getKey()))) {
+                changes.put(entry.getKey(), entry.getValue());
+            }
+        }
+        
+        send(player, changes);
+        views.put(player.getUniqueId(), next);
+    }
+    
+    /**
+     * Revert all fake blocks shown to the player
+     */
+    public void clear(Player player) {
+        BorderView view = views.remove(player.getUniqueId());
+        if (view == null || !player.getWorld().getName().equals(view.world)) return;
+        
+        Map<Position, BlockData> changes = new HashMap<>();
+        for (Position position : view.fake.keySet()) {
+            changes.put(position, currentBlock(player.getWorld(), position));
+        }
+        send(player, changes);
+    }
+    
+    /**
+     * Rebuild the views that show a changed claim
+     * A claim change only moves border edges of the chunk and its direct
+     * neighbours, views further away stay as they are.
+     */
+    public void onClaimChanged(String worldName, int chunkX, int chunkZ) {
+        for (BorderView view : views.values()) {
+            if (view.world.equals(worldName)
+                    && Math.abs(view.chunkX - chunkX) <= radius + 1
+                    && Math.abs(view.chunkZ - chunkZ) <= radius + 1) {
+                view.dirty = true;
+            }
+        }
+    }
+    
+    /**
+     * Forget fake blocks of a player who left, the client drops them anyway
+     */
+    public void removePlayer(UUID playerUUID) {
+        views.remove(playerUUID);
+    }
+    
+    private void collectBorders(Player player, World world, int centerX, int centerZ, BorderView view) {
+        Set<ClaimCluster> clusters = Collections.newSetFromMap(new IdentityHashMap<>());
+        
+        // Heightmaps of the chunks in view, taken once per rebuild
+        Map<Long, ChunkSnapshot> heightmaps = new HashMap<>();
+        
+        int minX = (centerX - radius) << 4;
+        int maxX = ((centerX + radius + 1) << 4) - 1;
+        int minZ = (centerZ - radius) << 4;
+        int maxZ = ((centerZ + radius + 1) << 4) - 1;
+        
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dz = -radius; dz <= radius; dz++) {
+                ChunkData chunk = plugin.getChunkManager().getChunkAt(world.getName(), centerX + dx, centerZ + dz);
+                if (chunk == null) continue;
+                
+                ClaimCluster cluster = plugin.getChunkManager().getCluster(chunk);
+                if (!clusters.add(cluster)) continue;
+                
+                BlockData block;
+                if (cluster.isForSale()) {
+                    block = borderBlocks[FOR_SALE];
+                } else if (cluster.getOwnerUUID().equals(player.getUniqueId())) {
+                    block = borderBlocks[OWN];
+                } else {
+                    block = borderBlocks[OTHER];
+                }
+                
+                int[] outline = cluster.getOutline();
+                for (int i = 0; i < outline.length; i += 4) {
+                    int x1 = outline[i];
+                    int z1 = outline[i + 1];
+                    int x2 = outline[i + 2];
+                    int z2 = outline[i + 3];
+                    
+                    if (z1 == z2) {
+                        // Border blocks lie on the inner side of the edge
+                        for (int x = Math.max(x1, minX); x < Math.min(x2, maxX + 1); x++) {
+                            int z = cluster.contains(x >> 4, z1 >> 4) ? z1 : z1 - 1;
+                            if (z >= minZ && z <= maxZ) {
+                                addBlock(world, heightmaps, x, z, block, view);
+                            }
+                        }
+                    } else {
+                        for (int z = Math.max(z1, minZ); z < Math.min(z2, maxZ + 1); z++) {
+                            int x = cluster.contains(x1 >> 4, z >> 4) ? x1 : x1 - 1;
+                            if (x >= minX && x <= maxX) {
+                                addBlock(world, heightmaps, x, z, block, view);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+    
+    private void addBlock(World world, Map<Long, ChunkSnapshot> heightmaps, int x, int z, BlockData block,
+                          BorderView view) {
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        if (!world.isChunkLoaded(chunkX, chunkZ)) return;
+        
+        ChunkSnapshot snapshot = heightmaps.computeIfAbsent(ClaimCluster.pack(chunkX, chunkZ),
+                k -> world.getChunkAt(chunkX, chunkZ).getChunkSnapshot(true, false, false));
+        view.fake.put(Position.block(x, snapshot.getHighestBlockYAt(x & 15, z & 15), z), block);
+    }
+    
+    private BlockData currentBlock(World world, Position position) {
+        return world.getBlockData(position.blockX(), position.blockY(), position.blockZ());
+    }
+    
+    /**
+     * Send block changes grouped by chunk section, one packet per section
+     */
+    private void send(Player player, Map<Position, BlockData> changes) {
+        if (changes.isEmpty()) return;
+        
+        Map<Long, Map<Position, BlockData>> sections = new HashMap<>();
+        for (Map.Entry<Position, BlockData> entry : changes.entrySet()) {
+            Position position = entry.getKey();
+            long section = ((long) (position.blockX() >> 4) & 0x3FFFFF) << 42
+                    | ((long) (position.blockY() >> 4) & 0xFFFFF) << 22
+                    | ((long) (position.blockZ() >> 4) & 0x3FFFFF);
+            sections.computeIfAbsent(section, k -> new HashMap<>()).put(position, entry.getValue());
+        }
+        
+        for (Map<Position, BlockData> section : sections.values()) {
+            player.sendMultiBlockChange(section);
+        }
+    }
+    
+    /**
+     * Fake blocks shown to a player around a chunk at a cluster revision
+     */
+    private static final class BorderView {
+        private final String world;
+        private final int chunkX;
+        private final int chunkZ;
+        private final long revision;
+        private final Map<Position, BlockData> fake = new HashMap<>();
+        
+        // A claim in view changed since the blocks were collected
+        private boolean dirty;
+        
+        private BorderView(String world, int chunkX, int chunkZ, long revision) {
+            this.world = world;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.revision = revision;
+        }
+    }
+}
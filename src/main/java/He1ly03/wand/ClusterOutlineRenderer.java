@@ -0,0 +1,167 @@
+package He1ly03.wand;
+
+import He1ly03.LiseryPrivate;
+import He1ly03.chunk.ChunkData;
+import He1ly03.chunk.ClaimCluster;
+import He1ly03.utils.ColorUtils;
+import org.bukkit.Color;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.entity.Player;
+
+import java.util.*;
+
+/**
+ * Draws external outlines of claim clusters around a wand holder
+ * Outline geometry is cached per cluster, only sampling into particle
+ * points happens per draw. Points get sparser with distance.
+ */
+public class ClusterOutlineRenderer {
+    
+    private static final int OWN = 0;
+    private static final int OTHER = 1;
+    private static final int FOR_SALE = 2;
+    
+    private final LiseryPrivate plugin;
+    
+    private Particle particle;
+    private final Object[] particleData = new Object[3];
+    private int radius;
+    private double maxDistance;
+    
+    // Reused between draws
+    private final Set<ClaimCluster> clusterScratch = Collections.newSetFromMap(new IdentityHashMap<>());
+    private double[] pointX = new double[256];
+    private double[] pointZ = new double[256];
+    private byte[] pointCategory = new byte[256];
+    private int pointCount;
+    
+    public ClusterOutlineRenderer(LiseryPrivate plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Read particle, colours and radius from config
+     */
+    public void load(Particle particle) {
+        this.particle = particle;
+        this.radius = plugin.getConfigManager().getWandViewClusterRadius();
+        this.maxDistance = (radius + 1) << 4;
+        
+        particleData[OWN] = createData(plugin.getConfigManager().getWandViewColor("own"));
+        particleData[OTHER] = createData(plugin.getConfigManager().getWandViewColor("other"));
+        particleData[FOR_SALE] = createData(plugin.getConfigManager().getWandViewColor("for-sale"));
+    }
+    
+    /**
+     * Draw outlines of all clusters within radius, limited by the particle budget
+     */
+    public void show(Player player, Location location, WandManager wandManager) {
+        String world = location.getWorld().getName();
+        int centerX = location.getBlockX() >> 4;
+        int centerZ = location.getBlockZ() >> 4;
+        double playerX = location.getX();
+        double playerZ = location.getZ();
+        
+        pointCount = 0;
+        clusterScratch.clear();
+        
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dz = -radius; dz <= radius; dz++) {
+                ChunkData chunk = plugin.getChunkManager().getChunkAt(world, centerX + dx, centerZ + dz);
+                if (chunk == null) continue;
+                
+                ClaimCluster cluster = plugin.getChunkManager().getCluster(chunk);
+                if (!clusterScratch.add(cluster)) continue;
+                
+                byte category;
+                if (cluster.isForSale()) {
+                    category = FOR_SALE;
+                } else if (cluster.getOwnerUUID().equals(player.getUniqueId())) {
+                    category = OWN;
+                } else {
+                    category = OTHER;
+                }
+                
+                int[] outline = cluster.getOutline();
+                for (int i = 0; i < outline.length; i += 4) {
+                    addSegment(outline[i], outline[i + 1], outline[i + 2], outline[i + 3],
+                            playerX, playerZ, category);
+                }
+            }
+        }
+        clusterScratch.clear();
+        
+        int allowed = wandManager.takeParticleBudget(player.getUniqueId(), pointCount);
+        if (allowed <= 0) return;
+        
+        // Thin out evenly when the budget is short
+        double step = (double) pointCount / allowed;
+        double y = location.getY() + 1;
+        
+        for (double p = 0; p < pointCount; p += step) {
+            int index = (int) p;
+            player.spawnParticle(particle, pointX[index], y, pointZ[index], 1, 0, 0, 0, 0,
+                    particleData[pointCategory[index]]);
+        }
+    }
+    
+    /**
+     * Sample an axis-aligned segment into points, clipped to the view distance
+     */
+    private void addSegment(int x1, int z1, int x2, int z2, double playerX, double playerZ, byte category) {
+        boolean horizontal = z1 == z2;
+        double line = horizontal ? z1 : x1;
+        double along = horizontal ? playerX : playerZ;
+        double across = Math.abs((horizontal ? playerZ : playerX) - line);
+        if (across > maxDistance) return;
+        
+        double from = Math.max(horizontal ? x1 : z1, along - maxDistance);
+        double to = Math.min(horizontal ? x2 : z2, along + maxDistance);
+        
+        double t = from;
+        while (t <= to) {
+            double distance = Math.max(across, Math.abs(t - along));
+            
+            if (horizontal) {
+                addPoint(t, line, category);
+            } else {
+                addPoint(line, t, category);
+            }
+            
+            // Level of detail: sparser points further away
+            if (distance <= 16) {
+                t += 1;
+            } else if (distance <= 32) {
+                t += 2;
+            } else {
+                t += 4;
+            }
+        }
+    }
+    
+    private void addPoint(double x, double z, byte category) {
+        if (pointCount == pointX.length) {
+            int size = pointCount * 2;
+            pointX = Arrays.copyOf(pointX, size);
+            pointZ = Arrays.copyOf(pointZ, size);
+            pointCategory = Arrays.copyOf(pointCategory, size);
+        }
+        pointX[pointCount] = x;
+        pointZ[pointCount] = z;
+        pointCategory[pointCount] = category;
+        pointCount++;
+    }
+    
+    private Object createData(String colorString) {
+        int[] rgb = ColorUtils.parseRGB(colorString);
+        Color color = Color.fromRGB(rgb[0], rgb[1], rgb[2]);
+        
+        if (particle == Particle.DUST) {
+            return new Particle.DustOptions(color, 1.0f);
+        } else if (particle == Particle.DUST_COLOR_TRANSITION) {
+            return new Particle.DustTransition(color, color, 1.0f);
+        }
+        return null;
+    }
+}
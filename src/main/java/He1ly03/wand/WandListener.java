@@ -8,10 +8,18 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
+import org.bukkit.event.entity.EntityPickupItemEvent;
 import org.bukkit.event.inventory.CraftItemEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
 import org.bukkit.event.inventory.PrepareItemCraftEvent;
+import org.bukkit.event.player.PlayerDropItemEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerItemHeldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerSwapHandItemsEvent;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.HashMap;
@@ -32,6 +40,11 @@ public class WandListener implements Listener {
     
     @EventHandler(priority = EventPriority.HIGH)
     public void onPlayerInteract(PlayerInteractEvent event) {
+        if (event.getAction() == Action.LEFT_CLICK_AIR || event.getAction() == Action.LEFT_CLICK_BLOCK) {
+            handleViewModeSwitch(event);
+            return;
+        }
+        
         if (event.getAction() != Action.RIGHT_CLICK_AIR && event.getAction() != Action.RIGHT_CLICK_BLOCK) {
             return;
         }
@@ -39,7 +52,7 @@ public class WandListener implements Listener {
         Player player = event.getPlayer();
         ItemStack item = event.getItem();
         
-        if (!plugin.getWandManager().isWand(item)) {
+        if (!plugin.getWandManager().isWand(player, item)) {
             return;
         }
         
@@ -75,10 +88,86 @@ public class WandListener implements Listener {
         }
     }
     
+    /**
+     * Left click with the wand switches what it shows
+     */
+    private void handleViewModeSwitch(PlayerInteractEvent event) {
+        Player player = event.getPlayer();
+        if (!plugin.getWandManager().isWand(player, event.getItem())) {
+            return;
+        }
+        
+        event.setCancelled(true);
+        
+        // Cooldown check
+        long now = System.currentTimeMillis();
+        Long lastUse = cooldowns.get(player.getUniqueId());
+        if (lastUse != null && now - lastUse < 500) {
+            return;
+        }
+        cooldowns.put(player.getUniqueId(), now);
+        
+        WandViewMode mode = plugin.getWandManager().cycleViewMode(player);
+        
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("%mode%", plugin.getConfigManager().getMessageRaw(mode.getMessageKey()));
+        MessageUtils.sendMessage(player, plugin.getConfigManager().getMessage("wand-mode-changed"), placeholders);
+    }
+    
+    // ====== Wand holding tracking ======
+    
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        plugin.getWandManager().checkHoldingLater(event.getPlayer());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        plugin.getWandManager().checkHoldingLater(event.getPlayer());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemHeld(PlayerItemHeldEvent event) {
+        plugin.getWandManager().checkHoldingLater(event.getPlayer());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onSwapHands(PlayerSwapHandItemsEvent event) {
+        plugin.getWandManager().checkHoldingLater(event.getPlayer());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryClick(InventoryClickEvent event) {
+        if (event.getWhoClicked() instanceof Player player) {
+            plugin.getWandManager().checkHoldingLater(player);
+        }
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryDrag(InventoryDragEvent event) {
+        if (event.getWhoClicked() instanceof Player player) {
+            plugin.getWandManager().checkHoldingLater(player);
+        }
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onDropItem(PlayerDropItemEvent event) {
+        plugin.getWandManager().checkHoldingLater(event.getPlayer());
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPickupItem(EntityPickupItemEvent event) {
+        if (event.getEntity() instanceof Player player) {
+            plugin.getWandManager().checkHoldingLater(player);
+        }
+    }
+    
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         cooldowns.remove(event.getPlayer().getUniqueId());
+        plugin.getWandManager().removePlayer(event.getPlayer().getUniqueId());
         plugin.getHologramManager().removePlayer(event.getPlayer().getUniqueId());
+        plugin.getActionBarManager().removePlayer(event.getPlayer().getUniqueId());
     }
     
     // Prevent crafting with wand
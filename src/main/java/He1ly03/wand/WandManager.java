@@ -2,6 +2,7 @@ package He1ly03.wand;
 
 import He1ly03.LiseryPrivate;
 import He1ly03.chunk.ChunkData;
+import He1ly03.task.TimeSlicedScheduler;
 import He1ly03.utils.ColorUtils;
 import He1ly03.utils.MessageUtils;
 import net.kyori.adventure.text.Component;
@@ -12,13 +13,14 @@ import org.bukkit.inventory.ItemFlag;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.persistence.PersistentDataType;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 
 import java.util.*;
 
 /**
  * Manages the region editor wand item
+ *
+ * Wand holders are tracked from inventory events instead of polling every
+ * player, the outline task only runs for players in the holder set.
  */
 public class WandManager {
     
@@ -26,56 +28,198 @@ public class WandManager {
     private final NamespacedKey wandKey;
     
     // Task for showing chunk boundaries
-    private BukkitTask outlineTask;
+    private TimeSlicedScheduler.SlicedTask outlineTask;
     
     // Track players holding wand
     private final Set<UUID> playersHoldingWand = new HashSet<>();
     
+    // Players with a holding check scheduled for the next tick
+    private final Set<UUID> pendingChecks = new HashSet<>();
+    
+    // Wand material, checked before reading item meta
+    private Material wandMaterial;
+    
+    // Last wand stack seen in each holder's hand, matched before reading item meta
+    private final Map<UUID, ItemStack> heldWands = new HashMap<>();
+    
+    // Outline points as x, y, z offsets from the chunk corner at player's height
+    private int[] outlineOffsets = new int[0];
+    private Particle outlineParticle;
+    private Object outlineParticleData;
+    private int outlineParticlesPerSecond;
+    
+    // Outline particles each player may still receive
+    private final Map<UUID, ParticleBudget> particleBudgets = new HashMap<>();
+    
+    // What each player sees with the wand, CHUNK if absent
+    private final Map<UUID, WandViewMode> viewModes = new HashMap<>();
+    
+    private final ClusterOutlineRenderer clusterRenderer;
+    private final BlockBorderRenderer blockRenderer;
+    
     public WandManager(LiseryPrivate plugin) {
         this.plugin = plugin;
         this.wandKey = new NamespacedKey(plugin, "region_wand");
+        this.clusterRenderer = new ClusterOutlineRenderer(plugin);
+        this.blockRenderer = new BlockBorderRenderer(plugin);
     }
     
     /**
      * Start the outline particle task
      */
     public void startOutlineTask() {
-        if (outlineTask != null) {
-            outlineTask.cancel();
-        }
-        
-        outlineTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                for (Player player : Bukkit.getOnlinePlayers()) {
-                    if (isHoldingWand(player)) {
-                        playersHoldingWand.add(player.getUniqueId());
-                        showChunkBoundaries(player, player.getLocation().getChunk());
-                    } else {
-                        playersHoldingWand.remove(player.getUniqueId());
-                    }
-                }
+        plugin.getScheduler().unregister(outlineTask);
+        clearFakeBorders();
+        playersHoldingWand.clear();
+        heldWands.clear();
+        this.wandMaterial = plugin.getConfigManager().getWandMaterial();
+        loadOutline();
+        clusterRenderer.load(outlineParticle);
+        blockRenderer.load();
+        
+        // Every 5 ticks (0.25 seconds) per holder for smooth particles
+        outlineTask = plugin.getScheduler().registerTracked("wand-outline", 5, this::updateOutline);
+        
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            updateHolding(player);
+        }
+    }
+    
+    private void updateOutline(Player player) {
+        if (!playersHoldingWand.contains(player.getUniqueId())) return;
+        
+        Location location = player.getLocation();
+        switch (getViewMode(player.getUniqueId())) {
+            case CHUNK -> showChunkBoundaries(player, location.getBlockX() >> 4, location.getBlockZ() >> 4,
+                    location.getBlockY());
+            case CLUSTER -> clusterRenderer.show(player, location, this);
+            case BLOCKS -> blockRenderer.show(player, location);
+        }
+    }
+    
+    /**
+     * Get what the player sees with the wand
+     */
+    public WandViewMode getViewMode(UUID playerUUID) {
+        return viewModes.getOrDefault(playerUUID, WandViewMode.CHUNK);
+    }
+    
+    /**
+     * Switch player to the next wand view mode
+     */
+    public WandViewMode cycleViewMode(Player player) {
+        WandViewMode previous = getViewMode(player.getUniqueId());
+        if (previous == WandViewMode.BLOCKS) {
+            blockRenderer.clear(player);
+        }
+        
+        WandViewMode mode = previous.next();
+        viewModes.put(player.getUniqueId(), mode);
+        return mode;
+    }
+    
+    /**
+     * Re-check wand holding on the next tick, once the inventory change is applied
+     */
+    public void checkHoldingLater(Player player) {
+        if (!pendingChecks.add(player.getUniqueId())) return;
+        
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            pendingChecks.remove(player.getUniqueId());
+            if (player.isOnline()) {
+                updateHolding(player);
+            }
+        });
+    }
+    
+    /**
+     * Update holder set for a player and refresh holograms if it changed
+     */
+    public void updateHolding(Player player) {
+        boolean changed;
+        if (isHoldingWand(player)) {
+            changed = playersHoldingWand.add(player.getUniqueId());
+            if (outlineTask != null) {
+                outlineTask.add(player);
+            }
+        } else {
+            changed = playersHoldingWand.remove(player.getUniqueId());
+            heldWands.remove(player.getUniqueId());
+            if (outlineTask != null) {
+                outlineTask.remove(player.getUniqueId());
             }
-        }.runTaskTimer(plugin, 0L, 5L); // Every 5 ticks (0.25 seconds) for smooth particles
+            blockRenderer.clear(player);
+        }
+        
+        if (changed && plugin.getHologramManager() != null) {
+            plugin.getHologramManager().refreshPlayer(player);
+        }
+    }
+    
+    /**
+     * Remove player's holding state when they leave
+     */
+    public void removePlayer(UUID playerUUID) {
+        playersHoldingWand.remove(playerUUID);
+        pendingChecks.remove(playerUUID);
+        heldWands.remove(playerUUID);
+        particleBudgets.remove(playerUUID);
+        viewModes.remove(playerUUID);
+        blockRenderer.removePlayer(playerUUID);
+    }
+    
+    /**
+     * Let block borders showing a changed claim rebuild
+     */
+    public void onClaimChanged(String worldName, int chunkX, int chunkZ) {
+        blockRenderer.onClaimChanged(worldName, chunkX, chunkZ);
     }
     
     /**
      * Stop the outline task
      */
     public void stopOutlineTask() {
-        if (outlineTask != null) {
-            outlineTask.cancel();
-            outlineTask = null;
-        }
+        plugin.getScheduler().unregister(outlineTask);
+        outlineTask = null;
+        clearFakeBorders();
         playersHoldingWand.clear();
+        pendingChecks.clear();
+        heldWands.clear();
+    }
+    
+    /**
+     * Revert fake border blocks for everyone
+     */
+    private void clearFakeBorders() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            blockRenderer.clear(player);
+        }
     }
     
     /**
      * Check if player is holding wand in either hand
      */
     public boolean isHoldingWand(Player player) {
-        return isWand(player.getInventory().getItemInMainHand()) || 
-               isWand(player.getInventory().getItemInOffHand());
+        return isWand(player, player.getInventory().getItemInMainHand()) || 
+               isWand(player, player.getInventory().getItemInOffHand());
+    }
+    
+    /**
+     * Check if an item held by the player is the wand
+     * The material is checked first, then the stack last matched for this
+     * player. Hand items are new mirrors on every call, isSimilar matches the
+     * same underlying stack by reference and otherwise compares its data
+     * components, neither copies the item meta.
+     */
+    public boolean isWand(Player player, ItemStack item) {
+        if (item == null || item.getType() != wandMaterial) return false;
+        
+        ItemStack last = heldWands.get(player.getUniqueId());
+        if (last != null && (last == item || last.isSimilar(item))) return true;
+        
+        if (!isWand(item)) return false;
+        heldWands.put(player.getUniqueId(), item);
+        return true;
     }
     
     /**
@@ -145,57 +289,107 @@ public class WandManager {
         }
         
         player.getInventory().addItem(wand);
+        
+        // Landing in the selected slot fires no inventory event
+        checkHoldingLater(player);
     }
     
     /**
-     * Show chunk boundaries with particles
+     * Precompute outline points and particle data from config
      */
-    public void showChunkBoundaries(Player player, Chunk chunk) {
-        int chunkX = chunk.getX() << 4;
-        int chunkZ = chunk.getZ() << 4;
-        int playerY = player.getLocation().getBlockY();
+    private void loadOutline() {
+        this.outlineParticle = plugin.getConfigManager().getOutlineParticle();
         
-        Particle particle = plugin.getConfigManager().getOutlineParticle();
-        String colorString = plugin.getConfigManager().getOutlineParticleColor();
-        int[] rgb = ColorUtils.parseRGB(colorString);
+        int[] rgb = ColorUtils.parseRGB(plugin.getConfigManager().getOutlineParticleColor());
+        Color color = Color.fromRGB(rgb[0], rgb[1], rgb[2]);
+        if (outlineParticle == Particle.DUST) {
+            this.outlineParticleData = new Particle.DustOptions(color, 1.0f);
+        } else if (outlineParticle == Particle.DUST_COLOR_TRANSITION) {
+            this.outlineParticleData = new Particle.DustTransition(color, color, 1.0f);
+        } else {
+            this.outlineParticleData = null;
+        }
         
-        Particle.DustOptions dustOptions = new Particle.DustOptions(
-                Color.fromRGB(rgb[0], rgb[1], rgb[2]), 1.0f
-        );
+        this.outlineParticlesPerSecond = plugin.getConfigManager().getOutlineParticlesPerSecond();
+        
+        // Offsets from the chunk corner at player's height, corners are shared by edges
+        Set<List<Integer>> points = new LinkedHashSet<>();
         
         // Draw outline at multiple Y levels around player
-        for (int y = playerY - 1; y <= playerY + 3; y += 2) {
+        for (int y = -1; y <= 3; y += 2) {
             // Draw particles with spacing for performance
             for (int i = 0; i <= 16; i += 2) {
-                // North edge
-                spawnParticle(player, particle, chunkX + i, y, chunkZ, dustOptions);
-                // South edge
-                spawnParticle(player, particle, chunkX + i, y, chunkZ + 16, dustOptions);
-                // West edge
-                spawnParticle(player, particle, chunkX, y, chunkZ + i, dustOptions);
-                // East edge
-                spawnParticle(player, particle, chunkX + 16, y, chunkZ + i, dustOptions);
+                points.add(List.of(i, y, 0));   // North edge
+                points.add(List.of(i, y, 16));  // South edge
+                points.add(List.of(0, y, i));   // West edge
+                points.add(List.of(16, y, i));  // East edge
             }
         }
         
         // Corner pillars for better visibility
-        for (int y = playerY - 2; y <= playerY + 4; y++) {
-            spawnParticle(player, particle, chunkX, y, chunkZ, dustOptions);
-            spawnParticle(player, particle, chunkX + 16, y, chunkZ, dustOptions);
-            spawnParticle(player, particle, chunkX, y, chunkZ + 16, dustOptions);
-            spawnParticle(player, particle, chunkX + 16, y, chunkZ + 16, dustOptions);
+        for (int y = -2; y <= 4; y++) {
+            points.add(List.of(0, y, 0));
+            points.add(List.of(16, y, 0));
+            points.add(List.of(0, y, 16));
+            points.add(List.of(16, y, 16));
+        }
+        
+        this.outlineOffsets = new int[points.size() * 3];
+        int index = 0;
+        for (List<Integer> point : points) {
+            outlineOffsets[index++] = point.get(0);
+            outlineOffsets[index++] = point.get(1);
+            outlineOffsets[index++] = point.get(2);
         }
     }
     
-    private void spawnParticle(Player player, Particle particle, double x, double y, double z, 
-                               Particle.DustOptions dustOptions) {
-        Location loc = new Location(player.getWorld(), x, y, z);
+    /**
+     * Show chunk boundaries with particles
+     */
+    public void showChunkBoundaries(Player player, int chunkX, int chunkZ, int playerY) {
+        int pointCount = outlineOffsets.length / 3;
+        int allowed = takeParticleBudget(player.getUniqueId(), pointCount);
+        if (allowed <= 0) return;
         
-        if (particle == Particle.DUST || particle == Particle.DUST_COLOR_TRANSITION) {
-            player.spawnParticle(particle, loc, 1, 0, 0, 0, 0, dustOptions);
-        } else {
-            player.spawnParticle(particle, loc, 1, 0, 0, 0, 0);
+        // Thin out the outline evenly when the budget is short
+        double step = (double) pointCount / allowed;
+        
+        int baseX = chunkX << 4;
+        int baseZ = chunkZ << 4;
+        
+        for (double p = 0; p < pointCount; p += step) {
+            int index = (int) p * 3;
+            spawnParticle(player,
+                    baseX + outlineOffsets[index],
+                    playerY + outlineOffsets[index + 1],
+                    baseZ + outlineOffsets[index + 2]);
+        }
+    }
+    
+    /**
+     * Take up to the requested number of particles from player's per-second budget
+     */
+    int takeParticleBudget(UUID playerUUID, int requested) {
+        long now = System.nanoTime();
+        ParticleBudget budget = particleBudgets.get(playerUUID);
+        if (budget == null) {
+            budget = new ParticleBudget(outlineParticlesPerSecond, now);
+            particleBudgets.put(playerUUID, budget);
         }
+        
+        // Refill at the configured rate, up to one second worth of particles
+        budget.tokens = Math.min(outlineParticlesPerSecond,
+                budget.tokens + (now - budget.lastRefill) / 1_000_000_000.0 * outlineParticlesPerSecond);
+        budget.lastRefill = now;
+        
+        int granted = (int) Math.min(requested, budget.tokens);
+        budget.tokens -= granted;
+        return granted;
+    }
+    
+    private void spawnParticle(Player player, double x, double y, double z) {
+        // One particle per call is one packet, the API has no multi-position batch
+        player.spawnParticle(outlineParticle, x, y, z, 1, 0, 0, 0, 0, outlineParticleData);
     }
     
     /**
@@ -244,4 +438,17 @@ public class WandManager {
             MessageUtils.sendMessage(player, plugin.getConfigManager().getMessage("not-owner"));
         }
     }
+    
+    /**
+     * Token bucket limiting outline particles per second
+     */
+    private static final class ParticleBudget {
+        private double tokens;
+        private long lastRefill;
+        
+        private ParticleBudget(double tokens, long lastRefill) {
+            this.tokens = tokens;
+            this.lastRefill = lastRefill;
+        }
+    }
 }
@@ -0,0 +1,37 @@
+package He1ly03.wand;
+
+/**
+ * What the region editor wand shows around its holder
+ */
+public enum WandViewMode {
+    
+    // Outline of the chunk the player stands in
+    CHUNK("wand-mode-chunk"),
+    
+    // External outlines of claim clusters nearby
+    CLUSTER("wand-mode-cluster"),
+    
+    // Client-side fake blocks on the surface along claim borders
+    BLOCKS("wand-mode-blocks");
+    
+    private final String messageKey;
+    
+    WandViewMode(String messageKey) {
+        this.messageKey = messageKey;
+    }
+    
+    /**
+     * Message key with the display name of the mode
+     */
+    public String getMessageKey() {
+        return messageKey;
+    }
+    
+    /**
+     * Next mode when cycling with left click
+     */
+    public WandViewMode next() {
+        WandViewMode[] modes = values();
+        return modes[(ordinal() + 1) % modes.length];
+    }
+}
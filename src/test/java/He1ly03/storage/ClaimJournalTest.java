@@ -0,0 +1,179 @@
+package He1ly03.storage;
+
+import He1ly03.database.ChunkRow;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Journal and snapshot files of the FILE backend, written and replayed the way FileStorage does
+ */
+class ClaimJournalTest {
+    
+    private static final Logger LOGGER = Logger.getLogger("ClaimJournalTest");
+    private static final UUID OWNER = UUID.fromString("6f1c2f5e-0b7a-4a53-9d3c-1f2e3d4c5b6a");
+    private static final UUID FRIEND = UUID.fromString("0d9e8f7a-6b5c-4d3e-2f1a-0b9c8d7e6f5a");
+    
+    @TempDir
+    File folder;
+    
+    @Test
+    void replaysJournalAfterSnapshot() throws IOException {
+        ClaimJournal journal = new ClaimJournal(LOGGER, folder, 1);
+        journal.start();
+        journal.upsert(1, row("steve_1", 0, 0));
+        journal.addTrusted(1, FRIEND, "alex");
+        journal.upsert(2, row("steve_2", 1, 0));
+        assertTrue(journal.flush(5000));
+        
+        // Compaction: later records go to a new generation, the snapshot covers the older ones
+        int generation = journal.rotate();
+        journal.upsert(3, row("steve_3", 2, 0));
+        journal.delete(2);
+        journal.removeTrusted(1, FRIEND);
+        
+        SnapshotFile.write(new File(folder, "claims.snapshot"), new SnapshotFile.Meta(generation, 0, 0, 3, 0), List.of(
+                new SnapshotFile.Entry(1, row("steve_1", 0, 0), Map.of(FRIEND, "alex")),
+                new SnapshotFile.Entry(2, row("steve_2", 1, 0), Map.of())));
+        assertTrue(journal.flush(5000));
+        
+        // A crash before the old generation is deleted must not apply it twice
+        State beforeDelete = load();
+        assertEquals(Set.of(1, 3), beforeDelete.rows.keySet());
+        assertEquals(3, beforeDelete.records);
+        
+        journal.deleteBefore(generation);
+        assertTrue(journal.flush(5000));
+        journal.close();
+        
+        assertEquals(List.of(generation), ClaimJournal.listGenerations(folder));
+        State state = load();
+        assertEquals(Set.of(1, 3), state.rows.keySet());
+        assertEquals(row("steve_3", 2, 0), state.rows.get(3));
+        assertTrue(state.trusted.get(1).isEmpty());
+    }
+    
+    @Test
+    void stopsAtTornTail() throws IOException {
+        ClaimJournal journal = new ClaimJournal(LOGGER, folder, 1);
+        journal.start();
+        journal.upsert(1, row("steve_1", 0, 0));
+        journal.upsert(2, row("steve_2", 1, 0));
+        journal.close();
+        
+        // A record cut off by a crash: its length points past the end of the file
+        appendRaw(new File(folder, "journal-1.log"), ByteBuffer.allocate(11).putInt(100).putInt(0).put(new byte[3]));
+        
+        State state = new State();
+        assertEquals(2, ClaimJournal.replay(LOGGER, folder, 0, state));
+        assertEquals(Set.of(1, 2), state.rows.keySet());
+    }
+    
+    @Test
+    void ignoresRestOfFileAfterCorruptRecord() throws IOException {
+        ClaimJournal journal = new ClaimJournal(LOGGER, folder, 1);
+        journal.start();
+        journal.upsert(1, row("steve_1", 0, 0));
+        journal.close();
+        
+        appendRaw(new File(folder, "journal-1.log"), ByteBuffer.allocate(13).putInt(5).putInt(12345).put((byte) 2).putInt(1));
+        
+        // Later generations are still read
+        journal = new ClaimJournal(LOGGER, folder, 2);
+        journal.start();
+        journal.upsert(2, row("steve_2", 1, 0));
+        journal.close();
+        
+        State state = new State();
+        assertEquals(2, ClaimJournal.replay(LOGGER, folder, 0, state));
+        assertEquals(Set.of(1, 2), state.rows.keySet());
+    }
+    
+    @Test
+    void rejectsCorruptSnapshot() throws IOException {
+        File file = new File(folder, "claims.snapshot");
+        SnapshotFile.write(file, new SnapshotFile.Meta(4, 0, 0, 2, 0),
+                List.of(new SnapshotFile.Entry(1, row("steve_1", 0, 0), Map.of(FRIEND, "alex"))));
+        
+        State state = new State();
+        SnapshotFile.Header header = SnapshotFile.read(file, state);
+        assertEquals(4, header.meta().generation());
+        assertEquals(1, header.claims());
+        assertEquals(row("steve_1", 0, 0), state.rows.get(1));
+        assertEquals(Map.of(FRIEND, "alex"), state.trusted.get(1));
+        
+        // Flip one byte in the middle of the claim data
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = channel.size() / 2;
+            ByteBuffer value = ByteBuffer.allocate(1);
+            channel.read(value, position);
+            value.put(0, (byte) ~value.get(0));
+            channel.write(value.rewind(), position);
+        }
+        assertThrows(IOException.class, () -> SnapshotFile.read(file, new State()));
+    }
+    
+    private State load() throws IOException {
+        State state = new State();
+        SnapshotFile.Header header = SnapshotFile.read(new File(folder, "claims.snapshot"), state);
+        int fromGeneration = header != null ? header.meta().generation() : 0;
+        state.records = ClaimJournal.replay(LOGGER, folder, fromGeneration, state);
+        return state;
+    }
+    
+    private static ChunkRow row(String name, int chunkX, int chunkZ) {
+        return new ChunkRow("world", chunkX, chunkZ, name, OWNER, "steve", 3, false, 0, null, name);
+    }
+    
+    private static void appendRaw(File file, ByteBuffer bytes) throws IOException {
+        bytes.flip();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.APPEND)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+    
+    /**
+     * Claims as rebuilt from the files
+     */
+    private static final class State implements ClaimJournal.Handler {
+        private final Map<Integer, ChunkRow> rows = new HashMap<>();
+        private final Map<Integer, Map<UUID, String>> trusted = new HashMap<>();
+        private int records;
+        
+        @Override
+        public void upsert(int id, ChunkRow row) {
+            rows.put(id, row);
+            trusted.computeIfAbsent(id, k -> new HashMap<>());
+        }
+        
+        @Override
+        public void delete(int id) {
+            rows.remove(id);
+            trusted.remove(id);
+        }
+        
+        @Override
+        public void addTrusted(int id, UUID playerUUID, String playerName) {
+            trusted.computeIfAbsent(id, k -> new HashMap<>()).put(playerUUID, playerName);
+        }
+        
+        @Override
+        public void removeTrusted(int id, UUID playerUUID) {
+            Map<UUID, String> players = trusted.get(id);
+            if (players != null) {
+                players.remove(playerUUID);
+            }
+        }
+    }
+}